@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkUpdateRequestBuilder;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteRequestBuilder;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.DBCollection;
+import com.mongodb.DBEncoder;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBEncoder;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteConcernError;
+import org.bson.LazyBSONObject;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.jongo.bson.BsonDocument;
+import org.jongo.bson.StreamableBsonDocument;
+import org.jongo.marshall.Marshaller;
+import org.jongo.query.QueryFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Queues inserts, saves, updates and removes which are sent to the server in as few round-trips as possible.
+ * <p>
+ * Requests are split into batches holding at most {@link #withMaxBatchCount(int) max batch count} requests,
+ * a batch is also closed once its documents reach {@link #withMaxBatchBytes(int) max batch bytes}.
+ * Inserted and saved pojos are marshalled when the bulk is executed: the next batch is marshalled while
+ * the previous one is written by a background thread.
+ * <p>
+ * An ordered bulk stops at its first failing batch, an unordered bulk sends all its batches.
+ * Write errors do not raise exceptions, they are reported by the returned {@link BulkResult}. A request which
+ * cannot be prepared raises a {@link BulkException} once the batch in flight has been written.
+ */
+public class Bulk {
+
+    /**
+     * Default maximum number of write operations of a batch, as accepted by the server.
+     */
+    public static final int DEFAULT_MAX_BATCH_COUNT = 100000;
+    /**
+     * Default size of documents closing a batch: with a last document of the maximum BSON size (16MB),
+     * a batch still fits into a single message of the server (48MB).
+     */
+    public static final int DEFAULT_MAX_BATCH_BYTES = 32 * 1024 * 1024;
+
+    private static final String ID = "_id";
+
+    private final DBCollection collection;
+    private final WriteConcern writeConcern;
+    private final QueryFactory queryFactory;
+    private final Insert insert;
+    private final boolean ordered;
+    private final List<Request> requests = new ArrayList<Request>();
+    private final DBEncoder sizeEncoder = DefaultDBEncoder.FACTORY.create();
+    private final BasicOutputBuffer sizeBuffer = new BasicOutputBuffer();
+    private int maxBatchCount = DEFAULT_MAX_BATCH_COUNT;
+    private int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+
+    Bulk(DBCollection collection, WriteConcern writeConcern, Marshaller marshaller, ObjectIdUpdater objectIdUpdater, QueryFactory queryFactory, boolean ordered) {
+        this.collection = collection;
+        this.writeConcern = writeConcern;
+        this.queryFactory = queryFactory;
+        this.insert = new Insert(collection, writeConcern, marshaller, objectIdUpdater, queryFactory);
+        this.ordered = ordered;
+    }
+
+    public Bulk insert(Object... pojos) {
+        for (Object pojo : pojos) {
+            requests.add(new InsertRequest(pojo));
+        }
+        return this;
+    }
+
+    /**
+     * Inserts the pojo when it has no id yet, replaces the document with the same id otherwise.
+     */
+    public Bulk save(Object pojo) {
+        requests.add(new SaveRequest(pojo));
+        return this;
+    }
+
+    public BulkUpdate update(ObjectId id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Object id must not be null");
+        }
+        return update("{" + ID + ":#}", id);
+    }
+
+    public BulkUpdate update(String query) {
+        return update(query, new Object[0]);
+    }
+
+    public BulkUpdate update(String query, Object... parameters) {
+        return new BulkUpdate(this, queryFactory, queryFactory.createQuery(query, parameters).toDBObject());
+    }
+
+    public Bulk remove(ObjectId id) {
+        return remove("{" + ID + ":#}", id);
+    }
+
+    public Bulk remove(String query) {
+        return remove(query, new Object[0]);
+    }
+
+    public Bulk remove(String query, Object... parameters) {
+        requests.add(new RemoveRequest(queryFactory.createQuery(query, parameters).toDBObject()));
+        return this;
+    }
+
+    public Bulk withMaxBatchCount(int maxBatchCount) {
+        if (maxBatchCount < 1) {
+            throw new IllegalArgumentException("A batch must hold at least one request");
+        }
+        this.maxBatchCount = maxBatchCount;
+        return this;
+    }
+
+    public Bulk withMaxBatchBytes(int maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+        return this;
+    }
+
+    /**
+     * @return the number of queued requests
+     */
+    public int size() {
+        return requests.size();
+    }
+
+    public BulkResult execute() {
+        BulkResult result = new BulkResult();
+        ExecutorService executor = null;
+        Future<Batch> inFlight = null;
+        Batch batch = null;
+        try {
+            int index = 0;
+            while (index < requests.size()) {
+                batch = new Batch(index);
+                while (index < requests.size() && !batch.isFull()) {
+                    try {
+                        batch.add(requests.get(index));
+                    } catch (RuntimeException e) {
+                        throw prepareFailure(index, e, inFlight, result);
+                    }
+                    index++;
+                }
+                if (inFlight != null) {
+                    Batch previous = await(inFlight);
+                    inFlight = null;
+                    if (!complete(previous, result)) {
+                        return result;
+                    }
+                }
+                if (index == requests.size()) {
+                    complete(batch.call(), result);
+                } else {
+                    if (executor == null) {
+                        executor = Executors.newSingleThreadExecutor(new BulkThreadFactory(collection.getName()));
+                    }
+                    inFlight = executor.submit(batch);
+                }
+                batch = null;
+            }
+            return result;
+        } finally {
+            if (batch != null) {
+                batch.release();
+            }
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    void add(Request request) {
+        requests.add(request);
+    }
+
+    private boolean complete(Batch batch, BulkResult result) {
+        try {
+            result.add(batch.offset, batch.result, batch.errors, batch.writeConcernError);
+            return !ordered || batch.errors.isEmpty();
+        } finally {
+            batch.release();
+        }
+    }
+
+    private BulkException prepareFailure(int index, RuntimeException cause, Future<Batch> inFlight, BulkResult result) {
+        BulkException failure = new BulkException("Unable to prepare bulk request " + index, cause, index, result);
+        if (inFlight != null) {
+            try {
+                complete(await(inFlight), result);
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        return failure;
+    }
+
+    private static Batch await(Future<Batch> batch) {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoInterruptedException("Interrupted while waiting for a bulk batch", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Unable to execute bulk batch", cause);
+        }
+    }
+
+    private int sizeOf(DBObject dbo) {
+        if (dbo instanceof LazyBSONObject) {
+            return ((LazyBSONObject) dbo).getBSONSize();
+        }
+        // queries and modifiers are documents built by the query factory, they are encoded to be measured
+        sizeBuffer.truncateToPosition(0);
+        return sizeEncoder.writeObject(sizeBuffer, dbo);
+    }
+
+    class Batch implements Callable<Batch> {
+
+        private final int offset;
+        private final BulkWriteOperation operation;
+        private final List<BsonDocument> documents = new ArrayList<BsonDocument>();
+        private int count;
+        private long bytes;
+        private BulkWriteResult result;
+        private List<BulkWriteError> errors = Collections.emptyList();
+        private WriteConcernError writeConcernError;
+
+        private Batch(int offset) {
+            this.offset = offset;
+            this.operation = ordered ? collection.initializeOrderedBulkOperation() : collection.initializeUnorderedBulkOperation();
+        }
+
+        private void add(Request request) {
+            request.addTo(this);
+            count++;
+        }
+
+        private boolean isFull() {
+            return count >= maxBatchCount || bytes >= maxBatchBytes;
+        }
+
+        DBObject prepareForWrite(Object pojo) {
+            DBObject dbo = insert.prepareForWrite(pojo, documents);
+            BsonDocument document = documents.get(documents.size() - 1);
+            // streamed documents are only marshalled by the driver, their size is unknown
+            if (!(document instanceof StreamableBsonDocument)) {
+                bytes += document.getSize();
+            }
+            return dbo;
+        }
+
+        BulkWriteRequestBuilder find(DBObject query) {
+            bytes += sizeOf(query);
+            return operation.find(query);
+        }
+
+        void insert(DBObject dbo) {
+            operation.insert(dbo);
+        }
+
+        void countBytes(DBObject dbo) {
+            bytes += sizeOf(dbo);
+        }
+
+        public Batch call() {
+            try {
+                result = operation.execute(writeConcern);
+            } catch (BulkWriteException e) {
+                result = e.getWriteResult();
+                errors = e.getWriteErrors();
+                writeConcernError = e.getWriteConcernError();
+            }
+            return this;
+        }
+
+        private void release() {
+            for (BsonDocument document : documents) {
+                document.release();
+            }
+            documents.clear();
+        }
+    }
+
+    interface Request {
+        void addTo(Batch batch);
+    }
+
+    private static class InsertRequest implements Request {
+
+        private final Object pojo;
+
+        private InsertRequest(Object pojo) {
+            this.pojo = pojo;
+        }
+
+        public void addTo(Batch batch) {
+            batch.insert(batch.prepareForWrite(pojo));
+        }
+    }
+
+    private static class SaveRequest implements Request {
+
+        private final Object pojo;
+
+        private SaveRequest(Object pojo) {
+            this.pojo = pojo;
+        }
+
+        public void addTo(Batch batch) {
+            DBObject dbo = batch.prepareForWrite(pojo);
+            Object id = dbo.get(ID);
+            if (id == null) {
+                batch.insert(dbo);
+            } else {
+                batch.find(new BasicDBObject(ID, id)).upsert().replaceOne(dbo);
+            }
+        }
+    }
+
+    static class UpdateRequest implements Request {
+
+        private final DBObject query;
+        private final DBObject modifier;
+        private final boolean upsert;
+        private final boolean multi;
+
+        UpdateRequest(DBObject query, DBObject modifier, boolean upsert, boolean multi) {
+            this.query = query;
+            this.modifier = modifier;
+            this.upsert = upsert;
+            this.multi = multi;
+        }
+
+        public void addTo(Batch batch) {
+            BulkWriteRequestBuilder find = batch.find(query);
+            batch.countBytes(modifier);
+            if (upsert) {
+                BulkUpdateRequestBuilder upsertFind = find.upsert();
+                if (multi) {
+                    upsertFind.update(modifier);
+                } else {
+                    upsertFind.updateOne(modifier);
+                }
+            } else if (multi) {
+                find.update(modifier);
+            } else {
+                find.updateOne(modifier);
+            }
+        }
+    }
+
+    private static class RemoveRequest implements Request {
+
+        private final DBObject query;
+
+        private RemoveRequest(DBObject query) {
+            this.query = query;
+        }
+
+        public void addTo(Batch batch) {
+            batch.find(query).remove();
+        }
+    }
+
+    private static class BulkThreadFactory implements ThreadFactory {
+
+        private final String collectionName;
+
+        private BulkThreadFactory(String collectionName) {
+            this.collectionName = collectionName;
+        }
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "jongo-bulk-" + collectionName);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+/**
+ * Thrown when a request of a {@link Bulk} cannot be prepared, for instance when its pojo cannot be marshalled.
+ * Batches sent before this request are not rolled back, their outcome is reported by the partial result.
+ */
+public class BulkException extends RuntimeException {
+
+    private final int index;
+    private final BulkResult partialResult;
+
+    BulkException(String message, Throwable cause, int index, BulkResult partialResult) {
+        super(message, cause);
+        this.index = index;
+        this.partialResult = partialResult;
+    }
+
+    /**
+     * @return the index in the bulk of the request which cannot be prepared
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the result of the batches executed before the failure
+     */
+    public BulkResult getPartialResult() {
+        return partialResult;
+    }
+}
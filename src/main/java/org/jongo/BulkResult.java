@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.BulkWriteUpsert;
+import com.mongodb.WriteConcernError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The aggregated result of the batches of a {@link Bulk}. Indexes of upserts and errors are the indexes of
+ * the requests in the bulk, whatever the batch they have been sent with.
+ */
+public class BulkResult {
+
+    private boolean acknowledged = true;
+    private int insertedCount;
+    private int matchedCount;
+    private int removedCount;
+    private int modifiedCount;
+    private int executedBatches;
+    private final List<BulkWriteUpsert> upserts = new ArrayList<BulkWriteUpsert>();
+    private final List<BulkWriteError> errors = new ArrayList<BulkWriteError>();
+    private final List<WriteConcernError> writeConcernErrors = new ArrayList<WriteConcernError>();
+
+    void add(int offset, BulkWriteResult result, List<BulkWriteError> batchErrors, WriteConcernError writeConcernError) {
+        executedBatches++;
+        if (result == null || !result.isAcknowledged()) {
+            acknowledged = false;
+        } else {
+            insertedCount += result.getInsertedCount();
+            matchedCount += result.getMatchedCount();
+            removedCount += result.getRemovedCount();
+            modifiedCount += result.getModifiedCount();
+            for (BulkWriteUpsert upsert : result.getUpserts()) {
+                upserts.add(new BulkWriteUpsert(upsert.getIndex() + offset, upsert.getId()));
+            }
+        }
+        for (BulkWriteError error : batchErrors) {
+            errors.add(new BulkWriteError(error.getCode(), error.getMessage(), error.getDetails(), error.getIndex() + offset));
+        }
+        if (writeConcernError != null) {
+            writeConcernErrors.add(writeConcernError);
+        }
+    }
+
+    /**
+     * @return false if the bulk has been written with an unacknowledged write concern, counts are then unknown
+     */
+    public boolean isAcknowledged() {
+        return acknowledged;
+    }
+
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+    public int getModifiedCount() {
+        return modifiedCount;
+    }
+
+    public List<BulkWriteUpsert> getUpserts() {
+        return Collections.unmodifiableList(upserts);
+    }
+
+    /**
+     * @return the requests which have failed. An ordered bulk stops at its first failing batch.
+     */
+    public List<BulkWriteError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public List<WriteConcernError> getWriteConcernErrors() {
+        return Collections.unmodifiableList(writeConcernErrors);
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty() || !writeConcernErrors.isEmpty();
+    }
+
+    /**
+     * @return the number of batches sent to the server
+     */
+    public int getExecutedBatches() {
+        return executedBatches;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResult{" +
+                "acknowledged=" + acknowledged +
+                ", insertedCount=" + insertedCount +
+                ", matchedCount=" + matchedCount +
+                ", removedCount=" + removedCount +
+                ", modifiedCount=" + modifiedCount +
+                ", upserts=" + upserts +
+                ", errors=" + errors +
+                ", writeConcernErrors=" + writeConcernErrors +
+                '}';
+    }
+}
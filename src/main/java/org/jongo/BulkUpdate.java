@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import com.mongodb.DBObject;
+import org.jongo.query.QueryFactory;
+
+/**
+ * An update queued into a {@link Bulk}, the bulk is given back once the modifier is set.
+ */
+public class BulkUpdate {
+
+    private final Bulk bulk;
+    private final QueryFactory queryFactory;
+    private final DBObject query;
+    private boolean upsert = false;
+    private boolean multi = false;
+
+    BulkUpdate(Bulk bulk, QueryFactory queryFactory, DBObject query) {
+        this.bulk = bulk;
+        this.queryFactory = queryFactory;
+        this.query = query;
+    }
+
+    public BulkUpdate upsert() {
+        this.upsert = true;
+        return this;
+    }
+
+    public BulkUpdate multi() {
+        this.multi = true;
+        return this;
+    }
+
+    public Bulk with(String modifier) {
+        return with(modifier, new Object[0]);
+    }
+
+    public Bulk with(String modifier, Object... parameters) {
+        return queue(queryFactory.createQuery(modifier, parameters).toDBObject());
+    }
+
+    /**
+     * Sets the fields of the pojo, except its id, on the matching documents.
+     */
+    public Bulk with(Object pojo) {
+        return queue(Update.removeIdField(queryFactory.createQuery("{$set:#}", pojo)));
+    }
+
+    private Bulk queue(DBObject modifier) {
+        bulk.add(new Bulk.UpdateRequest(query, modifier, upsert, multi));
+        return bulk;
+    }
+}
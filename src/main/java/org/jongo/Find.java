@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.jongo.ResultHandlerFactory.newResultHandler;
+import static org.jongo.ResultHandlerFactory.newViewResultHandler;
 
 public class Find {
 
@@ -40,11 +41,16 @@ public class Find {
     private Query fields;
 
     Find(DBCollection collection, ReadPreference readPreference, Unmarshaller unmarshaller, QueryFactory queryFactory, String query, Object... parameters) {
+        this(collection, readPreference, unmarshaller, queryFactory, queryFactory.createQuery(query, parameters), null);
+    }
+
+    Find(DBCollection collection, ReadPreference readPreference, Unmarshaller unmarshaller, QueryFactory queryFactory, Query query, Query fields) {
         this.readPreference = readPreference;
         this.unmarshaller = unmarshaller;
         this.collection = collection;
         this.queryFactory = queryFactory;
-        this.query = this.queryFactory.createQuery(query, parameters);
+        this.query = query;
+        this.fields = fields;
         this.modifiers = new ArrayList<QueryModifier>();
     }
 
@@ -52,6 +58,14 @@ public class Find {
         return map(newResultHandler(clazz, unmarshaller));
     }
 
+    /**
+     * Maps results onto instances of an interface backed by the raw BSON of each document,
+     * see {@link org.jongo.marshall.view.ViewFactory}.
+     */
+    public <T> MongoCursor<T> asView(final Class<T> viewType) {
+        return map(newViewResultHandler(viewType, unmarshaller));
+    }
+
     public <T> MongoCursor<T> map(ResultHandler<T> resultHandler) {
         DBCursor cursor = new DBCursor(collection, query.toDBObject(), getFieldsAsDBObject(), readPreference);
         for (QueryModifier modifier : modifiers) {
@@ -21,14 +21,26 @@ import org.bson.LazyBSONCallback;
 import org.bson.types.ObjectId;
 import org.jongo.bson.Bson;
 import org.jongo.bson.BsonDocument;
+import org.jongo.bson.RawBson;
+import org.jongo.bson.StreamableBsonDocument;
+import org.jongo.bson.StreamedDBObject;
 import org.jongo.marshall.Marshaller;
+import org.jongo.query.Query;
 import org.jongo.query.QueryFactory;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 class Insert {
 
+    private static final String ID = "_id";
+    private static final byte[] ID_NAME = ID.getBytes(StandardCharsets.UTF_8);
+    private static final byte BSON_OBJECT_ID = 7;
+
     private final Marshaller marshaller;
     private final DBCollection collection;
     private final ObjectIdUpdater objectIdUpdater;
@@ -45,30 +57,55 @@ class Insert {
 
     public WriteResult save(Object pojo) {
         Object id = preparePojo(pojo);
-        DBObject dbo = convertToDBObject(pojo, id);
-        return collection.save(dbo, writeConcern);
+        BsonDocument document = marshallForWrite(pojo);
+        try {
+            return collection.save(convertToDBObject(document, id), writeConcern);
+        } finally {
+            document.release();
+        }
     }
 
     public WriteResult insert(Object... pojos) {
-        List<DBObject> dbos = new ArrayList<DBObject>(pojos.length);
-        for (Object pojo : pojos) {
-            Object id = preparePojo(pojo);
-            DBObject dbo = convertToDBObject(pojo, id);
-            dbos.add(dbo);
+        List<BsonDocument> documents = new ArrayList<BsonDocument>(pojos.length);
+        try {
+            List<DBObject> dbos = new ArrayList<DBObject>(pojos.length);
+            for (Object pojo : pojos) {
+                dbos.add(prepareForWrite(pojo, documents));
+            }
+            return collection.insert(dbos, writeConcern);
+        } finally {
+            for (BsonDocument document : documents) {
+                document.release();
+            }
         }
-        return collection.insert(dbos, writeConcern);
     }
 
     public WriteResult insert(String query, Object... parameters) {
-        DBObject dbQuery = queryFactory.createQuery(query, parameters).toDBObject();
+        Query insertQuery = queryFactory.createQuery(query, parameters);
+        DBObject dbQuery = insertQuery.toDBObject();
         if (dbQuery instanceof BasicDBList) {
             return insert(((BasicDBList) dbQuery).toArray());
-        } else {
-            return collection.insert(dbQuery, writeConcern);
         }
+        // the driver sets a generated _id on documents without one
+        return collection.insert(insertQuery.copyDBObject(), writeConcern);
+    }
+
+    /**
+     * Marshalls a pojo about to be written, its document is added to the given ones which have to be
+     * released once the driver has written them.
+     */
+    DBObject prepareForWrite(Object pojo, List<BsonDocument> documents) {
+        Object id = preparePojo(pojo);
+        BsonDocument document = marshallForWrite(pojo);
+        documents.add(document);
+        return convertToDBObject(document, id);
     }
 
     private Object preparePojo(Object pojo) {
+        if (marshaller.generatesObjectIds()) {
+            // the id is generated while the pojo is marshalled and then read from the document
+            return null;
+        }
         if (objectIdUpdater.mustGenerateObjectId(pojo)) {
             ObjectId newOid = ObjectId.get();
             objectIdUpdater.setObjectId(pojo, newOid);
@@ -77,9 +114,41 @@ class Insert {
         return objectIdUpdater.getId(pojo);
     }
 
-    private DBObject convertToDBObject(Object pojo, Object id) {
-        BsonDocument document = asBsonDocument(marshaller, pojo);
-        return new LazyIdDBObject(document.toByteArray(), marshaller, id);
+    private BsonDocument marshallForWrite(Object pojo) {
+        try {
+            return marshaller.marshallForWrite(pojo);
+        } catch (Exception e) {
+            String message = String.format("Unable to save object %s due to a marshalling error", pojo);
+            throw new IllegalArgumentException(message, e);
+        }
+    }
+
+    private DBObject convertToDBObject(BsonDocument document, Object id) {
+        Object bsonId = marshaller.generatesObjectIds() ? readId(document) : asBsonId(marshaller, id);
+        if (document instanceof StreamableBsonDocument) {
+            return new StreamedDBObject((StreamableBsonDocument) document, bsonId);
+        }
+        // documents can be views over reused buffers, they are only read until the driver has written them
+        return new LazyIdDBObject(document.toByteArray(), marshaller, bsonId);
+    }
+
+    private static Object readId(BsonDocument document) {
+        byte[] bytes = document.toByteArray();
+        int element = RawBson.findElement(bytes, 0, ID_NAME);
+        if (element < 0) {
+            return null;
+        }
+        byte type = bytes[element];
+        int value = element + ID_NAME.length + 2;
+        if (type == BSON_OBJECT_ID) {
+            return new ObjectId(Arrays.copyOfRange(bytes, value, value + 12));
+        }
+        // the id element is copied since the document can be a view over a reused buffer
+        int elementSize = value - element + RawBson.valueSize(bytes, type, value);
+        byte[] idDocument = new byte[elementSize + 5];
+        ByteBuffer.wrap(idDocument).order(ByteOrder.LITTLE_ENDIAN).putInt(idDocument.length);
+        System.arraycopy(bytes, element, idDocument, 4, elementSize);
+        return Bson.createDocument(idDocument).toDBObject().get(ID);
     }
 
     private final static class LazyIdDBObject extends LazyDBObject {
@@ -87,23 +156,16 @@ class Insert {
         private Object bsonId;
         private final Marshaller marshaller;
 
-        private LazyIdDBObject(byte[] data, Marshaller marshaller, Object _id) {
+        private LazyIdDBObject(byte[] data, Marshaller marshaller, Object bsonId) {
             super(data, new LazyBSONCallback());
             this.marshaller = marshaller;
-            this.bsonId = asBsonId(_id);
-        }
-
-        private Object asBsonId(Object _id) {
-            if (_id == null || Bson.isPrimitive(_id)) {
-                return _id;
-            }
-            return asBsonDocument(marshaller, _id).toDBObject();
+            this.bsonId = bsonId;
         }
 
         @Override
         public Object put(String key, Object v) {
             if ("_id".equals(key)) {
-                this.bsonId = asBsonId(key);
+                this.bsonId = asBsonId(marshaller, key);
                 return null; //fixme
             }
             throw new UnsupportedOperationException("Object is read only for fields others than _id");
@@ -118,6 +180,13 @@ class Insert {
         }
     }
 
+    private static Object asBsonId(Marshaller marshaller, Object _id) {
+        if (_id == null || Bson.isPrimitive(_id)) {
+            return _id;
+        }
+        return asBsonDocument(marshaller, _id).toDBObject();
+    }
+
     private static BsonDocument asBsonDocument(Marshaller marshaller, Object obj) {
         try {
             return marshaller.marshall(obj);
@@ -40,6 +40,13 @@ public class Jongo {
     }
 
     public MongoCollection getCollection(String name) {
+        return getCollection(name, mapper);
+    }
+
+    /**
+     * Gets a collection whose documents are mapped with its own {@link Mapper}.
+     */
+    public MongoCollection getCollection(String name, Mapper mapper) {
         DBCollection dbCollection = database.getCollection(name);
         dbCollection.setDBDecoderFactory(BsonDBDecoder.FACTORY);
         dbCollection.setDBEncoderFactory(BsonDBEncoder.FACTORY);
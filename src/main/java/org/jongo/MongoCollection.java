@@ -19,6 +19,10 @@ package org.jongo;
 import com.mongodb.*;
 import org.bson.types.ObjectId;
 import org.jongo.query.Query;
+import org.jongo.query.QueryFactory;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 
 public class MongoCollection {
@@ -90,6 +94,14 @@ public class MongoCollection {
         return new Find(collection, readPreference, mapper.getUnmarshaller(), mapper.getQueryFactory(), query, parameters);
     }
 
+    public Find find(Query query) {
+        return new Find(collection, readPreference, mapper.getUnmarshaller(), mapper.getQueryFactory(), query, null);
+    }
+
+    public PreparedFind prepareFind(String query) {
+        return new PreparedFind(collection, readPreference, mapper.getUnmarshaller(), mapper.getQueryFactory(), query);
+    }
+
     public FindAndModify findAndModify() {
         return findAndModify(ALL);
     }
@@ -115,6 +127,10 @@ public class MongoCollection {
         return collection.getCount(dbQuery);
     }
 
+    public PreparedCount prepareCount(String query) {
+        return new PreparedCount(collection, mapper.getQueryFactory().prepareQuery(query));
+    }
+
     public Update update(String query) {
         return update(query, NO_PARAMETERS);
     }
@@ -130,6 +146,15 @@ public class MongoCollection {
         return new Update(collection, writeConcern, mapper.getQueryFactory(), query, parameters);
     }
 
+    public Update update(Query query) {
+        return new Update(collection, writeConcern, mapper.getQueryFactory(), query);
+    }
+
+    public PreparedUpdate prepareUpdate(String query, String modifier) {
+        QueryFactory queryFactory = mapper.getQueryFactory();
+        return new PreparedUpdate(collection, writeConcern, queryFactory.prepareQuery(query), queryFactory.prepareQuery(modifier));
+    }
+
     public WriteResult save(Object pojo) {
         return new Insert(collection, writeConcern, mapper.getMarshaller(), mapper.getObjectIdUpdater(), mapper.getQueryFactory()).save(pojo);
     }
@@ -146,10 +171,31 @@ public class MongoCollection {
         return new Insert(collection, writeConcern, mapper.getMarshaller(), mapper.getObjectIdUpdater(), mapper.getQueryFactory()).insert(pojos);
     }
 
+    /**
+     * Inserts the pojos of an iterator in batches of the given size, without holding all of them in memory.
+     */
+    public StreamingInsert insertAll(Iterator<?> pojos, int batchSize) {
+        Insert insert = new Insert(collection, writeConcern, mapper.getMarshaller(), mapper.getObjectIdUpdater(), mapper.getQueryFactory());
+        return new StreamingInsert(insert, pojos, batchSize);
+    }
+
+    public StreamingInsert insertAll(Stream<?> pojos, int batchSize) {
+        return insertAll(pojos.iterator(), batchSize);
+    }
+
     public WriteResult insert(String query, Object... parameters) {
         return new Insert(collection, writeConcern, mapper.getMarshaller(), mapper.getObjectIdUpdater(), mapper.getQueryFactory()).insert(query, parameters);
     }
 
+    /**
+     * Starts a bulk of writes sent together when it is executed.
+     *
+     * @param ordered an ordered bulk stops at the first failing request, an unordered one tries all of them
+     */
+    public Bulk bulk(boolean ordered) {
+        return new Bulk(collection, writeConcern, mapper.getMarshaller(), mapper.getObjectIdUpdater(), mapper.getQueryFactory(), ordered);
+    }
+
     public WriteResult remove(ObjectId id) {
         return remove("{" + MONGO_DOCUMENT_ID_NAME + ":#}", id);
     }
@@ -166,6 +212,14 @@ public class MongoCollection {
         return collection.remove(createQuery(query, parameters).toDBObject(), writeConcern);
     }
 
+    public WriteResult remove(Query query) {
+        return collection.remove(query.toDBObject(), writeConcern);
+    }
+
+    public PreparedRemove prepareRemove(String query) {
+        return new PreparedRemove(collection, writeConcern, mapper.getQueryFactory().prepareQuery(query));
+    }
+
     public Distinct distinct(String key) {
         return new Distinct(collection, mapper.getUnmarshaller(), mapper.getQueryFactory(), key);
     }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import com.mongodb.DBCollection;
+import org.jongo.query.PreparedQuery;
+
+/**
+ * A count operation whose query is parsed once. Instances are immutable and thread-safe.
+ */
+public class PreparedCount {
+
+    private final DBCollection collection;
+    private final PreparedQuery query;
+
+    PreparedCount(DBCollection collection, PreparedQuery query) {
+        this.collection = collection;
+        this.query = query;
+    }
+
+    public long bind(Object... parameters) {
+        return collection.getCount(query.bind(parameters).toDBObject());
+    }
+}
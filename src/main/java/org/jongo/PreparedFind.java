@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.ReadPreference;
+import org.jongo.marshall.Unmarshaller;
+import org.jongo.query.PreparedQuery;
+import org.jongo.query.QueryFactory;
+
+/**
+ * A find operation whose query, projection, sort and hint are parsed once.
+ * Instances are immutable and thread-safe: each modifier returns a new prepared find
+ * and each {@link #bind(Object...)} returns a new {@link Find}.
+ */
+public class PreparedFind {
+
+    private final DBCollection collection;
+    private final ReadPreference readPreference;
+    private final Unmarshaller unmarshaller;
+    private final QueryFactory queryFactory;
+    private final PreparedQuery query;
+    private final PreparedQuery fields;
+    private final PreparedQuery sort;
+    private final PreparedQuery hint;
+    private final Integer limit;
+    private final Integer skip;
+
+    PreparedFind(DBCollection collection, ReadPreference readPreference, Unmarshaller unmarshaller, QueryFactory queryFactory, String query) {
+        this(collection, readPreference, unmarshaller, queryFactory, queryFactory.prepareQuery(query), null, null, null, null, null);
+    }
+
+    private PreparedFind(DBCollection collection, ReadPreference readPreference, Unmarshaller unmarshaller, QueryFactory queryFactory,
+                         PreparedQuery query, PreparedQuery fields, PreparedQuery sort, PreparedQuery hint, Integer limit, Integer skip) {
+        this.collection = collection;
+        this.readPreference = readPreference;
+        this.unmarshaller = unmarshaller;
+        this.queryFactory = queryFactory;
+        this.query = query;
+        this.fields = fields;
+        this.sort = sort;
+        this.hint = hint;
+        this.limit = limit;
+        this.skip = skip;
+    }
+
+    public Find bind(Object... parameters) {
+        Find find = new Find(collection, readPreference, unmarshaller, queryFactory, query.bind(parameters), fields == null ? null : fields.bind());
+        if (limit != null || skip != null || sort != null || hint != null) {
+            find.with(new QueryModifier() {
+                public void modify(DBCursor cursor) {
+                    if (limit != null) {
+                        cursor.limit(limit);
+                    }
+                    if (skip != null) {
+                        cursor.skip(skip);
+                    }
+                    if (sort != null) {
+                        cursor.sort(sort.bind().toDBObject());
+                    }
+                    if (hint != null) {
+                        cursor.hint(hint.bind().toDBObject());
+                    }
+                }
+            });
+        }
+        return find;
+    }
+
+    public PreparedFind projection(String fields) {
+        return new PreparedFind(collection, readPreference, unmarshaller, queryFactory, query, prepare(fields), sort, hint, limit, skip);
+    }
+
+    public PreparedFind sort(String sort) {
+        return new PreparedFind(collection, readPreference, unmarshaller, queryFactory, query, fields, prepare(sort), hint, limit, skip);
+    }
+
+    public PreparedFind hint(String hint) {
+        return new PreparedFind(collection, readPreference, unmarshaller, queryFactory, query, fields, sort, prepare(hint), limit, skip);
+    }
+
+    public PreparedFind limit(int limit) {
+        return new PreparedFind(collection, readPreference, unmarshaller, queryFactory, query, fields, sort, hint, limit, skip);
+    }
+
+    public PreparedFind skip(int skip) {
+        return new PreparedFind(collection, readPreference, unmarshaller, queryFactory, query, fields, sort, hint, limit, skip);
+    }
+
+    private PreparedQuery prepare(String query) {
+        return queryFactory.prepareQuery(query);
+    }
+}
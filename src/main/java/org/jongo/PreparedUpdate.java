@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import com.mongodb.DBCollection;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteResult;
+import org.jongo.query.PreparedQuery;
+
+import java.util.Arrays;
+
+import static org.jongo.query.PreparedQuery.UNKNOWN_PARAMETER_COUNT;
+
+/**
+ * An update operation whose query and modifier are parsed once. Instances are immutable and thread-safe.
+ * <p>
+ * Parameters passed to {@link #bind(Object...)} are bound to the query first, then to the modifier.
+ */
+public class PreparedUpdate {
+
+    private final DBCollection collection;
+    private final WriteConcern writeConcern;
+    private final PreparedQuery query;
+    private final PreparedQuery modifier;
+    private final boolean upsert;
+    private final boolean multi;
+
+    PreparedUpdate(DBCollection collection, WriteConcern writeConcern, PreparedQuery query, PreparedQuery modifier) {
+        this(collection, writeConcern, query, modifier, false, false);
+    }
+
+    private PreparedUpdate(DBCollection collection, WriteConcern writeConcern, PreparedQuery query, PreparedQuery modifier, boolean upsert, boolean multi) {
+        this.collection = collection;
+        this.writeConcern = writeConcern;
+        this.query = query;
+        this.modifier = modifier;
+        this.upsert = upsert;
+        this.multi = multi;
+    }
+
+    public WriteResult bind(Object... parameters) {
+        if (parameters == null) {
+            parameters = new Object[]{null};
+        }
+        if (query.getParameterCount() == UNKNOWN_PARAMETER_COUNT && modifier.getParameterCount() != 0 && parameters.length > 0) {
+            throw new IllegalArgumentException("Unable to split parameters between query and modifier, query factory cannot count them");
+        }
+        int queryParameterCount = query.getParameterCount() == UNKNOWN_PARAMETER_COUNT ? parameters.length : Math.min(query.getParameterCount(), parameters.length);
+        Object[] queryParameters = Arrays.copyOfRange(parameters, 0, queryParameterCount);
+        Object[] modifierParameters = Arrays.copyOfRange(parameters, queryParameterCount, parameters.length);
+
+        return collection.update(query.bind(queryParameters).toDBObject(), modifier.bind(modifierParameters).toDBObject(), upsert, multi, writeConcern);
+    }
+
+    public PreparedUpdate upsert() {
+        return new PreparedUpdate(collection, writeConcern, query, modifier, true, multi);
+    }
+
+    public PreparedUpdate multi() {
+        return new PreparedUpdate(collection, writeConcern, query, modifier, upsert, true);
+    }
+}
@@ -17,12 +17,11 @@
 package org.jongo;
 
 import org.bson.types.ObjectId;
+import org.jongo.marshall.jackson.IdAccessor;
 import org.jongo.marshall.jackson.IdSelector;
 import org.jongo.marshall.jackson.JacksonObjectIdUpdater;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Use {@link JacksonObjectIdUpdater} instead
@@ -30,72 +29,47 @@ import java.util.Map;
 @Deprecated
 public class ReflectiveObjectIdUpdater implements ObjectIdUpdater {
 
-    private final Map<Class<?>, Field> fieldCache = new HashMap<Class<?>, Field>();
     private final IdFieldSelector idFieldSelector;
+    private final ClassValue<IdAccessor> accessors = new ClassValue<IdAccessor>() {
+        @Override
+        protected IdAccessor computeValue(Class<?> type) {
+            Field idField = selectIdField(type);
+            if (idField == null) {
+                return IdAccessor.NO_ID;
+            }
+            idField.setAccessible(true);
+            return IdAccessor.of(idField, idField, idFieldSelector.isObjectId(idField));
+        }
+    };
 
     public ReflectiveObjectIdUpdater(IdFieldSelector idFieldSelector) {
         this.idFieldSelector = idFieldSelector;
     }
 
     public boolean mustGenerateObjectId(Object pojo) {
-        Field idField = selectIdField(pojo.getClass());
-        return idField != null && isAnEmptyObjectId(pojo, idField);
+        IdAccessor accessor = accessors.get(pojo.getClass());
+        return accessor.isObjectId() && accessor.getValue(pojo) == null;
     }
 
     public Object getId(Object pojo) {
-        Field idField = selectIdField(pojo.getClass());
-        if (idField != null) {
-            try {
-                idField.setAccessible(true);
-                Object id = idField.get(pojo);
-
-                if (id instanceof String && idFieldSelector.isObjectId(idField)) {
-                    return new ObjectId(id.toString());
-                } else {
-                    return id;
-                }
-
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Unable to obtain objectid from field" + idField.getName() + ", class: " + idField.getClass(), e);
-            }
-        }
-        return null;
+        return accessors.get(pojo.getClass()).getId(pojo);
     }
 
     public void setObjectId(Object newPojo, ObjectId id) {
-        Field idField = selectIdField(newPojo.getClass());
-        if (idField == null) {
+        IdAccessor accessor = accessors.get(newPojo.getClass());
+        if (!accessor.hasId()) {
             return;
-        } else if (!mustGenerateObjectId(newPojo)) {
+        } else if (!accessor.isObjectId() || accessor.getValue(newPojo) != null) {
             throw new IllegalArgumentException("Unable to set objectid on class: " + newPojo.getClass());
         }
-        updateField(newPojo, id, idField);
-    }
-
-    private void updateField(Object target, ObjectId id, Field field) {
-        try {
-            if (field.getType().equals(ObjectId.class)) {
-                field.setAccessible(true);
-                field.set(target, id);
-            } else if (field.getType().equals(String.class) && idFieldSelector.isObjectId(field)) {
-                field.setAccessible(true);
-                field.set(target, id.toString());
-            }
-        } catch (IllegalAccessException e) {
-            throw new IllegalArgumentException("Unable to set objectid on class: " + target.getClass(), e);
-        }
+        accessor.setObjectId(newPojo, id);
     }
 
     private Field selectIdField(Class<?> clazz) {
-        if (fieldCache.containsKey(clazz)) {
-            return fieldCache.get(clazz);
-        }
-
         Class<?> c = clazz;
         while (!Object.class.equals(c)) {
             for (Field f : c.getDeclaredFields()) {
                 if (idFieldSelector.isId(f)) {
-                    fieldCache.put(clazz, f);
                     return f;
                 }
             }
@@ -104,18 +78,6 @@ public class ReflectiveObjectIdUpdater implements ObjectIdUpdater {
         return null;
     }
 
-    private boolean isAnEmptyObjectId(Object target, Field field) {
-        if (idFieldSelector.isObjectId(field)) {
-            try {
-                field.setAccessible(true);
-                return field.get(target) == null;
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Unable to obtain value from field" + field.getName() + ", class: " + target.getClass(), e);
-            }
-        }
-        return false;
-    }
-
     @Deprecated
     public interface IdFieldSelector extends IdSelector<Field>{
         boolean isId(Field f);
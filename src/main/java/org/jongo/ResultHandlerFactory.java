@@ -20,6 +20,7 @@ import com.mongodb.DBObject;
 import org.jongo.bson.Bson;
 import org.jongo.bson.BsonDocument;
 import org.jongo.marshall.Unmarshaller;
+import org.jongo.marshall.view.ViewFactory;
 
 class ResultHandlerFactory {
 
@@ -28,6 +29,10 @@ class ResultHandlerFactory {
         return new UnmarshallingResultHandler<T>(unmarshaller, clazz);
     }
 
+    public static <T> ResultHandler<T> newViewResultHandler(final Class<T> viewType, final Unmarshaller unmarshaller) {
+        return new ViewResultHandler<T>(new ViewFactory<T>(viewType, unmarshaller));
+    }
+
     private static class UnmarshallingResultHandler<T> implements ResultHandler<T> {
 
         private final Unmarshaller unmarshaller;
@@ -44,6 +49,19 @@ class ResultHandlerFactory {
         }
     }
 
+    private static class ViewResultHandler<T> implements ResultHandler<T> {
+
+        private final ViewFactory<T> viewFactory;
+
+        public ViewResultHandler(ViewFactory<T> viewFactory) {
+            this.viewFactory = viewFactory;
+        }
+
+        public T map(DBObject result) {
+            return viewFactory.create(Bson.createDocument(result));
+        }
+    }
+
     private ResultHandlerFactory() {
     }
 }
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import com.mongodb.MongoInterruptedException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Inserts pojos pulled from an iterator with a bounded memory footprint.
+ * <p>
+ * Pojos are pulled by the calling thread and grouped into batches, which are marshalled and inserted by a pool
+ * of workers. At most {@link #withMaxBatchesInFlight(int) max batches in flight} are held at once: pulling waits
+ * for a batch to be written when this limit is reached. Batches are written concurrently, the insertion order
+ * of documents is not preserved.
+ * <p>
+ * The first failing batch stops the insert: no more pojos are pulled, batches in flight are awaited and the
+ * failure is thrown. Batches in flight are also awaited when the iterator itself fails. Documents of the
+ * batches already written are kept.
+ */
+public class StreamingInsert {
+
+    public static final int DEFAULT_MAX_BATCHES_IN_FLIGHT = 4;
+
+    private final Insert insert;
+    private final Iterator<?> pojos;
+    private final int batchSize;
+    private ExecutorService executor;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int maxBatchesInFlight = DEFAULT_MAX_BATCHES_IN_FLIGHT;
+    private Listener listener;
+
+    StreamingInsert(Insert insert, Iterator<?> pojos, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be greater than 0: " + batchSize);
+        }
+        this.insert = insert;
+        this.pojos = pojos;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the number of threads of the pool created to marshall and write batches, which is shut down once
+     * the insert is done. Defaults to the number of available processors.
+     */
+    public StreamingInsert withWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is required: " + workers);
+        }
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * Marshalls and writes batches with the given executor instead of a dedicated pool, the executor is not
+     * shut down once the insert is done.
+     */
+    public StreamingInsert withExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public StreamingInsert withMaxBatchesInFlight(int maxBatchesInFlight) {
+        if (maxBatchesInFlight < 1) {
+            throw new IllegalArgumentException("At least one batch must be in flight: " + maxBatchesInFlight);
+        }
+        this.maxBatchesInFlight = maxBatchesInFlight;
+        return this;
+    }
+
+    /**
+     * Sets a listener notified by workers each time a batch has been written.
+     */
+    public StreamingInsert withListener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public Stats execute() {
+        ExecutorService pool = executor != null ? executor : Executors.newFixedThreadPool(workers, new WorkerThreadFactory());
+        Progress progress = new Progress(maxBatchesInFlight);
+        try {
+            while (progress.failure.get() == null) {
+                // a slot is taken before pulling, pulled pojos always belong to a batch in flight
+                progress.acquire();
+                if (!submitNextBatch(pool, progress)) {
+                    break;
+                }
+            }
+        } finally {
+            try {
+                progress.awaitAll();
+            } finally {
+                if (executor == null) {
+                    pool.shutdown();
+                }
+            }
+        }
+        Throwable failure = progress.failure.get();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Unable to insert batch", failure);
+        }
+        return progress.snapshot();
+    }
+
+    private boolean submitNextBatch(ExecutorService pool, Progress progress) {
+        boolean submitted = false;
+        try {
+            List<Object> batch = nextBatch();
+            if (!batch.isEmpty()) {
+                pool.execute(new BatchTask(batch, progress));
+                submitted = true;
+            }
+            return submitted;
+        } finally {
+            if (!submitted) {
+                progress.release();
+            }
+        }
+    }
+
+    private List<Object> nextBatch() {
+        List<Object> batch = new ArrayList<Object>(batchSize);
+        while (batch.size() < batchSize && pojos.hasNext()) {
+            batch.add(pojos.next());
+        }
+        return batch;
+    }
+
+    private class BatchTask implements Runnable {
+
+        private final List<Object> batch;
+        private final Progress progress;
+
+        private BatchTask(List<Object> batch, Progress progress) {
+            this.batch = batch;
+            this.progress = progress;
+        }
+
+        public void run() {
+            try {
+                if (progress.failure.get() == null) {
+                    insert.insert(batch.toArray());
+                    Stats stats = progress.written(batch.size());
+                    if (listener != null) {
+                        listener.batchWritten(stats);
+                    }
+                }
+            } catch (Throwable t) {
+                progress.failure.compareAndSet(null, t);
+            } finally {
+                progress.release();
+            }
+        }
+    }
+
+    private static class Progress {
+
+        private final long start = System.nanoTime();
+        private final int maxBatchesInFlight;
+        private final Semaphore slots;
+        private final AtomicInteger batchesInFlight = new AtomicInteger();
+        private final AtomicLong insertedCount = new AtomicLong();
+        private final AtomicLong batchCount = new AtomicLong();
+        private final AtomicLong blockedNanos = new AtomicLong();
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        private Progress(int maxBatchesInFlight) {
+            this.maxBatchesInFlight = maxBatchesInFlight;
+            this.slots = new Semaphore(maxBatchesInFlight);
+        }
+
+        void acquire() {
+            if (!slots.tryAcquire()) {
+                long waitStart = System.nanoTime();
+                acquire(1);
+                blockedNanos.addAndGet(System.nanoTime() - waitStart);
+            }
+            batchesInFlight.incrementAndGet();
+        }
+
+        void release() {
+            batchesInFlight.decrementAndGet();
+            slots.release();
+        }
+
+        void awaitAll() {
+            acquire(maxBatchesInFlight);
+            slots.release(maxBatchesInFlight);
+        }
+
+        private void acquire(int permits) {
+            try {
+                slots.acquire(permits);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MongoInterruptedException("Interrupted while waiting for batches to be written", e);
+            }
+        }
+
+        Stats written(int documents) {
+            insertedCount.addAndGet(documents);
+            batchCount.incrementAndGet();
+            return snapshot();
+        }
+
+        Stats snapshot() {
+            return new Stats(insertedCount.get(), batchCount.get(), System.nanoTime() - start, blockedNanos.get(), batchesInFlight.get());
+        }
+    }
+
+    /**
+     * Notified from worker threads, implementations must be thread safe.
+     */
+    public interface Listener {
+        void batchWritten(Stats stats);
+    }
+
+    public static class Stats {
+
+        private final long insertedCount;
+        private final long batchCount;
+        private final long elapsedNanos;
+        private final long blockedNanos;
+        private final int batchesInFlight;
+
+        Stats(long insertedCount, long batchCount, long elapsedNanos, long blockedNanos, int batchesInFlight) {
+            this.insertedCount = insertedCount;
+            this.batchCount = batchCount;
+            this.elapsedNanos = elapsedNanos;
+            this.blockedNanos = blockedNanos;
+            this.batchesInFlight = batchesInFlight;
+        }
+
+        public long getInsertedCount() {
+            return insertedCount;
+        }
+
+        public long getBatchCount() {
+            return batchCount;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return the time spent waiting for a batch to be written before pulling the next pojos
+         */
+        public long getBlockedNanos() {
+            return blockedNanos;
+        }
+
+        public int getBatchesInFlight() {
+            return batchesInFlight;
+        }
+
+        public double getDocumentsPerSecond() {
+            return elapsedNanos == 0 ? 0 : insertedCount * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "insertedCount=" + insertedCount +
+                    ", batchCount=" + batchCount +
+                    ", elapsedNanos=" + elapsedNanos +
+                    ", blockedNanos=" + blockedNanos +
+                    ", batchesInFlight=" + batchesInFlight +
+                    '}';
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "jongo-insert-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -17,7 +17,6 @@
 package org.jongo;
 
 import com.mongodb.*;
-import org.bson.LazyBSONObject;
 import org.jongo.query.Query;
 import org.jongo.query.QueryFactory;
 
@@ -38,6 +37,13 @@ public class Update {
         this.query = createQuery(query, parameters);
     }
 
+    Update(DBCollection collection, WriteConcern writeConcern, QueryFactory queryFactory, Query query) {
+        this.collection = collection;
+        this.writeConcern = writeConcern;
+        this.queryFactory = queryFactory;
+        this.query = query;
+    }
+
     public WriteResult with(String modifier) {
         return with(modifier, new Object[0]);
     }
@@ -47,25 +53,24 @@ public class Update {
         return collection.update(this.query.toDBObject(), updateQuery.toDBObject(), upsert, multi, writeConcern);
     }
 
+    public WriteResult with(Query modifier) {
+        return collection.update(this.query.toDBObject(), modifier.toDBObject(), upsert, multi, writeConcern);
+    }
+
     public WriteResult with(Object pojo) {
 
-        DBObject updateDbo = queryFactory.createQuery("{$set:#}", pojo).toDBObject();
-        removeIdField(updateDbo);
-        return collection.update(this.query.toDBObject(), updateDbo, upsert, multi, writeConcern);
+        Query updateQuery = queryFactory.createQuery("{$set:#}", pojo);
+        return collection.update(this.query.toDBObject(), removeIdField(updateQuery), upsert, multi, writeConcern);
     }
 
-    private void removeIdField(DBObject updateDbo) {
-        DBObject pojoAsDbo = (DBObject) updateDbo.get("$set");
-        if (pojoAsDbo.containsField("_id")) {
-            // Need to materialize lazy objects which are read only
-            if (pojoAsDbo instanceof LazyBSONObject) {
-                BasicDBObject expanded = new BasicDBObject();
-                expanded.putAll(pojoAsDbo);
-                updateDbo.put("$set", expanded);
-                pojoAsDbo = expanded;
-            }
-            pojoAsDbo.removeField("_id");
+    static DBObject removeIdField(Query updateQuery) {
+        DBObject updateDbo = updateQuery.toDBObject();
+        if (!((DBObject) updateDbo.get("$set")).containsField("_id")) {
+            return updateDbo;
         }
+        DBObject copy = updateQuery.copyDBObject();
+        ((DBObject) copy.get("$set")).removeField("_id");
+        return copy;
     }
 
     public Update upsert() {
@@ -24,6 +24,10 @@ public class Bson {
         return Primitives.contains(obj.getClass());
     }
 
+    public static boolean isPrimitiveType(Class<?> clazz) {
+        return Primitives.contains(clazz);
+    }
+
     public static BsonDocument createDocument(DBObject dbo) {
         if (dbo instanceof BsonDocument) {
             return (BsonDocument) dbo;
@@ -31,6 +31,14 @@ public class BsonDBEncoder implements DBEncoder {
 
     public int writeObject(final OutputBuffer buf, BSONObject o) {
 
+        if (o instanceof StreamedDBObject) {
+            try {
+                return ((StreamedDBObject) o).encode(buf);
+            } catch (IOException e) {
+                throw new MongoException("Exception serializing a StreamedDBObject", e);
+            }
+        }
+
         if (!(o instanceof LazyDBObject)) {
             return DefaultDBEncoder.FACTORY.create().writeObject(buf, o);
         }
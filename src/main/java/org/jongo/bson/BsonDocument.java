@@ -26,4 +26,10 @@ public interface BsonDocument {
     DBObject toDBObject();
 
     int getSize();
+
+    /**
+     * Gives back the buffer this document may be a view over. The document must not be used once released.
+     */
+    default void release() {
+    }
 }
@@ -49,7 +49,18 @@ class Primitives {
         PRIMITIVES.add(Binary.class);
     }
 
+    private static final ClassValue<Boolean> CLASSIFIED = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return isPrimitive(type);
+        }
+    };
+
     public static <T> boolean contains(Class<T> clazz) {
+        return CLASSIFIED.get(clazz);
+    }
+
+    private static boolean isPrimitive(Class<?> clazz) {
         if (PRIMITIVES.contains(clazz) || isAJavaPrimitiveArray(clazz))
             return true;
 
@@ -61,7 +72,7 @@ class Primitives {
         return false;
     }
 
-    private static <T> boolean isAJavaPrimitiveArray(Class<T> clazz) {
+    private static boolean isAJavaPrimitiveArray(Class<?> clazz) {
         return clazz.isArray() && clazz.getComponentType().isPrimitive();
     }
 
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.bson;
+
+/**
+ * Helpers walking raw BSON bytes: values are jumped over using their length prefix instead of being decoded.
+ */
+public final class RawBson {
+
+    private static final int OBJECT_ID_LENGTH = 12;
+    private static final int DECIMAL128_LENGTH = 16;
+
+    public static int readInt(byte[] bytes, int position) {
+        return (bytes[position] & 0xFF)
+                | (bytes[position + 1] & 0xFF) << 8
+                | (bytes[position + 2] & 0xFF) << 16
+                | (bytes[position + 3] & 0xFF) << 24;
+    }
+
+    public static long readLong(byte[] bytes, int position) {
+        return (readInt(bytes, position) & 0xFFFFFFFFL) | ((long) readInt(bytes, position + 4)) << 32;
+    }
+
+    /**
+     * Returns the position following the element name starting at the given position.
+     */
+    public static int skipName(byte[] bytes, int position) {
+        while (bytes[position] != 0) {
+            position++;
+        }
+        return position + 1;
+    }
+
+    /**
+     * Returns the position of the top level element with the given name in the document starting at the given
+     * offset, that is the position of its type, or -1 when the document does not contain such an element.
+     *
+     * @param name the UTF-8 bytes of the name, without terminating zero
+     */
+    public static int findElement(byte[] bytes, int offset, byte[] name) {
+        int position = offset + 4;
+        int end = offset + readInt(bytes, offset) - 1;
+        while (position < end) {
+            byte type = bytes[position];
+            int nameStart = position + 1;
+            int valueStart = skipName(bytes, nameStart);
+            if (valueStart - nameStart - 1 == name.length && regionMatches(bytes, nameStart, name)) {
+                return position;
+            }
+            position = valueStart + valueSize(bytes, type, valueStart);
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(byte[] bytes, int position, byte[] name) {
+        for (int i = 0; i < name.length; i++) {
+            if (bytes[position + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the size of the value of the given BSON type starting at the given position.
+     *
+     * @throws IllegalArgumentException if the type is unknown
+     */
+    public static int valueSize(byte[] bytes, byte type, int position) {
+        switch (type) {
+            case 6: // undefined
+            case 10: // null
+            case -1: // min key
+            case 127: // max key
+                return 0;
+            case 8: // boolean
+                return 1;
+            case 16: // int32
+                return 4;
+            case 1: // double
+            case 9: // date
+            case 17: // timestamp
+            case 18: // int64
+                return 8;
+            case 7: // object id
+                return OBJECT_ID_LENGTH;
+            case 19: // decimal128
+                return DECIMAL128_LENGTH;
+            case 2: // string
+            case 13: // javascript
+            case 14: // symbol
+                return 4 + readInt(bytes, position);
+            case 3: // document
+            case 4: // array
+            case 15: // javascript with scope
+                return readInt(bytes, position);
+            case 5: // binary
+                return 5 + readInt(bytes, position);
+            case 12: // db pointer
+                return 4 + readInt(bytes, position) + OBJECT_ID_LENGTH;
+            case 11: // regular expression
+                return skipName(bytes, skipName(bytes, position)) - position;
+            default:
+                throw new IllegalArgumentException("Unknown BSON type " + type);
+        }
+    }
+
+    private RawBson() {
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.bson;
+
+import com.mongodb.BasicDBObject;
+import org.bson.BasicBSONEncoder;
+import org.bson.io.OutputBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A document written by {@link BsonDBEncoder} straight into the output buffer of the driver when it is encoded.
+ * <p>
+ * Only the <code>_id</code> field can be read or set: an id set by the driver, typically a generated
+ * {@link org.bson.types.ObjectId}, is appended to the streamed document.
+ */
+public class StreamedDBObject extends BasicDBObject {
+
+    private static final String ID = "_id";
+
+    private final StreamableBsonDocument document;
+    private boolean idToAppend;
+
+    public StreamedDBObject(StreamableBsonDocument document, Object id) {
+        this.document = document;
+        if (id != null) {
+            super.put(ID, id);
+        }
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (!ID.equals(key)) {
+            throw new UnsupportedOperationException("Object is read only for fields others than _id");
+        }
+        idToAppend = true;
+        return super.put(key, value);
+    }
+
+    int encode(OutputBuffer buffer) throws IOException {
+        int start = buffer.getPosition();
+        document.writeTo(new BufferOutputStream(buffer));
+        if (idToAppend) {
+            appendId(buffer, start);
+        }
+        return buffer.getPosition() - start;
+    }
+
+    private void appendId(OutputBuffer buffer, int start) {
+        byte[] id = new BasicBSONEncoder().encode(new BasicDBObject(ID, get(ID)));
+        int end = buffer.getPosition() - 1;
+        // replaces the end of document with the id element followed by its own end of document
+        buffer.truncateToPosition(end);
+        buffer.write(id, 4, id.length - 4);
+        buffer.writeInt32(start, end - start + id.length - 4);
+    }
+
+    private static class BufferOutputStream extends OutputStream {
+
+        private final OutputBuffer buffer;
+
+        private BufferOutputStream(OutputBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            buffer.write(bytes, offset, length);
+        }
+    }
+}
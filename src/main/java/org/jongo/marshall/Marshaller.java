@@ -21,4 +21,21 @@ import org.jongo.bson.BsonDocument;
 public interface Marshaller {
 
     BsonDocument marshall(Object pojo) throws MarshallingException;
+
+    /**
+     * Marshalls a pojo which is about to be written and then discarded. The returned document can be a view
+     * over a reused buffer, larger than {@link BsonDocument#getSize()}: it has to be
+     * {@link BsonDocument#release() released} once written.
+     */
+    default BsonDocument marshallForWrite(Object pojo) throws MarshallingException {
+        return marshall(pojo);
+    }
+
+    /**
+     * @return true if {@link #marshallForWrite(Object)} generates the missing ObjectId of a pojo and sets it back,
+     * the id of the written document is then read from its <code>_id</code> field
+     */
+    default boolean generatesObjectIds() {
+        return false;
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.codec;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonReader;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+import org.jongo.bson.Bson;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.Marshaller;
+import org.jongo.marshall.MarshallingException;
+import org.jongo.marshall.Unmarshaller;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Marshalls and unmarshalls pojos with the {@link Codec}s of a {@link CodecRegistry} instead of Jackson.
+ */
+public class CodecEngine implements Unmarshaller, Marshaller {
+
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private final CodecRegistry registry;
+
+    public CodecEngine(CodecRegistry registry) {
+        this.registry = registry;
+    }
+
+    public CodecRegistry getCodecRegistry() {
+        return registry;
+    }
+
+    public <T> T unmarshall(BsonDocument document, Class<T> clazz) throws MarshallingException {
+
+        // the reader works on the document bytes, they are not copied
+        BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(document.toByteArray(), 0, document.getSize()));
+        try {
+            return registry.get(clazz).decode(reader, DECODER_CONTEXT);
+        } catch (RuntimeException e) {
+            String message = String.format("Unable to unmarshall result to %s from content %s", clazz, document.toString());
+            throw new MarshallingException(message, e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Decodes the document the reader is positioned on, for instance straight from the reader of a driver codec.
+     */
+    public <T> T decode(BsonReader reader, Class<T> clazz) throws MarshallingException {
+        try {
+            return registry.get(clazz).decode(reader, DECODER_CONTEXT);
+        } catch (RuntimeException e) {
+            throw new MarshallingException("Unable to decode " + clazz, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public BsonDocument marshall(Object pojo) throws MarshallingException {
+
+        if (pojo == null) {
+            throw new MarshallingException("Unable to marshall null into bson");
+        }
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        BsonBinaryWriter writer = new BsonBinaryWriter(buffer);
+        try {
+            Codec<Object> codec = (Codec<Object>) registry.get(pojo.getClass());
+            codec.encode(writer, pojo, ENCODER_CONTEXT);
+        } catch (RuntimeException e) {
+            throw new MarshallingException("Unable to marshall " + pojo + " into bson", e);
+        } finally {
+            writer.close();
+        }
+        return Bson.createDocument(buffer.toByteArray());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.codec;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.Convention;
+import org.bson.codecs.pojo.Conventions;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.jongo.Mapper;
+import org.jongo.ObjectIdUpdater;
+import org.jongo.marshall.Marshaller;
+import org.jongo.marshall.Unmarshaller;
+import org.jongo.query.BsonQueryFactory;
+import org.jongo.query.QueryFactory;
+import org.jongo.query.QueryTemplateCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * A {@link Mapper} based on the driver codecs: pojos are mapped by the codecs generated by {@link CodecProcessor}
+ * when available, by a {@link PojoCodecProvider} following the {@link JongoConvention} otherwise, other types
+ * by the driver default codecs.
+ */
+public class CodecMapper implements Mapper {
+
+    private final CodecEngine engine;
+    private final ObjectIdUpdater objectIdUpdater;
+    private final QueryFactory queryFactory;
+
+    private CodecMapper(CodecEngine engine, QueryFactory queryFactory, ObjectIdUpdater objectIdUpdater) {
+        this.engine = engine;
+        this.queryFactory = queryFactory;
+        this.objectIdUpdater = objectIdUpdater;
+    }
+
+    public Marshaller getMarshaller() {
+        return engine;
+    }
+
+    public Unmarshaller getUnmarshaller() {
+        return engine;
+    }
+
+    public ObjectIdUpdater getObjectIdUpdater() {
+        return objectIdUpdater;
+    }
+
+    public QueryFactory getQueryFactory() {
+        return queryFactory;
+    }
+
+    /**
+     * Creates a registry mapping pojos with the {@link JongoConvention}, registries given by the caller are
+     * looked up first, then the codecs generated for {@link org.jongo.marshall.codec.annotation.MongoEntity} classes.
+     */
+    public static CodecRegistry createCodecRegistry(CodecRegistry... registries) {
+        List<Convention> conventions = new ArrayList<Convention>(Conventions.DEFAULT_CONVENTIONS);
+        conventions.add(new JongoConvention());
+        PojoCodecProvider pojoCodecProvider = PojoCodecProvider.builder().automatic(true).conventions(conventions).build();
+
+        List<CodecRegistry> all = new ArrayList<CodecRegistry>();
+        for (CodecRegistry registry : registries) {
+            all.add(registry);
+        }
+        all.add(fromProviders(new GeneratedCodecProvider()));
+        all.add(MongoClientSettings.getDefaultCodecRegistry());
+        all.add(fromProviders(pojoCodecProvider));
+        return fromRegistries(all);
+    }
+
+    public static class Builder {
+
+        private CodecRegistry codecRegistry;
+        private QueryFactory queryFactory;
+        private ObjectIdUpdater objectIdUpdater;
+        private int queryCacheMaxSize = QueryTemplateCache.DEFAULT_MAX_SIZE;
+
+        @SuppressWarnings("deprecation")
+        public Mapper build() {
+            if (codecRegistry == null) {
+                codecRegistry = createCodecRegistry();
+            }
+            CodecEngine codecEngine = new CodecEngine(codecRegistry);
+            if (queryFactory == null) {
+                queryFactory = new BsonQueryFactory(codecEngine, new QueryTemplateCache(queryCacheMaxSize));
+            }
+            if (objectIdUpdater == null) {
+                objectIdUpdater = new org.jongo.ReflectiveObjectIdUpdater(new org.jongo.marshall.jackson.JacksonIdFieldSelector());
+            }
+            return new CodecMapper(codecEngine, queryFactory, objectIdUpdater);
+        }
+
+        /**
+         * Uses this registry instead of the default one, see {@link #createCodecRegistry(CodecRegistry...)}.
+         */
+        public Builder withCodecRegistry(CodecRegistry codecRegistry) {
+            this.codecRegistry = codecRegistry;
+            return this;
+        }
+
+        public Builder withQueryFactory(QueryFactory factory) {
+            this.queryFactory = factory;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of compiled query templates kept by the default query factory.
+         * Use 0 to disable query template caching.
+         */
+        public Builder withQueryCacheMaxSize(int maxSize) {
+            this.queryCacheMaxSize = maxSize;
+            return this;
+        }
+
+        public Builder withObjectIdUpdater(ObjectIdUpdater objectIdUpdater) {
+            this.objectIdUpdater = objectIdUpdater;
+            return this;
+        }
+
+        public static Builder codecMapper() {
+            return new Builder();
+        }
+    }
+}
@@ -0,0 +1,702 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.codec;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.jongo.marshall.jackson.oid.MongoId;
+import org.jongo.marshall.jackson.oid.MongoObjectId;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Annotation processor generating a {@link GeneratedCodec} for each class annotated with
+ * {@link org.jongo.marshall.codec.annotation.MongoEntity}. The codec is named after the class with a
+ * <code>_JongoCodec</code> suffix and maps the fields the way the default Jackson mapping does: field names,
+ * <code>&#64;MongoId</code>, <code>&#64;MongoObjectId</code>, <code>&#64;JsonProperty</code> and
+ * <code>&#64;JsonIgnore</code> are honoured, null values (map entries included) are not written and unknown fields are skipped.
+ * <p>
+ * Fields are read and written directly when the codec can access them, through constant method handles otherwise.
+ * Values which are not strings, numbers, booleans, dates, ids, enums, collections, maps or arrays are handed
+ * to the codec registry.
+ * <p>
+ * The processor is not registered as a service, enable it with <code>-processor org.jongo.marshall.codec.CodecProcessor</code>.
+ */
+@SupportedAnnotationTypes("org.jongo.marshall.codec.annotation.MongoEntity")
+@SuppressWarnings("deprecation")
+public class CodecProcessor extends AbstractProcessor {
+
+    static final String SUFFIX = "_JongoCodec";
+    private static final String BSON_TYPE = "org.bson.BsonType";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(org.jongo.marshall.codec.annotation.MongoEntity.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@MongoEntity must annotate a class");
+                continue;
+            }
+            TypeElement entity = (TypeElement) element;
+            try {
+                new EntityWriter(entity).write();
+            } catch (UnsupportedEntityException e) {
+                error(e.element, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private static class UnsupportedEntityException extends RuntimeException {
+        private final Element element;
+
+        private UnsupportedEntityException(Element element, String message) {
+            super(message);
+            this.element = element;
+        }
+    }
+
+    private static class Property {
+        private final VariableElement field;
+        private final TypeMirror type;
+        private final String bsonName;
+        private final boolean objectId;
+        private final boolean readable;
+        private final boolean writable;
+        private final int index;
+
+        private Property(VariableElement field, TypeMirror type, String bsonName, boolean objectId, boolean readable, boolean writable, int index) {
+            this.field = field;
+            this.type = type;
+            this.bsonName = bsonName;
+            this.objectId = objectId;
+            this.readable = readable;
+            this.writable = writable;
+            this.index = index;
+        }
+
+        private String name() {
+            return field.getSimpleName().toString();
+        }
+    }
+
+    private class EntityWriter {
+
+        private final TypeElement entity;
+        private final String entityName;
+        private final Map<String, Integer> codecSlots = new LinkedHashMap<String, Integer>();
+        private boolean usesHandles;
+        private int variables;
+
+        private EntityWriter(TypeElement entity) {
+            this.entity = entity;
+            this.entityName = types().erasure(entity.asType()).toString();
+        }
+
+        private void write() {
+            checkEntity();
+            boolean directConstructor = checkConstructor();
+            List<Property> properties = collectProperties();
+
+            StringBuilder encode = new StringBuilder();
+            StringBuilder decode = new StringBuilder();
+            for (Property property : properties) {
+                writeEncode(encode, property);
+                writeDecode(decode, property);
+            }
+            String creation = directConstructor ? "new " + entityName + "()" : "(" + entityName + ") NEW.invokeExact()";
+            usesHandles |= !directConstructor;
+
+            writeSource(properties, directConstructor, encode, decode, creation);
+        }
+
+        private void checkEntity() {
+            if (entity.getModifiers().contains(Modifier.ABSTRACT)) {
+                throw new UnsupportedEntityException(entity, "@MongoEntity class must not be abstract");
+            }
+            if (!entity.getTypeParameters().isEmpty()) {
+                throw new UnsupportedEntityException(entity, "@MongoEntity class must not be generic");
+            }
+            for (Element e = entity; e instanceof TypeElement; e = e.getEnclosingElement()) {
+                if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                    throw new UnsupportedEntityException(entity, "@MongoEntity class must not be private");
+                }
+                if (e.getEnclosingElement() instanceof TypeElement && !e.getModifiers().contains(Modifier.STATIC)) {
+                    throw new UnsupportedEntityException(entity, "@MongoEntity class must not be an inner class");
+                }
+            }
+        }
+
+        private boolean checkConstructor() {
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(entity.getEnclosedElements())) {
+                if (constructor.getParameters().isEmpty()) {
+                    return !constructor.getModifiers().contains(Modifier.PRIVATE);
+                }
+            }
+            throw new UnsupportedEntityException(entity, "@MongoEntity class must declare a no-arg constructor");
+        }
+
+        private List<Property> collectProperties() {
+            List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+            for (TypeElement type = entity; type != null; type = superclass(type)) {
+                hierarchy.add(type);
+            }
+            Collections.reverse(hierarchy);
+
+            List<Property> properties = new ArrayList<Property>();
+            Set<String> names = new HashSet<String>();
+            for (TypeElement type : hierarchy) {
+                for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                    Set<Modifier> modifiers = field.getModifiers();
+                    JsonIgnore ignore = field.getAnnotation(JsonIgnore.class);
+                    if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT) || (ignore != null && ignore.value())) {
+                        continue;
+                    }
+                    String bsonName = bsonName(field);
+                    if (!names.add(bsonName)) {
+                        throw new UnsupportedEntityException(field, "Field " + bsonName + " is mapped twice");
+                    }
+                    boolean accessible = isAccessible(field);
+                    TypeMirror memberType = types().asMemberOf((DeclaredType) entity.asType(), field);
+                    boolean objectId = field.getAnnotation(MongoObjectId.class) != null
+                            || field.getAnnotation(org.jongo.marshall.jackson.oid.ObjectId.class) != null;
+                    properties.add(new Property(field, memberType, bsonName, objectId && isType(memberType, String.class),
+                            accessible, accessible && !modifiers.contains(Modifier.FINAL), properties.size()));
+                }
+            }
+            return properties;
+        }
+
+        private String bsonName(VariableElement field) {
+            if (field.getAnnotation(MongoId.class) != null || field.getAnnotation(org.jongo.marshall.jackson.oid.Id.class) != null) {
+                return "_id";
+            }
+            JsonProperty property = field.getAnnotation(JsonProperty.class);
+            if (property != null && !property.value().isEmpty()) {
+                return property.value();
+            }
+            return field.getSimpleName().toString();
+        }
+
+        private boolean isAccessible(VariableElement field) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            return modifiers.contains(Modifier.PUBLIC)
+                    || elements().getPackageOf(field).equals(elements().getPackageOf(entity));
+        }
+
+        private void writeEncode(StringBuilder out, Property property) {
+            String value = variable();
+            String type = property.type.toString();
+            if (property.readable) {
+                out.append("        ").append(type).append(' ').append(value).append(" = value.").append(property.name()).append(";\n");
+            } else {
+                usesHandles = true;
+                String erasure = declaredErasure(property);
+                String cast = erasure.equals(type) ? "(" + type + ") " : "(" + type + ") (" + erasure + ") ";
+                out.append("        ").append(type).append(' ').append(value).append(" = ").append(cast)
+                        .append("GET_").append(property.index).append(".invokeExact(value);\n");
+            }
+            if (property.type.getKind().isPrimitive()) {
+                out.append("        writer.writeName(").append(literal(property.bsonName)).append(");\n");
+                writeValue(out, "        ", property.type, value, false);
+            } else {
+                out.append("        if (").append(value).append(" != null) {\n");
+                out.append("            writer.writeName(").append(literal(property.bsonName)).append(");\n");
+                writeValue(out, "            ", property.type, value, property.objectId);
+                out.append("        }\n");
+            }
+        }
+
+        private void writeDecode(StringBuilder out, Property property) {
+            out.append("                case ").append(literal(property.bsonName)).append(":\n");
+            out.append("                    if (reader.getCurrentBsonType() == ").append(BSON_TYPE).append(".NULL) {\n");
+            out.append("                        reader.readNull();\n");
+            if (!property.type.getKind().isPrimitive()) {
+                assign(out, "                        ", property, "null");
+            }
+            out.append("                    } else {\n");
+            String value = readValue(out, "                        ", property.type);
+            assign(out, "                        ", property, value);
+            out.append("                    }\n");
+            out.append("                    break;\n");
+        }
+
+        private void assign(StringBuilder out, String indent, Property property, String value) {
+            if (property.writable) {
+                out.append(indent).append("entity.").append(property.name()).append(" = ").append(value).append(";\n");
+            } else {
+                usesHandles = true;
+                out.append(indent).append("SET_").append(property.index).append(".invokeExact(entity, (")
+                        .append(declaredErasure(property)).append(") (").append(value).append("));\n");
+            }
+        }
+
+        private void writeValue(StringBuilder out, String indent, TypeMirror type, String value, boolean objectId) {
+            switch (type.getKind()) {
+                case INT:
+                case SHORT:
+                case BYTE:
+                    out.append(indent).append("writer.writeInt32(").append(value).append(");\n");
+                    return;
+                case LONG:
+                    out.append(indent).append("writer.writeInt64(").append(value).append(");\n");
+                    return;
+                case DOUBLE:
+                case FLOAT:
+                    out.append(indent).append("writer.writeDouble(").append(value).append(");\n");
+                    return;
+                case BOOLEAN:
+                    out.append(indent).append("writer.writeBoolean(").append(value).append(");\n");
+                    return;
+                case ARRAY:
+                    writeArray(out, indent, (ArrayType) type, value);
+                    return;
+                case DECLARED:
+                    writeDeclared(out, indent, (DeclaredType) type, value, objectId);
+                    return;
+                case TYPEVAR:
+                case WILDCARD:
+                    out.append(indent).append("writeValue(writer, ").append(value).append(", encoderContext);\n");
+                    return;
+                default:
+                    throw new UnsupportedEntityException(entity, "Unsupported type " + type);
+            }
+        }
+
+        private void writeDeclared(StringBuilder out, String indent, DeclaredType type, String value, boolean objectId) {
+            if (isBoxed(type)) {
+                writeValue(out, indent, types().unboxedType(type), value, false);
+            } else if (isType(type, String.class)) {
+                if (objectId) {
+                    out.append(indent).append("writer.writeObjectId(new org.bson.types.ObjectId(").append(value).append("));\n");
+                } else {
+                    out.append(indent).append("writer.writeString(").append(value).append(");\n");
+                }
+            } else if (isType(type, org.bson.types.ObjectId.class)) {
+                out.append(indent).append("writer.writeObjectId(").append(value).append(");\n");
+            } else if (isType(type, java.util.Date.class)) {
+                out.append(indent).append("writer.writeDateTime(").append(value).append(".getTime());\n");
+            } else if (type.asElement().getKind() == ElementKind.ENUM) {
+                out.append(indent).append("writer.writeString(").append(value).append(".name());\n");
+            } else if (isType(type, Object.class)) {
+                out.append(indent).append("writeValue(writer, ").append(value).append(", encoderContext);\n");
+            } else if (isCollection(type)) {
+                TypeMirror element = type.getTypeArguments().get(0);
+                writeElements(out, indent, element, value);
+            } else if (isMap(type)) {
+                TypeMirror valueType = type.getTypeArguments().get(1);
+                String entry = variable();
+                String entryValue = variable();
+                out.append(indent).append("writer.writeStartDocument();\n");
+                out.append(indent).append("for (java.util.Map.Entry<java.lang.String, ").append(valueType).append("> ").append(entry)
+                        .append(" : ").append(value).append(".entrySet()) {\n");
+                out.append(indent).append("    ").append(valueType).append(' ').append(entryValue).append(" = ").append(entry).append(".getValue();\n");
+                out.append(indent).append("    if (").append(entryValue).append(" != null) {\n");
+                out.append(indent).append("        writer.writeName(").append(entry).append(".getKey());\n");
+                writeValue(out, indent + "        ", valueType, entryValue, false);
+                out.append(indent).append("    }\n");
+                out.append(indent).append("}\n");
+                out.append(indent).append("writer.writeEndDocument();\n");
+            } else {
+                out.append(indent).append("encoderContext.encodeWithChildContext(").append(codec(type)).append(", writer, ")
+                        .append(value).append(");\n");
+            }
+        }
+
+        private void writeArray(StringBuilder out, String indent, ArrayType type, String value) {
+            TypeMirror component = type.getComponentType();
+            if (component.getKind() == TypeKind.BYTE) {
+                out.append(indent).append("writer.writeBinaryData(new org.bson.BsonBinary(").append(value).append("));\n");
+            } else if (component.getKind().isPrimitive()) {
+                throw new UnsupportedEntityException(entity, "Unsupported type " + type + ", use a collection instead");
+            } else {
+                writeElements(out, indent, component, value);
+            }
+        }
+
+        private void writeElements(StringBuilder out, String indent, TypeMirror elementType, String value) {
+            String element = variable();
+            out.append(indent).append("writer.writeStartArray();\n");
+            out.append(indent).append("for (").append(elementType).append(' ').append(element).append(" : ").append(value).append(") {\n");
+            writeNullable(out, indent + "    ", elementType, element);
+            out.append(indent).append("}\n");
+            out.append(indent).append("writer.writeEndArray();\n");
+        }
+
+        private void writeNullable(StringBuilder out, String indent, TypeMirror type, String value) {
+            out.append(indent).append("if (").append(value).append(" == null) {\n");
+            out.append(indent).append("    writer.writeNull();\n");
+            out.append(indent).append("} else {\n");
+            writeValue(out, indent + "    ", type, value, false);
+            out.append(indent).append("}\n");
+        }
+
+        private String readValue(StringBuilder out, String indent, TypeMirror type) {
+            switch (type.getKind()) {
+                case INT:
+                    return "readInt(reader)";
+                case SHORT:
+                    return "(short) readInt(reader)";
+                case BYTE:
+                    return "(byte) readInt(reader)";
+                case LONG:
+                    return "readLong(reader)";
+                case DOUBLE:
+                    return "readDouble(reader)";
+                case FLOAT:
+                    return "(float) readDouble(reader)";
+                case BOOLEAN:
+                    return "reader.readBoolean()";
+                case ARRAY:
+                    return readArray(out, indent, (ArrayType) type);
+                case DECLARED:
+                    return readDeclared(out, indent, (DeclaredType) type);
+                case TYPEVAR:
+                case WILDCARD:
+                    return "readValue(reader, decoderContext)";
+                default:
+                    throw new UnsupportedEntityException(entity, "Unsupported type " + type);
+            }
+        }
+
+        private String readDeclared(StringBuilder out, String indent, DeclaredType type) {
+            if (isBoxed(type)) {
+                TypeMirror primitive = types().unboxedType(type);
+                return type + ".valueOf(" + readValue(out, indent, primitive) + ")";
+            }
+            if (isType(type, String.class)) {
+                return "readString(reader)";
+            }
+            if (isType(type, org.bson.types.ObjectId.class)) {
+                return "readObjectId(reader)";
+            }
+            if (isType(type, java.util.Date.class)) {
+                return "readDate(reader)";
+            }
+            if (type.asElement().getKind() == ElementKind.ENUM) {
+                return types().erasure(type) + ".valueOf(readString(reader))";
+            }
+            if (isType(type, Object.class)) {
+                return "readValue(reader, decoderContext)";
+            }
+            if (isCollection(type)) {
+                String collection = variable();
+                out.append(indent).append(type).append(' ').append(collection).append(" = new ").append(collectionImplementation(type)).append("();\n");
+                readElements(out, indent, type.getTypeArguments().get(0), collection);
+                return collection;
+            }
+            if (isMap(type)) {
+                TypeMirror valueType = type.getTypeArguments().get(1);
+                String map = variable();
+                String key = variable();
+                out.append(indent).append(type).append(' ').append(map).append(" = new ").append(mapImplementation(type)).append("();\n");
+                out.append(indent).append("reader.readStartDocument();\n");
+                out.append(indent).append("while (reader.readBsonType() != ").append(BSON_TYPE).append(".END_OF_DOCUMENT) {\n");
+                out.append(indent).append("    java.lang.String ").append(key).append(" = reader.readName();\n");
+                readNullable(out, indent + "    ", valueType, map + ".put(" + key + ", ", ")");
+                out.append(indent).append("}\n");
+                out.append(indent).append("reader.readEndDocument();\n");
+                return map;
+            }
+            return "decoderContext.decodeWithChildContext(" + codec(type) + ", reader)";
+        }
+
+        private String readArray(StringBuilder out, String indent, ArrayType type) {
+            TypeMirror component = type.getComponentType();
+            if (component.getKind() == TypeKind.BYTE) {
+                return "reader.readBinaryData().getData()";
+            }
+            if (component.getKind().isPrimitive()) {
+                throw new UnsupportedEntityException(entity, "Unsupported type " + type + ", use a collection instead");
+            }
+            String list = variable();
+            out.append(indent).append("java.util.List<").append(component).append("> ").append(list).append(" = new java.util.ArrayList();\n");
+            readElements(out, indent, component, list);
+            return "(" + type + ") " + list + ".toArray(new " + types().erasure(component) + "[" + list + ".size()])";
+        }
+
+        private void readElements(StringBuilder out, String indent, TypeMirror elementType, String collection) {
+            out.append(indent).append("reader.readStartArray();\n");
+            out.append(indent).append("while (reader.readBsonType() != ").append(BSON_TYPE).append(".END_OF_DOCUMENT) {\n");
+            readNullable(out, indent + "    ", elementType, collection + ".add(", ")");
+            out.append(indent).append("}\n");
+            out.append(indent).append("reader.readEndArray();\n");
+        }
+
+        private void readNullable(StringBuilder out, String indent, TypeMirror type, String prefix, String suffix) {
+            out.append(indent).append("if (reader.getCurrentBsonType() == ").append(BSON_TYPE).append(".NULL) {\n");
+            out.append(indent).append("    reader.readNull();\n");
+            out.append(indent).append("    ").append(prefix).append("null").append(suffix).append(";\n");
+            out.append(indent).append("} else {\n");
+            String value = readValue(out, indent + "    ", type);
+            out.append(indent).append("    ").append(prefix).append(value).append(suffix).append(";\n");
+            out.append(indent).append("}\n");
+        }
+
+        private String collectionImplementation(DeclaredType type) {
+            String erasure = types().erasure(type).toString();
+            if (isConcrete(type)) {
+                return erasure;
+            }
+            if (erasure.equals("java.util.SortedSet") || erasure.equals("java.util.NavigableSet")) {
+                return "java.util.TreeSet";
+            }
+            if (erasure.equals("java.util.Set")) {
+                return "java.util.HashSet";
+            }
+            if (erasure.equals("java.util.Queue") || erasure.equals("java.util.Deque")) {
+                return "java.util.ArrayDeque";
+            }
+            return "java.util.ArrayList";
+        }
+
+        private String mapImplementation(DeclaredType type) {
+            String erasure = types().erasure(type).toString();
+            if (isConcrete(type)) {
+                return erasure;
+            }
+            if (erasure.equals("java.util.SortedMap") || erasure.equals("java.util.NavigableMap")) {
+                return "java.util.TreeMap";
+            }
+            return "java.util.LinkedHashMap";
+        }
+
+        private boolean isConcrete(DeclaredType type) {
+            Element element = type.asElement();
+            if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)) {
+                return false;
+            }
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+                if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isCollection(DeclaredType type) {
+            return type.getTypeArguments().size() == 1 && isSubtype(type, java.util.Collection.class);
+        }
+
+        private boolean isMap(DeclaredType type) {
+            return type.getTypeArguments().size() == 2 && isSubtype(type, java.util.Map.class)
+                    && isType(type.getTypeArguments().get(0), String.class);
+        }
+
+        private boolean isBoxed(TypeMirror type) {
+            try {
+                types().unboxedType(type);
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        private String codec(TypeMirror type) {
+            String erasure = types().erasure(type).toString();
+            Integer slot = codecSlots.get(erasure);
+            if (slot == null) {
+                slot = codecSlots.size();
+                codecSlots.put(erasure, slot);
+            }
+            return "codec(" + slot + ", " + erasure + ".class)";
+        }
+
+        private String declaredErasure(Property property) {
+            return types().erasure(property.field.asType()).toString();
+        }
+
+        private String variable() {
+            return "v" + (variables++);
+        }
+
+        private void writeSource(List<Property> properties, boolean directConstructor, StringBuilder encode, StringBuilder decode, String creation) {
+            String packageName = elements().getPackageOf(entity).getQualifiedName().toString();
+            String simpleName = generatedSimpleName(entity);
+            String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+            String handleIndent = usesHandles ? "    " : "";
+
+            StringBuilder source = new StringBuilder();
+            if (!packageName.isEmpty()) {
+                source.append("package ").append(packageName).append(";\n\n");
+            }
+            source.append("/**\n * Generated by ").append(CodecProcessor.class.getName()).append(", do not edit.\n */\n");
+            source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+            source.append("public class ").append(simpleName).append(" extends ").append(GeneratedCodec.class.getName())
+                    .append('<').append(entityName).append("> {\n\n");
+            if (!directConstructor) {
+                source.append("    private static final java.lang.invoke.MethodHandle NEW = constructor(").append(entityName).append(".class);\n");
+            }
+            for (Property property : properties) {
+                if (!property.readable) {
+                    source.append("    private static final java.lang.invoke.MethodHandle GET_").append(property.index)
+                            .append(" = getter(").append(entityName).append(".class, ").append(literal(property.name())).append(");\n");
+                }
+                if (!property.writable) {
+                    source.append("    private static final java.lang.invoke.MethodHandle SET_").append(property.index)
+                            .append(" = setter(").append(entityName).append(".class, ").append(literal(property.name())).append(");\n");
+                }
+            }
+            source.append("\n    public ").append(simpleName).append("(org.bson.codecs.configuration.CodecRegistry registry) {\n")
+                    .append("        super(registry, ").append(entityName).append(".class, ").append(codecSlots.size()).append(");\n    }\n\n");
+
+            source.append("    public void encode(org.bson.BsonWriter writer, ").append(entityName).append(" value, org.bson.codecs.EncoderContext encoderContext) {\n");
+            openTry(source);
+            source.append(handleIndent).append("        writer.writeStartDocument();\n");
+            source.append(indent(encode, handleIndent));
+            source.append(handleIndent).append("        writer.writeEndDocument();\n");
+            closeTry(source);
+            source.append("    }\n\n");
+
+            source.append("    public ").append(entityName).append(" decode(org.bson.BsonReader reader, org.bson.codecs.DecoderContext decoderContext) {\n");
+            openTry(source);
+            source.append(handleIndent).append("        ").append(entityName).append(" entity = ").append(creation).append(";\n");
+            source.append(handleIndent).append("        reader.readStartDocument();\n");
+            source.append(handleIndent).append("        while (reader.readBsonType() != ").append(BSON_TYPE).append(".END_OF_DOCUMENT) {\n");
+            source.append(handleIndent).append("            switch (reader.readName()) {\n");
+            source.append(indent(decode, handleIndent));
+            source.append(handleIndent).append("                default:\n");
+            source.append(handleIndent).append("                    reader.skipValue();\n");
+            source.append(handleIndent).append("            }\n");
+            source.append(handleIndent).append("        }\n");
+            source.append(handleIndent).append("        reader.readEndDocument();\n");
+            source.append(handleIndent).append("        return entity;\n");
+            closeTry(source);
+            source.append("    }\n}\n");
+
+            try {
+                Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, entity).openWriter();
+                try {
+                    writer.write(source.toString());
+                } finally {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                error(entity, "Unable to generate " + qualifiedName + ": " + e.getMessage());
+            }
+        }
+
+        private void openTry(StringBuilder source) {
+            if (usesHandles) {
+                source.append("        try {\n");
+            }
+        }
+
+        private void closeTry(StringBuilder source) {
+            if (usesHandles) {
+                source.append("        } catch (Throwable t) {\n            throw propagate(t);\n        }\n");
+            }
+        }
+
+        private String indent(StringBuilder code, String indent) {
+            if (indent.isEmpty()) {
+                return code.toString();
+            }
+            StringBuilder indented = new StringBuilder();
+            for (String line : code.toString().split("\n")) {
+                indented.append(indent).append(line).append('\n');
+            }
+            return indented.toString();
+        }
+
+        private TypeElement superclass(TypeElement type) {
+            TypeMirror superclass = type.getSuperclass();
+            if (superclass.getKind() != TypeKind.DECLARED || isType(superclass, Object.class)) {
+                return null;
+            }
+            return (TypeElement) ((DeclaredType) superclass).asElement();
+        }
+
+        private boolean isType(TypeMirror type, Class<?> clazz) {
+            return type.getKind() == TypeKind.DECLARED && types().erasure(type).toString().equals(clazz.getName());
+        }
+
+        private boolean isSubtype(TypeMirror type, Class<?> clazz) {
+            TypeElement element = elements().getTypeElement(clazz.getName());
+            return types().isSubtype(types().erasure(type), types().erasure(element.asType()));
+        }
+    }
+
+    private Types types() {
+        return processingEnv.getTypeUtils();
+    }
+
+    private javax.lang.model.util.Elements elements() {
+        return processingEnv.getElementUtils();
+    }
+
+    private static String generatedSimpleName(TypeElement entity) {
+        StringBuilder name = new StringBuilder(entity.getSimpleName());
+        Element enclosing = entity.getEnclosingElement();
+        while (enclosing instanceof TypeElement) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.append(SUFFIX).toString();
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < ' ' || c > '~') {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
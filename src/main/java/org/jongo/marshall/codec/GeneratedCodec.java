@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.codec;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.BsonTypeClassMap;
+import org.bson.codecs.BsonTypeCodecMap;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.Date;
+
+/**
+ * Base class of the codecs generated by {@link CodecProcessor}.
+ * <p>
+ * Codecs of nested pojos are looked up lazily, they may be generated codecs referring back to this one.
+ */
+public abstract class GeneratedCodec<T> implements Codec<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final CodecRegistry registry;
+    private final Class<T> type;
+    // racy but safe: the registry always returns an equivalent codec
+    private final Codec<?>[] codecs;
+    private BsonTypeCodecMap valueCodecs;
+
+    protected GeneratedCodec(CodecRegistry registry, Class<T> type, int codecCount) {
+        this.registry = registry;
+        this.type = type;
+        this.codecs = new Codec<?>[codecCount];
+    }
+
+    public Class<T> getEncoderClass() {
+        return type;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <V> Codec<V> codec(int slot, Class<V> valueType) {
+        Codec<V> codec = (Codec<V>) codecs[slot];
+        if (codec == null) {
+            codec = registry.get(valueType);
+            codecs[slot] = codec;
+        }
+        return codec;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void writeValue(BsonWriter writer, Object value, EncoderContext context) {
+        if (value == null) {
+            writer.writeNull();
+            return;
+        }
+        Codec<Object> codec = (Codec<Object>) registry.get(value.getClass());
+        context.encodeWithChildContext(codec, writer, value);
+    }
+
+    protected Object readValue(BsonReader reader, DecoderContext context) {
+        if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            return null;
+        }
+        BsonTypeCodecMap codecMap = valueCodecs;
+        if (codecMap == null) {
+            codecMap = new BsonTypeCodecMap(new BsonTypeClassMap(), registry);
+            valueCodecs = codecMap;
+        }
+        return context.decodeWithChildContext(codecMap.get(reader.getCurrentBsonType()), reader);
+    }
+
+    protected static int readInt(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT64:
+                return (int) reader.readInt64();
+            case DOUBLE:
+                return (int) reader.readDouble();
+            default:
+                return reader.readInt32();
+        }
+    }
+
+    protected static long readLong(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case DOUBLE:
+                return (long) reader.readDouble();
+            default:
+                return reader.readInt64();
+        }
+    }
+
+    protected static double readDouble(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            default:
+                return reader.readDouble();
+        }
+    }
+
+    protected static String readString(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case SYMBOL:
+                return reader.readSymbol();
+            case OBJECT_ID:
+                return reader.readObjectId().toHexString();
+            default:
+                return reader.readString();
+        }
+    }
+
+    protected static ObjectId readObjectId(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.STRING) {
+            return new ObjectId(reader.readString());
+        }
+        return reader.readObjectId();
+    }
+
+    protected static Date readDate(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.INT64) {
+            return new Date(reader.readInt64());
+        }
+        return new Date(reader.readDateTime());
+    }
+
+    /**
+     * Handle reading a field the generated codec cannot access, typed as taking the owner class.
+     */
+    protected static MethodHandle getter(Class<?> owner, String name) {
+        try {
+            MethodHandle getter = LOOKUP.unreflectGetter(findField(owner, name));
+            return getter.asType(getter.type().changeParameterType(0, owner));
+        } catch (IllegalAccessException e) {
+            throw new CodecConfigurationException("Unable to read field " + name + " of " + owner, e);
+        }
+    }
+
+    protected static MethodHandle setter(Class<?> owner, String name) {
+        try {
+            MethodHandle setter = LOOKUP.unreflectSetter(findField(owner, name));
+            return setter.asType(setter.type().changeParameterType(0, owner));
+        } catch (IllegalAccessException e) {
+            throw new CodecConfigurationException("Unable to write field " + name + " of " + owner, e);
+        }
+    }
+
+    protected static MethodHandle constructor(Class<?> owner) {
+        try {
+            Constructor<?> constructor = owner.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return LOOKUP.unreflectConstructor(constructor);
+        } catch (Exception e) {
+            throw new CodecConfigurationException("Unable to find no-arg constructor of " + owner, e);
+        }
+    }
+
+    protected static RuntimeException propagate(Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        return new CodecConfigurationException(t.getMessage(), t);
+    }
+
+    private static Field findField(Class<?> owner, String name) {
+        for (Class<?> c = owner; c != null; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                // declared by a super class
+            }
+        }
+        throw new CodecConfigurationException("Unable to find field " + name + " of " + owner);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.codec;
+
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.jongo.marshall.codec.annotation.MongoEntity;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Provides the codecs generated by {@link CodecProcessor} for classes annotated with {@link MongoEntity}.
+ * Entities compiled without the processor are left to the next providers.
+ */
+public class GeneratedCodecProvider implements CodecProvider {
+
+    private static final ClassValue<Constructor<?>> CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            if (!type.isAnnotationPresent(MongoEntity.class)) {
+                return null;
+            }
+            try {
+                Class<?> codec = Class.forName(generatedName(type), true, type.getClassLoader());
+                return codec.getConstructor(CodecRegistry.class);
+            } catch (ClassNotFoundException e) {
+                return null;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        Constructor<?> constructor = CONSTRUCTORS.get(clazz);
+        if (constructor == null) {
+            return null;
+        }
+        try {
+            return (Codec<T>) constructor.newInstance(registry);
+        } catch (Exception e) {
+            throw new CodecConfigurationException("Unable to create generated codec of " + clazz, e);
+        }
+    }
+
+    static String generatedName(Class<?> type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Class<?> enclosing = type.getEnclosingClass(); enclosing != null; enclosing = enclosing.getEnclosingClass()) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+        }
+        int packageEnd = type.getName().lastIndexOf('.');
+        if (packageEnd > 0) {
+            name.insert(0, type.getName().substring(0, packageEnd + 1));
+        }
+        return name.append(CodecProcessor.SUFFIX).toString();
+    }
+}
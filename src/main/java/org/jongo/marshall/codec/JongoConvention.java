@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.codec;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.bson.BsonType;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.pojo.ClassModelBuilder;
+import org.bson.codecs.pojo.Convention;
+import org.bson.codecs.pojo.InstanceCreator;
+import org.bson.codecs.pojo.InstanceCreatorFactory;
+import org.bson.codecs.pojo.PropertyAccessor;
+import org.bson.codecs.pojo.PropertyModel;
+import org.bson.codecs.pojo.PropertyModelBuilder;
+import org.bson.codecs.pojo.annotations.BsonCreator;
+import org.bson.codecs.pojo.annotations.BsonIgnore;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps pojos the way the default Jackson mapping does: properties are read from and written to fields, whatever
+ * their visibility, and getters and setters are ignored. The id is the field named {@code _id}, annotated with
+ * {@code @MongoId} or {@code @JsonProperty("_id")}, a {@code @MongoObjectId} string is stored as an {@code ObjectId}.
+ * Pojos without public constructor are created with their no-arg constructor.
+ * <p>
+ * It has to be applied after the driver default conventions.
+ */
+@SuppressWarnings("deprecation")
+public class JongoConvention implements Convention {
+
+    private final org.jongo.ReflectiveObjectIdUpdater.IdFieldSelector idSelector = new org.jongo.marshall.jackson.JacksonIdFieldSelector();
+
+    public void apply(ClassModelBuilder<?> classModelBuilder) {
+        String idPropertyName = null;
+        for (PropertyModelBuilder<?> property : new ArrayList<PropertyModelBuilder<?>>(classModelBuilder.getPropertyModelBuilders())) {
+            Field field = findField(classModelBuilder.getType(), property.getName());
+            if (field == null || field.isAnnotationPresent(JsonIgnore.class)) {
+                classModelBuilder.removeProperty(property.getName());
+                continue;
+            }
+            mapOnField(property, field);
+            if (idSelector.isId(field)) {
+                idPropertyName = property.getName();
+            }
+            if (field.getType().equals(String.class) && idSelector.isObjectId(field)) {
+                property.bsonRepresentation(BsonType.OBJECT_ID);
+            }
+        }
+        classModelBuilder.idPropertyName(idPropertyName);
+        useNoArgConstructor(classModelBuilder);
+    }
+
+    private <T> void mapOnField(PropertyModelBuilder<T> property, Field field) {
+        if (isIgnored(property.getReadAnnotations()) || isIgnored(property.getWriteAnnotations())) {
+            return;
+        }
+        String name = property.getName();
+        JsonProperty jsonProperty = field.getAnnotation(JsonProperty.class);
+        if (jsonProperty != null && !jsonProperty.value().isEmpty()) {
+            name = jsonProperty.value();
+        }
+        field.setAccessible(true);
+        property.readName(property.getReadName() == null ? name : property.getReadName())
+                .writeName(property.getWriteName() == null ? name : property.getWriteName())
+                .propertyAccessor(new FieldAccessor<T>(field));
+    }
+
+    private <T> void useNoArgConstructor(ClassModelBuilder<T> classModelBuilder) {
+        Class<T> type = classModelBuilder.getType();
+        if (Modifier.isAbstract(type.getModifiers()) || hasCreator(type)) {
+            return;
+        }
+        try {
+            Constructor<T> constructor = type.getDeclaredConstructor();
+            if (!Modifier.isPublic(constructor.getModifiers())) {
+                constructor.setAccessible(true);
+                classModelBuilder.instanceCreatorFactory(new ConstructorCreatorFactory<T>(constructor));
+            }
+        } catch (NoSuchMethodException e) {
+            // left to the driver default creator
+        }
+    }
+
+    private static boolean hasCreator(Class<?> type) {
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (constructor.isAnnotationPresent(BsonCreator.class)) {
+                return true;
+            }
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(BsonCreator.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIgnored(List<Annotation> annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof BsonIgnore) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for (Class<?> c = type; c != null && !Object.class.equals(c); c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (field.getName().equals(name) && !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class FieldAccessor<T> implements PropertyAccessor<T> {
+
+        private final Field field;
+
+        private FieldAccessor(Field field) {
+            this.field = field;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <S> T get(S instance) {
+            try {
+                return (T) field.get(instance);
+            } catch (IllegalAccessException e) {
+                throw new CodecConfigurationException("Unable to read field " + field, e);
+            }
+        }
+
+        public <S> void set(S instance, T value) {
+            try {
+                field.set(instance, value);
+            } catch (IllegalAccessException e) {
+                throw new CodecConfigurationException("Unable to write field " + field, e);
+            }
+        }
+    }
+
+    private static class ConstructorCreatorFactory<T> implements InstanceCreatorFactory<T> {
+
+        private final Constructor<T> constructor;
+
+        private ConstructorCreatorFactory(Constructor<T> constructor) {
+            this.constructor = constructor;
+        }
+
+        public InstanceCreator<T> create() {
+            final T instance;
+            try {
+                instance = constructor.newInstance();
+            } catch (Exception e) {
+                throw new CodecConfigurationException("Unable to create an instance of " + constructor.getDeclaringClass(), e);
+            }
+            return new InstanceCreator<T>() {
+                public <S> void set(S value, PropertyModel<S> propertyModel) {
+                    propertyModel.getPropertyAccessor().set(instance, value);
+                }
+
+                public T getInstance() {
+                    return instance;
+                }
+            };
+        }
+    }
+}
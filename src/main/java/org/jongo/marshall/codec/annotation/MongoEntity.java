@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.codec.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a pojo stored in MongoDB, e.g.
+ * <pre>
+ * &#64;MongoEntity
+ * public class Friend {
+ *     &#64;MongoObjectId
+ *     &#64;MongoId
+ *     private String key;
+ *     private String name;
+ * }
+ * </pre>
+ * When compiling with {@link org.jongo.marshall.codec.CodecProcessor}, a codec named <code>Friend_JongoCodec</code>
+ * reading and writing its fields without any reflection is generated. It is then used by the
+ * {@link org.jongo.marshall.codec.CodecMapper}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface MongoEntity {
+}
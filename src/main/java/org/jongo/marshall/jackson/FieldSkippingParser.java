@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson;
+
+/**
+ * Implemented by BSON parsers able to skip unknown fields without tokenizing their values: subdocuments, arrays,
+ * strings and binaries are jumped over using their length prefix.
+ */
+public interface FieldSkippingParser {
+
+    /**
+     * Skips the fields which are not known until the end of the object started by the current
+     * {@link com.fasterxml.jackson.core.JsonToken#START_OBJECT} token. Does nothing on any other token.
+     */
+    void skipUnknownFields(KnownFields knownFields);
+
+    interface KnownFields {
+        boolean contains(String fieldName);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson;
+
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import org.bson.types.ObjectId;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+/**
+ * Reads and writes the id of instances of a given class.
+ * <p>
+ * Accessors are resolved once per class and kept by the {@link org.jongo.ObjectIdUpdater}s in a {@link ClassValue},
+ * so reading or assigning an id costs a method handle invocation instead of an introspection of the class.
+ */
+public class IdAccessor {
+
+    public static final IdAccessor NO_ID = new IdAccessor("none", null, null, false, false);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final String name;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    private final boolean objectId;
+    private final boolean stringObjectId;
+
+    private IdAccessor(String name, MethodHandle getter, MethodHandle setter, boolean objectId, boolean stringObjectId) {
+        this.name = name;
+        this.getter = getter;
+        this.setter = setter;
+        this.objectId = objectId;
+        this.stringObjectId = stringObjectId;
+    }
+
+    /**
+     * @param property a property found by Jackson, its accessor and field are made accessible
+     * @param objectId true if the id holds an {@link ObjectId}, possibly as a String
+     */
+    public static IdAccessor of(BeanPropertyDefinition property, boolean objectId) {
+        AnnotatedMember accessor = property.getAccessor();
+        accessor.fixAccess(true);
+        AnnotatedMember field = property.getField();
+        if (field != null) {
+            field.fixAccess(true);
+        }
+        return of(accessor.getMember(), field == null ? null : (Field) field.getMember(), objectId);
+    }
+
+    /**
+     * @param getter the field or method used to read the id, must be accessible
+     * @param field  the field assigned with generated ids, must be accessible, can be null
+     * @param objectId true if the id holds an {@link ObjectId}, possibly as a String
+     */
+    public static IdAccessor of(Member getter, Field field, boolean objectId) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            MethodHandle getterHandle = getter instanceof Field ?
+                    lookup.unreflectGetter((Field) getter) : lookup.unreflect((Method) getter);
+            MethodHandle setterHandle = null;
+            boolean stringObjectId = false;
+            if (field != null) {
+                Class<?> type = field.getType();
+                stringObjectId = type.equals(String.class) && objectId;
+                if (ObjectId.class.isAssignableFrom(type) || stringObjectId) {
+                    setterHandle = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+                }
+            }
+            return new IdAccessor(getter.getName(), getterHandle.asType(GETTER_TYPE), setterHandle, objectId, stringObjectId);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Unable to access id " + getter.getName() + " of class: " + getter.getDeclaringClass(), e);
+        }
+    }
+
+    public boolean hasId() {
+        return getter != null;
+    }
+
+    public boolean canSetObjectId() {
+        return setter != null;
+    }
+
+    public boolean isObjectId() {
+        return objectId;
+    }
+
+    public Object getValue(Object pojo) {
+        if (getter == null) {
+            return null;
+        }
+        try {
+            return (Object) getter.invokeExact(pojo);
+        } catch (Throwable t) {
+            throw new IllegalArgumentException("Unable to obtain id from " + name + ", class: " + pojo.getClass(), t);
+        }
+    }
+
+    /**
+     * @return the id of the pojo, ids stored as String are converted to {@link ObjectId} when mapped as such
+     */
+    public Object getId(Object pojo) {
+        Object id = getValue(pojo);
+        if (id instanceof String && objectId) {
+            return new ObjectId(id.toString());
+        }
+        return id;
+    }
+
+    /**
+     * Assigns the id field, does nothing when the field cannot hold an {@link ObjectId}.
+     */
+    public void setObjectId(Object target, ObjectId id) {
+        if (setter == null) {
+            return;
+        }
+        try {
+            setter.invokeExact(target, (Object) (stringObjectId ? id.toString() : id));
+        } catch (Throwable t) {
+            throw new IllegalArgumentException("Unable to set objectid on class: " + target.getClass(), t);
+        }
+    }
+}
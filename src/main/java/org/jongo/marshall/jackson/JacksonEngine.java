@@ -16,24 +16,62 @@
 
 package org.jongo.marshall.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mongodb.DBObject;
 import org.jongo.bson.Bson;
 import org.jongo.bson.BsonDocument;
+import org.jongo.bson.StreamableBsonDocument;
 import org.jongo.marshall.Marshaller;
 import org.jongo.marshall.MarshallingException;
 import org.jongo.marshall.Unmarshaller;
 import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.marshall.jackson.configuration.ObjectIdGenerationModifier;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 
 public class JacksonEngine implements Unmarshaller, Marshaller {
 
     private final Mapping mapping;
+    private final MarshallingBuffers buffers;
+    private final boolean streamedWrites;
+    private final boolean generatedObjectIds;
 
     public JacksonEngine(Mapping mapping) {
+        this(mapping, false);
+    }
+
+    /**
+     * @param pooledBuffers marshall pojos into per thread reused buffers, documents returned by
+     *                      {@link #marshallForWrite(Object)} are then views over these buffers
+     */
+    public JacksonEngine(Mapping mapping, boolean pooledBuffers) {
+        this(mapping, pooledBuffers, false);
+    }
+
+    /**
+     * @param streamedWrites documents returned by {@link #marshallForWrite(Object)} are {@link StreamableBsonDocument}
+     *                       which marshall the pojo only when they are written, marshalling errors are then
+     *                       raised by the driver when it encodes them
+     */
+    public JacksonEngine(Mapping mapping, boolean pooledBuffers, boolean streamedWrites) {
+        this(mapping, pooledBuffers, streamedWrites, false);
+    }
+
+    /**
+     * @param generatedObjectIds missing ObjectIds are generated while pojos are marshalled by
+     *                           {@link #marshallForWrite(Object)}, the mapper must be configured with an
+     *                           {@link ObjectIdGenerationModifier}. Ignored for streamed writes: their id has
+     *                           to be known before the driver encodes them.
+     */
+    public JacksonEngine(Mapping mapping, boolean pooledBuffers, boolean streamedWrites, boolean generatedObjectIds) {
         this.mapping = mapping;
+        this.buffers = new MarshallingBuffers(pooledBuffers);
+        this.streamedWrites = streamedWrites;
+        this.generatedObjectIds = generatedObjectIds && !streamedWrites;
     }
 
     /**
@@ -56,13 +94,95 @@ public class JacksonEngine implements Unmarshaller, Marshaller {
     }
 
     public BsonDocument marshall(Object pojo) throws MarshallingException {
+        return marshall(pojo, mapping.getWriter(pojo));
+    }
+
+    private BsonDocument marshall(Object pojo, ObjectWriter writer) throws MarshallingException {
+
+        MarshallingBuffers.Buffer buffer = write(pojo, writer);
+        try {
+            return Bson.createDocument(buffer.toByteArray());
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    @Override
+    public BsonDocument marshallForWrite(Object pojo) throws MarshallingException {
+
+        if (streamedWrites) {
+            return new StreamedBsonDocument(pojo);
+        }
+        ObjectWriter writer = mapping.getWriter(pojo);
+        if (generatedObjectIds) {
+            writer = writer.withAttribute(ObjectIdGenerationModifier.GENERATE_OBJECT_IDS, pojo);
+        }
+        if (!buffers.isPooled()) {
+            return marshall(pojo, writer);
+        }
+        return buffers.view(write(pojo, writer));
+    }
+
+    @Override
+    public boolean generatesObjectIds() {
+        return generatedObjectIds;
+    }
+
+    private MarshallingBuffers.Buffer write(Object pojo, ObjectWriter writer) throws MarshallingException {
 
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Class<?> type = pojo == null ? Object.class : pojo.getClass();
+        MarshallingBuffers.Buffer buffer = buffers.acquire(type);
         try {
-            mapping.getWriter(pojo).writeValue(output, pojo);
+            writer.writeValue(buffer, pojo);
         } catch (IOException e) {
+            buffers.release(buffer);
             throw new MarshallingException("Unable to marshall " + pojo + " into bson", e);
         }
-        return Bson.createDocument(output.toByteArray());
+        buffers.recordSize(type, buffer.size());
+        return buffer;
+    }
+
+    private class StreamedBsonDocument implements StreamableBsonDocument {
+
+        private final Object pojo;
+        private BsonDocument document;
+
+        private StreamedBsonDocument(Object pojo) {
+            this.pojo = pojo;
+        }
+
+        public void writeTo(OutputStream output) throws IOException {
+            JsonGenerator generator = mapping.getObjectMapper().getFactory().createGenerator(output);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            try {
+                mapping.getWriter(pojo).writeValue(generator, pojo);
+            } finally {
+                generator.close();
+            }
+        }
+
+        public byte[] toByteArray() {
+            return materialize().toByteArray();
+        }
+
+        public DBObject toDBObject() {
+            return materialize().toDBObject();
+        }
+
+        public int getSize() {
+            return materialize().getSize();
+        }
+
+        private BsonDocument materialize() {
+            if (document == null) {
+                document = marshall(pojo);
+            }
+            return document;
+        }
+
+        @Override
+        public String toString() {
+            return materialize().toString();
+        }
     }
 }
@@ -23,8 +23,11 @@ import org.jongo.marshall.Marshaller;
 import org.jongo.marshall.Unmarshaller;
 import org.jongo.marshall.jackson.configuration.AbstractMappingBuilder;
 import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.marshall.jackson.configuration.ObjectIdGenerationModifier;
 import org.jongo.query.BsonQueryFactory;
 import org.jongo.query.QueryFactory;
+import org.jongo.query.QueryTemplateCache;
+import org.jongo.query.RawBsonQueryFactory;
 
 public class JacksonMapper implements Mapper {
 
@@ -58,6 +61,11 @@ public class JacksonMapper implements Mapper {
 
         private QueryFactory queryFactory;
         private ObjectIdUpdater objectIdUpdater;
+        private int queryCacheMaxSize = QueryTemplateCache.DEFAULT_MAX_SIZE;
+        private boolean rawBsonQueries = false;
+        private boolean pooledBuffers = false;
+        private boolean streamedWrites = false;
+        private boolean generatedObjectIds = false;
 
         public Builder() {
             super();
@@ -69,9 +77,10 @@ public class JacksonMapper implements Mapper {
 
         public Mapper build() {
             Mapping mapping = createMapping();
-            JacksonEngine jacksonEngine = new JacksonEngine(mapping);
+            JacksonEngine jacksonEngine = new JacksonEngine(mapping, pooledBuffers, streamedWrites, generatedObjectIds);
             if (queryFactory == null) {
-                queryFactory = new BsonQueryFactory(jacksonEngine);
+                QueryTemplateCache templateCache = new QueryTemplateCache(queryCacheMaxSize);
+                queryFactory = rawBsonQueries ? new RawBsonQueryFactory(jacksonEngine, templateCache) : new BsonQueryFactory(jacksonEngine, templateCache);
             }
             if (objectIdUpdater == null) {
                 objectIdUpdater = new JacksonObjectIdUpdater(mapping.getObjectMapper());
@@ -84,6 +93,54 @@ public class JacksonMapper implements Mapper {
             return getBuilderInstance();
         }
 
+        /**
+         * Sets the maximum number of compiled query templates kept by the default query factory.
+         * Use 0 to disable query template caching.
+         */
+        public Builder withQueryCacheMaxSize(int maxSize) {
+            this.queryCacheMaxSize = maxSize;
+            return getBuilderInstance();
+        }
+
+        /**
+         * Compiles queries straight into BSON bytes with a {@link RawBsonQueryFactory}.
+         */
+        public Builder withRawBsonQueries() {
+            this.rawBsonQueries = true;
+            return getBuilderInstance();
+        }
+
+        /**
+         * Marshalls saved and inserted pojos into per thread reused buffers, which are given back once
+         * the driver has written them.
+         */
+        public Builder withPooledBuffers() {
+            this.pooledBuffers = true;
+            return getBuilderInstance();
+        }
+
+        /**
+         * Marshalls saved and inserted pojos when the driver encodes them, straight into its output buffer.
+         * Marshalling errors are then raised by the driver.
+         */
+        public Builder withStreamedWrites() {
+            this.streamedWrites = true;
+            return getBuilderInstance();
+        }
+
+        /**
+         * Generates the missing ObjectIds of saved and inserted pojos while they are marshalled, the id is then
+         * read back from the marshalled document. Pojos are no longer prepared by the {@link ObjectIdUpdater}
+         * before being written, except for streamed writes whose id has to be known up front.
+         */
+        public Builder withObjectIdsGeneratedOnWrite() {
+            if (!generatedObjectIds) {
+                addModifier(new ObjectIdGenerationModifier());
+                generatedObjectIds = true;
+            }
+            return getBuilderInstance();
+        }
+
         public Builder withObjectIdUpdater(ObjectIdUpdater objectIdUpdater) {
             this.objectIdUpdater = objectIdUpdater;
             return getBuilderInstance();
@@ -37,6 +37,12 @@ public class JacksonObjectIdUpdater implements ObjectIdUpdater {
 
     private final ObjectMapper mapper;
     private final IdSelector<BeanPropertyDefinition> idSelector;
+    private final ClassValue<IdAccessor> accessors = new ClassValue<IdAccessor>() {
+        @Override
+        protected IdAccessor computeValue(Class<?> type) {
+            return findIdAccessor(type);
+        }
+    };
 
     public JacksonObjectIdUpdater(ObjectMapper mapper) {
         this(mapper, new BeanPropertyDefinitionIdSelector());
@@ -48,52 +54,29 @@ public class JacksonObjectIdUpdater implements ObjectIdUpdater {
     }
 
     public boolean mustGenerateObjectId(Object pojo) {
-        for (BeanPropertyDefinition def : beanDescription(pojo.getClass()).findProperties()) {
-            if (idSelector.isId(def)) {
-                AnnotatedMember accessor = def.getAccessor();
-                accessor.fixAccess(true);
-                return idSelector.isObjectId(def) && accessor.getValue(pojo) == null;
-            }
-        }
-        return false;
+        IdAccessor accessor = accessors.get(pojo.getClass());
+        return accessor.isObjectId() && accessor.getValue(pojo) == null;
     }
 
     public Object getId(Object pojo) {
-        BasicBeanDescription beanDescription = beanDescription(pojo.getClass());
-        for (BeanPropertyDefinition def : beanDescription.findProperties()) {
-            if (idSelector.isId(def)) {
-                AnnotatedMember accessor = def.getAccessor();
-                accessor.fixAccess(true);
-                Object id = accessor.getValue(pojo);
-                if (id instanceof String && idSelector.isObjectId(def)) {
-                    return new ObjectId(id.toString());
-                } else {
-                    return id;
-                }
-            }
-        }
-        return null;
+        return accessors.get(pojo.getClass()).getId(pojo);
     }
 
     public void setObjectId(Object target, ObjectId id) {
-        for (BeanPropertyDefinition def : beanDescription(target.getClass()).findProperties()) {
+        IdAccessor accessor = accessors.get(target.getClass());
+        if (accessor.getValue(target) != null) {
+            throw new IllegalArgumentException("Unable to set objectid on class: " + target.getClass());
+        }
+        accessor.setObjectId(target, id);
+    }
+
+    private IdAccessor findIdAccessor(Class<?> cls) {
+        for (BeanPropertyDefinition def : beanDescription(cls).findProperties()) {
             if (idSelector.isId(def)) {
-                AnnotatedMember accessor = def.getAccessor();
-                accessor.fixAccess(true);
-                if (accessor.getValue(target) != null) {
-                    throw new IllegalArgumentException("Unable to set objectid on class: " + target.getClass());
-                }
-                AnnotatedMember field = def.getField();
-                field.fixAccess(true);
-                Class<?> type = field.getRawType();
-                if (ObjectId.class.isAssignableFrom(type)) {
-                    field.setValue(target, id);
-                } else if (type.equals(String.class) && idSelector.isObjectId(def)) {
-                    field.setValue(target, id.toString());
-                }
-                return;
+                return IdAccessor.of(def, idSelector.isObjectId(def));
             }
         }
+        return IdAccessor.NO_ID;
     }
 
     private BasicBeanDescription beanDescription(Class<?> cls) {
@@ -20,6 +20,8 @@ import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.PropertyName;
 import com.fasterxml.jackson.databind.introspect.Annotated;
 import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import org.jongo.marshall.jackson.lazy.LazyField;
+import org.jongo.marshall.jackson.lazy.LazyFieldDeserializer;
 import org.jongo.marshall.jackson.oid.*;
 
 @SuppressWarnings("deprecation")
@@ -47,7 +49,10 @@ public class JongoAnnotationIntrospector extends NopAnnotationIntrospector {
 
     @Override
     public Object findDeserializer(Annotated a) {
-        return idSelector.isObjectId(a) ? ObjectIdDeserializer.class : super.findDeserializer(a);
+        if (idSelector.isObjectId(a)) {
+            return ObjectIdDeserializer.class;
+        }
+        return a.hasAnnotation(LazyField.class) ? LazyFieldDeserializer.class : super.findDeserializer(a);
     }
 
     @Override
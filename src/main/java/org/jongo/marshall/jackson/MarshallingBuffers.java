@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson;
+
+import com.mongodb.DBObject;
+import org.jongo.bson.Bson;
+import org.jongo.bson.BsonDocument;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+
+/**
+ * Output buffers used to marshall pojos.
+ * <p>
+ * The initial size of a buffer is learned per class from the size of the documents previously marshalled,
+ * which avoids growing it several times while writing. When pooling is enabled, buffers are kept per thread
+ * and handed out as {@link BsonDocument} views which give them back once released.
+ */
+class MarshallingBuffers {
+
+    private static final int DEFAULT_SIZE_HINT = 256;
+    private static final int MAX_POOLED_BUFFERS = 16;
+    private static final int MAX_POOLED_CAPACITY = 1024 * 1024;
+
+    private final boolean pooled;
+    private final ClassValue<SizeHint> sizeHints = new ClassValue<SizeHint>() {
+        @Override
+        protected SizeHint computeValue(Class<?> type) {
+            return new SizeHint();
+        }
+    };
+    private final ThreadLocal<ArrayDeque<Buffer>> pool = new ThreadLocal<ArrayDeque<Buffer>>() {
+        @Override
+        protected ArrayDeque<Buffer> initialValue() {
+            return new ArrayDeque<Buffer>(MAX_POOLED_BUFFERS);
+        }
+    };
+
+    MarshallingBuffers(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    boolean isPooled() {
+        return pooled;
+    }
+
+    Buffer acquire(Class<?> type) {
+        int sizeHint = sizeHints.get(type).get();
+        if (pooled) {
+            Buffer buffer = pool.get().poll();
+            if (buffer != null && buffer.capacity() >= sizeHint) {
+                return buffer;
+            }
+        }
+        return new Buffer(sizeHint);
+    }
+
+    void recordSize(Class<?> type, int size) {
+        sizeHints.get(type).record(size);
+    }
+
+    BsonDocument view(Buffer buffer) {
+        return new PooledBsonDocument(buffer);
+    }
+
+    void release(Buffer buffer) {
+        if (!pooled || buffer.capacity() > MAX_POOLED_CAPACITY) {
+            return;
+        }
+        ArrayDeque<Buffer> buffers = pool.get();
+        if (buffers.size() < MAX_POOLED_BUFFERS) {
+            buffer.reset();
+            buffers.push(buffer);
+        }
+    }
+
+    static class Buffer extends ByteArrayOutputStream {
+
+        Buffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    private static class SizeHint {
+
+        private volatile int size = DEFAULT_SIZE_HINT;
+
+        int get() {
+            return size;
+        }
+
+        void record(int documentSize) {
+            int current = size;
+            // grow at once but shrink slowly, a few small documents should not undersize the next large one
+            int next = documentSize >= current ? documentSize : current - ((current - documentSize) >> 3);
+            if (next != current) {
+                size = next;
+            }
+        }
+    }
+
+    private class PooledBsonDocument implements BsonDocument {
+
+        private Buffer buffer;
+
+        private PooledBsonDocument(Buffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public byte[] toByteArray() {
+            return buffer().array();
+        }
+
+        public DBObject toDBObject() {
+            return Bson.createDocument(buffer().array()).toDBObject();
+        }
+
+        public int getSize() {
+            return buffer().size();
+        }
+
+        @Override
+        public void release() {
+            if (buffer != null) {
+                MarshallingBuffers.this.release(buffer);
+                buffer = null;
+            }
+        }
+
+        private Buffer buffer() {
+            if (buffer == null) {
+                throw new IllegalStateException("Document has already been released");
+            }
+            return buffer;
+        }
+
+        @Override
+        public String toString() {
+            return toDBObject().toString();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.jongo.bson.RawBson.readInt;
+
+/**
+ * Implemented by BSON parsers reading from a byte array, able to give access to the raw bytes of the
+ * subdocument or array they are positioned on.
+ */
+public interface RawValueParser {
+
+    /**
+     * Returns the array the document is read from, or <code>null</code> when the parser reads from a stream.
+     */
+    byte[] getRawBytes();
+
+    /**
+     * Returns the offset in {@link #getRawBytes()} of the subdocument or array started by the current
+     * {@link com.fasterxml.jackson.core.JsonToken#START_OBJECT} or {@link com.fasterxml.jackson.core.JsonToken#START_ARRAY}
+     * token, or <code>-1</code> on any other token.
+     */
+    int getRawValueOffset();
+
+    /**
+     * Copies the bytes of the subdocument or array started by the current token and moves the parser to its end
+     * token. Returns <code>null</code>, leaving the parser untouched, when it cannot give access to raw bytes.
+     * <p>
+     * Bytes are copied as the document may be a view over a reused buffer.
+     */
+    static byte[] copyRawValue(JsonParser p) throws IOException {
+        if (!(p instanceof RawValueParser)) {
+            return null;
+        }
+        RawValueParser parser = (RawValueParser) p;
+        byte[] source = parser.getRawBytes();
+        int offset = parser.getRawValueOffset();
+        if (source == null || offset < 0) {
+            return null;
+        }
+        byte[] bytes = Arrays.copyOfRange(source, offset, offset + readInt(source, offset));
+        p.skipChildren();
+        return bytes;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.bson;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.io.IOContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * A BSON {@link JsonFactory} built on the driver {@link org.bson.BsonBinaryReader} and
+ * {@link org.bson.BsonBinaryWriter}: ObjectId, Decimal128, dates and other driver types are read and written
+ * as they are, without going through bson4jackson types.
+ * <p>
+ * It has to be used along with the {@link NativeBsonModule}.
+ */
+public class NativeBsonFactory extends JsonFactory {
+
+    public static final String FORMAT_NAME = "BSON";
+
+    public NativeBsonFactory() {
+        super();
+    }
+
+    public NativeBsonFactory(ObjectCodec codec) {
+        super(codec);
+    }
+
+    protected NativeBsonFactory(NativeBsonFactory src, ObjectCodec codec) {
+        super(src, codec);
+    }
+
+    @Override
+    public NativeBsonFactory copy() {
+        return new NativeBsonFactory(this, null);
+    }
+
+    @Override
+    public String getFormatName() {
+        return FORMAT_NAME;
+    }
+
+    @Override
+    public boolean canHandleBinaryNatively() {
+        return true;
+    }
+
+    @Override
+    public boolean canUseCharArrays() {
+        return false;
+    }
+
+    @Override
+    protected JsonParser _createParser(byte[] data, int offset, int len, IOContext ctxt) throws IOException {
+        return new NativeBsonParser(_parserFeatures, _objectCodec, data, offset, len);
+    }
+
+    @Override
+    protected JsonParser _createParser(InputStream in, IOContext ctxt) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        for (int read = in.read(chunk); read != -1; read = in.read(chunk)) {
+            data.write(chunk, 0, read);
+        }
+        return _createParser(data.toByteArray(), 0, data.size(), ctxt);
+    }
+
+    @Override
+    protected JsonParser _createParser(Reader r, IOContext ctxt) throws IOException {
+        throw new UnsupportedOperationException("BSON can only be read from bytes");
+    }
+
+    @Override
+    protected JsonParser _createParser(char[] data, int offset, int len, IOContext ctxt, boolean recyclable) throws IOException {
+        throw new UnsupportedOperationException("BSON can only be read from bytes");
+    }
+
+    @Override
+    protected JsonParser _createParser(DataInput input, IOContext ctxt) throws IOException {
+        throw new UnsupportedOperationException("BSON can only be read from bytes");
+    }
+
+    @Override
+    public JsonGenerator createGenerator(OutputStream out, JsonEncoding enc) throws IOException {
+        return _createUTF8Generator(out, _createContext(_createContentReference(out), false));
+    }
+
+    @Override
+    protected JsonGenerator _createUTF8Generator(OutputStream out, IOContext ctxt) throws IOException {
+        return new NativeBsonGenerator(_generatorFeatures, _objectCodec, out);
+    }
+
+    @Override
+    protected JsonGenerator _createGenerator(Writer out, IOContext ctxt) throws IOException {
+        throw new UnsupportedOperationException("BSON can only be written as bytes");
+    }
+
+    @Override
+    protected Writer _createWriter(OutputStream out, JsonEncoding enc, IOContext ctxt) throws IOException {
+        throw new UnsupportedOperationException("BSON can only be written as bytes");
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.bson;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.base.GeneratorBase;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
+import org.bson.BsonBinary;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonTimestamp;
+import org.bson.UuidRepresentation;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.Code;
+import org.bson.types.Decimal128;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * A Jackson generator writing BSON documents with a {@link BsonBinaryWriter}.
+ * <p>
+ * Driver types are written natively through {@link #writeEmbeddedObject(Object)}. Each root document is
+ * written to the output stream once complete.
+ */
+class NativeBsonGenerator extends GeneratorBase {
+
+    private final OutputStream output;
+    private final BasicOutputBuffer buffer = new BasicOutputBuffer();
+    private BsonBinaryWriter writer;
+
+    NativeBsonGenerator(int features, ObjectCodec codec, OutputStream output) {
+        super(features, codec);
+        this.output = output;
+    }
+
+    @Override
+    public void writeStartObject() throws IOException {
+        _verifyValueWrite("start an object");
+        if (_writeContext.inRoot()) {
+            writer = new BsonBinaryWriter(buffer);
+        }
+        _writeContext = _writeContext.createChildObjectContext();
+        writer.writeStartDocument();
+    }
+
+    @Override
+    public void writeEndObject() throws IOException {
+        if (!_writeContext.inObject()) {
+            _reportError("Current context not an object but " + _writeContext.typeDesc());
+        }
+        writer.writeEndDocument();
+        _writeContext = _writeContext.clearAndGetParent();
+        if (_writeContext.inRoot()) {
+            writeDocument();
+        }
+    }
+
+    private void writeDocument() throws IOException {
+        writer.close();
+        writer = null;
+        buffer.pipe(output);
+        buffer.truncateToPosition(0);
+    }
+
+    @Override
+    public void writeStartArray() throws IOException {
+        _verifyValueWrite("start an array");
+        _writeContext = _writeContext.createChildArrayContext();
+        writer.writeStartArray();
+    }
+
+    @Override
+    public void writeEndArray() throws IOException {
+        if (!_writeContext.inArray()) {
+            _reportError("Current context not an array but " + _writeContext.typeDesc());
+        }
+        writer.writeEndArray();
+        _writeContext = _writeContext.clearAndGetParent();
+    }
+
+    @Override
+    public void writeFieldName(String name) throws IOException {
+        if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+        writer.writeName(name);
+    }
+
+    @Override
+    public void writeString(String text) throws IOException {
+        if (text == null) {
+            writeNull();
+            return;
+        }
+        _verifyValueWrite("write a string");
+        writer.writeString(text);
+    }
+
+    @Override
+    public void writeString(char[] text, int offset, int length) throws IOException {
+        writeString(new String(text, offset, length));
+    }
+
+    @Override
+    public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+        writeString(new String(text, offset, length, "UTF-8"));
+    }
+
+    @Override
+    public void writeRaw(String text) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(String text, int offset, int len) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(char[] text, int offset, int len) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(char c) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeBinary(Base64Variant variant, byte[] data, int offset, int length) throws IOException {
+        if (data == null) {
+            writeNull();
+            return;
+        }
+        _verifyValueWrite("write binary value");
+        byte[] value = data;
+        if (offset != 0 || length != data.length) {
+            value = new byte[length];
+            System.arraycopy(data, offset, value, 0, length);
+        }
+        writer.writeBinaryData(new BsonBinary(value));
+    }
+
+    @Override
+    public void writeNumber(int value) throws IOException {
+        _verifyValueWrite("write a number");
+        writer.writeInt32(value);
+    }
+
+    @Override
+    public void writeNumber(long value) throws IOException {
+        _verifyValueWrite("write a number");
+        writer.writeInt64(value);
+    }
+
+    @Override
+    public void writeNumber(BigInteger value) throws IOException {
+        if (value == null) {
+            writeNull();
+        } else if (value.bitLength() < 32) {
+            writeNumber(value.intValue());
+        } else if (value.bitLength() < 64) {
+            writeNumber(value.longValue());
+        } else {
+            writeString(value.toString());
+        }
+    }
+
+    @Override
+    public void writeNumber(double value) throws IOException {
+        _verifyValueWrite("write a number");
+        writer.writeDouble(value);
+    }
+
+    @Override
+    public void writeNumber(float value) throws IOException {
+        writeNumber((double) value);
+    }
+
+    @Override
+    public void writeNumber(BigDecimal value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        writeNumber(value.doubleValue());
+    }
+
+    @Override
+    public void writeNumber(String encodedValue) throws IOException {
+        writeString(encodedValue);
+    }
+
+    @Override
+    public void writeBoolean(boolean state) throws IOException {
+        _verifyValueWrite("write a boolean");
+        writer.writeBoolean(state);
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        _verifyValueWrite("write a null");
+        writer.writeNull();
+    }
+
+    @Override
+    public boolean canWriteBinaryNatively() {
+        return true;
+    }
+
+    @Override
+    public void writeEmbeddedObject(Object object) throws IOException {
+        if (object == null) {
+            writeNull();
+            return;
+        }
+        if (object instanceof byte[]) {
+            writeBinary((byte[]) object);
+            return;
+        }
+        _verifyValueWrite("write an embedded object");
+        if (object instanceof ObjectId) {
+            writer.writeObjectId((ObjectId) object);
+        } else if (object instanceof Date) {
+            writer.writeDateTime(((Date) object).getTime());
+        } else if (object instanceof Calendar) {
+            writer.writeDateTime(((Calendar) object).getTimeInMillis());
+        } else if (object instanceof Decimal128) {
+            writer.writeDecimal128((Decimal128) object);
+        } else if (object instanceof BSONTimestamp) {
+            BSONTimestamp timestamp = (BSONTimestamp) object;
+            writer.writeTimestamp(new BsonTimestamp(timestamp.getTime(), timestamp.getInc()));
+        } else if (object instanceof Binary) {
+            Binary binary = (Binary) object;
+            writer.writeBinaryData(new BsonBinary(binary.getType(), binary.getData()));
+        } else if (object instanceof UUID) {
+            writer.writeBinaryData(new BsonBinary((UUID) object, UuidRepresentation.JAVA_LEGACY));
+        } else if (object instanceof Pattern) {
+            Pattern pattern = (Pattern) object;
+            writer.writeRegularExpression(new BsonRegularExpression(pattern.pattern(), RegexFlags.toBsonOptions(pattern.flags())));
+        } else if (object instanceof Code) {
+            writer.writeJavaScript(((Code) object).getCode());
+        } else if (object instanceof MinKey) {
+            writer.writeMinKey();
+        } else if (object instanceof MaxKey) {
+            writer.writeMaxKey();
+        } else {
+            _reportError("No native BSON support for " + object.getClass().getName());
+        }
+    }
+
+    @Override
+    protected void _verifyValueWrite(String typeMsg) throws IOException {
+        int status = _writeContext.writeValue();
+        if (status == JsonWriteContext.STATUS_EXPECT_NAME) {
+            _reportError("Can not " + typeMsg + ", expecting field name");
+        }
+        if (_writeContext.inRoot() && !"start an object".equals(typeMsg)) {
+            _reportError("Can not " + typeMsg + ", a BSON document has to start with an object");
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (isEnabled(Feature.FLUSH_PASSED_TO_STREAM)) {
+            output.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (isEnabled(Feature.AUTO_CLOSE_TARGET)) {
+            output.close();
+        } else {
+            flush();
+        }
+        _releaseBuffers();
+    }
+
+    @Override
+    protected void _releaseBuffers() {
+        buffer.close();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.bson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleDeserializers;
+import com.fasterxml.jackson.databind.module.SimpleSerializers;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.Code;
+import org.bson.types.Decimal128;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.jongo.marshall.jackson.bson4jackson.BsonDeserializers;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Serializers and deserializers of driver types for the {@link NativeBsonFactory}: values are handed to the
+ * generator and read from the parser as embedded objects.
+ */
+public class NativeBsonModule extends Module {
+
+    @Override
+    public String getModuleName() {
+        return "jongo-native-bson";
+    }
+
+    @Override
+    public Version version() {
+        return Version.unknownVersion();
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        SimpleSerializers serializers = new SimpleSerializers();
+        EmbeddedObjectSerializer embedded = new EmbeddedObjectSerializer();
+        for (Class<?> type : new Class<?>[]{ObjectId.class, Date.class, Calendar.class, Decimal128.class, BSONTimestamp.class,
+                Binary.class, UUID.class, Pattern.class, Code.class, MinKey.class, MaxKey.class}) {
+            serializers.addSerializer(type, embedded);
+        }
+        context.addSerializers(serializers);
+
+        SimpleDeserializers deserializers = new SimpleDeserializers();
+        deserializers.addDeserializer(Calendar.class, new CalendarDeserializer());
+        deserializers.addDeserializer(Pattern.class, new PatternDeserializer());
+        context.addDeserializers(deserializers);
+        context.addDeserializers(new BsonDeserializers());
+    }
+
+    private static class EmbeddedObjectSerializer extends JsonSerializer<Object> {
+
+        @Override
+        public void serialize(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeEmbeddedObject(value);
+        }
+    }
+
+    private static class CalendarDeserializer extends JsonDeserializer<Calendar> {
+
+        @Override
+        public Calendar deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            Calendar calendar = Calendar.getInstance();
+            if (jp.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+                calendar.setTimeInMillis(jp.getLongValue());
+                return calendar;
+            }
+            Object embedded = jp.getEmbeddedObject();
+            if (!(embedded instanceof Date)) {
+                return (Calendar) ctxt.handleUnexpectedToken(Calendar.class, jp);
+            }
+            calendar.setTime((Date) embedded);
+            return calendar;
+        }
+    }
+
+    private static class PatternDeserializer extends JsonDeserializer<Pattern> {
+
+        @Override
+        public Pattern deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            if (jp.getCurrentToken() == JsonToken.VALUE_STRING) {
+                return Pattern.compile(jp.getText());
+            }
+            Object embedded = jp.getEmbeddedObject();
+            if (!(embedded instanceof Pattern)) {
+                return (Pattern) ctxt.handleUnexpectedToken(Pattern.class, jp);
+            }
+            return (Pattern) embedded;
+        }
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.bson;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.core.base.ParserMinimalBase;
+import com.fasterxml.jackson.core.json.JsonReadContext;
+import org.bson.AbstractBsonReader;
+import org.bson.BsonBinary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonSerializationException;
+import org.bson.BsonTimestamp;
+import org.bson.BsonType;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.Code;
+import org.bson.types.CodeWithScope;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.Symbol;
+import org.jongo.marshall.jackson.FieldSkippingParser;
+import org.jongo.marshall.jackson.RawValueParser;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.regex.Pattern;
+
+/**
+ * A Jackson parser reading a BSON document with a {@link BsonBinaryReader}.
+ * <p>
+ * Values without a JSON counterpart (ObjectId, dates, timestamps, decimals, regular expressions, binaries...)
+ * are exposed as {@link JsonToken#VALUE_EMBEDDED_OBJECT} holding the driver types.
+ */
+class NativeBsonParser extends ParserMinimalBase implements FieldSkippingParser, RawValueParser {
+
+    private final byte[] data;
+    private final BsonBinaryReader reader;
+    private ObjectCodec codec;
+    private JsonReadContext context = JsonReadContext.createRootContext(null);
+    private boolean closed;
+
+    private String text;
+    private Number number;
+    private NumberType numberType;
+    private Object embedded;
+    private KnownFields[] knownFields = new KnownFields[8];
+    private int depth;
+    private int documentOffset = -1;
+
+    NativeBsonParser(int features, ObjectCodec codec, byte[] data, int offset, int length) {
+        super(features);
+        this.codec = codec;
+        this.data = data;
+        this.reader = new BsonBinaryReader(ByteBuffer.wrap(data, offset, length));
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        if (closed) {
+            return null;
+        }
+        try {
+            return _currToken = readToken();
+        } catch (BsonSerializationException e) {
+            throw new JsonParseException(this, "Invalid BSON document", e);
+        }
+    }
+
+    private JsonToken readToken() throws IOException {
+        text = null;
+        number = null;
+        embedded = null;
+        if (_currToken == JsonToken.FIELD_NAME) {
+            return readValue();
+        }
+        if (context.inRoot()) {
+            if (reader.getState() != AbstractBsonReader.State.INITIAL) {
+                return null;
+            }
+            reader.readStartDocument();
+            return startDocument(context.createChildObjectContext(-1, -1), JsonToken.START_OBJECT);
+        }
+        if (reader.readBsonType() == BsonType.END_OF_DOCUMENT) {
+            return readEnd();
+        }
+        if (context.inObject()) {
+            String name = reader.readName();
+            KnownFields known = knownFields();
+            while (known != null && !known.contains(name)) {
+                reader.skipValue();
+                if (reader.readBsonType() == BsonType.END_OF_DOCUMENT) {
+                    return readEnd();
+                }
+                name = reader.readName();
+            }
+            context.setCurrentName(name);
+            return JsonToken.FIELD_NAME;
+        }
+        return readValue();
+    }
+
+    private JsonToken startDocument(JsonReadContext documentContext, JsonToken token) {
+        // the length prefix of the document has just been read
+        documentOffset = reader.getBsonInput().getPosition() - 4;
+        context = documentContext;
+        depth++;
+        return token;
+    }
+
+    private JsonToken readEnd() {
+        JsonToken token;
+        if (context.inArray()) {
+            reader.readEndArray();
+            token = JsonToken.END_ARRAY;
+        } else {
+            reader.readEndDocument();
+            token = JsonToken.END_OBJECT;
+        }
+        if (depth < knownFields.length) {
+            knownFields[depth] = null;
+        }
+        depth--;
+        context = context.clearAndGetParent();
+        return token;
+    }
+
+    public void skipUnknownFields(KnownFields known) {
+        if (_currToken == JsonToken.START_OBJECT) {
+            if (depth >= knownFields.length) {
+                knownFields = Arrays.copyOf(knownFields, depth * 2);
+            }
+            knownFields[depth] = known;
+        }
+    }
+
+    private KnownFields knownFields() {
+        return depth < knownFields.length ? knownFields[depth] : null;
+    }
+
+    public byte[] getRawBytes() {
+        return data;
+    }
+
+    public int getRawValueOffset() {
+        return _currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY ? documentOffset : -1;
+    }
+
+    @Override
+    public JsonParser skipChildren() throws IOException {
+        if (_currToken != JsonToken.START_OBJECT && _currToken != JsonToken.START_ARRAY) {
+            return this;
+        }
+        // values are jumped over with their length prefix instead of being tokenized
+        try {
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                if (context.inObject()) {
+                    reader.skipName();
+                }
+                reader.skipValue();
+            }
+            _currToken = readEnd();
+        } catch (BsonSerializationException e) {
+            throw new JsonParseException(this, "Invalid BSON document", e);
+        }
+        return this;
+    }
+
+    private JsonToken readValue() {
+        switch (reader.getCurrentBsonType()) {
+            case DOCUMENT:
+                reader.readStartDocument();
+                return startDocument(context.createChildObjectContext(-1, -1), JsonToken.START_OBJECT);
+            case ARRAY:
+                reader.readStartArray();
+                return startDocument(context.createChildArrayContext(-1, -1), JsonToken.START_ARRAY);
+            case STRING:
+                text = reader.readString();
+                return JsonToken.VALUE_STRING;
+            case SYMBOL:
+                text = reader.readSymbol();
+                return JsonToken.VALUE_STRING;
+            case INT32:
+                return number(reader.readInt32(), NumberType.INT);
+            case INT64:
+                return number(reader.readInt64(), NumberType.LONG);
+            case DOUBLE:
+                number = reader.readDouble();
+                numberType = NumberType.DOUBLE;
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            case BOOLEAN:
+                return reader.readBoolean() ? JsonToken.VALUE_TRUE : JsonToken.VALUE_FALSE;
+            case NULL:
+                reader.readNull();
+                return JsonToken.VALUE_NULL;
+            case UNDEFINED:
+                reader.readUndefined();
+                return JsonToken.VALUE_NULL;
+            case OBJECT_ID:
+                return embedded(reader.readObjectId());
+            case DATE_TIME:
+                return embedded(new Date(reader.readDateTime()));
+            case TIMESTAMP:
+                BsonTimestamp timestamp = reader.readTimestamp();
+                return embedded(new BSONTimestamp(timestamp.getTime(), timestamp.getInc()));
+            case DECIMAL128:
+                return embedded(reader.readDecimal128());
+            case BINARY:
+                return embedded(toBinaryValue(reader.readBinaryData()));
+            case REGULAR_EXPRESSION:
+                BsonRegularExpression regex = reader.readRegularExpression();
+                return embedded(Pattern.compile(regex.getPattern(), RegexFlags.toJavaFlags(regex.getOptions())));
+            case JAVASCRIPT:
+                return embedded(new Code(reader.readJavaScript()));
+            case JAVASCRIPT_WITH_SCOPE:
+                String code = reader.readJavaScriptWithScope();
+                return embedded(new CodeWithScope(code, new DocumentCodec().decode(reader, DecoderContext.builder().build())));
+            case MIN_KEY:
+                reader.readMinKey();
+                return embedded(new MinKey());
+            case MAX_KEY:
+                reader.readMaxKey();
+                return embedded(new MaxKey());
+            case DB_POINTER:
+                return embedded(reader.readDBPointer());
+            default:
+                throw new BsonSerializationException("Unsupported BSON type " + reader.getCurrentBsonType());
+        }
+    }
+
+    private Object toBinaryValue(BsonBinary binary) {
+        byte type = binary.getType();
+        if (type == BsonBinarySubType.UUID_LEGACY.getValue() && binary.getData().length == 16) {
+            return binary.asUuid(UuidRepresentation.JAVA_LEGACY);
+        }
+        if (type == BsonBinarySubType.BINARY.getValue() || type == BsonBinarySubType.OLD_BINARY.getValue()
+                || type == BsonBinarySubType.UUID_STANDARD.getValue()) {
+            return binary.getData();
+        }
+        return new Binary(type, binary.getData());
+    }
+
+    private JsonToken number(Number value, NumberType type) {
+        number = value;
+        numberType = type;
+        return JsonToken.VALUE_NUMBER_INT;
+    }
+
+    private JsonToken embedded(Object value) {
+        embedded = value;
+        return JsonToken.VALUE_EMBEDDED_OBJECT;
+    }
+
+    @Override
+    public Object getEmbeddedObject() throws IOException {
+        return _currToken == JsonToken.VALUE_EMBEDDED_OBJECT ? embedded : null;
+    }
+
+    @Override
+    public byte[] getBinaryValue(Base64Variant variant) throws IOException {
+        if (embedded instanceof byte[]) {
+            return (byte[]) embedded;
+        }
+        if (embedded instanceof Binary) {
+            return ((Binary) embedded).getData();
+        }
+        if (_currToken == JsonToken.VALUE_STRING) {
+            return variant.decode(text);
+        }
+        throw _constructError("Current token (" + _currToken + ") is not binary data");
+    }
+
+    @Override
+    public String getText() throws IOException {
+        if (_currToken == null) {
+            return null;
+        }
+        switch (_currToken) {
+            case VALUE_STRING:
+                return text;
+            case FIELD_NAME:
+                return context.getCurrentName();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return number.toString();
+            case VALUE_EMBEDDED_OBJECT:
+                return embedded == null ? null : embedded.toString();
+            default:
+                return _currToken.asString();
+        }
+    }
+
+    @Override
+    public char[] getTextCharacters() throws IOException {
+        String value = getText();
+        return value == null ? null : value.toCharArray();
+    }
+
+    @Override
+    public int getTextLength() throws IOException {
+        String value = getText();
+        return value == null ? 0 : value.length();
+    }
+
+    @Override
+    public int getTextOffset() throws IOException {
+        return 0;
+    }
+
+    @Override
+    public boolean hasTextCharacters() {
+        return false;
+    }
+
+    @Override
+    public Number getNumberValue() throws IOException {
+        if (number == null) {
+            throw _constructError("Current token (" + _currToken + ") is not numeric");
+        }
+        return number;
+    }
+
+    @Override
+    public NumberType getNumberType() throws IOException {
+        return number == null ? null : numberType;
+    }
+
+    @Override
+    public int getIntValue() throws IOException {
+        return getNumberValue().intValue();
+    }
+
+    @Override
+    public long getLongValue() throws IOException {
+        return getNumberValue().longValue();
+    }
+
+    @Override
+    public BigInteger getBigIntegerValue() throws IOException {
+        Number value = getNumberValue();
+        if (value instanceof Double) {
+            return BigDecimal.valueOf(value.doubleValue()).toBigInteger();
+        }
+        return BigInteger.valueOf(value.longValue());
+    }
+
+    @Override
+    public float getFloatValue() throws IOException {
+        return getNumberValue().floatValue();
+    }
+
+    @Override
+    public double getDoubleValue() throws IOException {
+        return getNumberValue().doubleValue();
+    }
+
+    @Override
+    public BigDecimal getDecimalValue() throws IOException {
+        Number value = getNumberValue();
+        if (value instanceof Double) {
+            return BigDecimal.valueOf(value.doubleValue());
+        }
+        return BigDecimal.valueOf(value.longValue());
+    }
+
+    @Override
+    public String getCurrentName() throws IOException {
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            JsonReadContext parent = context.getParent();
+            return parent == null ? null : parent.getCurrentName();
+        }
+        return context.getCurrentName();
+    }
+
+    @Override
+    public void overrideCurrentName(String name) {
+        JsonReadContext ctxt = context;
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            ctxt = ctxt.getParent();
+        }
+        try {
+            ctxt.setCurrentName(name);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public JsonStreamContext getParsingContext() {
+        return context;
+    }
+
+    @Override
+    public JsonLocation getTokenLocation() {
+        return JsonLocation.NA;
+    }
+
+    @Override
+    public JsonLocation getCurrentLocation() {
+        return JsonLocation.NA;
+    }
+
+    @Override
+    public ObjectCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void setCodec(ObjectCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            reader.close();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public Version version() {
+        return Version.unknownVersion();
+    }
+
+    @Override
+    protected void _handleEOF() throws JsonParseException {
+        if (!context.inRoot()) {
+            _reportInvalidEOF(": expected close marker for " + context.typeDesc(), null);
+        }
+    }
+}
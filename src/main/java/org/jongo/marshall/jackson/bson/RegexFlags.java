@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.bson;
+
+import java.util.regex.Pattern;
+
+class RegexFlags {
+
+    private static final int[] JAVA_FLAGS = {Pattern.CASE_INSENSITIVE, Pattern.MULTILINE, Pattern.DOTALL,
+            Pattern.UNICODE_CASE, Pattern.COMMENTS};
+    private static final char[] BSON_OPTIONS = {'i', 'm', 's', 'u', 'x'};
+
+    static int toJavaFlags(String options) {
+        int flags = 0;
+        for (int i = 0; i < BSON_OPTIONS.length; i++) {
+            if (options.indexOf(BSON_OPTIONS[i]) >= 0) {
+                flags |= JAVA_FLAGS[i];
+            }
+        }
+        return flags;
+    }
+
+    static String toBsonOptions(int flags) {
+        // options are sorted alphabetically as required by the BSON specification
+        StringBuilder options = new StringBuilder();
+        for (int i = 0; i < JAVA_FLAGS.length; i++) {
+            if ((flags & JAVA_FLAGS[i]) != 0) {
+                options.append(BSON_OPTIONS[i]);
+            }
+        }
+        return options.toString();
+    }
+
+    private RegexFlags() {
+    }
+}
@@ -17,8 +17,10 @@
 package org.jongo.marshall.jackson.bson4jackson;
 
 import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.TreeNode;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
@@ -27,25 +29,32 @@ import com.fasterxml.jackson.databind.node.BinaryNode;
 import com.fasterxml.jackson.databind.node.POJONode;
 import com.fasterxml.jackson.databind.node.TextNode;
 import com.fasterxml.jackson.databind.node.ValueNode;
+import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
+import com.mongodb.LazyDBCallback;
+import com.mongodb.LazyDBObject;
+import de.undercouch.bson4jackson.types.JavaScript;
+import org.bson.BasicBSONEncoder;
 import org.bson.conversions.Bson;
 import org.bson.types.*;
+import org.jongo.marshall.jackson.RawValueParser;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Date;
-import java.util.Map;
 
-class BsonDeserializers extends SimpleDeserializers {
+public class BsonDeserializers extends SimpleDeserializers {
 
     public BsonDeserializers() {
-        addDeserializer(Bson.class, new BsonDeserializer());
+        addDeserializer(Bson.class, new BasicDBObjectDeserializer());
+        addDeserializer(BasicDBObject.class, new BasicDBObjectDeserializer());
+        addDeserializer(LazyDBObject.class, new LazyDBObjectDeserializer());
         addDeserializer(Date.class, new DateDeserializer());
         addDeserializer(MinKey.class, new MinKeyDeserializer());
         addDeserializer(MaxKey.class, new MaxKeyDeserializer());
         addDeserializer(Binary.class, new BinaryDeserializer());
-        addDeserializer(DBObject.class, new NativeDeserializer<DBObject>());
+        addDeserializer(DBObject.class, new DBObjectDeserializer());
         addDeserializer(ObjectId.class, new ObjectIdDeserializer());
         addDeserializer(BSONTimestamp.class, new BSONTimestampDeserializer());
         addDeserializer(Decimal128.class, new Decimal128Deserializer());
@@ -55,10 +64,16 @@ class BsonDeserializers extends SimpleDeserializers {
 
         @Override
         public Date deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
+            if (jp.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+                return getDateFromBackwardFormat(jp.getLongValue());
+            }
             Object deserialized = jp.getEmbeddedObject();
             if (deserialized instanceof Long) {
                 return getDateFromBackwardFormat((Long) deserialized);
             }
+            if (!(deserialized instanceof Date)) {
+                return (Date) ctxt.handleUnexpectedToken(Date.class, jp);
+            }
             return (Date) deserialized;
         }
 
@@ -107,25 +122,115 @@ class BsonDeserializers extends SimpleDeserializers {
         }
     }
 
-    private static class NativeDeserializer<T> extends JsonDeserializer<T> {
+    private static class DBObjectDeserializer extends JsonDeserializer<DBObject> {
         @Override
-        public T deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-            String asString = jp.readValueAsTree().toString();
-            return (T) BasicDBObject.parse(asString);
+        public DBObject deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
+            if (jp.getCurrentToken() == JsonToken.START_ARRAY) {
+                return readArray(jp);
+            }
+            if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+                return (DBObject) ctxt.handleUnexpectedToken(DBObject.class, jp);
+            }
+            return readObject(jp);
+        }
+    }
+
+    private static class BasicDBObjectDeserializer extends JsonDeserializer<BasicDBObject> {
+        @Override
+        public BasicDBObject deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
+            if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+                return (BasicDBObject) ctxt.handleUnexpectedToken(BasicDBObject.class, jp);
+            }
+            return readObject(jp);
         }
     }
 
-    private static class BsonDeserializer extends JsonDeserializer<Bson> {
+    private static class LazyDBObjectDeserializer extends JsonDeserializer<LazyDBObject> {
         @Override
-        public Bson deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-            Map map = jp.readValueAs(Map.class);
-            return new BasicDBObject(map);
+        public LazyDBObject deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
+            if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+                return (LazyDBObject) ctxt.handleUnexpectedToken(LazyDBObject.class, jp);
+            }
+            byte[] bytes = RawValueParser.copyRawValue(jp);
+            if (bytes == null) {
+                bytes = new BasicBSONEncoder().encode(readObject(jp));
+            }
+            return new LazyDBObject(bytes, new LazyDBCallback(null));
+        }
+    }
+
+    /*
+     * DBObjects are built straight from the tokens, values without a JSON counterpart
+     * are kept as the embedded objects exposed by the parser.
+     */
+    private static BasicDBObject readObject(JsonParser jp) throws IOException {
+        BasicDBObject dbo = new BasicDBObject();
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String name = jp.getCurrentName();
+            jp.nextToken();
+            dbo.put(name, readValue(jp));
+        }
+        return dbo;
+    }
+
+    private static BasicDBList readArray(JsonParser jp) throws IOException {
+        BasicDBList list = new BasicDBList();
+        while (jp.nextToken() != JsonToken.END_ARRAY) {
+            list.add(readValue(jp));
         }
+        return list;
+    }
+
+    private static Object readValue(JsonParser jp) throws IOException {
+        switch (jp.getCurrentToken()) {
+            case START_OBJECT:
+                return readObject(jp);
+            case START_ARRAY:
+                return readArray(jp);
+            case VALUE_STRING:
+                return jp.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return jp.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            case VALUE_EMBEDDED_OBJECT:
+                return toDriverType(jp.getEmbeddedObject());
+            default:
+                throw new JsonParseException(jp, "Unexpected token " + jp.getCurrentToken());
+        }
+    }
+
+    private static Object toDriverType(Object embedded) {
+        if (embedded instanceof JavaScript) {
+            JavaScript javaScript = (JavaScript) embedded;
+            if (javaScript.getScope() == null) {
+                return new Code(javaScript.getCode());
+            }
+            return new CodeWScope(javaScript.getCode(), new BasicDBObject(javaScript.getScope()));
+        }
+        if (embedded instanceof de.undercouch.bson4jackson.types.Symbol) {
+            return new Symbol(((de.undercouch.bson4jackson.types.Symbol) embedded).getSymbol());
+        }
+        return embedded;
     }
 
     private static class BinaryDeserializer extends JsonDeserializer<Binary> {
         @Override
         public Binary deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
+            if (jp.getCurrentToken() == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                Object embedded = jp.getEmbeddedObject();
+                if (embedded instanceof Binary) {
+                    return (Binary) embedded;
+                }
+                if (embedded instanceof byte[]) {
+                    return new Binary((byte[]) embedded);
+                }
+            }
             TreeNode tree = jp.getCodec().readTree(jp);
             if (tree.isObject()) {
                 byte[] binary = Base64Variants.MIME_NO_LINEFEEDS.decode(((ValueNode) tree.get("$binary")).asText());
@@ -146,6 +251,12 @@ class BsonDeserializers extends SimpleDeserializers {
         @Override
         public ObjectId deserialize(JsonParser jp, DeserializationContext ctxt)
                 throws IOException, JsonProcessingException {
+            if (jp.getCurrentToken() == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                Object embedded = jp.getEmbeddedObject();
+                if (embedded instanceof ObjectId) {
+                    return (ObjectId) embedded;
+                }
+            }
             TreeNode tree = jp.getCodec().readTree(jp);
             if (tree.isObject()) {
                 String hexString = ((ValueNode) tree.get("$oid")).asText();
@@ -162,6 +273,12 @@ class BsonDeserializers extends SimpleDeserializers {
     private static class BSONTimestampDeserializer extends JsonDeserializer<BSONTimestamp> {
         @Override
         public BSONTimestamp deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
+            if (jp.getCurrentToken() == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                Object embedded = jp.getEmbeddedObject();
+                if (embedded instanceof BSONTimestamp) {
+                    return (BSONTimestamp) embedded;
+                }
+            }
             TreeNode tree = jp.getCodec().readTree(jp);
             if (tree.isObject()) {
                 TreeNode timestamp = tree.get("$timestamp");
@@ -179,6 +296,12 @@ class BsonDeserializers extends SimpleDeserializers {
     private static class Decimal128Deserializer extends JsonDeserializer<Decimal128> {
         @Override
         public Decimal128 deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
+            if (jp.getCurrentToken() == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                Object embedded = jp.getEmbeddedObject();
+                if (embedded instanceof Decimal128) {
+                    return (Decimal128) embedded;
+                }
+            }
             TreeNode tree = jp.getCodec().readTree(jp);
             if (tree.isObject()) {
                 String value = ((ValueNode) tree.get("$numberDecimal")).asText();
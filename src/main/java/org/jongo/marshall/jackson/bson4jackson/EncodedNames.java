@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.bson4jackson;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Field names already encoded as BSON cstrings (UTF-8 bytes followed by a terminating zero).
+ * <p>
+ * One instance is shared by all the generators of a factory, documents written by a mapper usually
+ * use a small and stable set of keys. The cache stops growing once {@link #MAX_ENTRIES} names are held,
+ * names beyond this limit are encoded on each write.
+ */
+class EncodedNames {
+
+    static final int MAX_ENTRIES = 2048;
+    private static final byte[][] ARRAY_INDEXES = new byte[256][];
+
+    static {
+        for (int i = 0; i < ARRAY_INDEXES.length; i++) {
+            ARRAY_INDEXES[i] = cstring(String.valueOf(i));
+        }
+    }
+
+    private final ConcurrentMap<String, byte[]> names = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * @return the cstring of the given name or null when it cannot be encoded (unpaired surrogate)
+     */
+    byte[] get(String name) {
+        byte[] encoded = names.get(name);
+        if (encoded == null) {
+            encoded = cstring(name);
+            if (encoded != null && names.size() < MAX_ENTRIES) {
+                names.putIfAbsent(name, encoded);
+            }
+        }
+        return encoded;
+    }
+
+    static byte[] arrayIndex(int index) {
+        return index < ARRAY_INDEXES.length ? ARRAY_INDEXES[index] : cstring(String.valueOf(index));
+    }
+
+    private static byte[] cstring(String name) {
+        byte[] bytes = new byte[name.length() * 3 + 1];
+        int length = encodeUTF8(name, bytes);
+        return length < 0 ? null : Arrays.copyOf(bytes, length + 1);
+    }
+
+    /**
+     * Encodes a string as UTF-8 without going through a charset encoder.
+     *
+     * @param out must hold at least three bytes per char
+     * @return the number of bytes written or -1 if the string contains an unpaired surrogate
+     */
+    static int encodeUTF8(String s, byte[] out) {
+        int length = s.length();
+        int pos = 0;
+        int i = 0;
+        while (i < length) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            out[pos++] = (byte) c;
+            i++;
+        }
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xc0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (!Character.isHighSurrogate(c) || i + 1 == length || !Character.isLowSurrogate(s.charAt(i + 1))) {
+                    return -1;
+                }
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                out[pos++] = (byte) (0xf0 | (codePoint >> 18));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                out[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                out[pos++] = (byte) (0xe0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                out[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return pos;
+    }
+}
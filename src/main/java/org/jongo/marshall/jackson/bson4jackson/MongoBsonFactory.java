@@ -22,6 +22,7 @@ import com.fasterxml.jackson.core.io.IOContext;
 import de.undercouch.bson4jackson.BsonFactory;
 import de.undercouch.bson4jackson.BsonGenerator;
 import de.undercouch.bson4jackson.BsonParser;
+import de.undercouch.bson4jackson.io.UnsafeByteArrayInputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -29,12 +30,23 @@ import java.io.OutputStream;
 
 public class MongoBsonFactory extends BsonFactory {
 
+    private final EncodedNames fieldNames = new EncodedNames();
+
     public static BsonFactory createFactory() {
         BsonFactory factory = new MongoBsonFactory();
         factory.enable(BsonParser.Feature.HONOR_DOCUMENT_LENGTH);
         return factory;
     }
 
+    @Override
+    protected BsonParser _createParser(byte[] data, int offset, int len, IOContext ctxt) {
+        BsonParser p = _createParser(new UnsafeByteArrayInputStream(data, offset, len), ctxt);
+        if (p instanceof MongoBsonParser) {
+            ((MongoBsonParser) p).setSource(data, offset);
+        }
+        return p;
+    }
+
     @Override
     protected BsonParser _createParser(InputStream in, IOContext ctxt) {
         BsonParser p = new MongoBsonParser(ctxt, _parserFeatures, _bsonParserFeatures, in);
@@ -53,7 +65,7 @@ public class MongoBsonFactory extends BsonFactory {
         if (enc == JsonEncoding.UTF8 && _outputDecorator != null) {
             out = _outputDecorator.decorate(ctxt, out);
         }
-        BsonGenerator g = new MongoBsonGenerator(_generatorFeatures, _bsonGeneratorFeatures, out);
+        BsonGenerator g = new MongoBsonGenerator(_generatorFeatures, _bsonGeneratorFeatures, out, fieldNames);
         ObjectCodec codec = getCodec();
         if (codec != null) {
             g.setCodec(codec);
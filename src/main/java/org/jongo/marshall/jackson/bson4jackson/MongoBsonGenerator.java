@@ -16,6 +16,8 @@
 
 package org.jongo.marshall.jackson.bson4jackson;
 
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
 import de.undercouch.bson4jackson.BsonConstants;
 import de.undercouch.bson4jackson.BsonGenerator;
 import org.bson.types.*;
@@ -25,8 +27,80 @@ import java.io.OutputStream;
 
 class MongoBsonGenerator extends BsonGenerator {
 
+    // longer strings are left to the charset encoder of the output buffer
+    private static final int MAX_SCRATCH_CHARS = 4096;
+    private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[MAX_SCRATCH_CHARS * 3];
+        }
+    };
+
+    private final EncodedNames names;
+    private byte[] scratch;
+
     public MongoBsonGenerator(int jsonFeatures, int bsonFeatures, OutputStream out) {
+        this(jsonFeatures, bsonFeatures, out, new EncodedNames());
+    }
+
+    MongoBsonGenerator(int jsonFeatures, int bsonFeatures, OutputStream out, EncodedNames names) {
         super(jsonFeatures, bsonFeatures, out);
+        this.names = names;
+    }
+
+    @Override
+    public void writeFieldName(SerializableString name) throws IOException {
+        if (_characterEscapes != null) {
+            super.writeFieldName(name);
+            return;
+        }
+        if (_writeContext.writeFieldName(name.getValue()) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+        _typeMarker = _buffer.size();
+        _buffer.putByte((byte) 0);
+        _buffer.putBytes(name.asUnquotedUTF8());
+        _buffer.putByte((byte) 0);
+    }
+
+    @Override
+    protected void _writeFieldName(String name) throws IOException {
+        byte[] encoded = _characterEscapes == null ? names.get(name) : null;
+        if (encoded == null) {
+            super._writeFieldName(name);
+            return;
+        }
+        writeEncodedFieldName(encoded);
+    }
+
+    @Override
+    protected void _writeArrayFieldNameIfNeeded() throws IOException {
+        if (isArray()) {
+            writeEncodedFieldName(EncodedNames.arrayIndex(getAndIncCurrentArrayPos()));
+        }
+    }
+
+    private void writeEncodedFieldName(byte[] cstring) {
+        _typeMarker = _buffer.size();
+        _buffer.putByte((byte) 0);
+        _buffer.putBytes(cstring);
+    }
+
+    @Override
+    protected int _writeCString(String s) throws IOException {
+        if (_characterEscapes != null || s.length() > MAX_SCRATCH_CHARS) {
+            return super._writeCString(s);
+        }
+        if (scratch == null) {
+            scratch = SCRATCH.get();
+        }
+        int length = EncodedNames.encodeUTF8(s, scratch);
+        if (length < 0) {
+            return super._writeCString(s);
+        }
+        _buffer.putBytes(scratch, 0, length);
+        _buffer.putByte((byte) 0);
+        return length + 1;
     }
 
     public void writeNativeObjectId(org.bson.types.ObjectId objectId) throws IOException {
@@ -67,7 +141,7 @@ class MongoBsonGenerator extends BsonGenerator {
         _buffer.putByte(_typeMarker, BsonConstants.TYPE_BINARY);
         _buffer.putInt(bytes.length);
         _buffer.putByte(binary.getType());
-        _buffer.putBytes(binary.getData());
+        _buffer.putBytes(bytes);
         flushBuffer();
     }
 
@@ -16,24 +16,201 @@
 
 package org.jongo.marshall.jackson.bson4jackson;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.io.IOContext;
+import de.undercouch.bson4jackson.BsonConstants;
 import de.undercouch.bson4jackson.BsonParser;
 import de.undercouch.bson4jackson.types.Decimal128;
 import de.undercouch.bson4jackson.types.ObjectId;
 import de.undercouch.bson4jackson.types.Timestamp;
 import org.bson.types.BSONTimestamp;
+import org.jongo.marshall.jackson.FieldSkippingParser;
+import org.jongo.marshall.jackson.RawValueParser;
 
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
+import java.util.Arrays;
 
-class MongoBsonParser extends BsonParser {
+class MongoBsonParser extends BsonParser implements FieldSkippingParser, RawValueParser {
 
     private static final int OBJECT_ID_LENGTH = 12;
+    private static final int DECIMAL128_LENGTH = 16;
+
+    // per nesting level: known fields, start and end positions and parent context of the document
+    private KnownFields[] knownFields = new KnownFields[8];
+    private int[] documentStarts = new int[8];
+    private int[] documentEnds = new int[8];
+    private Context[] parentContexts = new Context[8];
+    private int depth;
+    private int pendingStart = -1;
+    private int pendingEnd = -1;
+    private Context pendingParent;
+    private byte[] source;
+    private int sourceOffset;
+    private int counterOffset;
 
     public MongoBsonParser(IOContext ctxt, int jsonFeatures, int bsonFeatures, InputStream in) {
         super(ctxt, jsonFeatures, bsonFeatures, in);
     }
 
+    /**
+     * Declares the array the input stream reads from, starting at the given offset.
+     */
+    void setSource(byte[] source, int sourceOffset) {
+        this.source = source;
+        this.sourceOffset = sourceOffset;
+    }
+
+    public byte[] getRawBytes() {
+        return source;
+    }
+
+    public int getRawValueOffset() {
+        if (source == null || (_currToken != JsonToken.START_OBJECT && _currToken != JsonToken.START_ARRAY)
+                || documentStarts[depth] < 0) {
+            return -1;
+        }
+        return sourceOffset + counterOffset + documentStarts[depth];
+    }
+
+    public void skipUnknownFields(KnownFields knownFields) {
+        if (_currToken == JsonToken.START_OBJECT) {
+            this.knownFields[depth] = knownFields;
+        }
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        JsonToken token = super.nextToken();
+        while (token == JsonToken.FIELD_NAME && !isKnown(getCurrentName())) {
+            skipValue();
+            token = super.nextToken();
+        }
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            enterDocument();
+        } else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+            leaveDocument();
+        }
+        return token;
+    }
+
+    @Override
+    public JsonParser skipChildren() throws IOException {
+        if ((_currToken != JsonToken.START_OBJECT && _currToken != JsonToken.START_ARRAY) || documentEnds[depth] < 0) {
+            return super.skipChildren();
+        }
+        skipBytes(documentEnds[depth] - _counter.getPosition());
+        _currentContext = parentContexts[depth];
+        _currToken = _currToken == JsonToken.START_OBJECT ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+        leaveDocument();
+        return this;
+    }
+
+    @Override
+    protected JsonToken handleNewDocument(boolean array) throws IOException {
+        if (_in == null) {
+            pendingStart = -1;
+            pendingEnd = -1;
+            pendingParent = null;
+            JsonToken token = super.handleNewDocument(array);
+            // the input is only counted once the length of the root document has been read
+            counterOffset = 4;
+            return token;
+        }
+        // same as the default implementation for embedded documents, but remembers where they end
+        int length = _in.readInt();
+        pendingStart = _counter.getPosition() - 4;
+        pendingEnd = pendingStart + length;
+        pendingParent = _currentContext;
+        _currentContext = new Context(_currentContext, array);
+        return array ? JsonToken.START_ARRAY : JsonToken.START_OBJECT;
+    }
+
+    private boolean isKnown(String fieldName) {
+        KnownFields known = knownFields[depth];
+        return known == null || known.contains(fieldName);
+    }
+
+    private void enterDocument() {
+        depth++;
+        if (depth == knownFields.length) {
+            knownFields = Arrays.copyOf(knownFields, depth * 2);
+            documentStarts = Arrays.copyOf(documentStarts, depth * 2);
+            documentEnds = Arrays.copyOf(documentEnds, depth * 2);
+            parentContexts = Arrays.copyOf(parentContexts, depth * 2);
+        }
+        knownFields[depth] = null;
+        documentStarts[depth] = pendingStart;
+        documentEnds[depth] = pendingEnd;
+        parentContexts[depth] = pendingParent;
+    }
+
+    private void leaveDocument() {
+        knownFields[depth] = null;
+        parentContexts[depth] = null;
+        depth--;
+    }
+
+    private void skipValue() throws IOException {
+        byte type = getCurrentBsonType();
+        switch (type) {
+            case BsonConstants.TYPE_NULL:
+            case BsonConstants.TYPE_MINKEY:
+            case BsonConstants.TYPE_MAXKEY:
+                break;
+            case BsonConstants.TYPE_BOOLEAN:
+                skipBytes(1);
+                break;
+            case BsonConstants.TYPE_INT32:
+                skipBytes(4);
+                break;
+            case BsonConstants.TYPE_DOUBLE:
+            case BsonConstants.TYPE_DATETIME:
+            case BsonConstants.TYPE_TIMESTAMP:
+            case BsonConstants.TYPE_INT64:
+                skipBytes(8);
+                break;
+            case BsonConstants.TYPE_OBJECTID:
+                skipBytes(OBJECT_ID_LENGTH);
+                break;
+            case BsonConstants.TYPE_DECIMAL128:
+                skipBytes(DECIMAL128_LENGTH);
+                break;
+            case BsonConstants.TYPE_STRING:
+            case BsonConstants.TYPE_JAVASCRIPT:
+            case BsonConstants.TYPE_SYMBOL:
+                skipBytes(_in.readInt());
+                break;
+            case BsonConstants.TYPE_DOCUMENT:
+            case BsonConstants.TYPE_ARRAY:
+            case BsonConstants.TYPE_JAVASCRIPT_WITH_SCOPE:
+                skipBytes(_in.readInt() - 4);
+                break;
+            case BsonConstants.TYPE_BINARY:
+                skipBytes(_in.readInt() + 1);
+                break;
+            case BsonConstants.TYPE_DBPOINTER:
+                skipBytes(_in.readInt() + OBJECT_ID_LENGTH);
+                break;
+            case BsonConstants.TYPE_REGEX:
+                skipCString();
+                skipCString();
+                break;
+            default:
+                throw new JsonParseException(this, "Unknown element type " + type);
+        }
+        _currentContext.reset();
+    }
+
+    private void skipBytes(int length) throws IOException {
+        if (_in.skipBytes(length) != length) {
+            throw new EOFException("Unexpected end of BSON document");
+        }
+    }
+
     @Override
     public Object getEmbeddedObject() {
         Object object = super.getEmbeddedObject();
@@ -54,46 +231,23 @@ class MongoBsonParser extends BsonParser {
     }
 
     private org.bson.types.ObjectId convertToNativeObjectId(ObjectId id) {
-        return new org.bson.types.ObjectId(createFromLegacyFormat(id.getTime(), id.getMachine(), id.getInc()));
-    }
-
-    private byte[] createFromLegacyFormat(int time, int machine, int inc) {
-        // Reimplementing createFromLegacyFormat because bson4jackson library is not compatible with the new ObjectId spec
-        // see issue https://github.com/michel-kraemer/bson4jackson/issues/94
-        // Former implementation https://github.com/mongodb/mongo-java-driver/blob/3.12.x/bson/src/main/org/bson/types/ObjectId.java#L248
-        ByteBuffer buffer = ByteBuffer.allocate(OBJECT_ID_LENGTH);
-        buffer.put(int3(time));
-        buffer.put(int2(time));
-        buffer.put(int1(time));
-        buffer.put(int0(time));
-        buffer.put(int3(machine));
-        buffer.put(int2(machine));
-        buffer.put(int1(machine));
-        buffer.put(int0(machine));
-        buffer.put(int3(inc));
-        buffer.put(int2(inc));
-        buffer.put(int1(inc));
-        buffer.put(int0(inc));
-        return buffer.array();
+        // bson4jackson reads ids with the legacy layout, see https://github.com/michel-kraemer/bson4jackson/issues/94
+        // the three big endian ints are written back in place
+        byte[] bytes = new byte[OBJECT_ID_LENGTH];
+        putInt(bytes, 0, id.getTime());
+        putInt(bytes, 4, id.getMachine());
+        putInt(bytes, 8, id.getInc());
+        return new org.bson.types.ObjectId(bytes);
     }
 
     private org.bson.types.Decimal128 convertToNativeDecimal128(Decimal128 decimal) {
-        return new org.bson.types.Decimal128(decimal.bigDecimalValue());
-    }
-
-    private static byte int3(int x) {
-        return (byte) (x >> 24);
-    }
-
-    private static byte int2(int x) {
-        return (byte) (x >> 16);
-    }
-
-    private static byte int1(int x) {
-        return (byte) (x >> 8);
+        return org.bson.types.Decimal128.fromIEEE754BIDEncoding(decimal.getHigh(), decimal.getLow());
     }
 
-    private static byte int0(int x) {
-        return (byte) x;
+    private static void putInt(byte[] bytes, int offset, int x) {
+        bytes[offset] = (byte) (x >> 24);
+        bytes[offset + 1] = (byte) (x >> 16);
+        bytes[offset + 2] = (byte) (x >> 8);
+        bytes[offset + 3] = (byte) x;
     }
 }
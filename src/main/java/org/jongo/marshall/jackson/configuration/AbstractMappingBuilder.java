@@ -20,27 +20,34 @@ import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.introspect.VisibilityChecker;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.jongo.marshall.jackson.bson.NativeBsonFactory;
+import org.jongo.marshall.jackson.bson.NativeBsonModule;
 import org.jongo.marshall.jackson.bson4jackson.BsonModule;
 import org.jongo.marshall.jackson.bson4jackson.MongoBsonFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public abstract class AbstractMappingBuilder<T extends AbstractMappingBuilder<T>> {
 
     private final SimpleModule module = new SimpleModule("jongo-custom-module");
 
-    private final ObjectMapper mapper;
+    private ObjectMapper mapper;
     private final List<MapperModifier> modifiers;
+    private final List<Class<?>> preloadedClasses = new ArrayList<Class<?>>();
     private ReaderCallback readerCallback;
     private WriterCallback writerCallback;
     private MapperModifier visibilityModifier;
+    private MapperModifier bsonModule;
 
     public AbstractMappingBuilder() {
         this(new ObjectMapper(MongoBsonFactory.createFactory()));
-        registerModule(new BsonModule());
+        bsonModule = moduleModifier(new BsonModule());
+        addModifier(bsonModule);
         addModifier(new PropertyModifier());
         addModifier(new AnnotationModifier());
+        addModifier(new FieldSkippingModifier());
     }
 
     public AbstractMappingBuilder(ObjectMapper mapper) {
@@ -58,7 +65,9 @@ public abstract class AbstractMappingBuilder<T extends AbstractMappingBuilder<T>
         }
         setDefaultCallbacksIfNone();
 
-        return new Mapping(mapper, readerCallback, writerCallback);
+        Mapping mapping = new Mapping(mapper, readerCallback, writerCallback);
+        mapping.preload(preloadedClasses);
+        return mapping;
     }
 
     private void setDefaultCallbacksIfNone() {
@@ -79,11 +88,38 @@ public abstract class AbstractMappingBuilder<T extends AbstractMappingBuilder<T>
     }
 
     public T registerModule(final Module module) {
-        modifiers.add(new MapperModifier() {
+        modifiers.add(moduleModifier(module));
+        return getBuilderInstance();
+    }
+
+    private static MapperModifier moduleModifier(final Module module) {
+        return new MapperModifier() {
             public void modify(ObjectMapper mapper) {
                 mapper.registerModule(module);
             }
-        });
+        };
+    }
+
+    /**
+     * Reads and writes BSON with the driver {@link org.bson.BsonBinaryReader} and {@link org.bson.BsonBinaryWriter}
+     * instead of bson4jackson, driver types are then mapped without any conversion.
+     */
+    public T withNativeBsonFactory() {
+        if (bsonModule == null) {
+            throw new IllegalStateException("Native BSON factory cannot be used with a custom ObjectMapper");
+        }
+        mapper = new ObjectMapper(new NativeBsonFactory());
+        MapperModifier nativeModule = moduleModifier(new NativeBsonModule());
+        modifiers.set(modifiers.indexOf(bsonModule), nativeModule);
+        bsonModule = nativeModule;
+        return getBuilderInstance();
+    }
+
+    /**
+     * Reads and writes pojo properties through generated accessors instead of reflection.
+     */
+    public T withGeneratedAccessors() {
+        addModifier(new GeneratedAccessorsModifier());
         return getBuilderInstance();
     }
 
@@ -132,6 +168,14 @@ public abstract class AbstractMappingBuilder<T extends AbstractMappingBuilder<T>
         return getBuilderInstance();
     }
 
+    /**
+     * Builds readers and writers of these classes along with the mapping instead of on their first use.
+     */
+    public T preload(Class<?>... classes) {
+        preloadedClasses.addAll(Arrays.asList(classes));
+        return getBuilderInstance();
+    }
+
     public T addModifier(MapperModifier modifier) {
         modifiers.add(modifier);
         return getBuilderInstance();
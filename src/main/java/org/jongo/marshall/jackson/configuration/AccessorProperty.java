@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.configuration;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.deser.impl.NullsConstantProvider;
+
+import java.io.IOException;
+
+import static org.jongo.marshall.jackson.configuration.PropertyAccessors.asException;
+
+class AccessorProperty extends SettableBeanProperty.Delegating {
+
+    private final PropertyAccessors.Setter setter;
+    private final boolean skipNulls;
+
+    AccessorProperty(SettableBeanProperty delegate, PropertyAccessors.Setter setter) {
+        super(delegate);
+        this.setter = setter;
+        this.skipNulls = NullsConstantProvider.isSkipper(delegate.getNullValueProvider());
+    }
+
+    @Override
+    protected SettableBeanProperty withDelegate(SettableBeanProperty delegate) {
+        return new AccessorProperty(delegate, setter);
+    }
+
+    @Override
+    public void deserializeAndSet(JsonParser p, DeserializationContext ctxt, Object instance) throws IOException {
+        if (skipNulls && p.hasToken(JsonToken.VALUE_NULL)) {
+            return;
+        }
+        Object value = delegate.deserialize(p, ctxt);
+        if (value == null && skipNulls) {
+            return;
+        }
+        set(p, instance, value);
+    }
+
+    @Override
+    public Object deserializeSetAndReturn(JsonParser p, DeserializationContext ctxt, Object instance) throws IOException {
+        deserializeAndSet(p, ctxt, instance);
+        return instance;
+    }
+
+    @Override
+    public void set(Object instance, Object value) throws IOException {
+        set(null, instance, value);
+    }
+
+    @Override
+    public Object setAndReturn(Object instance, Object value) throws IOException {
+        set(null, instance, value);
+        return instance;
+    }
+
+    private void set(JsonParser p, Object instance, Object value) throws IOException {
+        try {
+            setter.set(instance, value);
+        } catch (Throwable t) {
+            _throwAsIOE(p, asException(t), value);
+        }
+    }
+}
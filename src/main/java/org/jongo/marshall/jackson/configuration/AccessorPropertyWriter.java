@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.configuration;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.PropertySerializerMap;
+
+import static org.jongo.marshall.jackson.configuration.PropertyAccessors.asException;
+
+/**
+ * Same as {@link BeanPropertyWriter} except the property value is read through a generated getter.
+ */
+class AccessorPropertyWriter extends BeanPropertyWriter {
+
+    private final PropertyAccessors.Getter getter;
+
+    AccessorPropertyWriter(BeanPropertyWriter base, PropertyAccessors.Getter getter) {
+        super(base);
+        this.getter = getter;
+    }
+
+    @Override
+    protected BeanPropertyWriter _new(PropertyName newName) {
+        return new AccessorPropertyWriter(super._new(newName), getter);
+    }
+
+    @Override
+    public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+        Object value = getValue(bean);
+        if (value == null) {
+            if (_nullSerializer != null) {
+                gen.writeFieldName(_name);
+                _nullSerializer.serialize(null, gen, prov);
+            }
+            return;
+        }
+        JsonSerializer<Object> ser = findSerializer(value, prov);
+        if (isSuppressed(value, ser, prov)) {
+            return;
+        }
+        if (value == bean && _handleSelfReference(bean, gen, prov, ser)) {
+            return;
+        }
+        gen.writeFieldName(_name);
+        serializeValue(value, ser, gen, prov);
+    }
+
+    @Override
+    public void serializeAsElement(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+        Object value = getValue(bean);
+        if (value == null) {
+            if (_nullSerializer != null) {
+                _nullSerializer.serialize(null, gen, prov);
+            } else {
+                gen.writeNull();
+            }
+            return;
+        }
+        JsonSerializer<Object> ser = findSerializer(value, prov);
+        if (isSuppressed(value, ser, prov)) {
+            serializeAsPlaceholder(bean, gen, prov);
+            return;
+        }
+        if (value == bean && _handleSelfReference(bean, gen, prov, ser)) {
+            return;
+        }
+        serializeValue(value, ser, gen, prov);
+    }
+
+    private Object getValue(Object bean) throws Exception {
+        try {
+            return getter.get(bean);
+        } catch (Throwable t) {
+            throw asException(t);
+        }
+    }
+
+    private JsonSerializer<Object> findSerializer(Object value, SerializerProvider prov) throws Exception {
+        JsonSerializer<Object> ser = _serializer;
+        if (ser == null) {
+            Class<?> type = value.getClass();
+            PropertySerializerMap serializers = _dynamicSerializers;
+            ser = serializers.serializerFor(type);
+            if (ser == null) {
+                ser = _findAndAddDynamic(serializers, type, prov);
+            }
+        }
+        return ser;
+    }
+
+    private boolean isSuppressed(Object value, JsonSerializer<Object> ser, SerializerProvider prov) {
+        if (_suppressableValue == null) {
+            return false;
+        }
+        if (MARKER_FOR_EMPTY == _suppressableValue) {
+            return ser.isEmpty(prov, value);
+        }
+        return _suppressableValue.equals(value);
+    }
+
+    private void serializeValue(Object value, JsonSerializer<Object> ser, JsonGenerator gen, SerializerProvider prov) throws Exception {
+        if (_typeSerializer == null) {
+            ser.serialize(value, gen, prov);
+        } else {
+            ser.serializeWithType(value, gen, prov, _typeSerializer);
+        }
+    }
+}
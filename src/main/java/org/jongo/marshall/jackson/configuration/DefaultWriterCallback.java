@@ -19,8 +19,12 @@ package org.jongo.marshall.jackson.configuration;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 
-class DefaultWriterCallback implements WriterCallback {
+class DefaultWriterCallback implements ClassWriterCallback {
     public ObjectWriter getWriter(ObjectMapper mapper, Object pojo) {
         return mapper.writer();
     }
+
+    public ObjectWriter getWriter(ObjectMapper mapper, Class<?> clazz) {
+        return mapper.writerFor(clazz);
+    }
 }
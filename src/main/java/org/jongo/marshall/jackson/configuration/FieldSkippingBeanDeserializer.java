@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.configuration;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.deser.BeanDeserializer;
+import org.jongo.marshall.jackson.FieldSkippingParser;
+
+import java.io.IOException;
+
+/**
+ * A {@link BeanDeserializer} asking {@link FieldSkippingParser}s to skip the fields it has no property for,
+ * instead of tokenizing them to ignore them afterwards.
+ * <p>
+ * Beans which may consume unknown fields (any setter, unwrapped properties, external type ids, object ids,
+ * delegating creators) or contexts in which unknown fields have to be reported are deserialized as usual.
+ */
+class FieldSkippingBeanDeserializer extends BeanDeserializer implements FieldSkippingParser.KnownFields {
+
+    FieldSkippingBeanDeserializer(BeanDeserializer src) {
+        super(src);
+    }
+
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p instanceof FieldSkippingParser && p.getCurrentToken() == JsonToken.START_OBJECT && canSkipUnknownFields(ctxt)) {
+            ((FieldSkippingParser) p).skipUnknownFields(this);
+        }
+        return super.deserialize(p, ctxt);
+    }
+
+    public boolean contains(String fieldName) {
+        return findProperty(fieldName) != null;
+    }
+
+    private boolean canSkipUnknownFields(DeserializationContext ctxt) {
+        if (_anySetter != null || _unwrappedPropertyHandler != null || _externalTypeIdHandler != null || _objectIdReader != null) {
+            return false;
+        }
+        if (_nonStandardCreation && _propertyBasedCreator == null) {
+            // a delegating creator receives the whole document, its fields are not bean properties
+            return false;
+        }
+        if (ctxt.getConfig().getProblemHandlers() != null) {
+            return false;
+        }
+        return _ignoreAllUnknown || !ctxt.isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+}
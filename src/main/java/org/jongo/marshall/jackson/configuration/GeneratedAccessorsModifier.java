@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.configuration;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBuilder;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.deser.impl.MethodProperty;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Replaces reflective getter and setter calls of bean serializers and deserializers with generated accessors.
+ * Properties mapped on fields, or which cannot be bound, keep their default implementation.
+ */
+public class GeneratedAccessorsModifier implements MapperModifier {
+
+    public void modify(ObjectMapper mapper) {
+        SimpleModule module = new SimpleModule("jongo-generated-accessors");
+        module.setDeserializerModifier(new AccessorDeserializerModifier());
+        module.setSerializerModifier(new AccessorSerializerModifier());
+        mapper.registerModule(module);
+    }
+
+    private static class AccessorDeserializerModifier extends BeanDeserializerModifier {
+
+        @Override
+        public BeanDeserializerBuilder updateBuilder(DeserializationConfig config, BeanDescription beanDesc, BeanDeserializerBuilder builder) {
+            boolean canOverrideAccess = config.isEnabled(MapperFeature.CAN_OVERRIDE_ACCESS_MODIFIERS);
+            List<SettableBeanProperty> properties = new ArrayList<SettableBeanProperty>();
+            for (Iterator<SettableBeanProperty> it = builder.getProperties(); it.hasNext(); ) {
+                properties.add(it.next());
+            }
+            for (SettableBeanProperty property : properties) {
+                if (property.getClass() != MethodProperty.class) {
+                    continue;
+                }
+                PropertyAccessors.Setter setter = PropertyAccessors.setter(property.getMember(), canOverrideAccess);
+                if (setter != null) {
+                    builder.addOrReplaceProperty(new AccessorProperty(property, setter), true);
+                }
+            }
+            return builder;
+        }
+    }
+
+    private static class AccessorSerializerModifier extends BeanSerializerModifier {
+
+        @Override
+        public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> writers) {
+            boolean canOverrideAccess = config.isEnabled(MapperFeature.CAN_OVERRIDE_ACCESS_MODIFIERS);
+            for (int i = 0; i < writers.size(); i++) {
+                BeanPropertyWriter writer = writers.get(i);
+                if (writer.getClass() != BeanPropertyWriter.class) {
+                    continue;
+                }
+                PropertyAccessors.Getter getter = PropertyAccessors.getter(writer.getMember(), canOverrideAccess);
+                if (getter != null) {
+                    writers.set(i, new AccessorPropertyWriter(writer, getter));
+                }
+            }
+            return writers;
+        }
+    }
+}
@@ -20,11 +20,21 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Readers and writers built by the default and view callbacks only depend on the mapped class: they are created
+ * once per class and then reused, so the {@link ObjectMapper} must be fully configured before the mapping is used.
+ * Readers and writers of custom callbacks are requested for each document.
+ */
 public class Mapping {
 
     private ObjectMapper mapper;
     private ReaderCallback readerCallback;
     private WriterCallback writerCallback;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
 
     public Mapping(ObjectMapper mapper, ReaderCallback readerCallback, WriterCallback writerCallback) {
         this.mapper = mapper;
@@ -33,11 +43,44 @@ public class Mapping {
     }
 
     public ObjectReader getReader(Class<?> clazz) {
-        return readerCallback.getReader(mapper, clazz);
+        if (!(readerCallback instanceof ClassReaderCallback)) {
+            return readerCallback.getReader(mapper, clazz);
+        }
+        ObjectReader reader = readers.get(clazz);
+        if (reader == null) {
+            reader = readerCallback.getReader(mapper, clazz);
+            readers.putIfAbsent(clazz, reader);
+        }
+        return reader;
     }
 
     public ObjectWriter getWriter(Object pojo) {
-        return writerCallback.getWriter(mapper, pojo);
+        if (pojo == null || !(writerCallback instanceof ClassWriterCallback)) {
+            return writerCallback.getWriter(mapper, pojo);
+        }
+        return getWriter(pojo.getClass());
+    }
+
+    private ObjectWriter getWriter(Class<?> clazz) {
+        ObjectWriter writer = writers.get(clazz);
+        if (writer == null) {
+            writer = ((ClassWriterCallback) writerCallback).getWriter(mapper, clazz);
+            writers.putIfAbsent(clazz, writer);
+        }
+        return writer;
+    }
+
+    /**
+     * Creates readers and writers of the given classes and looks up their root (de)serializers,
+     * so that the first documents of these classes do not pay for it.
+     */
+    void preload(Iterable<Class<?>> classes) {
+        for (Class<?> clazz : classes) {
+            getReader(clazz);
+            if (writerCallback instanceof ClassWriterCallback) {
+                getWriter(clazz);
+            }
+        }
     }
 
     public ObjectMapper getObjectMapper() {
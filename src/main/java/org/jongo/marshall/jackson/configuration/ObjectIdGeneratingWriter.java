@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.configuration;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import org.bson.types.ObjectId;
+import org.jongo.marshall.jackson.IdAccessor;
+
+import static org.jongo.marshall.jackson.configuration.ObjectIdGenerationModifier.GENERATE_OBJECT_IDS;
+
+/**
+ * Same as {@link BeanPropertyWriter} except a missing ObjectId of the written pojo is generated and set on it
+ * before being written. Nested pojos keep their ids as they are.
+ */
+class ObjectIdGeneratingWriter extends BeanPropertyWriter {
+
+    private final IdAccessor accessor;
+
+    ObjectIdGeneratingWriter(BeanPropertyWriter base, IdAccessor accessor) {
+        super(base);
+        this.accessor = accessor;
+    }
+
+    @Override
+    protected BeanPropertyWriter _new(PropertyName newName) {
+        return new ObjectIdGeneratingWriter(super._new(newName), accessor);
+    }
+
+    @Override
+    public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+        generateIfMissing(bean, prov);
+        super.serializeAsField(bean, gen, prov);
+    }
+
+    @Override
+    public void serializeAsElement(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+        generateIfMissing(bean, prov);
+        super.serializeAsElement(bean, gen, prov);
+    }
+
+    private void generateIfMissing(Object bean, SerializerProvider prov) {
+        if (prov.getAttribute(GENERATE_OBJECT_IDS) == bean && accessor.getValue(bean) == null) {
+            accessor.setObjectId(bean, ObjectId.get());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.configuration;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import org.jongo.marshall.jackson.IdAccessor;
+import org.jongo.marshall.jackson.IdSelector;
+import org.jongo.marshall.jackson.JacksonObjectIdUpdater;
+
+import java.util.List;
+
+/**
+ * Generates the missing ObjectId of a pojo while it is serialized: the id is written into the document and
+ * set back on the pojo in the same pass.
+ * <p>
+ * Ids are only generated by writers carrying the {@link #GENERATE_OBJECT_IDS} attribute, whose value is the
+ * written pojo: like with an {@link org.jongo.ObjectIdUpdater}, nested pojos are left untouched, and so are pojos
+ * marshalled as query parameters or updates.
+ */
+public class ObjectIdGenerationModifier implements MapperModifier {
+
+    public static final Object GENERATE_OBJECT_IDS = ObjectIdGenerationModifier.class.getName() + ".GENERATE_OBJECT_IDS";
+
+    private final IdSelector<BeanPropertyDefinition> idSelector;
+
+    public ObjectIdGenerationModifier() {
+        this(new JacksonObjectIdUpdater.BeanPropertyDefinitionIdSelector());
+    }
+
+    public ObjectIdGenerationModifier(IdSelector<BeanPropertyDefinition> idSelector) {
+        this.idSelector = idSelector;
+    }
+
+    public void modify(ObjectMapper mapper) {
+        SimpleModule module = new SimpleModule("jongo-object-id-generation");
+        module.setSerializerModifier(new IdSerializerModifier());
+        mapper.registerModule(module);
+    }
+
+    private class IdSerializerModifier extends BeanSerializerModifier {
+
+        @Override
+        public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> writers) {
+            for (BeanPropertyDefinition property : beanDesc.findProperties()) {
+                if (idSelector.isId(property)) {
+                    if (idSelector.isObjectId(property)) {
+                        replaceIdWriter(writers, property);
+                    }
+                    break;
+                }
+            }
+            return writers;
+        }
+
+        private void replaceIdWriter(List<BeanPropertyWriter> writers, BeanPropertyDefinition property) {
+            IdAccessor accessor = IdAccessor.of(property, true);
+            if (!accessor.canSetObjectId()) {
+                return;
+            }
+            for (int i = 0; i < writers.size(); i++) {
+                BeanPropertyWriter writer = writers.get(i);
+                if (writer.getName().equals(property.getName())) {
+                    writers.set(i, new ObjectIdGeneratingWriter(writer, accessor));
+                    return;
+                }
+            }
+        }
+    }
+}
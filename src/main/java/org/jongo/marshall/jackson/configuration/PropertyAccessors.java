@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.configuration;
+
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Creates getters and setters of properties mapped on methods. Public methods of public classes are bound with
+ * {@link LambdaMetafactory}, the JVM then spins a class calling them directly. Other methods go through
+ * method handles which are cheaper to invoke than {@link Method#invoke}.
+ * <p>
+ * Fields are left to Jackson: reflective field access is already as fast as a method handle.
+ */
+final class PropertyAccessors {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    interface Getter {
+        Object get(Object bean) throws Throwable;
+    }
+
+    interface Setter {
+        void set(Object bean, Object value) throws Throwable;
+    }
+
+    static Getter getter(AnnotatedMember member, boolean canOverrideAccess) {
+        if (!(member instanceof AnnotatedMethod)) {
+            return null;
+        }
+        Method method = ((AnnotatedMethod) member).getAnnotated();
+        if (method.getParameterTypes().length != 0 || method.getReturnType() == void.class) {
+            return null;
+        }
+        try {
+            if (!makeAccessible(method, canOverrideAccess)) {
+                return null;
+            }
+            MethodHandle handle = LOOKUP.unreflect(method);
+            if (canSpin(method, method.getReturnType())) {
+                MethodType type = methodType(wrap(method.getReturnType()), method.getDeclaringClass());
+                return (Getter) spin(Getter.class, "get", methodType(Object.class, Object.class), handle, type);
+            }
+            return getter(handle);
+        } catch (Throwable e) {
+            // method cannot be bound, reflection is kept for this property
+            return null;
+        }
+    }
+
+    static Setter setter(AnnotatedMember member, boolean canOverrideAccess) {
+        if (!(member instanceof AnnotatedMethod)) {
+            return null;
+        }
+        Method method = ((AnnotatedMethod) member).getAnnotated();
+        if (method.getParameterTypes().length != 1 || method.getReturnType() != void.class) {
+            return null;
+        }
+        try {
+            if (!makeAccessible(method, canOverrideAccess)) {
+                return null;
+            }
+            MethodHandle handle = LOOKUP.unreflect(method);
+            Class<?> valueType = method.getParameterTypes()[0];
+            if (canSpin(method, valueType)) {
+                MethodType type = methodType(void.class, method.getDeclaringClass(), wrap(valueType));
+                return (Setter) spin(Setter.class, "set", methodType(void.class, Object.class, Object.class), handle, type);
+            }
+            return setter(handle);
+        } catch (Throwable e) {
+            // method cannot be bound, reflection is kept for this property
+            return null;
+        }
+    }
+
+    static Exception asException(Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return t instanceof Exception ? (Exception) t : new UndeclaredThrowableException(t);
+    }
+
+    private static Getter getter(MethodHandle handle) {
+        final MethodHandle getter = handle.asType(methodType(Object.class, Object.class));
+        return new Getter() {
+            public Object get(Object bean) throws Throwable {
+                return getter.invokeExact(bean);
+            }
+        };
+    }
+
+    private static Setter setter(MethodHandle handle) {
+        final MethodHandle setter = handle.asType(methodType(void.class, Object.class, Object.class));
+        return new Setter() {
+            public void set(Object bean, Object value) throws Throwable {
+                setter.invokeExact(bean, value);
+            }
+        };
+    }
+
+    private static Object spin(Class<?> accessorType, String name, MethodType erasedType, MethodHandle handle,
+                               MethodType instantiatedType) throws Throwable {
+        CallSite site = LambdaMetafactory.metafactory(LOOKUP, name, methodType(accessorType), erasedType, handle, instantiatedType);
+        return site.getTarget().invoke();
+    }
+
+    private static boolean makeAccessible(Method method, boolean canOverrideAccess) {
+        if (isPublic(method)) {
+            return true;
+        }
+        if (!canOverrideAccess) {
+            return false;
+        }
+        method.setAccessible(true);
+        return true;
+    }
+
+    private static boolean canSpin(Method method, Class<?> valueType) {
+        // the generated class lives in this class loader and links against the bean and value types
+        return isPublic(method) && isVisible(method.getDeclaringClass()) && isVisible(valueType);
+    }
+
+    private static boolean isPublic(Method method) {
+        return Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers());
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, PropertyAccessors.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return methodType(type).wrap().returnType();
+    }
+
+    private PropertyAccessors() {
+    }
+}
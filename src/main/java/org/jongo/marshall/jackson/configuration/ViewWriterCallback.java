@@ -19,7 +19,7 @@ package org.jongo.marshall.jackson.configuration;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 
-class ViewWriterCallback implements WriterCallback {
+class ViewWriterCallback implements ClassWriterCallback {
     private final Class<?> viewClass;
 
     public ViewWriterCallback(Class<?> viewClass) {
@@ -29,4 +29,8 @@ class ViewWriterCallback implements WriterCallback {
     public ObjectWriter getWriter(ObjectMapper mapper, Object pojo) {
         return mapper.writerWithView(viewClass);
     }
+
+    public ObjectWriter getWriter(ObjectMapper mapper, Class<?> clazz) {
+        return mapper.writerWithView(viewClass).forType(clazz);
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.lazy;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.JavaType;
+import org.jongo.bson.RawBson;
+import org.jongo.marshall.MarshallingException;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.jongo.bson.RawBson.readInt;
+import static org.jongo.bson.RawBson.skipName;
+
+/**
+ * The elements of a BSON array or subdocument, indexed when created and decoded one by one. Immutable, it can be
+ * read by concurrent threads.
+ */
+final class LazyElements {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte DOCUMENT = 3;
+    private static final byte UNDEFINED = 6;
+    private static final byte NULL = 10;
+
+    private final ObjectCodec codec;
+    private final byte[] bytes;
+    private final int size;
+    private final int[] nameOffsets;
+    private final int[] valueOffsets;
+
+    LazyElements(ObjectCodec codec, byte[] bytes) {
+        this.codec = codec;
+        this.bytes = bytes;
+        int[] names = new int[8];
+        int[] values = new int[8];
+        int count = 0;
+        int end = readInt(bytes, 0) - 1;
+        int position = 4;
+        while (position < end) {
+            if (count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            byte bsonType = bytes[position++];
+            names[count] = position;
+            position = skipName(bytes, position);
+            values[count++] = position;
+            position += RawBson.valueSize(bytes, bsonType, position);
+        }
+        this.nameOffsets = names;
+        this.valueOffsets = values;
+        this.size = count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    String name(int element) {
+        int start = nameOffsets[element];
+        return new String(bytes, start, valueOffsets[element] - start - 1, UTF8);
+    }
+
+    Object decode(int element, JavaType type) {
+        int position = valueOffsets[element];
+        byte bsonType = bytes[nameOffsets[element] - 1];
+        if (bsonType == NULL || bsonType == UNDEFINED) {
+            return null;
+        }
+        try {
+            if (bsonType == DOCUMENT) {
+                return read(codec.getFactory().createParser(bytes, position, readInt(bytes, position)), type);
+            }
+            // any other value is read from a single field document {"": value}
+            int size = RawBson.valueSize(bytes, bsonType, position);
+            byte[] document = new byte[4 + 2 + size + 1];
+            writeInt(document, document.length);
+            document[4] = bsonType;
+            System.arraycopy(bytes, position, document, 6, size);
+            JsonParser parser = codec.getFactory().createParser(document);
+            parser.nextToken();
+            parser.nextToken();
+            parser.nextToken();
+            return read(parser, type);
+        } catch (IOException e) {
+            throw new MarshallingException("Unable to decode element " + element + " as " + type, e);
+        }
+    }
+
+    private Object read(JsonParser parser, JavaType type) throws IOException {
+        try {
+            return codec.readValue(parser, type);
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int value) {
+        bytes[0] = (byte) value;
+        bytes[1] = (byte) (value >>> 8);
+        bytes[2] = (byte) (value >>> 16);
+        bytes[3] = (byte) (value >>> 24);
+    }
+}
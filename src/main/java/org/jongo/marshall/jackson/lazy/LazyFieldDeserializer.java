@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.lazy;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import org.jongo.marshall.jackson.RawValueParser;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deserializes {@link LazyField} properties: the bytes of the BSON array or subdocument are copied out of the
+ * document and wrapped into a list or a map decoding each element on first access with the mapper which read the
+ * document.
+ * <p>
+ * Lists can be declared as <code>List</code>, <code>Collection</code> or <code>Iterable</code>, maps as
+ * <code>Map</code>. Both are decoded entirely once modified. Values are decoded eagerly when the parser does not
+ * read the document from a byte array.
+ */
+public class LazyFieldDeserializer extends StdDeserializer<Object> implements ContextualDeserializer {
+
+    private final JavaType type;
+
+    public LazyFieldDeserializer() {
+        this(null);
+    }
+
+    private LazyFieldDeserializer(JavaType type) {
+        super(Object.class);
+        this.type = type;
+    }
+
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) throws JsonMappingException {
+        JavaType propertyType = property != null ? property.getType() : ctxt.getContextualType();
+        if (!isLazyList(propertyType) && !isLazyMap(propertyType)) {
+            throw JsonMappingException.from(ctxt, "@LazyField can only be used on List or Map properties, not on " + propertyType);
+        }
+        return new LazyFieldDeserializer(propertyType);
+    }
+
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        byte[] bytes = rawValue(p);
+        if (bytes == null) {
+            return ctxt.readValue(p, type);
+        }
+        LazyElements elements = new LazyElements(p.getCodec(), bytes);
+        if (isLazyList(type)) {
+            return new LazyList<Object>(elements, type.containedTypeOrUnknown(0));
+        }
+        return new LazyMap<Object>(elements, type.containedTypeOrUnknown(1));
+    }
+
+    private byte[] rawValue(JsonParser p) throws IOException {
+        JsonToken expected = isLazyList(type) ? JsonToken.START_ARRAY : JsonToken.START_OBJECT;
+        if (p.getCurrentToken() != expected || p.getCodec() == null) {
+            return null;
+        }
+        return RawValueParser.copyRawValue(p);
+    }
+
+    private static boolean isLazyList(JavaType type) {
+        Class<?> raw = type.getRawClass();
+        return raw != Object.class && raw.isAssignableFrom(List.class);
+    }
+
+    private static boolean isLazyMap(JavaType type) {
+        Class<?> keyType = type.containedTypeOrUnknown(0).getRawClass();
+        return type.getRawClass() == Map.class && (keyType == String.class || keyType == Object.class);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.lazy;
+
+import com.fasterxml.jackson.databind.JavaType;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A list over a BSON array decoding each element on first access. The whole array is decoded once the list is
+ * modified. Like {@link ArrayList}, it can be read by concurrent threads but must not be modified while being read.
+ */
+final class LazyList<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final Object UNDECODED = new Object();
+
+    private final LazyElements elements;
+    private final JavaType elementType;
+    private final AtomicReferenceArray<Object> decoded;
+    private List<E> list;
+
+    LazyList(LazyElements elements, JavaType elementType) {
+        this.elements = elements;
+        this.elementType = elementType;
+        this.decoded = new AtomicReferenceArray<Object>(elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            decoded.lazySet(i, UNDECODED);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (list != null) {
+            return list.get(index);
+        }
+        if (index < 0 || index >= elements.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+        }
+        Object value = decoded.get(index);
+        if (value == UNDECODED) {
+            // concurrent readers may decode the same element, all of them get the first decoded value
+            Object decodedValue = elements.decode(index, elementType);
+            value = decoded.compareAndSet(index, UNDECODED, decodedValue) ? decodedValue : decoded.get(index);
+        }
+        return (E) value;
+    }
+
+    @Override
+    public int size() {
+        return list != null ? list.size() : elements.size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return decodeAll().set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        decodeAll().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        E removed = decodeAll().remove(index);
+        modCount++;
+        return removed;
+    }
+
+    private List<E> decodeAll() {
+        if (list == null) {
+            List<E> all = new ArrayList<E>(elements.size());
+            for (int i = 0; i < elements.size(); i++) {
+                all.add(get(i));
+            }
+            list = all;
+        }
+        return list;
+    }
+}
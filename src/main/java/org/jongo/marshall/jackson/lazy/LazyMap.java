@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.lazy;
+
+import com.fasterxml.jackson.databind.JavaType;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A map over a BSON subdocument decoding each value on first lookup. The whole subdocument is decoded once the map
+ * is iterated or modified. Like {@link HashMap}, it can be read by concurrent threads but must not be modified
+ * while being read.
+ */
+final class LazyMap<V> extends AbstractMap<String, V> {
+
+    private static final Object UNDECODED = new Object();
+
+    private final LazyElements elements;
+    private final JavaType valueType;
+    private final AtomicReferenceArray<Object> decoded;
+    // built on first lookup, an immutable map safely published through the volatile field
+    private volatile Map<String, Integer> index;
+    private Map<String, V> map;
+
+    LazyMap(LazyElements elements, JavaType valueType) {
+        this.elements = elements;
+        this.valueType = valueType;
+        this.decoded = new AtomicReferenceArray<Object>(elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            decoded.lazySet(i, UNDECODED);
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        if (map != null) {
+            return map.get(key);
+        }
+        Integer element = index().get(key);
+        if (element == null) {
+            return null;
+        }
+        return decode(element);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map != null ? map.containsKey(key) : index().containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return map != null ? map.size() : index().size();
+    }
+
+    @Override
+    public V put(String key, V value) {
+        return decodeAll().put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return decodeAll().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        decodeAll().clear();
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return decodeAll().entrySet();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V decode(int element) {
+        Object value = decoded.get(element);
+        if (value == UNDECODED) {
+            // concurrent readers may decode the same value, all of them get the first decoded one
+            Object decodedValue = elements.decode(element, valueType);
+            value = decoded.compareAndSet(element, UNDECODED, decodedValue) ? decodedValue : decoded.get(element);
+        }
+        return (V) value;
+    }
+
+    private Map<String, Integer> index() {
+        Map<String, Integer> names = index;
+        if (names == null) {
+            names = new HashMap<String, Integer>();
+            for (int i = 0; i < elements.size(); i++) {
+                String name = elements.name(i);
+                if (!names.containsKey(name)) {
+                    names.put(name, i);
+                }
+            }
+            index = names;
+        }
+        return names;
+    }
+
+    private Map<String, V> decodeAll() {
+        if (map == null) {
+            Map<String, V> all = new LinkedHashMap<String, V>();
+            for (int i = 0; i < elements.size(); i++) {
+                String name = elements.name(i);
+                if (!all.containsKey(name)) {
+                    all.put(name, decode(i));
+                }
+            }
+            map = all;
+        }
+        return map;
+    }
+}
@@ -17,6 +17,7 @@
 package org.jongo.marshall.jackson.oid;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.TreeNode;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
@@ -40,6 +41,17 @@ public class ObjectIdDeserializer extends JsonDeserializer<Object> implements Co
 
     @Override
     public Object deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        // native ids and hex strings are read from the current token, only {$oid: ...} objects need a tree
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.VALUE_EMBEDDED_OBJECT) {
+            Object embedded = jp.getEmbeddedObject();
+            if (embedded instanceof ObjectId) {
+                return fieldIsObjectId ? embedded : ((ObjectId) embedded).toHexString();
+            }
+        } else if (token == JsonToken.VALUE_STRING) {
+            String id = jp.getText();
+            return fieldIsObjectId ? new ObjectId(id) : id;
+        }
         TreeNode treeNode = jp.readValueAsTree();
         JsonNode oid = ((JsonNode) treeNode).get(MONGO_QUERY_OID);
         if (fieldIsObjectId) {
@@ -44,9 +44,10 @@ public class ObjectIdSerializer extends JsonSerializer<Object>
         if (value == null) {
             jgen.writeNull();
         } else if (fieldIsObjectId) {
-            jgen.writeObject(value);
+            provider.defaultSerializeValue(value, jgen);
         } else {
-            jgen.writeObject(new ObjectId(value.toString()));
+            // serializers are looked up from the current provider, writeObject would go through the mapper again
+            provider.defaultSerializeValue(new ObjectId(value.toString()), jgen);
         }
     }
 
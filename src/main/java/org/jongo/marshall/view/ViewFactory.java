@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.view;
+
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.MarshallingException;
+import org.jongo.marshall.Unmarshaller;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Creates instances of a view interface backed by raw BSON documents.
+ * <p>
+ * A view interface only declares getters (<code>getName()</code>, <code>isActive()</code> or <code>name()</code>),
+ * the field read by a getter can be renamed with <code>&#64;JsonProperty</code> or <code>&#64;MongoId</code>.
+ * Nothing is decoded when a view is created: the offsets of the fields read by the view are indexed on the
+ * first call to a getter and each getter then decodes its own value, every time it is called.
+ * <p>
+ * Getters can return strings, numbers, booleans, dates, ids, enums, byte arrays, nested views, lists of those
+ * and <code>Object</code>. Subdocuments mapped on any other type are unmarshalled.
+ */
+public class ViewFactory<T> {
+
+    private final Class<T> viewType;
+    private final ViewType type;
+    private final Unmarshaller unmarshaller;
+
+    public ViewFactory(Class<T> viewType, Unmarshaller unmarshaller) {
+        this.viewType = viewType;
+        this.type = ViewType.of(viewType);
+        this.unmarshaller = unmarshaller;
+    }
+
+    /**
+     * Returns a view over the document bytes, they must not be modified while the view is in use.
+     */
+    public T create(BsonDocument document) {
+        return create(document.toByteArray(), 0);
+    }
+
+    T create(byte[] bytes, int offset) {
+        return viewType.cast(newView(type, unmarshaller, bytes, offset));
+    }
+
+    static Object newView(ViewType type, Unmarshaller unmarshaller, byte[] bytes, int offset) {
+        try {
+            Class<?> viewClass = type.getViewClass();
+            return Proxy.newProxyInstance(viewClass.getClassLoader(), new Class<?>[]{viewClass}, new ViewHandler(type, unmarshaller, bytes, offset));
+        } catch (Exception e) {
+            throw new MarshallingException("Unable to create view " + type.getViewClass(), e);
+        }
+    }
+}
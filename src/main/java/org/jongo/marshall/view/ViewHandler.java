@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.view;
+
+import com.mongodb.LazyDBCallback;
+import com.mongodb.LazyDBObject;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.jongo.bson.Bson;
+import org.jongo.bson.RawBson;
+import org.jongo.marshall.MarshallingException;
+import org.jongo.marshall.Unmarshaller;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.jongo.bson.RawBson.readInt;
+import static org.jongo.bson.RawBson.readLong;
+import static org.jongo.bson.RawBson.skipName;
+
+/**
+ * Backs a view with a BSON document: fields read by the view are indexed on first access,
+ * values are then decoded straight from the document bytes.
+ */
+final class ViewHandler implements InvocationHandler {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte DOUBLE = 1;
+    private static final byte STRING = 2;
+    private static final byte DOCUMENT = 3;
+    private static final byte ARRAY = 4;
+    private static final byte BINARY = 5;
+    private static final byte UNDEFINED = 6;
+    private static final byte OBJECT_ID = 7;
+    private static final byte BOOLEAN = 8;
+    private static final byte DATE = 9;
+    private static final byte NULL = 10;
+    private static final byte SYMBOL = 14;
+    private static final byte INT32 = 16;
+    private static final byte TIMESTAMP = 17;
+    private static final byte INT64 = 18;
+    private static final byte DECIMAL128 = 19;
+
+    private static final byte OLD_BINARY_SUBTYPE = 2;
+
+    private final ViewType type;
+    private final Unmarshaller unmarshaller;
+    private final byte[] bytes;
+    private final int offset;
+    // per field slot: value position << 8 | BSON type, 0 when the field is missing
+    private volatile long[] index;
+
+    ViewHandler(ViewType type, Unmarshaller unmarshaller, byte[] bytes, int offset) {
+        this.type = type;
+        this.unmarshaller = unmarshaller;
+        this.bytes = bytes;
+        this.offset = offset;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        ViewType.Getter getter = type.getter(method);
+        if (getter == null) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+        long[] index = this.index;
+        if (index == null) {
+            index = buildIndex();
+            this.index = index;
+        }
+        long entry = index[getter.slot];
+        byte bsonType = (byte) entry;
+        if (entry == 0 || bsonType == NULL || bsonType == UNDEFINED) {
+            return getter.missingValue;
+        }
+        return read(getter.value, bsonType, (int) (entry >>> 8), getter.field);
+    }
+
+    private long[] buildIndex() {
+        long[] index = new long[type.getFieldCount()];
+        int end = offset + readInt(bytes, offset) - 1;
+        int position = offset + 4;
+        while (position < end) {
+            byte bsonType = bytes[position++];
+            int nameStart = position;
+            position = skipName(bytes, position);
+            int slot = type.slot(bytes, nameStart, position - nameStart - 1);
+            if (slot >= 0 && index[slot] == 0) {
+                index[slot] = ((long) position << 8) | (bsonType & 0xFF);
+            }
+            position += valueSize(bsonType, position);
+        }
+        return index;
+    }
+
+    private Object read(ViewType.Value value, byte bsonType, int position, String field) {
+        switch (value.kind) {
+            case STRING:
+                if (bsonType == STRING || bsonType == SYMBOL) {
+                    return readString(position);
+                }
+                if (bsonType == OBJECT_ID) {
+                    return readObjectId(position).toHexString();
+                }
+                break;
+            case INT:
+                return readNumber(bsonType, position, field, value).intValue();
+            case LONG:
+                return readNumber(bsonType, position, field, value).longValue();
+            case DOUBLE:
+                return readNumber(bsonType, position, field, value).doubleValue();
+            case FLOAT:
+                return readNumber(bsonType, position, field, value).floatValue();
+            case SHORT:
+                return readNumber(bsonType, position, field, value).shortValue();
+            case BYTE:
+                return readNumber(bsonType, position, field, value).byteValue();
+            case BOOLEAN:
+                if (bsonType == BOOLEAN) {
+                    return bytes[position] != 0;
+                }
+                break;
+            case OBJECT_ID:
+                if (bsonType == OBJECT_ID) {
+                    return readObjectId(position);
+                }
+                if (bsonType == STRING) {
+                    return new ObjectId(readString(position));
+                }
+                break;
+            case DATE:
+                if (bsonType == DATE) {
+                    return new Date(readLong(bytes, position));
+                }
+                break;
+            case ENUM:
+                if (bsonType == STRING) {
+                    return readEnum(value.type, readString(position));
+                }
+                break;
+            case BYTES:
+                if (bsonType == BINARY) {
+                    return readBinary(position).getData();
+                }
+                break;
+            case VIEW:
+                if (bsonType == DOCUMENT) {
+                    return ViewFactory.newView(ViewType.of(value.type), unmarshaller, bytes, position);
+                }
+                break;
+            case LIST:
+                if (bsonType == ARRAY) {
+                    return readList(value.element, position, field);
+                }
+                break;
+            case OBJECT:
+                return readObject(bsonType, position);
+            case OTHER:
+                if (bsonType == DOCUMENT) {
+                    byte[] document = Arrays.copyOfRange(bytes, position, position + readInt(bytes, position));
+                    return unmarshaller.unmarshall(Bson.createDocument(document), value.type);
+                }
+                Object object = readObject(bsonType, position);
+                if (value.type.isInstance(object)) {
+                    return object;
+                }
+                break;
+        }
+        throw new MarshallingException(String.format("Unable to read field %s of BSON type %d as %s", field, bsonType, value.type));
+    }
+
+    private List<Object> readList(ViewType.Value element, int position, String field) {
+        List<Object> list = new ArrayList<Object>();
+        int end = position + readInt(bytes, position) - 1;
+        position += 4;
+        while (position < end) {
+            byte bsonType = bytes[position++];
+            position = skipName(bytes, position);
+            list.add(bsonType == NULL || bsonType == UNDEFINED ? null : read(element, bsonType, position, field));
+            position += valueSize(bsonType, position);
+        }
+        return list;
+    }
+
+    private Object readObject(byte bsonType, int position) {
+        switch (bsonType) {
+            case DOUBLE:
+                return Double.longBitsToDouble(readLong(bytes, position));
+            case STRING:
+                return readString(position);
+            case DOCUMENT:
+                return new LazyDBObject(bytes, position, new LazyDBCallback(null));
+            case ARRAY:
+                return readList(new ViewType.Value(ViewType.Kind.OBJECT, Object.class, null), position, null);
+            case OBJECT_ID:
+                return readObjectId(position);
+            case BOOLEAN:
+                return bytes[position] != 0;
+            case DATE:
+                return new Date(readLong(bytes, position));
+            case INT32:
+                return readInt(bytes, position);
+            case INT64:
+                return readLong(bytes, position);
+            case TIMESTAMP:
+                return new BSONTimestamp(readInt(bytes, position + 4), readInt(bytes, position));
+            case DECIMAL128:
+                return Decimal128.fromIEEE754BIDEncoding(readLong(bytes, position + 8), readLong(bytes, position));
+            default:
+                return readWrapped(bsonType, position);
+        }
+    }
+
+    private Object readWrapped(byte bsonType, int position) {
+        // rarely used types are decoded by the driver from a single field document {"": value}
+        int size = valueSize(bsonType, position);
+        ByteBuffer document = ByteBuffer.allocate(4 + 2 + size + 1).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        document.putInt(document.capacity()).put(bsonType).put((byte) 0).put(bytes, position, size).put((byte) 0);
+        return new LazyDBObject(document.array(), new LazyDBCallback(null)).get("");
+    }
+
+    private Number readNumber(byte bsonType, int position, String field, ViewType.Value value) {
+        switch (bsonType) {
+            case INT32:
+                return readInt(bytes, position);
+            case INT64:
+                return readLong(bytes, position);
+            case DOUBLE:
+                return Double.longBitsToDouble(readLong(bytes, position));
+            case DECIMAL128:
+                return ((Decimal128) readObject(bsonType, position)).bigDecimalValue();
+            default:
+                throw new MarshallingException(String.format("Unable to read field %s of BSON type %d as %s", field, bsonType, value.type));
+        }
+    }
+
+    private String readString(int position) {
+        return new String(bytes, position + 4, readInt(bytes, position) - 1, UTF8);
+    }
+
+    private ObjectId readObjectId(int position) {
+        return new ObjectId(ByteBuffer.wrap(bytes, position, 12));
+    }
+
+    private Binary readBinary(int position) {
+        int length = readInt(bytes, position);
+        byte subType = bytes[position + 4];
+        int start = position + 5;
+        if (subType == OLD_BINARY_SUBTYPE) {
+            length = readInt(bytes, start);
+            start += 4;
+        }
+        return new Binary(subType, Arrays.copyOfRange(bytes, start, start + length));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object readEnum(Class type, String name) {
+        return Enum.valueOf(type, name);
+    }
+
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("equals")) {
+            Object other = args[0];
+            if (other == null || !Proxy.isProxyClass(other.getClass())) {
+                return false;
+            }
+            InvocationHandler handler = Proxy.getInvocationHandler(other);
+            return handler instanceof ViewHandler && ((ViewHandler) handler).hasSameDocument(this);
+        }
+        if (name.equals("hashCode")) {
+            int hash = 1;
+            for (int i = offset, end = offset + readInt(bytes, offset); i < end; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            return hash;
+        }
+        if (name.equals("toString")) {
+            return type.getViewClass().getSimpleName() + new LazyDBObject(bytes, offset, new LazyDBCallback(null));
+        }
+        throw new UnsupportedOperationException(method.toString());
+    }
+
+    private boolean hasSameDocument(ViewHandler other) {
+        if (type != other.type) {
+            return false;
+        }
+        int size = readInt(bytes, offset);
+        if (size != readInt(other.bytes, other.offset)) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (bytes[offset + i] != other.bytes[other.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int valueSize(byte bsonType, int position) {
+        try {
+            return RawBson.valueSize(bytes, bsonType, position);
+        } catch (IllegalArgumentException e) {
+            throw new MarshallingException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.view;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.bson.types.ObjectId;
+import org.jongo.marshall.jackson.oid.MongoId;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Getters of a view interface and the fields they read, resolved once per interface.
+ */
+final class ViewType {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final ClassValue<ViewType> TYPES = new ClassValue<ViewType>() {
+        @Override
+        protected ViewType computeValue(Class<?> viewClass) {
+            return new ViewType(viewClass);
+        }
+    };
+
+    enum Kind {
+        STRING, INT, LONG, DOUBLE, FLOAT, SHORT, BYTE, BOOLEAN, OBJECT_ID, DATE, ENUM, BYTES, VIEW, LIST, OBJECT, OTHER
+    }
+
+    static final class Value {
+        final Kind kind;
+        final Class<?> type;
+        final Value element;
+
+        Value(Kind kind, Class<?> type, Value element) {
+            this.kind = kind;
+            this.type = type;
+            this.element = element;
+        }
+    }
+
+    static final class Getter {
+        final int slot;
+        final String field;
+        final Value value;
+        final Object missingValue;
+
+        private Getter(int slot, String field, Value value, Object missingValue) {
+            this.slot = slot;
+            this.field = field;
+            this.value = value;
+            this.missingValue = missingValue;
+        }
+    }
+
+    private final Class<?> viewClass;
+    private final Map<Method, Getter> getters = new HashMap<Method, Getter>();
+    private final List<byte[]> fields = new ArrayList<byte[]>();
+
+    static ViewType of(Class<?> viewClass) {
+        return TYPES.get(viewClass);
+    }
+
+    private ViewType(Class<?> viewClass) {
+        if (!viewClass.isInterface()) {
+            throw new IllegalArgumentException("A view must be an interface: " + viewClass);
+        }
+        this.viewClass = viewClass;
+        for (Method method : viewClass.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || isObjectMethod(method)) {
+                continue;
+            }
+            if (!Modifier.isAbstract(method.getModifiers())) {
+                throw new IllegalArgumentException("View methods must be abstract getters: " + method);
+            }
+            if (method.getParameterTypes().length > 0 || method.getReturnType() == void.class) {
+                throw new IllegalArgumentException("View methods must be getters without parameters: " + method);
+            }
+            String field = fieldName(method);
+            getters.put(method, new Getter(slot(field), field, value(method.getReturnType(), method.getGenericReturnType()),
+                    missingValue(method.getReturnType())));
+        }
+    }
+
+    Class<?> getViewClass() {
+        return viewClass;
+    }
+
+    Getter getter(Method method) {
+        return getters.get(method);
+    }
+
+    int getFieldCount() {
+        return fields.size();
+    }
+
+    /**
+     * Returns the slot of the field whose UTF-8 encoded name is at this position, -1 if the view does not read it.
+     */
+    int slot(byte[] bytes, int start, int length) {
+        for (int slot = 0; slot < fields.size(); slot++) {
+            byte[] field = fields.get(slot);
+            if (field.length == length && matches(field, bytes, start)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] field, byte[] bytes, int start) {
+        for (int i = 0; i < field.length; i++) {
+            if (field[i] != bytes[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int slot(String field) {
+        byte[] encoded = field.getBytes(UTF8);
+        int slot = slot(encoded, 0, encoded.length);
+        if (slot < 0) {
+            slot = fields.size();
+            fields.add(encoded);
+        }
+        return slot;
+    }
+
+    private static String fieldName(Method method) {
+        if (method.isAnnotationPresent(MongoId.class)) {
+            return "_id";
+        }
+        JsonProperty property = method.getAnnotation(JsonProperty.class);
+        if (property != null && !property.value().isEmpty()) {
+            return property.value();
+        }
+        String name = method.getName();
+        if (name.startsWith("get") && name.length() > 3) {
+            return decapitalize(name.substring(3));
+        }
+        Class<?> returnType = method.getReturnType();
+        if (name.startsWith("is") && name.length() > 2 && (returnType == boolean.class || returnType == Boolean.class)) {
+            return decapitalize(name.substring(2));
+        }
+        return name;
+    }
+
+    private static String decapitalize(String name) {
+        // same as Jackson: leading upper case characters are lower cased, getURL() reads "url"
+        StringBuilder decapitalized = new StringBuilder(name);
+        for (int i = 0; i < decapitalized.length() && Character.isUpperCase(decapitalized.charAt(i)); i++) {
+            decapitalized.setCharAt(i, Character.toLowerCase(decapitalized.charAt(i)));
+        }
+        return decapitalized.toString();
+    }
+
+    private static boolean isObjectMethod(Method method) {
+        try {
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static Value value(Class<?> type, Type genericType) {
+        if (type == String.class) {
+            return new Value(Kind.STRING, type, null);
+        }
+        if (type == int.class || type == Integer.class) {
+            return new Value(Kind.INT, type, null);
+        }
+        if (type == long.class || type == Long.class) {
+            return new Value(Kind.LONG, type, null);
+        }
+        if (type == double.class || type == Double.class) {
+            return new Value(Kind.DOUBLE, type, null);
+        }
+        if (type == float.class || type == Float.class) {
+            return new Value(Kind.FLOAT, type, null);
+        }
+        if (type == short.class || type == Short.class) {
+            return new Value(Kind.SHORT, type, null);
+        }
+        if (type == byte.class || type == Byte.class) {
+            return new Value(Kind.BYTE, type, null);
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return new Value(Kind.BOOLEAN, type, null);
+        }
+        if (type == ObjectId.class) {
+            return new Value(Kind.OBJECT_ID, type, null);
+        }
+        if (type == Date.class) {
+            return new Value(Kind.DATE, type, null);
+        }
+        if (type.isEnum()) {
+            return new Value(Kind.ENUM, type, null);
+        }
+        if (type == byte[].class) {
+            return new Value(Kind.BYTES, type, null);
+        }
+        if (type == Object.class) {
+            return new Value(Kind.OBJECT, type, null);
+        }
+        if (type == List.class || type == Collection.class || type == Iterable.class) {
+            Value element = new Value(Kind.OBJECT, Object.class, null);
+            if (genericType instanceof ParameterizedType) {
+                Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+                Class<?> elementClass = rawClass(elementType);
+                element = value(elementClass, elementType);
+            }
+            return new Value(Kind.LIST, type, element);
+        }
+        if (type.isInterface() && !Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)) {
+            return new Value(Kind.VIEW, type, null);
+        }
+        return new Value(Kind.OTHER, type, null);
+    }
+
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return Object.class;
+    }
+
+    private static Object missingValue(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        return 0;
+    }
+}
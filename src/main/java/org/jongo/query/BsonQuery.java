@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWrapper;
+
+class BsonQuery implements Query {
+
+    private final DBObject dbo;
+
+    BsonQuery(DBObject dbo) {
+        this.dbo = dbo;
+    }
+
+    public DBObject toDBObject() {
+        return dbo;
+    }
+
+    public BsonDocument toBsonDocument() {
+        return BsonDocumentWrapper.asBsonDocument(dbo, MongoClient.getDefaultCodecRegistry());
+    }
+}
@@ -1,8 +0,0 @@
-package org.jongo.query;
-
-enum Context {
-    NONE,
-    OBJECT,
-    ARRAY,
-    STRING;
-}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+import java.util.List;
+
+class DBObjects {
+
+    /**
+     * Copies a document and all its nested documents, read only (lazy) documents are copied into modifiable ones.
+     */
+    static DBObject deepCopy(DBObject dbo) {
+        if (dbo instanceof List) {
+            BasicDBList copy = new BasicDBList();
+            for (Object value : (List<?>) dbo) {
+                copy.add(copyValue(value));
+            }
+            return copy;
+        }
+        BasicDBObject copy = new BasicDBObject();
+        for (String key : dbo.keySet()) {
+            copy.put(key, copyValue(dbo.get(key)));
+        }
+        return copy;
+    }
+
+    private static Object copyValue(Object value) {
+        return value instanceof DBObject ? deepCopy((DBObject) value) : value;
+    }
+
+    private DBObjects() {
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.DBObject;
+import org.bson.RawBsonDocument;
+import org.jongo.bson.Bson;
+
+/**
+ * A query built without any parsing: it writes its elements into BSON when first materialized.
+ */
+abstract class EncodedQuery implements Query {
+
+    private volatile byte[] bytes;
+
+    abstract void writeElements(QueryEncoder encoder);
+
+    public DBObject toDBObject() {
+        return Bson.createDocument(toByteArray()).toDBObject();
+    }
+
+    public org.bson.BsonDocument toBsonDocument() {
+        return new RawBsonDocument(toByteArray());
+    }
+
+    byte[] toByteArray() {
+        byte[] encoded = bytes;
+        if (encoded == null) {
+            QueryEncoder encoder = new QueryEncoder();
+            encoder.startDocument(null);
+            writeElements(encoder);
+            encoder.endDocument();
+            encoded = encoder.toByteArray();
+            bytes = encoded;
+        }
+        return encoded;
+    }
+
+    @Override
+    public String toString() {
+        return toBsonDocument().toJson();
+    }
+}
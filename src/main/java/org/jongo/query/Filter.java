@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import java.util.List;
+
+/**
+ * An immutable query filter created by {@link Filters}.
+ */
+public abstract class Filter extends EncodedQuery {
+
+    Filter() {
+    }
+
+    static class FieldFilter extends Filter {
+        private final String name;
+        private final String operator;
+        private final Object value;
+
+        FieldFilter(String name, String operator, Object value) {
+            this.name = name;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        void writeElements(QueryEncoder encoder) {
+            if (operator == null) {
+                encoder.writeValue(name, value);
+            } else {
+                encoder.startDocument(name);
+                encoder.writeValue(operator, value);
+                encoder.endDocument();
+            }
+        }
+    }
+
+    static class ElemMatchFilter extends Filter {
+        private final String name;
+        private final Filter filter;
+
+        ElemMatchFilter(String name, Filter filter) {
+            this.name = name;
+            this.filter = filter;
+        }
+
+        @Override
+        void writeElements(QueryEncoder encoder) {
+            encoder.startDocument(name);
+            encoder.startDocument("$elemMatch");
+            filter.writeElements(encoder);
+            encoder.endDocument();
+            encoder.endDocument();
+        }
+    }
+
+    static class CompositeFilter extends Filter {
+        private final String operator;
+        private final List<Filter> filters;
+
+        CompositeFilter(String operator, List<Filter> filters) {
+            this.operator = operator;
+            this.filters = filters;
+        }
+
+        @Override
+        void writeElements(QueryEncoder encoder) {
+            encoder.startArray(operator);
+            for (Filter filter : filters) {
+                encoder.startDocument(null);
+                filter.writeElements(encoder);
+                encoder.endDocument();
+            }
+            encoder.endArray();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.BasicDBList;
+import org.jongo.marshall.Marshaller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Builds query filters without writing nor parsing any query string. Values are marshalled once,
+ * when the filter is created, with the same rules as query parameters.
+ * <pre>
+ * Filters filters = new Filters(jongo.getMapper().getMarshaller());
+ * collection.find(filters.and(filters.eq("name", "John"), filters.gt("age", 18))).as(Friend.class);
+ * </pre>
+ */
+public class Filters {
+
+    private final ParameterMarshaller parameterMarshaller;
+
+    public Filters(Marshaller marshaller) {
+        this.parameterMarshaller = new ParameterMarshaller(marshaller);
+    }
+
+    public Filter eq(String name, Object value) {
+        return new Filter.FieldFilter(name, null, marshall(value));
+    }
+
+    public Filter ne(String name, Object value) {
+        return field(name, "$ne", value);
+    }
+
+    public Filter gt(String name, Object value) {
+        return field(name, "$gt", value);
+    }
+
+    public Filter gte(String name, Object value) {
+        return field(name, "$gte", value);
+    }
+
+    public Filter lt(String name, Object value) {
+        return field(name, "$lt", value);
+    }
+
+    public Filter lte(String name, Object value) {
+        return field(name, "$lte", value);
+    }
+
+    public Filter in(String name, Object... values) {
+        return new Filter.FieldFilter(name, "$in", marshallAll(values));
+    }
+
+    public Filter nin(String name, Object... values) {
+        return new Filter.FieldFilter(name, "$nin", marshallAll(values));
+    }
+
+    public Filter exists(String name, boolean exists) {
+        return new Filter.FieldFilter(name, "$exists", exists);
+    }
+
+    public Filter regex(String name, String pattern) {
+        return new Filter.FieldFilter(name, null, Pattern.compile(pattern));
+    }
+
+    public Filter elemMatch(String name, Filter filter) {
+        return new Filter.ElemMatchFilter(name, filter);
+    }
+
+    public Filter and(Filter... filters) {
+        return composite("$and", filters);
+    }
+
+    public Filter or(Filter... filters) {
+        return composite("$or", filters);
+    }
+
+    public Filter nor(Filter... filters) {
+        return composite("$nor", filters);
+    }
+
+    private Filter field(String name, String operator, Object value) {
+        return new Filter.FieldFilter(name, operator, marshall(value));
+    }
+
+    private Filter composite(String operator, Filter[] filters) {
+        if (filters.length == 0) {
+            throw new IllegalArgumentException(operator + " needs at least one filter");
+        }
+        return new Filter.CompositeFilter(operator, Collections.unmodifiableList(new ArrayList<Filter>(Arrays.asList(filters))));
+    }
+
+    private Object marshall(Object value) {
+        return parameterMarshaller.marshallParameter(value);
+    }
+
+    private BasicDBList marshallAll(Object[] values) {
+        BasicDBList list = new BasicDBList();
+        for (Object value : values) {
+            list.add(marshall(value));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.DBObject;
+import org.jongo.Mapper;
+
+import java.util.Collections;
+
+/**
+ * Base class of the query repositories generated by {@link QueryProcessor}, created with the {@link Mapper}
+ * of the collections the queries are run against.
+ */
+public abstract class GeneratedQueries {
+
+    private final ParameterMarshaller parameterMarshaller;
+    private final QueryFactory queryFactory;
+
+    protected GeneratedQueries(Mapper mapper) {
+        this.parameterMarshaller = new ParameterMarshaller(mapper.getMarshaller());
+        this.queryFactory = mapper.getQueryFactory();
+    }
+
+    protected Object marshall(Object parameter) {
+        return parameterMarshaller.marshallParameter(parameter);
+    }
+
+    protected Query query(Object dbo) {
+        if (!(dbo instanceof DBObject)) {
+            throw new IllegalArgumentException("Query must be a document: " + dbo);
+        }
+        return new BsonQuery((DBObject) dbo);
+    }
+
+    /**
+     * Used for templates with parameters inlined into keys or strings, which cannot be built ahead of time:
+     * they are parsed by the query factory of the mapper.
+     */
+    protected Query createQuery(String query, Object... parameters) {
+        return queryFactory.createQuery(query, parameters);
+    }
+
+    protected static BasicDBList list(Object... values) {
+        BasicDBList list = new BasicDBList();
+        Collections.addAll(list, values);
+        return list;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable update modifier created by {@link Updates}. Operations of a combined modifier are grouped by operator,
+ * e.g. <code>{$set: {a: 1, b: 2}, $inc: {c: 1}}</code>.
+ */
+public class Modifier extends EncodedQuery {
+
+    private final List<Operation> operations;
+
+    Modifier(List<Operation> operations) {
+        this.operations = operations;
+    }
+
+    List<Operation> getOperations() {
+        return operations;
+    }
+
+    @Override
+    void writeElements(QueryEncoder encoder) {
+        List<String> operators = new ArrayList<String>();
+        for (Operation operation : operations) {
+            if (!operators.contains(operation.operator)) {
+                operators.add(operation.operator);
+            }
+        }
+        for (String operator : operators) {
+            encoder.startDocument(operator);
+            for (Operation operation : operations) {
+                if (operation.operator.equals(operator)) {
+                    encoder.writeValue(operation.name, operation.value);
+                }
+            }
+            encoder.endDocument();
+        }
+    }
+
+    static Modifier of(String operator, String name, Object value) {
+        return new Modifier(Collections.singletonList(new Operation(operator, name, value)));
+    }
+
+    static class Operation {
+        private final String operator;
+        private final String name;
+        private final Object value;
+
+        Operation(String operator, String name, Object value) {
+            this.operator = operator;
+            this.name = name;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.DBObject;
+import org.jongo.bson.Bson;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.Marshaller;
+import org.jongo.marshall.MarshallingException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+class ParameterMarshaller {
+
+    private enum Kind {
+        NATIVE, COLLECTION, ARRAY, ENUM, DOCUMENT
+    }
+
+    /**
+     * What is known about how the parameters of a class are marshalled, decided from the class only: whether
+     * a document is serialized as a primitive by a custom serializer may depend on the instance.
+     */
+    private static class ParameterType {
+        private final Kind kind;
+        // racy but safe: marshalled constants are immutable and recomputed if not yet visible
+        private final Object[] enumValues;
+
+        private ParameterType(Class<?> type) {
+            this.kind = classify(type);
+            this.enumValues = kind == Kind.ENUM ? new Object[type.getEnumConstants().length] : null;
+        }
+
+        private static Kind classify(Class<?> type) {
+            if (Bson.isPrimitiveType(type)) {
+                return Kind.NATIVE;
+            }
+            if (Collection.class.isAssignableFrom(type)) {
+                return Kind.COLLECTION;
+            }
+            if (Object[].class.isAssignableFrom(type)) {
+                return Kind.ARRAY;
+            }
+            if (type.isEnum()) {
+                return Kind.ENUM;
+            }
+            return Kind.DOCUMENT;
+        }
+    }
+
+    private final Marshaller marshaller;
+    private final ClassValue<ParameterType> types = new ClassValue<ParameterType>() {
+        @Override
+        protected ParameterType computeValue(Class<?> type) {
+            return new ParameterType(type);
+        }
+    };
+
+    ParameterMarshaller(Marshaller marshaller) {
+        this.marshaller = marshaller;
+    }
+
+    Object marshallParameter(Object parameter) {
+        if (parameter == null) {
+            return null;
+        }
+        try {
+            if (parameter instanceof Enum) {
+                return marshallEnum((Enum<?>) parameter);
+            }
+            ParameterType type = types.get(parameter.getClass());
+            switch (type.kind) {
+                case NATIVE:
+                    return parameter;
+                case COLLECTION:
+                    return marshallCollection((Collection<?>) parameter);
+                case ARRAY:
+                    return marshallArray((Object[]) parameter);
+                default:
+                    return marshallDocument(parameter);
+            }
+        } catch (Exception e) {
+            String message = String.format("Unable to marshall parameter: %s", parameter);
+            throw new MarshallingException(message, e);
+        }
+    }
+
+    private DBObject marshallArray(Object[] parameters) {
+        BasicDBList list = new BasicDBList();
+        for (final Object parameter : parameters) {
+            list.add(marshallParameter(parameter));
+        }
+        return list;
+    }
+
+    private DBObject marshallCollection(Collection<?> parameters) {
+        BasicDBList list = new BasicDBList();
+        for (Object param : parameters) {
+            list.add(marshallParameter(param));
+        }
+        return list;
+    }
+
+    private Object marshallEnum(Enum<?> parameter) {
+        ParameterType type = types.get(parameter.getDeclaringClass());
+        Object value = type.enumValues[parameter.ordinal()];
+        if (value == null) {
+            value = marshallParameterAsPrimitive(parameter);
+            if (value instanceof DBObject) {
+                // mutable, cannot be shared between queries
+                return value;
+            }
+            type.enumValues[parameter.ordinal()] = value;
+        }
+        return value;
+    }
+
+    private Object marshallDocument(Object parameter) {
+        BsonDocument document;
+        try {
+            document = marshaller.marshall(parameter);
+        } catch (MarshallingException e) {
+            // strict BSON generators refuse to write a primitive as a document
+            return marshallPrimitiveOrRethrow(parameter, e);
+        }
+
+        if (hasBeenSerializedAsPrimitive(document)) {
+            return marshallParameterAsPrimitive(parameter);
+        } else {
+            return document.toDBObject();
+        }
+    }
+
+    private Object marshallPrimitiveOrRethrow(Object parameter, MarshallingException cause) {
+        try {
+            return marshallParameterAsPrimitive(parameter);
+        } catch (RuntimeException e) {
+            throw cause;
+        }
+    }
+
+    private boolean hasBeenSerializedAsPrimitive(BsonDocument document) {
+        byte[] bytes = document.toByteArray();
+        if (bytes.length > 4) {
+            return bytes.length != document.getSize();
+        }
+        return true;
+    }
+
+    /**
+     * The object may have been serialized to a primitive type with a
+     * custom serializer, so try again after wrapping as an object property.
+     * We do this trick only as a falllback since it causes Jackson to consider the parameter
+     * as "Object" and thus ignore any annotations that may exist on its actual class.
+     */
+    private Object marshallParameterAsPrimitive(Object parameter) {
+        Map<String, Object> primitiveWrapper = Collections.singletonMap("wrapped", parameter);
+        BsonDocument document = marshaller.marshall(primitiveWrapper);
+        return document.toDBObject().get("wrapped");
+    }
+}
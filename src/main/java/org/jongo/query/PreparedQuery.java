@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+/**
+ * A query compiled once and bound many times with different parameters.
+ * Implementations are immutable and can be shared between threads.
+ */
+public interface PreparedQuery {
+
+    int UNKNOWN_PARAMETER_COUNT = -1;
+
+    Query bind(Object... parameters);
+
+    /**
+     * @return the number of parameters expected by {@link #bind(Object...)},
+     * or {@link #UNKNOWN_PARAMETER_COUNT} when the query factory cannot tell it.
+     */
+    int getParameterCount();
+}
@@ -19,9 +19,21 @@ package org.jongo.query;
 import com.mongodb.DBObject;
 import org.bson.BsonDocument;
 
+/**
+ * A query materialized by a {@link QueryFactory}. Representations returned by a query belong to it
+ * and may be shared between calls: they must not be modified, use {@link #copyDBObject()} instead.
+ */
 public interface Query {
 
     DBObject toDBObject();
 
     BsonDocument toBsonDocument();
+
+    /**
+     * @return a copy of {@link #toDBObject()} which can be modified without altering this query
+     */
+    default DBObject copyDBObject() {
+        DBObject dbo = toDBObject();
+        return dbo == null ? null : DBObjects.deepCopy(dbo);
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import org.bson.BSONObject;
+import org.bson.BasicBSONEncoder;
+import org.bson.BsonBinaryReader;
+import org.bson.io.BasicOutputBuffer;
+import org.jongo.bson.BsonDocument;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes a query straight into BSON bytes. Documents already marshalled into BSON are copied as raw bytes.
+ */
+class QueryEncoder extends BasicBSONEncoder {
+
+    private final BasicOutputBuffer buffer = new BasicOutputBuffer();
+
+    QueryEncoder() {
+        set(buffer);
+    }
+
+    void startDocument(String name) {
+        putName(name);
+        getBsonWriter().writeStartDocument();
+    }
+
+    void endDocument() {
+        getBsonWriter().writeEndDocument();
+    }
+
+    void startArray(String name) {
+        putName(name);
+        getBsonWriter().writeStartArray();
+    }
+
+    void endArray() {
+        getBsonWriter().writeEndArray();
+    }
+
+    void writeValue(String name, Object value) {
+        _putObjectField(name, value);
+    }
+
+    byte[] toByteArray() {
+        byte[] bytes = buffer.toByteArray();
+        done();
+        return bytes;
+    }
+
+    @Override
+    protected int putObject(String name, BSONObject document) {
+        if (document instanceof BsonDocument) {
+            BsonDocument bson = (BsonDocument) document;
+            putName(name);
+            getBsonWriter().pipe(new BsonBinaryReader(ByteBuffer.wrap(bson.toByteArray(), 0, bson.getSize())));
+            return bson.getSize();
+        }
+        return super.putObject(name, document);
+    }
+}
@@ -18,4 +18,20 @@ package org.jongo.query;
 
 public interface QueryFactory {
     Query createQuery(String query, Object... parameters);
+
+    /**
+     * Prepares a query to be bound many times. The default implementation creates the query again on each bind,
+     * factories able to compile queries should override it.
+     */
+    default PreparedQuery prepareQuery(final String query) {
+        return new PreparedQuery() {
+            public Query bind(Object... parameters) {
+                return createQuery(query, parameters);
+            }
+
+            public int getParameterCount() {
+                return UNKNOWN_PARAMETER_COUNT;
+            }
+        };
+    }
 }
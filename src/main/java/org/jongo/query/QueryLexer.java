@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import java.util.Objects;
+
+/**
+ * Turns a Jongo query into a quoted JSON string where each parameter bound as a value
+ * is replaced by a marshall placeholder. Other parameters are inlined into the string.
+ * <p>
+ * The query is read in a single forward pass: the nesting of objects and arrays is kept in a primitive stack
+ * and the kind of every parameter (key or value) is known from the last separator met.
+ */
+class QueryLexer {
+
+    /**
+     * The marshall operator will be replacing the token during query parsing as following:
+     * {"firstname":#} -> {"firstname":{MARSHALL_OPERATOR: 0}}
+     * 0 being the index of the parameter to be inserted in place of that placeholder.
+     * Previously $marshall but upgrading to mongo driver 4 the new parser does not allow $ prefixed strings
+     * if they're not mongo operators.
+     * With a UUID prefixed string there should be no risk of collision.
+     */
+    static final String MARSHALL_OPERATOR = "8a6e4178-8fba-4d22-af43-840512e3a999-marshall";
+
+    private static final String OID = "$oid";
+
+    private static final int NONE = 0;
+    private static final int OBJECT = 1;
+    private static final int ARRAY = 2;
+
+    private final char[] token;
+
+    QueryLexer(String token) {
+        this.token = token.toCharArray();
+    }
+
+    QuotedQuery quote(String query, Object[] parameters) {
+        return new Pass(query, parameters).run();
+    }
+
+    /**
+     * Quotes a query without its parameters: tokens bound as values still become placeholders,
+     * the other ones are inlined as a dummy name.
+     */
+    QuotedQuery quote(String query) {
+        return new Pass(query, null).run();
+    }
+
+    static class QuotedQuery {
+        final String value;
+        final boolean isTemplate;
+        final int parameterCount;
+
+        private QuotedQuery(String value, boolean isTemplate, int parameterCount) {
+            this.value = value;
+            this.isTemplate = isTemplate;
+            this.parameterCount = parameterCount;
+        }
+    }
+
+    /**
+     * The state of a single lexing pass over a query.
+     */
+    private class Pass {
+
+        private final String query;
+        private final char[] chars;
+        private final Object[] parameters;
+        private final StringBuilder result;
+        private final StringBuilder pending = new StringBuilder();
+
+        private int[] contexts = new int[16];
+        private int depth = 0;
+        private int paramIndex = 0;
+        private int placeholders = 0;
+        private char lastSeparator = 0;
+        private boolean afterOid = false;
+        private boolean pendingHasDot = false;
+        private boolean pendingIsInlinedKey = false;
+
+        private Pass(String query, Object[] parameters) {
+            this.query = query;
+            this.chars = query.toCharArray();
+            this.parameters = parameters;
+            this.result = new StringBuilder(chars.length + 64);
+        }
+
+        QuotedQuery run() {
+            int position = 0;
+            while (position < chars.length) {
+                char c = chars[position];
+                if (isAQuote(c)) {
+                    position = readString(position);
+                    continue;
+                }
+                if (isTokenAt(position)) {
+                    bindParameter();
+                    position += token.length;
+                    continue;
+                }
+                switch (c) {
+                    case '{':
+                        startContext(OBJECT, c);
+                        lastSeparator = c;
+                        break;
+                    case '[':
+                        startContext(ARRAY, c);
+                        break;
+                    case '}':
+                        endContext(OBJECT, c, position);
+                        break;
+                    case ']':
+                        endContext(ARRAY, c, position);
+                        break;
+                    case ':':
+                        appendKey(position);
+                        lastSeparator = c;
+                        break;
+                    case ',':
+                        flushPending();
+                        result.append(c);
+                        lastSeparator = c;
+                        break;
+                    default:
+                        appendToPending(c);
+                }
+                position++;
+            }
+
+            if (parameters != null && paramIndex < parameters.length) {
+                throw new IllegalArgumentException("Too many parameters passed to query: " + query);
+            }
+
+            return new QuotedQuery(trim(result), placeholders == paramIndex, paramIndex);
+        }
+
+        private int readString(int position) {
+            char quote = chars[position];
+            pending.append(quote);
+            pendingIsInlinedKey = false;
+            position++;
+            while (position < chars.length) {
+                char c = chars[position];
+                if (isTokenAt(position)) {
+                    appendEscaped(nextParameter(), quote);
+                    position += token.length;
+                } else if (c == '\\' && position + 1 < chars.length) {
+                    pending.append(c).append(chars[position + 1]);
+                    position += 2;
+                } else {
+                    pending.append(c);
+                    position++;
+                    if (c == quote) {
+                        break;
+                    }
+                }
+            }
+            return position;
+        }
+
+        private void bindParameter() {
+            if (afterOid || !isValuePosition()) {
+                inlineKeyParameter(nextParameter());
+            } else {
+                nextParameter();
+                appendParamPlaceholder(paramIndex - 1);
+                clearPending();
+                placeholders++;
+            }
+        }
+
+        private Object nextParameter() {
+            if (parameters == null) {
+                paramIndex++;
+                return "_";
+            }
+            if (paramIndex >= parameters.length) {
+                throw new IllegalArgumentException("Not enough parameters passed to query: " + query);
+            }
+            return parameters[paramIndex++];
+        }
+
+        private boolean isValuePosition() {
+            if (pendingHasDot) {
+                return false;
+            }
+            switch (lastSeparator) {
+                case '{':
+                    return false;
+                case ',':
+                    return peekContext() == ARRAY;
+                default:
+                    return true;
+            }
+        }
+
+        private void inlineKeyParameter(Object parameter) {
+            if (pendingIsInlinedKey) {
+                pending.setLength(pending.length() - 1);
+            } else {
+                trimPending();
+                pending.insert(0, '"');
+            }
+            appendEscaped(parameter, '"');
+            pending.append('"');
+            pendingIsInlinedKey = true;
+        }
+
+        private void appendToPending(char c) {
+            if (c == '.') {
+                pendingHasDot = true;
+            }
+            if (pendingIsInlinedKey) {
+                if (!Character.isWhitespace(c)) {
+                    pending.insert(pending.length() - 1, c);
+                }
+            } else {
+                pending.append(c);
+            }
+        }
+
+        private void appendEscaped(Object parameter, char quote) {
+            String value = Objects.toString(parameter);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == quote) {
+                    pending.append('\\');
+                }
+                pending.append(c);
+            }
+        }
+
+        private void appendParamPlaceholder(int index) {
+            result.append('{')
+                    .append('"')
+                    .append(MARSHALL_OPERATOR)
+                    .append('"')
+                    .append(':')
+                    .append(index)
+                    .append('}');
+        }
+
+        private void appendKey(int position) {
+            int start = firstNonWhitespace(pending);
+            int end = lastNonWhitespace(pending) + 1;
+            if (start >= end || isEmptyQuotedKey(start, end)) {
+                throw new IllegalArgumentException("Invalid currentToken at position: " + position);
+            }
+            if (isQuoted(start, end)) {
+                result.append(pending, start, end);
+            } else {
+                result.append('"').append(pending, start, end).append('"');
+            }
+            result.append(':');
+            boolean isOid = isOid(start, end);
+            clearPending();
+            afterOid = isOid;
+        }
+
+        private void startContext(int context, char c) {
+            flushPending();
+            if (depth == contexts.length) {
+                int[] grown = new int[depth * 2];
+                System.arraycopy(contexts, 0, grown, 0, depth);
+                contexts = grown;
+            }
+            contexts[depth++] = context;
+            result.append(c);
+        }
+
+        private void endContext(int context, char c, int position) {
+            int current = depth == 0 ? NONE : contexts[--depth];
+            if (current != context) {
+                throw new IllegalArgumentException("Invalid currentToken at position: " + position);
+            }
+            flushPending();
+            result.append(c);
+        }
+
+        private int peekContext() {
+            return depth == 0 ? NONE : contexts[depth - 1];
+        }
+
+        private void flushPending() {
+            result.append(pending);
+            clearPending();
+        }
+
+        private void clearPending() {
+            pending.setLength(0);
+            afterOid = false;
+            pendingHasDot = false;
+            pendingIsInlinedKey = false;
+        }
+
+        private void trimPending() {
+            int start = firstNonWhitespace(pending);
+            pending.setLength(lastNonWhitespace(pending) + 1);
+            pending.delete(0, Math.min(start, pending.length()));
+        }
+
+        private boolean isQuoted(int start, int end) {
+            char first = pending.charAt(start);
+            char last = pending.charAt(end - 1);
+            return isAQuote(first) && first == last;
+        }
+
+        private boolean isEmptyQuotedKey(int start, int end) {
+            return end - start == 2 && isQuoted(start, end);
+        }
+
+        private boolean isOid(int start, int end) {
+            if (end - start == OID.length() + 2 && isQuoted(start, end)) {
+                start++;
+                end--;
+            }
+            if (end - start != OID.length()) {
+                return false;
+            }
+            for (int i = 0; i < OID.length(); i++) {
+                if (pending.charAt(start + i) != OID.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isTokenAt(int position) {
+            if (position + token.length > chars.length) {
+                return false;
+            }
+            for (int i = 0; i < token.length; i++) {
+                if (chars[position + i] != token[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static boolean isAQuote(char c) {
+        return c == '\'' || c == '"';
+    }
+
+    private static int firstNonWhitespace(CharSequence sequence) {
+        int start = 0;
+        while (start < sequence.length() && sequence.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int lastNonWhitespace(CharSequence sequence) {
+        int end = sequence.length() - 1;
+        while (end >= 0 && sequence.charAt(end) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static String trim(StringBuilder sequence) {
+        int start = firstNonWhitespace(sequence);
+        int end = lastNonWhitespace(sequence) + 1;
+        return start >= end ? "" : sequence.substring(start, end);
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.DBObject;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Code;
+import org.bson.types.Decimal128;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.jongo.query.QueryLexer.MARSHALL_OPERATOR;
+
+/**
+ * Annotation processor validating the templates declared with {@link org.jongo.query.annotation.Query}
+ * at compile time. For each interface declaring such methods, it generates a class named after the interface
+ * with a <code>_Jongo</code> suffix, extending {@link GeneratedQueries} and building each query without any parsing.
+ * <p>
+ * The processor is not registered as a service, enable it with <code>-processor org.jongo.query.QueryProcessor</code>.
+ */
+@SupportedAnnotationTypes("org.jongo.query.annotation.Query")
+public class QueryProcessor extends AbstractProcessor {
+
+    static final String SUFFIX = "_Jongo";
+    private static final String TOKEN = "#";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> repositories = new LinkedHashSet<TypeElement>();
+        for (Element method : roundEnv.getElementsAnnotatedWith(org.jongo.query.annotation.Query.class)) {
+            repositories.add((TypeElement) method.getEnclosingElement());
+        }
+        for (TypeElement repository : repositories) {
+            if (repository.getKind() != ElementKind.INTERFACE) {
+                error(repository, "@Query methods must be declared in an interface");
+                continue;
+            }
+            generate(repository);
+        }
+        return true;
+    }
+
+    private void generate(TypeElement repository) {
+        StringBuilder methods = new StringBuilder();
+        boolean valid = true;
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(repository))) {
+            if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+            org.jongo.query.annotation.Query annotation = method.getAnnotation(org.jongo.query.annotation.Query.class);
+            if (annotation == null) {
+                error(method, "Method must be annotated with @Query to be generated");
+                valid = false;
+            } else if (!isQuery(method.getReturnType())) {
+                error(method, "@Query method must return " + Query.class.getName());
+                valid = false;
+            } else {
+                try {
+                    writeMethod(methods, method, annotation.value());
+                } catch (RuntimeException e) {
+                    error(method, "Invalid query " + annotation.value() + ": " + e.getMessage());
+                    valid = false;
+                }
+            }
+        }
+        if (valid) {
+            writeSource(repository, methods);
+        }
+    }
+
+    private void writeMethod(StringBuilder out, ExecutableElement method, String template) {
+        QueryLexer.QuotedQuery quotedQuery = new QueryLexer(TOKEN).quote(template);
+        List<? extends VariableElement> parameters = method.getParameters();
+        if (quotedQuery.parameterCount != parameters.size()) {
+            throw new IllegalArgumentException(String.format("template has %d parameters but method declares %d",
+                    quotedQuery.parameterCount, parameters.size()));
+        }
+        List<String> names = new ArrayList<String>();
+        for (VariableElement parameter : parameters) {
+            names.add(parameter.getSimpleName().toString());
+        }
+
+        String body;
+        if (quotedQuery.isTemplate) {
+            DBObject parsed = BsonQueryFactory.parse(quotedQuery.value);
+            body = "query(" + expression(parsed, names) + ")";
+        } else {
+            body = "createQuery(" + literal(template) + ", new Object[]{" + join(names, ", ") + "})";
+        }
+
+        out.append("\n    @Override\n    public ");
+        if (!method.getTypeParameters().isEmpty()) {
+            appendTypeParameters(out, method.getTypeParameters());
+            out.append(' ');
+        }
+        out.append(method.getReturnType()).append(' ').append(method.getSimpleName()).append('(');
+        for (int i = 0; i < parameters.size(); i++) {
+            VariableElement parameter = parameters.get(i);
+            TypeMirror type = parameter.asType();
+            if (i > 0) {
+                out.append(", ");
+            }
+            if (method.isVarArgs() && i == parameters.size() - 1) {
+                out.append(((ArrayType) type).getComponentType()).append("...");
+            } else {
+                out.append(type);
+            }
+            out.append(' ').append(names.get(i));
+        }
+        out.append(") {\n        return ").append(body).append(";\n    }\n");
+    }
+
+    private String expression(Object value, List<String> names) {
+        if (value instanceof BasicDBList) {
+            List<String> values = new ArrayList<String>();
+            for (Object element : (BasicDBList) value) {
+                values.add(expression(element, names));
+            }
+            return "list(" + join(values, ", ") + ")";
+        }
+        if (value instanceof DBObject) {
+            DBObject dbo = (DBObject) value;
+            if (dbo.keySet().size() == 1 && dbo.containsField(MARSHALL_OPERATOR)) {
+                return "marshall(" + names.get((Integer) dbo.get(MARSHALL_OPERATOR)) + ")";
+            }
+            StringBuilder document = new StringBuilder("new com.mongodb.BasicDBObject()");
+            for (String key : dbo.keySet()) {
+                document.append(".append(").append(literal(key)).append(", ").append(expression(dbo.get(key), names)).append(')');
+            }
+            return document.toString();
+        }
+        if (value == null || value instanceof Boolean || value instanceof Integer) {
+            return String.valueOf(value);
+        }
+        if (value instanceof String) {
+            return literal((String) value);
+        }
+        if (value instanceof Long) {
+            return value + "L";
+        }
+        if (value instanceof Double) {
+            return doubleLiteral((Double) value);
+        }
+        if (value instanceof ObjectId) {
+            return "new org.bson.types.ObjectId(\"" + ((ObjectId) value).toHexString() + "\")";
+        }
+        if (value instanceof Date) {
+            return "new java.util.Date(" + ((Date) value).getTime() + "L)";
+        }
+        if (value instanceof Pattern) {
+            Pattern pattern = (Pattern) value;
+            return "java.util.regex.Pattern.compile(" + literal(pattern.pattern()) + ", " + pattern.flags() + ")";
+        }
+        if (value instanceof Decimal128) {
+            return "org.bson.types.Decimal128.parse(\"" + value + "\")";
+        }
+        if (value instanceof UUID) {
+            return "java.util.UUID.fromString(\"" + value + "\")";
+        }
+        if (value instanceof BSONTimestamp) {
+            BSONTimestamp timestamp = (BSONTimestamp) value;
+            return "new org.bson.types.BSONTimestamp(" + timestamp.getTime() + ", " + timestamp.getInc() + ")";
+        }
+        if (value instanceof Code) {
+            return "new org.bson.types.Code(" + literal(((Code) value).getCode()) + ")";
+        }
+        if (value instanceof MinKey) {
+            return "new org.bson.types.MinKey()";
+        }
+        if (value instanceof MaxKey) {
+            return "new org.bson.types.MaxKey()";
+        }
+        if (value instanceof byte[]) {
+            StringBuilder bytes = new StringBuilder("new byte[]{");
+            for (byte b : (byte[]) value) {
+                bytes.append(b).append(',');
+            }
+            return bytes.append('}').toString();
+        }
+        throw new IllegalArgumentException("unsupported literal of type " + value.getClass().getName() + ", use a parameter instead");
+    }
+
+    private void writeSource(TypeElement repository, StringBuilder methods) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(repository).getQualifiedName().toString();
+        String simpleName = generatedSimpleName(repository);
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * Generated by ").append(QueryProcessor.class.getName()).append(", do not edit.\n */\n");
+        source.append("public class ").append(simpleName);
+        appendTypeParameters(source, repository.getTypeParameters());
+        source.append(" extends ").append(GeneratedQueries.class.getName())
+                .append(" implements ").append(repository.asType()).append(" {\n\n");
+        source.append("    public ").append(simpleName).append("(org.jongo.Mapper mapper) {\n")
+                .append("        super(mapper);\n    }\n");
+        source.append(methods).append("}\n");
+
+        try {
+            Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, repository).openWriter();
+            try {
+                writer.write(source.toString());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            error(repository, "Unable to generate " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+
+    private static String generatedSimpleName(TypeElement repository) {
+        StringBuilder name = new StringBuilder(repository.getSimpleName());
+        Element enclosing = repository.getEnclosingElement();
+        while (enclosing instanceof TypeElement) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.append(SUFFIX).toString();
+    }
+
+    private boolean isQuery(TypeMirror type) {
+        TypeElement query = processingEnv.getElementUtils().getTypeElement(Query.class.getName());
+        return processingEnv.getTypeUtils().isSameType(type, query.asType());
+    }
+
+    private static void appendTypeParameters(StringBuilder out, List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return;
+        }
+        out.append('<');
+        for (int i = 0; i < typeParameters.size(); i++) {
+            TypeParameterElement typeParameter = typeParameters.get(i);
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append(typeParameter.getSimpleName());
+            List<String> bounds = new ArrayList<String>();
+            for (TypeMirror bound : typeParameter.getBounds()) {
+                if (!Object.class.getName().equals(bound.toString())) {
+                    bounds.add(bound.toString());
+                }
+            }
+            if (!bounds.isEmpty()) {
+                out.append(" extends ").append(join(bounds, " & "));
+            }
+        }
+        out.append('>');
+    }
+
+    private static String join(List<String> values, String separator) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(separator);
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+
+    private static String doubleLiteral(double value) {
+        if (Double.isNaN(value)) {
+            return "Double.NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        }
+        return value + "d";
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    if (c < ' ' || c > '~') {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
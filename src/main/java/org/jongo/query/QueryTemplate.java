@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parsed query where every parameter placeholder has been located once and for all.
+ * Binding parameters copies the parsed structure and writes marshalled values into their slots,
+ * so the query string never has to be parsed again.
+ */
+class QueryTemplate {
+
+    private static final String[] ROOT = new String[0];
+
+    private final DBObject prototype;
+    private final String[][] slotPaths;
+    private final int[] slotParameters;
+
+    private QueryTemplate(DBObject prototype, String[][] slotPaths, int[] slotParameters) {
+        this.prototype = prototype;
+        this.slotPaths = slotPaths;
+        this.slotParameters = slotParameters;
+    }
+
+    static QueryTemplate compile(DBObject parsed, String placeholderKey) {
+        List<String[]> paths = new ArrayList<String[]>();
+        List<Integer> parameters = new ArrayList<Integer>();
+        collectSlots(parsed, placeholderKey, new ArrayList<String>(), paths, parameters);
+
+        int[] slotParameters = new int[parameters.size()];
+        for (int i = 0; i < slotParameters.length; i++) {
+            slotParameters[i] = parameters.get(i);
+        }
+        return new QueryTemplate(parsed, paths.toArray(new String[paths.size()][]), slotParameters);
+    }
+
+    private static void collectSlots(DBObject dbo, String placeholderKey, List<String> path, List<String[]> paths, List<Integer> parameters) {
+        if (dbo.keySet().size() == 1 && dbo.containsField(placeholderKey)) {
+            paths.add(path.isEmpty() ? ROOT : path.toArray(new String[path.size()]));
+            parameters.add((Integer) dbo.get(placeholderKey));
+            return;
+        }
+        for (String key : dbo.keySet()) {
+            Object value = dbo.get(key);
+            if (value instanceof DBObject) {
+                path.add(key);
+                collectSlots((DBObject) value, placeholderKey, path, paths, parameters);
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+
+    int getSlotCount() {
+        return slotParameters.length;
+    }
+
+    int getParameterIndex(int slot) {
+        return slotParameters[slot];
+    }
+
+    /**
+     * @param values marshalled values, one per slot and in slot order
+     * @return a fresh copy of the parsed query with values bound into their slots
+     */
+    Object bind(Object[] values) {
+        DBObject root = (DBObject) copy(prototype);
+        for (int slot = 0; slot < slotPaths.length; slot++) {
+            String[] path = slotPaths[slot];
+            if (path.length == 0) {
+                return values[slot];
+            }
+            DBObject parent = root;
+            for (int i = 0; i < path.length - 1; i++) {
+                parent = (DBObject) parent.get(path[i]);
+            }
+            parent.put(path[path.length - 1], values[slot]);
+        }
+        return root;
+    }
+
+    private static Object copy(Object value) {
+        if (value instanceof BasicDBList) {
+            BasicDBList list = (BasicDBList) value;
+            BasicDBList copy = new BasicDBList();
+            for (Object element : list) {
+                copy.add(copy(element));
+            }
+            return copy;
+        }
+        if (value instanceof BasicDBObject) {
+            BasicDBObject dbo = (BasicDBObject) value;
+            BasicDBObject copy = new BasicDBObject(dbo.size());
+            for (Map.Entry<String, Object> entry : dbo.entrySet()) {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryTemplate{" + prototype + ", slots=" + Arrays.deepToString(slotPaths) + "}";
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded and thread-safe cache of compiled query templates, keyed by query string and parameter token.
+ * Templates compiled by different kinds of query factory never collide, so a cache can be shared between them.
+ * When the cache is full, the oldest templates are evicted first.
+ */
+public class QueryTemplateCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final int maxSize;
+    private final ConcurrentMap<Key, Object> templates;
+    private final Queue<Key> insertionOrder;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public QueryTemplateCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public QueryTemplateCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Query template cache max size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.templates = new ConcurrentHashMap<Key, Object>();
+        this.insertionOrder = new ConcurrentLinkedQueue<Key>();
+    }
+
+    <T> T get(Class<T> templateType, String token, String query) {
+        Object template = templates.get(new Key(templateType, token, query));
+        if (template == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return templateType.cast(template);
+    }
+
+    <T> void put(Class<T> templateType, String token, String query, T template) {
+        if (maxSize == 0) {
+            return;
+        }
+        Key key = new Key(templateType, token, query);
+        if (templates.putIfAbsent(key, template) == null) {
+            insertionOrder.add(key);
+            evictIfNeeded();
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (templates.size() > maxSize) {
+            Key eldest = insertionOrder.poll();
+            if (eldest == null) {
+                return;
+            }
+            if (templates.remove(eldest) != null) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public void clear() {
+        templates.clear();
+        insertionOrder.clear();
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryTemplateCache{size=" + size() + ", maxSize=" + maxSize + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+    }
+
+    private static final class Key {
+        private final Class<?> templateType;
+        private final String token;
+        private final String query;
+        private final int hash;
+
+        private Key(Class<?> templateType, String token, String query) {
+            this.templateType = templateType;
+            this.token = token;
+            this.query = query;
+            this.hash = 31 * (31 * templateType.hashCode() + token.hashCode()) + query.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && query.equals(other.query) && token.equals(other.token) && templateType == other.templateType;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+import org.bson.RawBsonDocument;
+import org.jongo.bson.Bson;
+import org.jongo.marshall.Marshaller;
+
+import static org.jongo.query.QueryLexer.MARSHALL_OPERATOR;
+
+/**
+ * A {@link QueryFactory} compiling queries straight into BSON bytes, without building and encoding
+ * an intermediate {@link DBObject} tree. Marshalled parameters are copied into their slot as raw bytes.
+ * <p>
+ * Queries are exposed as read only documents: {@link Query#toDBObject()} returns a lazy {@link DBObject}
+ * and {@link Query#toBsonDocument()} a {@link RawBsonDocument}.
+ */
+public class RawBsonQueryFactory implements QueryFactory {
+
+    private static final String DEFAULT_TOKEN = "#";
+
+    private final String token;
+    private final QueryLexer lexer;
+    private final ParameterMarshaller parameterMarshaller;
+    private final QueryTemplateCache templateCache;
+    private final QueryFactory arrayQueryFactory;
+
+    private static class RawBsonQuery implements Query {
+        private final byte[] bytes;
+
+        public RawBsonQuery(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        public DBObject toDBObject() {
+            return bytes == null ? null : Bson.createDocument(bytes).toDBObject();
+        }
+
+        public org.bson.BsonDocument toBsonDocument() {
+            return bytes == null ? null : new RawBsonDocument(bytes);
+        }
+
+        @Override
+        public DBObject copyDBObject() {
+            return bytes == null ? null : new DefaultDBDecoder().decode(bytes, (DBCollection) null);
+        }
+    }
+
+    private class PreparedRawBsonQuery implements PreparedQuery {
+        private final String query;
+        private final RawQueryTemplate template;
+        private final int parameterCount;
+
+        private PreparedRawBsonQuery(String query, RawQueryTemplate template, int parameterCount) {
+            this.query = query;
+            this.template = template;
+            this.parameterCount = parameterCount;
+        }
+
+        public Query bind(Object... parameters) {
+            if (template == null) {
+                // query with inlined parameters, it has to be compiled for each binding
+                return createQuery(query, parameters);
+            }
+            if (parameters == null) {
+                parameters = new Object[]{null};
+            }
+            return new RawBsonQuery(RawBsonQueryFactory.this.bind(query, template, parameters));
+        }
+
+        public int getParameterCount() {
+            return parameterCount;
+        }
+    }
+
+    public RawBsonQueryFactory(Marshaller marshaller) {
+        this(marshaller, DEFAULT_TOKEN);
+    }
+
+    public RawBsonQueryFactory(Marshaller marshaller, String token) {
+        this(marshaller, token, new QueryTemplateCache());
+    }
+
+    public RawBsonQueryFactory(Marshaller marshaller, QueryTemplateCache templateCache) {
+        this(marshaller, DEFAULT_TOKEN, templateCache);
+    }
+
+    public RawBsonQueryFactory(Marshaller marshaller, String token, QueryTemplateCache templateCache) {
+        this.token = token;
+        this.lexer = new QueryLexer(token);
+        this.parameterMarshaller = new ParameterMarshaller(marshaller);
+        this.templateCache = templateCache;
+        this.arrayQueryFactory = new BsonQueryFactory(marshaller, token, templateCache);
+    }
+
+    public QueryTemplateCache getTemplateCache() {
+        return templateCache;
+    }
+
+    public Query createQuery(String query, Object... parameters) {
+
+        if (query == null) {
+            return new RawBsonQuery(null);
+        }
+        if (parameters == null) {
+            parameters = new Object[]{null};
+        }
+
+        RawQueryTemplate template = templateCache.get(RawQueryTemplate.class, token, query);
+        if (template != null) {
+            return new RawBsonQuery(bind(query, template, parameters));
+        }
+
+        QueryLexer.QuotedQuery quotedQuery = lexer.quote(query, parameters);
+        if (isArray(quotedQuery)) {
+            return arrayQueryFactory.createQuery(query, parameters);
+        }
+        template = compile(query, quotedQuery);
+        if (quotedQuery.isTemplate) {
+            templateCache.put(RawQueryTemplate.class, token, query, template);
+        }
+        return new RawBsonQuery(bindParams(query, template, parameters));
+    }
+
+    @Override
+    public PreparedQuery prepareQuery(String query) {
+        if (query == null) {
+            return new PreparedRawBsonQuery(null, null, 0);
+        }
+
+        QueryLexer.QuotedQuery quotedQuery = lexer.quote(query);
+        if (isArray(quotedQuery)) {
+            return arrayQueryFactory.prepareQuery(query);
+        }
+        if (!quotedQuery.isTemplate) {
+            return new PreparedRawBsonQuery(query, null, quotedQuery.parameterCount);
+        }
+        return new PreparedRawBsonQuery(query, compile(query, quotedQuery), quotedQuery.parameterCount);
+    }
+
+    private boolean isArray(QueryLexer.QuotedQuery quotedQuery) {
+        // a BSON document cannot be an array, first class arrays are left to the DBObject based factory
+        return quotedQuery.value.startsWith("[");
+    }
+
+    private RawQueryTemplate compile(String query, QueryLexer.QuotedQuery quotedQuery) {
+        try {
+            return RawQueryTemplate.compile(quotedQuery.value, MARSHALL_OPERATOR);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot parse query: " + query, e);
+        }
+    }
+
+    private byte[] bind(String query, RawQueryTemplate template, Object[] parameters) {
+        if (parameters.length < template.getSlotCount()) {
+            throw new IllegalArgumentException("Not enough parameters passed to query: " + query);
+        }
+        if (parameters.length > template.getSlotCount()) {
+            throw new IllegalArgumentException("Too many parameters passed to query: " + query);
+        }
+        return bindParams(query, template, parameters);
+    }
+
+    private byte[] bindParams(String query, RawQueryTemplate template, Object[] parameters) {
+        try {
+            Object[] values = new Object[template.getSlotCount()];
+            for (int slot = 0; slot < values.length; slot++) {
+                values[slot] = parameterMarshaller.marshallParameter(parameters[template.getParameterIndex(slot)]);
+            }
+            return template.bind(values);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot parse query: " + query, e);
+        }
+    }
+}
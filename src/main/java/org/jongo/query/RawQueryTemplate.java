@@ -0,0 +1,368 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBEncoder;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonType;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.json.JsonReader;
+import org.jongo.bson.BsonDocument;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A query compiled into BSON bytes where every parameter slot holds a null element.
+ * Binding parameters copies the bytes around each slot, writes the marshalled parameters in place
+ * and fixes the length of every enclosing document.
+ */
+class RawQueryTemplate {
+
+    private static final byte DOCUMENT_TYPE = 0x03;
+
+    private final byte[] bytes;
+    private final int[] slotOffsets;
+    private final int[] slotLengths;
+    private final int[] slotParameters;
+    private final int[] containerStarts;
+    private final int[] containerEnds;
+
+    private RawQueryTemplate(byte[] bytes, int[] slotOffsets, int[] slotLengths, int[] slotParameters, int[] containerStarts, int[] containerEnds) {
+        this.bytes = bytes;
+        this.slotOffsets = slotOffsets;
+        this.slotLengths = slotLengths;
+        this.slotParameters = slotParameters;
+        this.containerStarts = containerStarts;
+        this.containerEnds = containerEnds;
+    }
+
+    static RawQueryTemplate compile(String quotedQuery, String placeholderKey) {
+        return new Compiler(quotedQuery, placeholderKey).compile();
+    }
+
+    int getSlotCount() {
+        return slotParameters.length;
+    }
+
+    int getParameterIndex(int slot) {
+        return slotParameters[slot];
+    }
+
+    private boolean isRootSlot() {
+        return bytes == null;
+    }
+
+    /**
+     * @param values marshalled values, one per slot and in slot order
+     * @return the BSON bytes of the query with values bound into their slots
+     */
+    byte[] bind(Object[] values) {
+        if (isRootSlot()) {
+            return asDocument(values[0]);
+        }
+        if (values.length == 0) {
+            return bytes;
+        }
+
+        byte[][] elements = new byte[values.length][];
+        int[] shifts = new int[values.length + 1];
+        for (int slot = 0; slot < values.length; slot++) {
+            elements[slot] = asElement(slot, values[slot]);
+            shifts[slot + 1] = shifts[slot] + elements[slot].length - slotLengths[slot];
+        }
+
+        byte[] result = new byte[bytes.length + shifts[values.length]];
+        int from = 0;
+        int to = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            int length = slotOffsets[slot] - from;
+            System.arraycopy(bytes, from, result, to, length);
+            to += length;
+            System.arraycopy(elements[slot], 0, result, to, elements[slot].length);
+            to += elements[slot].length;
+            from = slotOffsets[slot] + slotLengths[slot];
+        }
+        System.arraycopy(bytes, from, result, to, bytes.length - from);
+
+        for (int i = 0; i < containerStarts.length; i++) {
+            int start = shift(containerStarts[i], shifts);
+            int end = shift(containerEnds[i], shifts);
+            writeInt(result, start, end - start);
+        }
+        return result;
+    }
+
+    private int shift(int position, int[] shifts) {
+        int slotsBefore = 0;
+        while (slotsBefore < slotOffsets.length && slotOffsets[slotsBefore] < position) {
+            slotsBefore++;
+        }
+        return position + shifts[slotsBefore];
+    }
+
+    private byte[] asElement(int slot, Object value) {
+        int nameOffset = slotOffsets[slot] + 1;
+        int nameLength = slotLengths[slot] - 1;
+        if (value instanceof BsonDocument) {
+            BsonDocument document = (BsonDocument) value;
+            byte[] element = new byte[1 + nameLength + document.getSize()];
+            element[0] = DOCUMENT_TYPE;
+            System.arraycopy(bytes, nameOffset, element, 1, nameLength);
+            System.arraycopy(document.toByteArray(), 0, element, 1 + nameLength, document.getSize());
+            return element;
+        }
+        String name = new String(bytes, nameOffset, nameLength - 1, StandardCharsets.UTF_8);
+        byte[] document = encode(new BasicDBObject(name, value));
+        byte[] element = new byte[document.length - 5];
+        System.arraycopy(document, 4, element, 0, element.length);
+        return element;
+    }
+
+    private static byte[] asDocument(Object value) {
+        if (value instanceof BsonDocument) {
+            BsonDocument document = (BsonDocument) value;
+            byte[] result = new byte[document.getSize()];
+            System.arraycopy(document.toByteArray(), 0, result, 0, result.length);
+            return result;
+        }
+        if (value instanceof DBObject) {
+            return encode((DBObject) value);
+        }
+        throw new IllegalArgumentException("A query parameter used as a whole query must be a document: " + value);
+    }
+
+    private static byte[] encode(DBObject dbo) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        DefaultDBEncoder.FACTORY.create().writeObject(buffer, dbo);
+        return buffer.toByteArray();
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >> 8);
+        bytes[offset + 2] = (byte) (value >> 16);
+        bytes[offset + 3] = (byte) (value >> 24);
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Copies a quoted query from the driver's JSON reader into a BSON writer, replacing placeholders by null elements.
+     */
+    private static class Compiler {
+
+        private final JsonReader reader;
+        private final BasicOutputBuffer output;
+        private final BsonBinaryWriter writer;
+        private final String placeholderKey;
+
+        private final List<Integer> slotOffsets = new ArrayList<Integer>();
+        private final List<Integer> slotLengths = new ArrayList<Integer>();
+        private final List<Integer> slotParameters = new ArrayList<Integer>();
+        private final List<Integer> containerStarts = new ArrayList<Integer>();
+        private final List<Integer> containerEnds = new ArrayList<Integer>();
+        private final Deque<Integer> openContainers = new ArrayDeque<Integer>();
+
+        private Compiler(String quotedQuery, String placeholderKey) {
+            this.reader = new JsonReader(quotedQuery);
+            this.output = new BasicOutputBuffer();
+            this.writer = new BsonBinaryWriter(output);
+            this.placeholderKey = placeholderKey;
+        }
+
+        RawQueryTemplate compile() {
+            try {
+                reader.readStartDocument();
+                BsonType type = reader.readBsonType();
+                String name = type == BsonType.END_OF_DOCUMENT ? null : reader.readName();
+                if (placeholderKey.equals(name)) {
+                    int parameter = reader.readInt32();
+                    reader.readEndDocument();
+                    return new RawQueryTemplate(null, new int[]{0}, new int[]{0}, new int[]{parameter}, new int[0], new int[0]);
+                }
+                copyDocumentContent(type, name);
+
+                return new RawQueryTemplate(output.toByteArray(), toArray(slotOffsets), toArray(slotLengths), toArray(slotParameters),
+                        toArray(containerStarts), toArray(containerEnds));
+            } finally {
+                writer.close();
+                reader.close();
+            }
+        }
+
+        private void copyDocumentElements() {
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                writer.writeName(reader.readName());
+                copyValue(reader.getCurrentBsonType());
+            }
+            reader.readEndDocument();
+        }
+
+        private void copyDocument() {
+            reader.readStartDocument();
+            BsonType type = reader.readBsonType();
+            String name = type == BsonType.END_OF_DOCUMENT ? null : reader.readName();
+            if (placeholderKey.equals(name)) {
+                addSlot(reader.readInt32());
+                reader.readEndDocument();
+                return;
+            }
+            copyDocumentContent(type, name);
+        }
+
+        private void copyDocumentContent(BsonType firstType, String firstName) {
+            startContainer(false);
+            if (firstName == null) {
+                reader.readEndDocument();
+            } else {
+                writer.writeName(firstName);
+                copyValue(firstType);
+                copyDocumentElements();
+            }
+            endContainer(false);
+        }
+
+        private void copyArray() {
+            reader.readStartArray();
+            startContainer(true);
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                copyValue(reader.getCurrentBsonType());
+            }
+            reader.readEndArray();
+            endContainer(true);
+        }
+
+        private void addSlot(int parameter) {
+            int offset = output.getPosition();
+            writer.writeNull();
+            slotOffsets.add(offset);
+            slotLengths.add(output.getPosition() - offset);
+            slotParameters.add(parameter);
+        }
+
+        private void startContainer(boolean array) {
+            if (array) {
+                writer.writeStartArray();
+            } else {
+                writer.writeStartDocument();
+            }
+            openContainers.push(containerStarts.size());
+            containerStarts.add(output.getPosition() - 4);
+            containerEnds.add(-1);
+        }
+
+        private void endContainer(boolean array) {
+            if (array) {
+                writer.writeEndArray();
+            } else {
+                writer.writeEndDocument();
+            }
+            containerEnds.set(openContainers.pop(), output.getPosition());
+        }
+
+        private void copyValue(BsonType type) {
+            switch (type) {
+                case DOCUMENT:
+                    copyDocument();
+                    break;
+                case ARRAY:
+                    copyArray();
+                    break;
+                case DOUBLE:
+                    writer.writeDouble(reader.readDouble());
+                    break;
+                case STRING:
+                    writer.writeString(reader.readString());
+                    break;
+                case BINARY:
+                    writer.writeBinaryData(reader.readBinaryData());
+                    break;
+                case UNDEFINED:
+                    reader.readUndefined();
+                    writer.writeUndefined();
+                    break;
+                case OBJECT_ID:
+                    writer.writeObjectId(reader.readObjectId());
+                    break;
+                case BOOLEAN:
+                    writer.writeBoolean(reader.readBoolean());
+                    break;
+                case DATE_TIME:
+                    writer.writeDateTime(reader.readDateTime());
+                    break;
+                case NULL:
+                    reader.readNull();
+                    writer.writeNull();
+                    break;
+                case REGULAR_EXPRESSION:
+                    writer.writeRegularExpression(reader.readRegularExpression());
+                    break;
+                case DB_POINTER:
+                    writer.writeDBPointer(reader.readDBPointer());
+                    break;
+                case JAVASCRIPT:
+                    writer.writeJavaScript(reader.readJavaScript());
+                    break;
+                case SYMBOL:
+                    writer.writeSymbol(reader.readSymbol());
+                    break;
+                case JAVASCRIPT_WITH_SCOPE:
+                    writer.writeJavaScriptWithScope(reader.readJavaScriptWithScope());
+                    BsonDocumentCodec codec = new BsonDocumentCodec();
+                    codec.encode(writer, codec.decode(reader, DecoderContext.builder().build()), EncoderContext.builder().build());
+                    break;
+                case INT32:
+                    writer.writeInt32(reader.readInt32());
+                    break;
+                case TIMESTAMP:
+                    writer.writeTimestamp(reader.readTimestamp());
+                    break;
+                case INT64:
+                    writer.writeInt64(reader.readInt64());
+                    break;
+                case DECIMAL128:
+                    writer.writeDecimal128(reader.readDecimal128());
+                    break;
+                case MIN_KEY:
+                    reader.readMinKey();
+                    writer.writeMinKey();
+                    break;
+                case MAX_KEY:
+                    reader.readMaxKey();
+                    writer.writeMaxKey();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported BSON type in query: " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import org.jongo.marshall.Marshaller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds update modifiers without writing nor parsing any query string. Values are marshalled once,
+ * when the modifier is created, with the same rules as query parameters.
+ * <pre>
+ * Updates updates = new Updates(jongo.getMapper().getMarshaller());
+ * collection.update(filters.eq("name", "John")).with(updates.combine(updates.set("address", address), updates.inc("visits", 1)));
+ * </pre>
+ */
+public class Updates {
+
+    private final ParameterMarshaller parameterMarshaller;
+
+    public Updates(Marshaller marshaller) {
+        this.parameterMarshaller = new ParameterMarshaller(marshaller);
+    }
+
+    public Modifier set(String name, Object value) {
+        return modifier("$set", name, value);
+    }
+
+    public Modifier setOnInsert(String name, Object value) {
+        return modifier("$setOnInsert", name, value);
+    }
+
+    public Modifier unset(String name) {
+        return Modifier.of("$unset", name, "");
+    }
+
+    public Modifier inc(String name, Number value) {
+        return Modifier.of("$inc", name, value);
+    }
+
+    public Modifier push(String name, Object value) {
+        return modifier("$push", name, value);
+    }
+
+    public Modifier addToSet(String name, Object value) {
+        return modifier("$addToSet", name, value);
+    }
+
+    public Modifier pull(String name, Object value) {
+        return modifier("$pull", name, value);
+    }
+
+    public Modifier combine(Modifier... modifiers) {
+        List<Modifier.Operation> operations = new ArrayList<Modifier.Operation>();
+        for (Modifier modifier : modifiers) {
+            operations.addAll(modifier.getOperations());
+        }
+        return new Modifier(Collections.unmodifiableList(operations));
+    }
+
+    private Modifier modifier(String operator, String name, Object value) {
+        return Modifier.of(operator, name, parameterMarshaller.marshallParameter(value));
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkUpdateRequestBuilder;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteRequestBuilder;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.BulkWriteUpsert;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import org.bson.types.ObjectId;
+import org.jongo.marshall.jackson.JacksonMapper;
+import org.jongo.model.Coordinate;
+import org.jongo.model.Friend;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class BulkTest {
+
+    private final DBCollection dbCollection = mock(DBCollection.class);
+    private final List<BulkWriteOperation> operations = new ArrayList<BulkWriteOperation>();
+    private final List<BulkWriteRequestBuilder> finds = new ArrayList<BulkWriteRequestBuilder>();
+    private final List<BulkUpdateRequestBuilder> upserts = new ArrayList<BulkUpdateRequestBuilder>();
+    private final Map<Integer, BulkWriteResult> results = new HashMap<Integer, BulkWriteResult>();
+    private final Map<Integer, BulkWriteException> failures = new HashMap<Integer, BulkWriteException>();
+    private MongoCollection collection;
+
+    @Before
+    public void setUp() throws Exception {
+        when(dbCollection.getName()).thenReturn("friends");
+        when(dbCollection.getWriteConcern()).thenReturn(WriteConcern.ACKNOWLEDGED);
+        when(dbCollection.initializeOrderedBulkOperation()).thenAnswer(invocation -> newOperation());
+        when(dbCollection.initializeUnorderedBulkOperation()).thenAnswer(invocation -> newOperation());
+        collection = new MongoCollection(dbCollection, new JacksonMapper.Builder().build());
+    }
+
+    @Test
+    public void canInsertInOneBatch() throws Exception {
+
+        Friend john = new Friend("John");
+        Friend peter = new Friend("Peter");
+
+        BulkResult result = collection.bulk(true).insert(john, peter).execute();
+
+        assertThat(operations).hasSize(1);
+        verify(operations.get(0), times(2)).insert(any(DBObject.class));
+        assertThat(result.getInsertedCount()).isEqualTo(2);
+        assertThat(result.getExecutedBatches()).isEqualTo(1);
+        assertThat(result.hasErrors()).isFalse();
+        assertThat(john.getId()).isNotNull();
+        assertThat(peter.getId()).isNotNull();
+    }
+
+    @Test
+    public void shouldSplitBatchesByCount() throws Exception {
+
+        BulkResult result = collection.bulk(true)
+                .withMaxBatchCount(2)
+                .insert(new Friend("John"), new Friend("Peter"), new Friend("Robert"), new Friend("Mary"), new Friend("Paul"))
+                .execute();
+
+        assertThat(operations).hasSize(3);
+        verify(operations.get(0), times(2)).insert(any(DBObject.class));
+        verify(operations.get(1), times(2)).insert(any(DBObject.class));
+        verify(operations.get(2), times(1)).insert(any(DBObject.class));
+        assertThat(result.getExecutedBatches()).isEqualTo(3);
+        assertThat(result.getInsertedCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldSplitBatchesBySize() throws Exception {
+
+        BulkResult result = collection.bulk(false)
+                .withMaxBatchBytes(1)
+                .insert(new Friend("John"), new Friend("Peter"), new Friend("Robert"))
+                .execute();
+
+        assertThat(operations).hasSize(3);
+        assertThat(result.getExecutedBatches()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldSplitUpdatesAndRemovesBySize() throws Exception {
+
+        BulkResult result = collection.bulk(true)
+                .withMaxBatchBytes(1)
+                .update("{name:'John'}").with("{$set:{age:18}}")
+                .update("{name:'Peter'}").with(new Friend("Peter"))
+                .remove("{name:'Robert'}")
+                .execute();
+
+        assertThat(operations).hasSize(3);
+        assertThat(result.getExecutedBatches()).isEqualTo(3);
+    }
+
+    @Test
+    public void orderedBulkShouldStopAtFirstFailingBatch() throws Exception {
+
+        Bulk bulk = collection.bulk(true).withMaxBatchCount(2)
+                .insert(new Friend("John"), new Friend("Peter"), new Friend("Robert"), new Friend("Mary"), new Friend("Paul"));
+        failBatch(1, 1);
+
+        BulkResult result = bulk.execute();
+
+        assertThat(result.getExecutedBatches()).isEqualTo(2);
+        assertThat(result.getErrors()).hasSize(1);
+        assertThat(result.getErrors().get(0).getIndex()).isEqualTo(3);
+        verify(operations.get(2), never()).execute(any(WriteConcern.class));
+    }
+
+    @Test
+    public void unorderedBulkShouldSendAllBatches() throws Exception {
+
+        Bulk bulk = collection.bulk(false).withMaxBatchCount(2)
+                .insert(new Friend("John"), new Friend("Peter"), new Friend("Robert"), new Friend("Mary"), new Friend("Paul"));
+        failBatch(0, 0);
+
+        BulkResult result = bulk.execute();
+
+        assertThat(result.getExecutedBatches()).isEqualTo(3);
+        assertThat(result.getErrors()).hasSize(1);
+        assertThat(result.getErrors().get(0).getIndex()).isEqualTo(0);
+        assertThat(result.getInsertedCount()).isEqualTo(4);
+        verify(operations.get(2)).execute(WriteConcern.ACKNOWLEDGED);
+    }
+
+    @Test
+    public void canSave() throws Exception {
+
+        ObjectId id = ObjectId.get();
+        Friend friend = new Friend(id, "John");
+
+        collection.bulk(true).save(friend).save(new Coordinate(1, 2)).execute();
+
+        BulkWriteOperation operation = operations.get(0);
+        verify(operation).find(new BasicDBObject("_id", id));
+        verify(upserts.get(0)).replaceOne(any(DBObject.class));
+        verify(operation).insert(any(DBObject.class));
+    }
+
+    @Test
+    public void canUpdateUpsertAndRemove() throws Exception {
+
+        collection.bulk(true)
+                .update("{name:#}", "John").with("{$set:{address:#}}", "22 rue des murlins")
+                .update("{name:'Peter'}").multi().with("{$inc:{age:1}}")
+                .update("{name:'Robert'}").upsert().with(new Friend("Robert", "Paris"))
+                .remove("{name:#}", "Mary")
+                .execute();
+
+        BulkWriteOperation operation = operations.get(0);
+        ArgumentCaptor<DBObject> queries = ArgumentCaptor.forClass(DBObject.class);
+        verify(operation, times(4)).find(queries.capture());
+        assertThat(queries.getAllValues().get(0).get("name")).isEqualTo("John");
+        assertThat(queries.getAllValues().get(3).get("name")).isEqualTo("Mary");
+        verify(finds.get(0)).updateOne(new BasicDBObject("$set", new BasicDBObject("address", "22 rue des murlins")));
+        verify(finds.get(1)).update(new BasicDBObject("$inc", new BasicDBObject("age", 1)));
+        ArgumentCaptor<DBObject> upsert = ArgumentCaptor.forClass(DBObject.class);
+        verify(upserts.get(2)).updateOne(upsert.capture());
+        DBObject set = (DBObject) upsert.getValue().get("$set");
+        assertThat(set.get("name")).isEqualTo("Robert");
+        assertThat(set.containsField("_id")).isFalse();
+        verify(finds.get(3)).remove();
+    }
+
+    @Test
+    public void shouldReindexUpserts() throws Exception {
+
+        Bulk bulk = collection.bulk(true).withMaxBatchCount(1)
+                .update("{name:'John'}").upsert().with("{$set:{age:1}}")
+                .update("{name:'Peter'}").upsert().with("{$set:{age:2}}");
+        BulkWriteResult upserted = acknowledged(0);
+        when(upserted.getUpserts()).thenReturn(Collections.singletonList(new BulkWriteUpsert(0, "id")));
+        results.put(1, upserted);
+
+        BulkResult result = bulk.execute();
+
+        assertThat(result.getUpserts()).containsExactly(new BulkWriteUpsert(1, "id"));
+    }
+
+    @Test
+    public void shouldCompleteBatchInFlightWhenMarshallingFails() throws Exception {
+
+        Bulk bulk = collection.bulk(true).withMaxBatchCount(2)
+                .insert(new Friend("John"), new Friend("Peter"), new Unmarshallable(), new Friend("Mary"));
+
+        try {
+            bulk.execute();
+            fail("marshalling failure should have been reported");
+        } catch (BulkException e) {
+            assertThat(e.getIndex()).isEqualTo(2);
+            assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+            assertThat(e.getPartialResult().getExecutedBatches()).isEqualTo(1);
+            assertThat(e.getPartialResult().getInsertedCount()).isEqualTo(2);
+        }
+        verify(operations.get(0)).execute(WriteConcern.ACKNOWLEDGED);
+        verify(operations.get(1), never()).execute(any(WriteConcern.class));
+    }
+
+    @Test
+    public void canExecuteEmptyBulk() throws Exception {
+
+        BulkResult result = collection.bulk(true).execute();
+
+        assertThat(operations).isEmpty();
+        assertThat(result.getExecutedBatches()).isEqualTo(0);
+        assertThat(result.isAcknowledged()).isTrue();
+    }
+
+    private static class Unmarshallable {
+        @JsonProperty("name")
+        public String getName() {
+            throw new IllegalStateException("cannot be marshalled");
+        }
+    }
+
+    private BulkWriteOperation newOperation() {
+        BulkWriteOperation operation = mock(BulkWriteOperation.class);
+        when(operation.find(any(DBObject.class))).thenAnswer(invocation -> {
+            BulkWriteRequestBuilder find = mock(BulkWriteRequestBuilder.class);
+            BulkUpdateRequestBuilder upsert = mock(BulkUpdateRequestBuilder.class);
+            when(find.upsert()).thenReturn(upsert);
+            finds.add(find);
+            upserts.add(upsert);
+            return find;
+        });
+        int batch = operations.size();
+        if (failures.containsKey(batch)) {
+            when(operation.execute(any(WriteConcern.class))).thenThrow(failures.get(batch));
+        } else {
+            BulkWriteResult result = results.containsKey(batch) ? results.get(batch) : acknowledged(batch < 2 ? 2 : 1);
+            when(operation.execute(any(WriteConcern.class))).thenReturn(result);
+        }
+        operations.add(operation);
+        return operation;
+    }
+
+    private BulkWriteResult acknowledged(int insertedCount) {
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        when(result.isAcknowledged()).thenReturn(true);
+        when(result.getInsertedCount()).thenReturn(insertedCount);
+        return result;
+    }
+
+    private void failBatch(int batch, int errorIndex) {
+        BulkWriteResult result = acknowledged(1);
+        BulkWriteException exception = mock(BulkWriteException.class);
+        when(exception.getWriteResult()).thenReturn(result);
+        when(exception.getWriteErrors()).thenReturn(asList(new BulkWriteError(11000, "duplicate key", new BasicDBObject(), errorIndex)));
+        failures.put(batch, exception);
+    }
+}
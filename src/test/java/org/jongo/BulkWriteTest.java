@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import org.jongo.model.Coordinate;
+import org.jongo.model.Friend;
+import org.jongo.util.JongoTestBase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jongo.marshall.jackson.JacksonMapper.Builder.jacksonMapper;
+
+public class BulkWriteTest extends JongoTestBase {
+
+    private MongoCollection collection;
+
+    @Before
+    public void setUp() throws Exception {
+        collection = createEmptyCollection("friends");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dropCollection("friends");
+    }
+
+    @Test
+    public void canBulkWrite() throws Exception {
+
+        assertThatBulkWritesAreStored();
+    }
+
+    @Test
+    public void canBulkWriteStreamedDocuments() throws Exception {
+
+        configure(jacksonMapper().withStreamedWrites().build());
+        collection = createEmptyCollection("friends");
+
+        assertThatBulkWritesAreStored();
+    }
+
+    @Test
+    public void canBulkWriteDocumentsWithObjectIdsGeneratedOnWrite() throws Exception {
+
+        configure(jacksonMapper().withObjectIdsGeneratedOnWrite().build());
+        collection = createEmptyCollection("friends");
+
+        assertThatBulkWritesAreStored();
+    }
+
+    @Test
+    public void canSplitBulkIntoBatches() throws Exception {
+
+        BulkResult result = collection.bulk(true)
+                .withMaxBatchCount(2)
+                .insert(new Friend("John"), new Friend("Peter"), new Friend("Robert"))
+                .update("{name:'John'}").with("{$set:{address:'22 Wall Street Avenue'}}")
+                .remove("{name:'Robert'}")
+                .execute();
+
+        assertThat(result.getExecutedBatches()).isEqualTo(3);
+        assertThat(result.getInsertedCount()).isEqualTo(3);
+        assertThat(result.getModifiedCount()).isEqualTo(1);
+        assertThat(result.getRemovedCount()).isEqualTo(1);
+        assertThat(collection.count()).isEqualTo(2);
+        assertThat(collection.findOne("{name:'John'}").as(Friend.class).getAddress()).isEqualTo("22 Wall Street Avenue");
+    }
+
+    private void assertThatBulkWritesAreStored() {
+        Friend john = new Friend("John", "22 Wall Street Avenue", new Coordinate(1, 2));
+        Friend peter = new Friend("Peter");
+        collection.insert(peter);
+        peter.setAddress("21 Jump Street");
+
+        BulkResult result = collection.bulk(true)
+                .insert(john)
+                .save(peter)
+                .save(new Friend("Mary"))
+                .execute();
+
+        assertThat(result.hasErrors()).isFalse();
+        assertThat(collection.count()).isEqualTo(3);
+        Friend storedJohn = collection.findOne(john.getId()).as(Friend.class);
+        assertThat(storedJohn.getName()).isEqualTo("John");
+        assertThat(storedJohn.getAddress()).isEqualTo("22 Wall Street Avenue");
+        assertThat(storedJohn.getCoordinate().lat).isEqualTo(1);
+        assertThat(collection.findOne(peter.getId()).as(Friend.class).getAddress()).isEqualTo("21 Jump Street");
+        assertThat(collection.count("{name:'Peter'}")).isEqualTo(1);
+        assertThat(collection.count("{name:'Mary'}")).isEqualTo(1);
+    }
+}
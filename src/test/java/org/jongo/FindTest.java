@@ -22,6 +22,7 @@ import org.jongo.marshall.MarshallingException;
 import org.jongo.model.Coordinate;
 import org.jongo.model.ExposableFriend;
 import org.jongo.model.Friend;
+import org.jongo.query.Filters;
 import org.jongo.util.ErrorObject;
 import org.jongo.util.JongoTestBase;
 import org.junit.After;
@@ -63,6 +64,21 @@ public class FindTest extends JongoTestBase {
         assertThat(friends.hasNext()).isFalse();
     }
 
+    @Test
+    public void canFindWithTypedFilter() throws Exception {
+        /* given */
+        Filters filters = new Filters(getMapper().getMarshaller());
+        collection.save(new Friend(new ObjectId(), "John"));
+        collection.save(new Friend(new ObjectId(), "Peter"));
+
+        /* when */
+        Iterator<Friend> friends = collection.find(filters.eq("name", "John")).as(Friend.class);
+
+        /* then */
+        assertThat(friends.next().getName()).isEqualTo("John");
+        assertThat(friends.hasNext()).isFalse();
+    }
+
     @Test
     public void canFindAndCount() throws Exception {
 
@@ -157,6 +173,28 @@ public class FindTest extends JongoTestBase {
         assertThat(friends.hasNext()).isFalse();
     }
 
+    @Test
+    public void canFindAsView() throws Exception {
+        /* given */
+        Friend friend = new Friend("John", new Coordinate(1, 2));
+        collection.save(friend);
+
+        /* when */
+        Iterator<FriendView> friends = collection.find("{name:'John'}").asView(FriendView.class);
+
+        /* then */
+        FriendView john = friends.next();
+        assertThat(john.getName()).isEqualTo("John");
+        assertThat(john.getCoordinate()).isEqualTo(new Coordinate(1, 2));
+        assertThat(friends.hasNext()).isFalse();
+    }
+
+    public interface FriendView {
+        String getName();
+
+        Coordinate getCoordinate();
+    }
+
     @Test
     public void canFindWithReadPreference() throws Exception {
         /* given */
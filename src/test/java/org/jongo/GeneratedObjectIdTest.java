@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import org.bson.BSONObject;
+import org.bson.types.ObjectId;
+import org.jongo.marshall.jackson.JacksonMapper;
+import org.jongo.model.Coordinate;
+import org.jongo.model.ExposableFriend;
+import org.jongo.model.ExternalFriend;
+import org.jongo.model.Friend;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class GeneratedObjectIdTest {
+
+    @SuppressWarnings("unchecked")
+    private final ArgumentCaptor<List<DBObject>> listCaptor = ArgumentCaptor.forClass((Class) List.class);
+    private final ArgumentCaptor<DBObject> captor = ArgumentCaptor.forClass(DBObject.class);
+    private final DBCollection collection = mock(DBCollection.class);
+    private final ObjectIdUpdater objectIdUpdater = mock(ObjectIdUpdater.class);
+
+    @Test
+    public void shouldGenerateObjectIdWhileMarshallingInsertedPojo() throws Exception {
+
+        Mapper mapper = new JacksonMapper.Builder().withObjectIdsGeneratedOnWrite().build();
+        Friend friend = new Friend("John");
+
+        insert(mapper).insert(friend);
+
+        verify(collection).insert(listCaptor.capture(), eq(WriteConcern.ACKNOWLEDGED));
+        DBObject dbo = listCaptor.getValue().get(0);
+        assertThat(friend.getId()).isNotNull();
+        assertThat(dbo.get("_id")).isEqualTo(friend.getId());
+        assertThat(dbo.get("name")).isEqualTo("John");
+        verifyZeroInteractions(objectIdUpdater);
+    }
+
+    @Test
+    public void shouldGenerateObjectIdIntoPooledBuffers() throws Exception {
+
+        Mapper mapper = new JacksonMapper.Builder().withObjectIdsGeneratedOnWrite().withPooledBuffers().build();
+        Friend friend = new Friend("John");
+
+        insert(mapper).save(friend);
+
+        verify(collection).save(captor.capture(), eq(WriteConcern.ACKNOWLEDGED));
+        assertThat(friend.getId()).isNotNull();
+        assertThat(captor.getValue().get("_id")).isEqualTo(friend.getId());
+    }
+
+    @Test
+    public void shouldGenerateObjectIdMappedAsString() throws Exception {
+
+        Mapper mapper = new JacksonMapper.Builder().withObjectIdsGeneratedOnWrite().build();
+        ExposableFriend friend = new ExposableFriend(null, "John");
+
+        insert(mapper).save(friend);
+
+        verify(collection).save(captor.capture(), eq(WriteConcern.ACKNOWLEDGED));
+        assertThat(friend.getId()).isNotNull();
+        assertThat(captor.getValue().get("_id")).isEqualTo(new ObjectId(friend.getId()));
+    }
+
+    @Test
+    public void shouldKeepExistingIds() throws Exception {
+
+        Mapper mapper = new JacksonMapper.Builder().withObjectIdsGeneratedOnWrite().build();
+        ObjectId id = ObjectId.get();
+        Friend friend = new Friend(id, "John");
+        ExternalFriend external = new ExternalFriend("external", "Robert");
+
+        insert(mapper).insert(friend, external);
+
+        verify(collection).insert(listCaptor.capture(), eq(WriteConcern.ACKNOWLEDGED));
+        assertThat(friend.getId()).isEqualTo(id);
+        assertThat(listCaptor.getValue().get(0).get("_id")).isEqualTo(id);
+        assertThat(listCaptor.getValue().get(1).get("_id")).isEqualTo("external");
+    }
+
+    @Test
+    public void shouldReadNonPrimitiveIdFromDocument() throws Exception {
+
+        Mapper mapper = new JacksonMapper.Builder().withObjectIdsGeneratedOnWrite().build();
+        CoordinateId pojo = new CoordinateId();
+        pojo._id = new Coordinate(1, 2);
+
+        insert(mapper).save(pojo);
+
+        verify(collection).save(captor.capture(), eq(WriteConcern.ACKNOWLEDGED));
+        DBObject id = (DBObject) captor.getValue().get("_id");
+        assertThat(id.get("lat")).isEqualTo(1);
+        assertThat(id.get("lng")).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldOnlyGenerateObjectIdOfInsertedPojo() throws Exception {
+
+        Mapper mapper = new JacksonMapper.Builder().withObjectIdsGeneratedOnWrite().build();
+        Parent parent = new Parent();
+        parent.child = new Friend("John");
+
+        insert(mapper).save(parent);
+
+        verify(collection).save(captor.capture(), eq(WriteConcern.ACKNOWLEDGED));
+        assertThat(parent._id).isNotNull();
+        assertThat(captor.getValue().get("_id")).isEqualTo(parent._id);
+        assertThat(parent.child.getId()).isNull();
+        assertThat(((BSONObject) captor.getValue().get("child")).containsField("_id")).isFalse();
+    }
+
+    @Test
+    public void shouldLeaveIdToDriverWhenPojoHasNone() throws Exception {
+
+        Mapper mapper = new JacksonMapper.Builder().withObjectIdsGeneratedOnWrite().build();
+
+        insert(mapper).save(new Coordinate(1, 2));
+
+        verify(collection).save(captor.capture(), eq(WriteConcern.ACKNOWLEDGED));
+        assertThat(captor.getValue().get("_id")).isNull();
+    }
+
+    @Test
+    public void shouldNotGenerateObjectIdWhenMarshallingQueryParameter() throws Exception {
+
+        Mapper mapper = new JacksonMapper.Builder().withObjectIdsGeneratedOnWrite().build();
+        Friend friend = new Friend("John");
+
+        mapper.getQueryFactory().createQuery("{friend:#}", friend).toDBObject();
+        Map<?, ?> document = mapper.getMarshaller().marshall(friend).toDBObject().toMap();
+
+        assertThat(friend.getId()).isNull();
+        assertThat(document.containsKey("_id")).isFalse();
+    }
+
+    @Test
+    public void shouldPrepareStreamedWritesUpFront() throws Exception {
+
+        Mapper mapper = new JacksonMapper.Builder().withObjectIdsGeneratedOnWrite().withStreamedWrites().build();
+        Friend friend = new Friend("John");
+        when(objectIdUpdater.mustGenerateObjectId(friend)).thenReturn(true);
+
+        insert(mapper).save(friend);
+
+        verify(objectIdUpdater).setObjectId(eq(friend), any(ObjectId.class));
+    }
+
+    private Insert insert(Mapper mapper) {
+        return new Insert(collection, WriteConcern.ACKNOWLEDGED, mapper.getMarshaller(), objectIdUpdater, mapper.getQueryFactory());
+    }
+
+    private static class Parent {
+        private ObjectId _id;
+        private Friend child;
+    }
+
+    private static class CoordinateId {
+        private Coordinate _id;
+    }
+}
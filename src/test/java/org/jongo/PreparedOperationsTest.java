@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import org.jongo.model.Friend;
+import org.jongo.util.JongoTestBase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PreparedOperationsTest extends JongoTestBase {
+
+    private MongoCollection collection;
+
+    @Before
+    public void setUp() throws Exception {
+        collection = createEmptyCollection("friends");
+        collection.save(new Friend("John", "22 Wall Street Avenue"));
+        collection.save(new Friend("Peter", "22 Wall Street Avenue"));
+        collection.save(new Friend("Robert", "21 Jump Street"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dropCollection("friends");
+    }
+
+    @Test
+    public void canBindPreparedFindManyTimes() throws Exception {
+        /* given */
+        PreparedFind find = collection.prepareFind("{name:#}");
+
+        /* when */
+        Friend john = find.bind("John").as(Friend.class).next();
+        Friend peter = find.bind("Peter").as(Friend.class).next();
+
+        /* then */
+        assertThat(john.getName()).isEqualTo("John");
+        assertThat(peter.getName()).isEqualTo("Peter");
+    }
+
+    @Test
+    public void canBindPreparedFindWithModifiers() throws Exception {
+        /* given */
+        PreparedFind find = collection.prepareFind("{address:#}").projection("{name:1}").sort("{name:-1}").skip(1).limit(1);
+
+        /* when */
+        List<Friend> friends = toList(find.bind("22 Wall Street Avenue").as(Friend.class));
+
+        /* then */
+        assertThat(friends).hasSize(1);
+        assertThat(friends.get(0).getName()).isEqualTo("John");
+        assertThat(friends.get(0).getAddress()).isNull();
+    }
+
+    @Test
+    public void preparedFindModifiersDoNotChangeOriginal() throws Exception {
+        /* given */
+        PreparedFind find = collection.prepareFind("{address:#}");
+
+        /* when */
+        find.limit(1);
+
+        /* then */
+        assertThat(toList(find.bind("22 Wall Street Avenue").as(Friend.class))).hasSize(2);
+    }
+
+    @Test
+    public void canBindPreparedCount() throws Exception {
+
+        PreparedCount count = collection.prepareCount("{address:#}");
+
+        assertThat(count.bind("22 Wall Street Avenue")).isEqualTo(2);
+        assertThat(count.bind("21 Jump Street")).isEqualTo(1);
+    }
+
+    @Test
+    public void canBindPreparedUpdate() throws Exception {
+        /* given */
+        PreparedUpdate update = collection.prepareUpdate("{name:#}", "{$set:{address:#}}");
+
+        /* when */
+        update.bind("John", "1 Infinite Loop");
+
+        /* then */
+        assertThat(collection.findOne("{name:'John'}").as(Friend.class).getAddress()).isEqualTo("1 Infinite Loop");
+        assertThat(collection.findOne("{name:'Peter'}").as(Friend.class).getAddress()).isEqualTo("22 Wall Street Avenue");
+    }
+
+    @Test
+    public void canBindPreparedMultiUpdate() throws Exception {
+
+        collection.prepareUpdate("{address:#}", "{$set:{address:#}}").multi().bind("22 Wall Street Avenue", "1 Infinite Loop");
+
+        assertThat(collection.count("{address:'1 Infinite Loop'}")).isEqualTo(2);
+    }
+
+    @Test
+    public void canBindPreparedUpsert() throws Exception {
+
+        collection.prepareUpdate("{name:#}", "{$set:{address:#}}").upsert().bind("Mary", "1 Infinite Loop");
+
+        assertThat(collection.count("{name:'Mary'}")).isEqualTo(1);
+    }
+
+    @Test
+    public void canBindPreparedRemove() throws Exception {
+
+        PreparedRemove remove = collection.prepareRemove("{name:#}");
+
+        remove.bind("John");
+        remove.bind("Peter");
+
+        assertThat(collection.count()).isEqualTo(1);
+    }
+
+    private static <T> List<T> toList(Iterable<T> iterable) {
+        List<T> list = new ArrayList<T>();
+        for (T item : iterable) {
+            list.add(item);
+        }
+        return list;
+    }
+}
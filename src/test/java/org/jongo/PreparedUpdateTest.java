@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.query.BsonQueryFactory;
+import org.jongo.query.QueryFactory;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+public class PreparedUpdateTest {
+
+    private final DBCollection collection = mock(DBCollection.class);
+    private final QueryFactory delegate = new BsonQueryFactory(new JacksonEngine(Mapping.defaultMapping()));
+    // keeps the default prepareQuery, which cannot count parameters
+    private final QueryFactory customFactory = (query, parameters) -> delegate.createQuery(query, parameters);
+
+    @Test
+    public void canBindWithoutParametersWhenQueryFactoryCannotCountThem() throws Exception {
+
+        PreparedUpdate update = new PreparedUpdate(collection, WriteConcern.ACKNOWLEDGED,
+                customFactory.prepareQuery("{name:'John'}"), customFactory.prepareQuery("{$set:{age:1}}"));
+
+        update.bind();
+
+        verify(collection).update(new BasicDBObject("name", "John"), new BasicDBObject("$set", new BasicDBObject("age", 1)),
+                false, false, WriteConcern.ACKNOWLEDGED);
+    }
+
+    @Test
+    public void shouldRejectParametersWhenQueryFactoryCannotSplitThem() throws Exception {
+
+        PreparedUpdate update = new PreparedUpdate(collection, WriteConcern.ACKNOWLEDGED,
+                customFactory.prepareQuery("{name:#}"), customFactory.prepareQuery("{$set:{age:#}}"));
+
+        try {
+            update.bind("John", 1);
+            fail("parameters cannot be split");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("Unable to split parameters");
+        }
+        verify(collection, never()).update(any(DBObject.class), any(DBObject.class), anyBoolean(), anyBoolean(), any(WriteConcern.class));
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import org.jongo.marshall.jackson.JacksonMapper;
+import org.jongo.model.Friend;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class StreamingInsertTest {
+
+    private final DBCollection dbCollection = mock(DBCollection.class);
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+    private MongoCollection collection;
+
+    @Before
+    public void setUp() throws Exception {
+        when(dbCollection.getName()).thenReturn("friends");
+        when(dbCollection.getWriteConcern()).thenReturn(WriteConcern.ACKNOWLEDGED);
+        doAnswer(invocation -> {
+            batchSizes.add(((List<?>) invocation.getArgument(0)).size());
+            return null;
+        }).when(dbCollection).insert(anyList(), any(WriteConcern.class));
+        collection = new MongoCollection(dbCollection, new JacksonMapper.Builder().build());
+    }
+
+    @Test
+    public void canInsertInBatches() throws Exception {
+
+        List<Friend> friends = friends(10);
+
+        StreamingInsert.Stats stats = collection.insertAll(friends.iterator(), 3).withWorkers(2).execute();
+
+        Collections.sort(batchSizes);
+        assertThat(batchSizes).containsExactly(1, 3, 3, 3);
+        assertThat(stats.getInsertedCount()).isEqualTo(10);
+        assertThat(stats.getBatchCount()).isEqualTo(4);
+        assertThat(stats.getBatchesInFlight()).isEqualTo(0);
+        for (Friend friend : friends) {
+            assertThat(friend.getId()).isNotNull();
+        }
+    }
+
+    @Test
+    public void canInsertAStream() throws Exception {
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            StreamingInsert.Stats stats = collection.insertAll(IntStream.range(0, 5).mapToObj(i -> new Friend("John" + i)), 2)
+                    .withExecutor(executor)
+                    .execute();
+
+            assertThat(stats.getInsertedCount()).isEqualTo(5);
+            assertThat(executor.isShutdown()).isFalse();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldBoundBatchesInFlight() throws Exception {
+
+        AtomicInteger writing = new AtomicInteger();
+        AtomicInteger maxWriting = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxWriting.accumulateAndGet(writing.incrementAndGet(), Math::max);
+            Thread.sleep(10);
+            writing.decrementAndGet();
+            return null;
+        }).when(dbCollection).insert(anyList(), any(WriteConcern.class));
+
+        StreamingInsert.Stats stats = collection.insertAll(friends(40).iterator(), 2)
+                .withWorkers(8)
+                .withMaxBatchesInFlight(2)
+                .execute();
+
+        assertThat(maxWriting.get()).isLessThanOrEqualTo(2);
+        assertThat(stats.getBatchCount()).isEqualTo(20);
+        assertThat(stats.getBlockedNanos()).isGreaterThan(0);
+    }
+
+    @Test
+    public void shouldOnlyPullPojosOfBatchesInFlight() throws Exception {
+
+        AtomicInteger pulled = new AtomicInteger();
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        doAnswer(invocation -> {
+            Thread.sleep(5);
+            written.addAndGet(((List<?>) invocation.getArgument(0)).size());
+            return null;
+        }).when(dbCollection).insert(anyList(), any(WriteConcern.class));
+        Iterator<Friend> friends = IntStream.range(0, 60).mapToObj(i -> {
+            maxPending.accumulateAndGet(pulled.incrementAndGet() - written.get(), Math::max);
+            return new Friend("John" + i);
+        }).iterator();
+
+        collection.insertAll(friends, 3).withWorkers(4).withMaxBatchesInFlight(2).execute();
+
+        assertThat(maxPending.get()).isLessThanOrEqualTo(2 * 3);
+        assertThat(written.get()).isEqualTo(60);
+    }
+
+    @Test
+    public void shouldAwaitBatchesInFlightWhenIteratorFails() throws Exception {
+
+        AtomicInteger written = new AtomicInteger();
+        doAnswer(invocation -> {
+            Thread.sleep(50);
+            written.addAndGet(((List<?>) invocation.getArgument(0)).size());
+            return null;
+        }).when(dbCollection).insert(anyList(), any(WriteConcern.class));
+        Iterator<Friend> friends = IntStream.range(0, 10).mapToObj(i -> {
+            if (i == 4) {
+                throw new IllegalStateException("source failure");
+            }
+            return new Friend("John" + i);
+        }).iterator();
+
+        try {
+            collection.insertAll(friends, 2).withWorkers(2).withMaxBatchesInFlight(4).execute();
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).isEqualTo("source failure");
+        }
+
+        assertThat(written.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldNotifyListenerForEachBatch() throws Exception {
+
+        List<StreamingInsert.Stats> notified = new CopyOnWriteArrayList<StreamingInsert.Stats>();
+
+        collection.insertAll(friends(5).iterator(), 2).withWorkers(1).withListener(notified::add).execute();
+
+        assertThat(notified).hasSize(3);
+        assertThat(notified.get(2).getInsertedCount()).isEqualTo(5);
+        assertThat(notified.get(2).getDocumentsPerSecond()).isGreaterThan(0);
+    }
+
+    @Test
+    public void shouldStopPullingOnFailure() throws Exception {
+
+        doThrow(new MongoException("duplicate key")).when(dbCollection).insert(anyList(), any(WriteConcern.class));
+        AtomicInteger pulled = new AtomicInteger();
+        Iterator<Friend> friends = IntStream.range(0, 1000).mapToObj(i -> {
+            pulled.incrementAndGet();
+            return new Friend("John" + i);
+        }).iterator();
+
+        try {
+            collection.insertAll(friends, 10).withWorkers(1).withMaxBatchesInFlight(1).execute();
+            fail();
+        } catch (MongoException e) {
+            assertThat(e.getMessage()).isEqualTo("duplicate key");
+        }
+
+        assertThat(pulled.get()).isLessThan(1000);
+    }
+
+    @Test
+    public void shouldRethrowErrorsOfWorkers() throws Exception {
+
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new AssertionError("serializer failure");
+            }
+            return null;
+        }).when(dbCollection).insert(anyList(), any(WriteConcern.class));
+
+        try {
+            collection.insertAll(friends(10).iterator(), 2).withWorkers(1).withMaxBatchesInFlight(1).execute();
+            fail();
+        } catch (AssertionError e) {
+            assertThat(e.getMessage()).isEqualTo("serializer failure");
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidBatchSize() throws Exception {
+
+        collection.insertAll(friends(1).iterator(), 0);
+    }
+
+    private static List<Friend> friends(int count) {
+        List<Friend> friends = new ArrayList<Friend>();
+        for (int i = 0; i < count; i++) {
+            friends.add(new Friend("John" + i));
+        }
+        return friends;
+    }
+}
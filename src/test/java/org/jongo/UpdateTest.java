@@ -20,6 +20,8 @@ import com.mongodb.WriteConcern;
 import com.mongodb.WriteResult;
 import org.bson.types.ObjectId;
 import org.jongo.model.Friend;
+import org.jongo.query.Filters;
+import org.jongo.query.Updates;
 import org.jongo.util.JongoTestBase;
 import org.junit.After;
 import org.junit.Before;
@@ -70,6 +72,21 @@ public class UpdateTest extends JongoTestBase {
         assertThat(friends).hasSize(0);
     }
 
+    @Test
+    public void canUpdateWithTypedBuilders() throws Exception {
+        /* given */
+        Filters filters = new Filters(getMapper().getMarshaller());
+        Updates updates = new Updates(getMapper().getMarshaller());
+        collection.save(new Friend("John", "22 Wall Street Avenue"));
+
+        /* when */
+        collection.update(filters.eq("name", "John")).with(updates.set("address", "21 Jump Street"));
+
+        /* then */
+        Friend friend = collection.findOne("{name:'John'}").as(Friend.class);
+        assertThat(friend.getAddress()).isEqualTo("21 Jump Street");
+    }
+
     @Test
     public void canUpdateMultiWithWriteConcern() throws Exception {
         /* given */
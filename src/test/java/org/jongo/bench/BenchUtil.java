@@ -22,8 +22,10 @@ import org.jongo.Mapper;
 import org.jongo.MongoCollection;
 import org.jongo.model.Coordinate;
 import org.jongo.model.Friend;
+import org.jongo.model.PropertyFriend;
 
 import java.net.UnknownHostException;
+import java.util.Arrays;
 
 import static org.jongo.marshall.jackson.JacksonMapper.Builder.jacksonMapper;
 
@@ -33,6 +35,10 @@ class BenchUtil {
         return new Friend("John" + id, "Address" + id, new Coordinate(1, id));
     }
 
+    public static PropertyFriend createPropertyFriend(int id) {
+        return new PropertyFriend("John" + id, "Address" + id, new Coordinate(1, id), id);
+    }
+
     public static DBObject asDBObject(Friend friend) {
 
         DBObject dbo = new BasicDBObject();
@@ -48,6 +54,17 @@ class BenchUtil {
         return dbo;
     }
 
+    public static DBObject asWideDBObject(Friend friend, int unmappedFields) {
+
+        DBObject dbo = asDBObject(friend);
+        for (int i = 0; i < unmappedFields; i++) {
+            BasicDBObject nested = new BasicDBObject("index", i);
+            nested.put("values", Arrays.asList(1, 2, 3));
+            dbo.put("field" + i, i % 2 == 0 ? "unmapped value " + i : nested);
+        }
+        return dbo;
+    }
+
     public static DBCollection getCollectionFromDriver() throws UnknownHostException {
         MongoClient nativeMongo = new MongoClient();
         return nativeMongo.getDB("jongo").getCollection("benchmark");
@@ -22,14 +22,25 @@ import com.mongodb.*;
 import org.jongo.bson.Bson;
 import org.jongo.bson.BsonDBDecoder;
 import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.codec.CodecEngine;
+import org.jongo.marshall.codec.CodecMapper;
 import org.jongo.marshall.jackson.JacksonEngine;
 import org.jongo.marshall.jackson.configuration.Mapping;
 import org.jongo.model.Coordinate;
 import org.jongo.model.Friend;
+import org.jongo.model.PropertyFriend;
+
+import static org.jongo.bench.BenchUtil.asWideDBObject;
+import static org.jongo.bench.BenchUtil.createFriend;
+import static org.jongo.bench.BenchUtil.createPropertyFriend;
 
 public class DecoderBench extends SimpleBenchmark {
 
     private final JacksonEngine engine = new JacksonEngine(Mapping.defaultMapping());
+    private final JacksonEngine accessorEngine = new JacksonEngine(new Mapping.Builder().withGeneratedAccessors().build());
+    private final CodecEngine codecEngine = new CodecEngine(CodecMapper.createCodecRegistry());
+    private final BsonDocument propertyFriend = engine.marshall(createPropertyFriend(0));
+    private final BsonDocument wideFriend = Bson.createDocument(asWideDBObject(createFriend(0), 200));
 
     public void timeDecodeWithDriver(int reps) {
 
@@ -51,6 +62,36 @@ public class DecoderBench extends SimpleBenchmark {
         }
     }
 
+    public void timeDecodeWithCodecJongo(int reps) {
+
+        for (int docIndex = 0; docIndex < reps; docIndex++) {
+            DBObject dbo = decode(BsonDBDecoder.FACTORY);
+            BsonDocument document = Bson.createDocument(dbo);
+            Friend f = codecEngine.unmarshall(document, Friend.class);
+        }
+    }
+
+    public void timeDecodePropertiesWithReflection(int reps) {
+
+        for (int docIndex = 0; docIndex < reps; docIndex++) {
+            PropertyFriend f = engine.unmarshall(propertyFriend, PropertyFriend.class);
+        }
+    }
+
+    public void timeDecodePropertiesWithGeneratedAccessors(int reps) {
+
+        for (int docIndex = 0; docIndex < reps; docIndex++) {
+            PropertyFriend f = accessorEngine.unmarshall(propertyFriend, PropertyFriend.class);
+        }
+    }
+
+    public void timeDecodeWideDocumentWithBsonJongo(int reps) {
+
+        for (int docIndex = 0; docIndex < reps; docIndex++) {
+            Friend f = engine.unmarshall(wideFriend, Friend.class);
+        }
+    }
+
     private DBObject decode(DBDecoderFactory factory) {
         DBDecoder decoder = factory.create();
         return decoder.decode(FRIEND_AS_BYTE, (DBCollection) null);
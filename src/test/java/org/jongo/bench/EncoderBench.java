@@ -22,9 +22,16 @@ import com.mongodb.DBEncoder;
 import com.mongodb.DBEncoderFactory;
 import com.mongodb.DBObject;
 import com.mongodb.DefaultDBEncoder;
+import com.mongodb.LazyDBObject;
+import org.bson.LazyBSONCallback;
 import org.bson.io.BasicOutputBuffer;
 import org.bson.io.OutputBuffer;
 import org.jongo.bson.BsonDBEncoder;
+import org.jongo.bson.BsonDocument;
+import org.jongo.bson.StreamableBsonDocument;
+import org.jongo.bson.StreamedDBObject;
+import org.jongo.marshall.codec.CodecEngine;
+import org.jongo.marshall.codec.CodecMapper;
 import org.jongo.marshall.jackson.JacksonEngine;
 import org.jongo.marshall.jackson.configuration.Mapping;
 
@@ -32,10 +39,15 @@ import java.util.Map;
 
 import static org.jongo.bench.BenchUtil.asDBObject;
 import static org.jongo.bench.BenchUtil.createFriend;
+import static org.jongo.bench.BenchUtil.createPropertyFriend;
 
 public class EncoderBench extends SimpleBenchmark {
 
     private final JacksonEngine engine = new JacksonEngine(Mapping.defaultMapping());
+    private final JacksonEngine pooledEngine = new JacksonEngine(Mapping.defaultMapping(), true);
+    private final JacksonEngine streamedEngine = new JacksonEngine(Mapping.defaultMapping(), false, true);
+    private final JacksonEngine accessorEngine = new JacksonEngine(new Mapping.Builder().withGeneratedAccessors().build());
+    private final CodecEngine codecEngine = new CodecEngine(CodecMapper.createCodecRegistry());
     private final DBApiLayerEmulator dbApiLayer = new DBApiLayerEmulator();
 
     public void timeEncodeWithDriver(int reps) {
@@ -52,6 +64,40 @@ public class EncoderBench extends SimpleBenchmark {
         }
     }
 
+    public void timeEncodeWithCodecJongo(int reps) {
+        for (int i = 0; i < reps; i++) {
+            DBObject friend = codecEngine.marshall(createFriend(i)).toDBObject();
+            dbApiLayer.encode(BsonDBEncoder.FACTORY, friend);
+        }
+    }
+
+    public void timeEncodeWithPooledBsonJongo(int reps) {
+        for (int i = 0; i < reps; i++) {
+            BsonDocument document = pooledEngine.marshallForWrite(createFriend(i));
+            dbApiLayer.encode(BsonDBEncoder.FACTORY, new LazyDBObject(document.toByteArray(), new LazyBSONCallback()));
+            document.release();
+        }
+    }
+
+    public void timeEncodeWithStreamedBsonJongo(int reps) {
+        for (int i = 0; i < reps; i++) {
+            BsonDocument document = streamedEngine.marshallForWrite(createFriend(i));
+            dbApiLayer.encode(BsonDBEncoder.FACTORY, new StreamedDBObject((StreamableBsonDocument) document, null));
+        }
+    }
+
+    public void timeEncodePropertiesWithReflection(int reps) {
+        for (int i = 0; i < reps; i++) {
+            BsonDocument document = engine.marshall(createPropertyFriend(i));
+        }
+    }
+
+    public void timeEncodePropertiesWithGeneratedAccessors(int reps) {
+        for (int i = 0; i < reps; i++) {
+            BsonDocument document = accessorEngine.marshall(createPropertyFriend(i));
+        }
+    }
+
     private static class DBApiLayerEmulator {
 
         private byte[] encode(DBEncoderFactory factory, DBObject dbo) {
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.bench;
+
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.marshall.jackson.oid.MongoId;
+import org.jongo.marshall.jackson.oid.MongoObjectId;
+
+import java.math.BigDecimal;
+
+public class NativeTypesBench extends SimpleBenchmark {
+
+    private final JacksonEngine engine = new JacksonEngine(Mapping.defaultMapping());
+    private final JacksonEngine nativeEngine = new JacksonEngine(new Mapping.Builder().withNativeBsonFactory().build());
+    private final Payment payment = new Payment();
+    private final BsonDocument document = engine.marshall(payment);
+
+    public void timeDecodeNativeTypes(int reps) {
+        for (int i = 0; i < reps; i++) {
+            Payment p = engine.unmarshall(document, Payment.class);
+        }
+    }
+
+    public void timeDecodeNativeTypesWithNativeFactory(int reps) {
+        for (int i = 0; i < reps; i++) {
+            Payment p = nativeEngine.unmarshall(document, Payment.class);
+        }
+    }
+
+    public void timeEncodeNativeTypes(int reps) {
+        for (int i = 0; i < reps; i++) {
+            BsonDocument d = engine.marshall(payment);
+        }
+    }
+
+    public void timeEncodeNativeTypesWithNativeFactory(int reps) {
+        for (int i = 0; i < reps; i++) {
+            BsonDocument d = nativeEngine.marshall(payment);
+        }
+    }
+
+    public static void main(String[] args) {
+        Runner.main(NativeTypesBench.class, new String[]{});
+    }
+
+    private static class Payment {
+        @MongoId
+        @MongoObjectId
+        private String key = new ObjectId().toHexString();
+        private ObjectId account = new ObjectId();
+        private ObjectId merchant = new ObjectId();
+        private Decimal128 amount = new Decimal128(new BigDecimal("1234.56"));
+        private Decimal128 fee = new Decimal128(new BigDecimal("0.99"));
+        private BSONTimestamp timestamp = new BSONTimestamp(1500000000, 1);
+        private Binary signature = new Binary(new byte[32]);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.bench;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.query.BsonQueryFactory;
+import org.jongo.query.QueryFactory;
+import org.jongo.query.QueryTemplateCache;
+
+public class QueryBench extends SimpleBenchmark {
+
+    @Param({"10"})
+    int size = 10;
+    private QueryFactory factory;
+    private String query;
+    private Object[] parameters;
+
+    protected void setUp() throws Exception {
+        factory = new BsonQueryFactory(new JacksonEngine(Mapping.defaultMapping()), new QueryTemplateCache(0));
+
+        StringBuilder in = new StringBuilder("{name: 'John', 'address.city': #, tags: {$in: [");
+        parameters = new Object[size + 1];
+        parameters[0] = "Paris";
+        for (int i = 0; i < size; i++) {
+            in.append(i == 0 ? "#" : ", #");
+            parameters[i + 1] = "tag" + i;
+        }
+        query = in.append("]}}").toString();
+    }
+
+    public int timeCreateQuery(int reps) {
+        int created = 0;
+        for (int i = 0; i < reps; i++) {
+            factory.createQuery(query, parameters);
+            created++;
+        }
+        return created;
+    }
+
+    public static void main(String[] args) {
+        Runner.main(QueryBench.class, new String[]{
+                "-Dsize=10,100,1000,10000"
+        });
+    }
+}
@@ -17,15 +17,26 @@
 package org.jongo.bson;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
 import com.mongodb.DBEncoder;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
 import com.mongodb.LazyDBObject;
 import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.model.Friend;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class BsonDBEncoderTest {
 
+    private final JacksonEngine engine = new JacksonEngine(Mapping.defaultMapping(), false, true);
+
     @Test
     public void shouldPipeLazyDbObject() throws Exception {
 
@@ -47,4 +58,38 @@ public class BsonDBEncoderTest {
 
         assertThat(buffer.size()).isGreaterThan(0);
     }
+
+    @Test
+    public void shouldStreamDocumentIntoBuffer() throws Exception {
+
+        DBEncoder encoder = BsonDBEncoder.FACTORY.create();
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        StreamableBsonDocument document = (StreamableBsonDocument) engine.marshallForWrite(new Friend("John", "22 Wall Street Avenue"));
+
+        int size = encoder.writeObject(buffer, new StreamedDBObject(document, null));
+
+        assertThat(size).isEqualTo(buffer.size());
+        assertThat(decode(buffer)).isEqualTo(new BasicDBObject("name", "John").append("address", "22 Wall Street Avenue"));
+    }
+
+    @Test
+    public void shouldAppendIdSetOnStreamedDocument() throws Exception {
+
+        DBEncoder encoder = BsonDBEncoder.FACTORY.create();
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        buffer.write(new byte[]{1, 2, 3});
+        ObjectId id = new ObjectId();
+        StreamedDBObject dbo = new StreamedDBObject((StreamableBsonDocument) engine.marshallForWrite(new Friend("John")), null);
+        dbo.put("_id", id);
+
+        int size = encoder.writeObject(buffer, dbo);
+
+        assertThat(size).isEqualTo(buffer.size() - 3);
+        DBObject decoded = new DefaultDBDecoder().decode(Arrays.copyOfRange(buffer.toByteArray(), 3, buffer.size()), (DBCollection) null);
+        assertThat(decoded).isEqualTo(new BasicDBObject("name", "John").append("_id", id));
+    }
+
+    private DBObject decode(BasicOutputBuffer buffer) {
+        return new DefaultDBDecoder().decode(buffer.toByteArray(), (DBCollection) null);
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.codec;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+import org.bson.types.ObjectId;
+import org.jongo.Mapper;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.MarshallingException;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.model.Coordinate;
+import org.jongo.model.ExposableFriend;
+import org.jongo.model.Friend;
+import org.jongo.model.Gender;
+import org.jongo.query.Query;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jongo.marshall.codec.CodecMapper.Builder.codecMapper;
+
+public class CodecMapperTest {
+
+    private final Mapper mapper = codecMapper().build();
+    private final JacksonEngine jacksonEngine = new JacksonEngine(Mapping.defaultMapping());
+
+    @Test
+    public void shouldWriteSameDocumentsAsJackson() throws Exception {
+
+        Friend friend = new Friend(new ObjectId(), "John");
+        friend.setAddress("22 Wall Street Avenue");
+        friend.setCoordinate(new Coordinate(1, 2));
+        friend.setGender(Gender.FEMALE);
+
+        BsonDocument document = mapper.getMarshaller().marshall(friend);
+
+        assertThat(decode(document)).isEqualTo(decode(jacksonEngine.marshall(friend)));
+    }
+
+    @Test
+    public void canReadDocumentsWrittenByJackson() throws Exception {
+
+        Friend friend = new Friend(new ObjectId(), "John");
+        friend.setCoordinate(new Coordinate(1, 2));
+        friend.setGender(Gender.FEMALE);
+
+        Friend result = mapper.getUnmarshaller().unmarshall(jacksonEngine.marshall(friend), Friend.class);
+
+        assertThat(result).isEqualTo(friend);
+        assertThat(result.getGender()).isEqualTo(Gender.FEMALE);
+    }
+
+    @Test
+    public void shouldStoreObjectIdStringsAsObjectIds() throws Exception {
+
+        String id = new ObjectId().toString();
+        ExposableFriend friend = new ExposableFriend(id, "John");
+
+        BsonDocument document = mapper.getMarshaller().marshall(friend);
+
+        assertThat(document.toDBObject().get("_id")).isEqualTo(new ObjectId(id));
+        assertThat(mapper.getUnmarshaller().unmarshall(document, ExposableFriend.class)).isEqualTo(friend);
+    }
+
+    @Test
+    public void canGenerateIdOfAnnotatedField() throws Exception {
+
+        Friend friend = new Friend("John");
+        ObjectId id = new ObjectId();
+
+        assertThat(mapper.getObjectIdUpdater().mustGenerateObjectId(friend)).isTrue();
+        mapper.getObjectIdUpdater().setObjectId(friend, id);
+
+        assertThat(mapper.getMarshaller().marshall(friend).toDBObject().get("_id")).isEqualTo(id);
+    }
+
+    @Test
+    public void canBindPojoParameters() throws Exception {
+
+        Query query = mapper.getQueryFactory().createQuery("{coordinate: #, name: #}", new Coordinate(1, 2), "John");
+
+        DBObject coordinate = (DBObject) query.toDBObject().get("coordinate");
+        assertThat(coordinate.get("lat")).isEqualTo(1);
+        assertThat(query.toDBObject().get("name")).isEqualTo("John");
+    }
+
+    @Test(expected = MarshallingException.class)
+    public void shouldFailToUnmarshallInvalidDocument() throws Exception {
+
+        BsonDocument document = jacksonEngine.marshall(new Mismatch("notACoordinate"));
+
+        mapper.getUnmarshaller().unmarshall(document, Friend.class);
+    }
+
+    private static DBObject decode(BsonDocument document) {
+        return new DefaultDBDecoder().decode(document.toByteArray(), (DBCollection) null);
+    }
+
+    private static class Mismatch {
+        private String coordinate;
+
+        private Mismatch(String coordinate) {
+            this.coordinate = coordinate;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.codec;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.codecs.Codec;
+import org.bson.types.ObjectId;
+import org.jongo.bson.Bson;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.model.Coordinate;
+import org.jongo.model.Gender;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CodecProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JacksonEngine jacksonEngine;
+    private CodecEngine codecEngine;
+    private File output;
+    private List<String> errors;
+
+    @Before
+    public void setUp() throws Exception {
+        jacksonEngine = new JacksonEngine(Mapping.defaultMapping());
+        codecEngine = new CodecEngine(CodecMapper.createCodecRegistry());
+        output = folder.newFolder();
+        errors = new ArrayList<String>();
+    }
+
+    @Test
+    public void shouldWriteSameDocumentsAsJackson() throws Exception {
+
+        Class<?> buddyClass = compileAndLoad("Buddy", BUDDY);
+        Object buddy = createBuddy(buddyClass);
+
+        BsonDocument document = codecEngine.marshall(buddy);
+
+        DBObject expected = jacksonEngine.marshall(buddy).toDBObject();
+        assertThat(document.toDBObject()).isEqualTo(expected);
+        assertThat(document.toDBObject().get("_id")).isInstanceOf(ObjectId.class);
+        assertThat(document.toDBObject().containsField("ignored")).isFalse();
+        assertThat(document.toDBObject().containsField("addr")).isTrue();
+    }
+
+    @Test
+    public void canReadDocumentsWrittenByJackson() throws Exception {
+
+        Class<?> buddyClass = compileAndLoad("Buddy", BUDDY);
+        Object buddy = createBuddy(buddyClass);
+
+        Object result = codecEngine.unmarshall(jacksonEngine.marshall(buddy), buddyClass);
+
+        for (String name : Arrays.asList("key", "name", "age", "address", "coordinates", "gender", "visits", "since")) {
+            assertThat(get(result, name)).isEqualTo(get(buddy, name));
+        }
+        assertThat(get(result, "scores")).isEqualTo(Collections.singletonMap("chess", 3));
+        assertThat((byte[]) get(result, "data")).isEqualTo((byte[]) get(buddy, "data"));
+        assertThat(get(result, "ignored")).isNull();
+    }
+
+    @Test
+    public void shouldSkipUnknownFieldsAndNullValues() throws Exception {
+
+        Class<?> buddyClass = compileAndLoad("Buddy", BUDDY);
+        DBObject dbo = new BasicDBObject("unknown", new BasicDBObject("a", Arrays.asList(1, 2)))
+                .append("name", "John")
+                .append("age", 3L)
+                .append("addr", null)
+                .append("coordinates", Arrays.asList(null, new BasicDBObject("lat", 1).append("lng", 2)));
+
+        Object result = codecEngine.unmarshall(Bson.createDocument(dbo), buddyClass);
+
+        assertThat(get(result, "name")).isEqualTo("John");
+        assertThat(get(result, "age")).isEqualTo(3);
+        assertThat(get(result, "address")).isNull();
+        assertThat(get(result, "coordinates")).isEqualTo(Arrays.asList(null, new Coordinate(1, 2)));
+    }
+
+    @Test
+    public void shouldProvideGeneratedCodecToRegistry() throws Exception {
+
+        Class<?> buddyClass = compileAndLoad("Buddy", BUDDY);
+
+        Codec<?> codec = CodecMapper.createCodecRegistry().get(buddyClass);
+
+        assertThat(codec).isInstanceOf(GeneratedCodec.class);
+        assertThat(codec.getClass().getName()).isEqualTo("org.jongo.generated.Buddy" + CodecProcessor.SUFFIX);
+    }
+
+    @Test
+    public void shouldGenerateCodecForNestedEntityWithInheritedFields() throws Exception {
+
+        compile("Outer",
+                "public class Outer {",
+                "    public static class Base<T> {",
+                "        private T value;",
+                "    }",
+                "    @org.jongo.marshall.codec.annotation.MongoEntity",
+                "    public static class Inner extends Base<String> {",
+                "        @org.jongo.marshall.jackson.oid.MongoId",
+                "        protected Long id;",
+                "    }",
+                "}");
+        assertThat(errors).isEmpty();
+        Class<?> innerClass = load("Outer$Inner");
+
+        Object inner = codecEngine.unmarshall(Bson.createDocument(new BasicDBObject("_id", 5L).append("value", "text")), innerClass);
+
+        assertThat(get(inner, "id")).isEqualTo(5L);
+        assertThat(get(inner, "value")).isEqualTo("text");
+        assertThat(codecEngine.marshall(inner).toDBObject()).isEqualTo(new BasicDBObject("value", "text").append("_id", 5L));
+    }
+
+    @Test
+    public void shouldFailToCompileAbstractEntity() throws Exception {
+
+        compile("AbstractBuddy",
+                "@org.jongo.marshall.codec.annotation.MongoEntity",
+                "public abstract class AbstractBuddy {",
+                "}");
+
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0)).contains("must not be abstract");
+    }
+
+    @Test
+    public void shouldFailToCompileEntityWithoutNoArgConstructor() throws Exception {
+
+        compile("NamedBuddy",
+                "@org.jongo.marshall.codec.annotation.MongoEntity",
+                "public class NamedBuddy {",
+                "    public NamedBuddy(String name) {}",
+                "}");
+
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0)).contains("must declare a no-arg constructor");
+    }
+
+    @Test
+    public void shouldFailToCompileUnsupportedFieldType() throws Exception {
+
+        compile("ArrayBuddy",
+                "@org.jongo.marshall.codec.annotation.MongoEntity",
+                "public class ArrayBuddy {",
+                "    int[] values;",
+                "}");
+
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0)).contains("Unsupported type int[]");
+    }
+
+    private static final String[] BUDDY = {
+            "@org.jongo.marshall.codec.annotation.MongoEntity",
+            "public class Buddy {",
+            "    @org.jongo.marshall.jackson.oid.MongoId @org.jongo.marshall.jackson.oid.MongoObjectId",
+            "    private String key;",
+            "    String name;",
+            "    private final int age;",
+            "    @com.fasterxml.jackson.annotation.JsonProperty(\"addr\")",
+            "    public String address;",
+            "    @com.fasterxml.jackson.annotation.JsonIgnore",
+            "    public String ignored;",
+            "    private java.util.List<org.jongo.model.Coordinate> coordinates;",
+            "    private org.jongo.model.Gender gender;",
+            "    private java.util.Map<String, Integer> scores;",
+            "    private Long visits;",
+            "    private java.util.Date since;",
+            "    private byte[] data;",
+            "    private transient String cache;",
+            "    private Buddy() {",
+            "        this(0);",
+            "    }",
+            "    public Buddy(int age) {",
+            "        this.age = age;",
+            "    }",
+            "}"};
+
+    private Object createBuddy(Class<?> buddyClass) throws Exception {
+        Object buddy = buddyClass.getConstructor(int.class).newInstance(29);
+        Map<String, Integer> scores = new HashMap<String, Integer>();
+        scores.put("chess", 3);
+        scores.put("go", null);
+        set(buddy, "key", new ObjectId().toString());
+        set(buddy, "name", "John");
+        set(buddy, "address", "22 Wall Street Avenue");
+        set(buddy, "ignored", "ignored");
+        set(buddy, "coordinates", Arrays.asList(new Coordinate(1, 2), new Coordinate(3, 4)));
+        set(buddy, "gender", Gender.FEMALE);
+        set(buddy, "scores", scores);
+        set(buddy, "visits", 12L);
+        set(buddy, "since", new Date(123456789L));
+        set(buddy, "data", new byte[]{1, 2, 3});
+        set(buddy, "cache", "cache");
+        return buddy;
+    }
+
+    private Class<?> compileAndLoad(String name, String... lines) throws Exception {
+        compile(name, lines);
+        assertThat(errors).isEmpty();
+        return load(name);
+    }
+
+    private Class<?> load(String name) throws Exception {
+        ClassLoader classLoader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+        return classLoader.loadClass("org.jongo.generated." + name);
+    }
+
+    private void compile(String name, String... lines) {
+        StringBuilder source = new StringBuilder("package org.jongo.generated;\n");
+        for (String line : lines) {
+            source.append(line).append('\n');
+        }
+        final String content = source.toString();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///org/jongo/generated/" + name + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return content;
+            }
+        };
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        List<String> options = Arrays.asList("-d", output.getAbsolutePath(), "-s", output.getAbsolutePath(),
+                "-classpath", System.getProperty("java.class.path"));
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, Arrays.asList(file));
+        task.setProcessors(Arrays.asList(new CodecProcessor()));
+        task.call();
+
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.getMessage(null));
+            }
+        }
+    }
+
+    private static Object get(Object target, String name) throws Exception {
+        return field(target.getClass(), name).get(target);
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        field(target.getClass(), name).set(target, value);
+    }
+
+    private static Field field(Class<?> type, String name) throws Exception {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            try {
+                Field field = current.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                // look up in superclass
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+}
@@ -74,4 +74,52 @@ public class JacksonEngineTest {
         assertThat(friend.getAddress()).isEqualTo("22 rue des murlins");
     }
 
+    @Test
+    public void canMarshallForWriteIntoPooledBuffer() throws Exception {
+
+        JacksonEngine pooledEngine = new JacksonEngine(new Mapping.Builder().build(), true);
+
+        BsonDocument doc = pooledEngine.marshallForWrite(new Fox("fantastic", "roux"));
+
+        assertThat(doc.getSize()).isEqualTo(engine.marshall(new Fox("fantastic", "roux")).getSize());
+        assertThat(doc.toDBObject().get("name")).isEqualTo("fantastic");
+        doc.release();
+    }
+
+    @Test
+    public void shouldReuseReleasedBuffer() throws Exception {
+
+        JacksonEngine pooledEngine = new JacksonEngine(new Mapping.Builder().build(), true);
+        BsonDocument doc = pooledEngine.marshallForWrite(new Friend("John"));
+        byte[] buffer = doc.toByteArray();
+        doc.release();
+
+        BsonDocument other = pooledEngine.marshallForWrite(new Friend("Peter"));
+
+        assertThat(other.toByteArray()).isSameAs(buffer);
+        assertThat(other.toDBObject().get("name")).isEqualTo("Peter");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailToReadReleasedDocument() throws Exception {
+
+        JacksonEngine pooledEngine = new JacksonEngine(new Mapping.Builder().build(), true);
+        BsonDocument doc = pooledEngine.marshallForWrite(new Friend("John"));
+        doc.release();
+
+        doc.toByteArray();
+    }
+
+    @Test
+    public void shouldNotShareBufferOfMarshalledDocuments() throws Exception {
+
+        JacksonEngine pooledEngine = new JacksonEngine(new Mapping.Builder().build(), true);
+
+        BsonDocument john = pooledEngine.marshall(new Friend("John"));
+        BsonDocument peter = pooledEngine.marshall(new Friend("Peter"));
+
+        assertThat(john.toByteArray()).hasSize(john.getSize());
+        assertThat(john.toDBObject().get("name")).isEqualTo("John");
+        assertThat(peter.toDBObject().get("name")).isEqualTo("Peter");
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.bson;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.Decimal128;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.jongo.bson.Bson;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.MarshallingException;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.model.Coordinate;
+import org.jongo.model.Friend;
+import org.jongo.util.ErrorObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jongo.util.BsonUtil.bsonify;
+
+public class NativeBsonFactoryTest {
+
+    private final JacksonEngine engine = new JacksonEngine(new Mapping.Builder().withNativeBsonFactory().build());
+    private final JacksonEngine bson4jacksonEngine = new JacksonEngine(new Mapping.Builder().build());
+
+    @Test
+    public void shouldWriteSameDocumentsAsBson4jackson() throws Exception {
+
+        Friend friend = new Friend(new ObjectId(), "John");
+        friend.setAddress("22 Wall Street Avenue");
+        friend.setCoordinate(new Coordinate(1, 2));
+
+        BsonDocument document = engine.marshall(friend);
+
+        assertThat(Arrays.copyOf(document.toByteArray(), document.getSize()))
+                .isEqualTo(Arrays.copyOf(bson4jacksonEngine.marshall(friend).toByteArray(), document.getSize()));
+    }
+
+    @Test
+    public void canWriteAndReadDriverTypes() throws Exception {
+
+        DriverTypes types = DriverTypes.create();
+
+        DBObject dbo = engine.marshall(types).toDBObject();
+
+        assertThat(dbo.get("id")).isEqualTo(types.id);
+        assertThat(dbo.get("date")).isEqualTo(types.date);
+        assertThat(dbo.get("decimal")).isEqualTo(types.decimal);
+        assertThat(dbo.get("timestamp")).isEqualTo(types.timestamp);
+        assertThat(dbo.get("binary")).isEqualTo(types.binary);
+        assertThat(dbo.get("bytes")).isEqualTo(types.bytes);
+        assertThat(dbo.get("uuid")).isEqualTo(bson4jacksonEngine.marshall(types).toDBObject().get("uuid"));
+        assertThat(dbo.get("minKey")).isInstanceOf(MinKey.class);
+        assertThat(dbo.get("maxKey")).isInstanceOf(MaxKey.class);
+        assertThat(dbo.get("pattern").toString()).isEqualTo(types.pattern.pattern());
+
+        DriverTypes result = engine.unmarshall(engine.marshall(types), DriverTypes.class);
+
+        assertThat(result.id).isEqualTo(types.id);
+        assertThat(result.date).isEqualTo(types.date);
+        assertThat(result.decimal).isEqualTo(types.decimal);
+        assertThat(result.timestamp).isEqualTo(types.timestamp);
+        assertThat(result.binary).isEqualTo(types.binary);
+        assertThat(result.bytes).isEqualTo(types.bytes);
+        assertThat(result.uuid).isEqualTo(types.uuid);
+        assertThat(result.minKey).isNotNull();
+        assertThat(result.maxKey).isNotNull();
+        assertThat(result.pattern.pattern()).isEqualTo(types.pattern.pattern());
+        assertThat(result.pattern.flags()).isEqualTo(types.pattern.flags());
+    }
+
+    @Test
+    public void canReadDocumentsWrittenByTheDriver() throws Exception {
+
+        DBObject dbo = new BasicDBObject("name", "John")
+                .append("friends", Arrays.asList(new BasicDBObject("name", "Peter"), new BasicDBObject("name", "Robert")))
+                .append("age", 30L)
+                .append("coordinate", new BasicDBObject("lat", 1).append("lng", 2));
+        BsonDocument document = Bson.createDocument(dbo);
+
+        Map<?, ?> result = engine.unmarshall(document, Map.class);
+
+        assertThat(result.get("name")).isEqualTo("John");
+        assertThat(result.get("age")).isEqualTo(30L);
+        assertThat((List<?>) result.get("friends")).hasSize(2);
+        assertThat(engine.unmarshall(document, Friend.class).getCoordinate().lat).isEqualTo(1);
+    }
+
+    @Test
+    public void canReadDocumentFromLargerBuffer() throws Exception {
+
+        BsonDocument document = engine.marshall(new Friend("John"));
+        byte[] buffer = Arrays.copyOf(document.toByteArray(), document.getSize() + 16);
+
+        Friend friend = engine.unmarshall(new BsonDocumentView(buffer, document.getSize()), Friend.class);
+
+        assertThat(friend.getName()).isEqualTo("John");
+    }
+
+    @Test(expected = MarshallingException.class)
+    public void shouldFailToUnmarshallInvalidDate() throws Exception {
+
+        engine.unmarshall(bsonify("{'error':'notADate'}"), ErrorObject.class);
+    }
+
+    private static class BsonDocumentView implements BsonDocument {
+
+        private final byte[] bytes;
+        private final int size;
+
+        private BsonDocumentView(byte[] bytes, int size) {
+            this.bytes = bytes;
+            this.size = size;
+        }
+
+        public byte[] toByteArray() {
+            return bytes;
+        }
+
+        public DBObject toDBObject() {
+            return new BasicDBObject();
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+
+    private static class DriverTypes {
+
+        public ObjectId id;
+        public Date date;
+        public Decimal128 decimal;
+        public BSONTimestamp timestamp;
+        public Binary binary;
+        public byte[] bytes;
+        public UUID uuid;
+        public Pattern pattern;
+        public MinKey minKey;
+        public MaxKey maxKey;
+
+        private static DriverTypes create() {
+            DriverTypes types = new DriverTypes();
+            types.id = new ObjectId();
+            types.date = new Date(1000);
+            types.decimal = Decimal128.parse("10.5");
+            types.timestamp = new BSONTimestamp(12, 1);
+            types.binary = new Binary((byte) 0x80, new byte[]{1, 2, 3});
+            types.bytes = new byte[]{4, 5};
+            types.uuid = UUID.randomUUID();
+            types.pattern = Pattern.compile("[a-z]", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+            types.minKey = new MinKey();
+            types.maxKey = new MaxKey();
+            return types;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.bson4jackson;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.LazyDBObject;
+import org.bson.conversions.Bson;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.Code;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BsonDeserializersTest {
+
+    private final List<JacksonEngine> engines = Arrays.asList(
+            new JacksonEngine(Mapping.defaultMapping()),
+            new JacksonEngine(new Mapping.Builder().withNativeBsonFactory().build()));
+
+    @Test
+    public void canUnmarshallDBObjectWithoutLosingTypes() throws Exception {
+
+        ObjectId id = new ObjectId();
+        DBObject dbo = new BasicDBObject("_id", id)
+                .append("date", new Date(123))
+                .append("long", 42L)
+                .append("double", 1.5)
+                .append("decimal", new Decimal128(new BigDecimal("12.34")))
+                .append("timestamp", new BSONTimestamp(1, 2))
+                .append("binary", new byte[]{1, 2})
+                .append("code", new Code("function() {}"))
+                .append("nested", new BasicDBObject("list", Arrays.asList(1, "two", null)));
+
+        for (JacksonEngine engine : engines) {
+            BsonDocument document = org.jongo.bson.Bson.createDocument(new BasicDBObject("dbo", dbo));
+
+            Payload payload = engine.unmarshall(document, Payload.class);
+
+            assertThat(payload.dbo).isInstanceOf(BasicDBObject.class);
+            assertThat(payload.dbo.get("_id")).isEqualTo(id);
+            assertThat(payload.dbo.get("date")).isEqualTo(new Date(123));
+            assertThat(payload.dbo.get("long")).isEqualTo(42L);
+            assertThat(payload.dbo.get("double")).isEqualTo(1.5);
+            assertThat(payload.dbo.get("decimal")).isEqualTo(new Decimal128(new BigDecimal("12.34")));
+            assertThat(payload.dbo.get("timestamp")).isEqualTo(new BSONTimestamp(1, 2));
+            assertThat(payload.dbo.get("code")).isEqualTo(new Code("function() {}"));
+            assertThat((byte[]) payload.dbo.get("binary")).isEqualTo(new byte[]{1, 2});
+            DBObject nested = (DBObject) payload.dbo.get("nested");
+            assertThat(nested.get("list")).isInstanceOf(BasicDBList.class);
+            assertThat(nested.get("list")).isEqualTo(Arrays.asList(1, "two", null));
+        }
+    }
+
+    @Test
+    public void canUnmarshallArrayAsDBObject() throws Exception {
+
+        BsonDocument document = org.jongo.bson.Bson.createDocument(new BasicDBObject("dbo", Arrays.asList(1, 2)));
+
+        for (JacksonEngine engine : engines) {
+            Payload payload = engine.unmarshall(document, Payload.class);
+
+            assertThat(payload.dbo).isInstanceOf(BasicDBList.class);
+            assertThat(payload.dbo).isEqualTo(Arrays.asList(1, 2));
+        }
+    }
+
+    @Test
+    public void canUnmarshallBson() throws Exception {
+
+        ObjectId id = new ObjectId();
+        BsonDocument document = org.jongo.bson.Bson.createDocument(new BasicDBObject("bson", new BasicDBObject("_id", id))
+                .append("basic", new BasicDBObject("name", "John")));
+
+        for (JacksonEngine engine : engines) {
+            Payload payload = engine.unmarshall(document, Payload.class);
+
+            assertThat(payload.bson).isEqualTo(new BasicDBObject("_id", id));
+            assertThat(payload.basic).isEqualTo(new BasicDBObject("name", "John"));
+        }
+    }
+
+    @Test
+    public void shouldSliceRawBytesIntoLazyDBObject() throws Exception {
+
+        ObjectId id = new ObjectId();
+        BsonDocument document = org.jongo.bson.Bson.createDocument(new BasicDBObject("lazy", new BasicDBObject("_id", id)
+                .append("nested", new BasicDBObject("name", "John")))
+                .append("name", "Peter"));
+
+        for (JacksonEngine engine : engines) {
+            Payload payload = engine.unmarshall(document, Payload.class);
+
+            assertThat(payload.lazy.get("_id")).isEqualTo(id);
+            assertThat(((DBObject) payload.lazy.get("nested")).get("name")).isEqualTo("John");
+            assertThat(payload.lazy.getBSONSize()).isEqualTo(org.jongo.bson.Bson.createDocument(
+                    new BasicDBObject("_id", id).append("nested", new BasicDBObject("name", "John"))).getSize());
+            assertThat(payload.name).isEqualTo("Peter");
+        }
+    }
+
+    @Test
+    public void canUnmarshallNativeTypes() throws Exception {
+
+        ObjectId id = new ObjectId();
+        BsonDocument document = org.jongo.bson.Bson.createDocument(new BasicDBObject("id", id)
+                .append("decimal", new Decimal128(new BigDecimal("-12.340")))
+                .append("nan", Decimal128.NaN)
+                .append("timestamp", new BSONTimestamp(1, 2))
+                .append("binary", new byte[]{1, 2}));
+
+        for (JacksonEngine engine : engines) {
+            Natives natives = engine.unmarshall(document, Natives.class);
+
+            assertThat(natives.id).isEqualTo(id);
+            assertThat(natives.decimal).isEqualTo(new Decimal128(new BigDecimal("-12.340")));
+            assertThat(natives.nan).isEqualTo(Decimal128.NaN);
+            assertThat(natives.timestamp).isEqualTo(new BSONTimestamp(1, 2));
+            assertThat(natives.binary.getData()).isEqualTo(new byte[]{1, 2});
+        }
+    }
+
+    private static class Natives {
+        ObjectId id;
+        Decimal128 decimal;
+        Decimal128 nan;
+        BSONTimestamp timestamp;
+        Binary binary;
+    }
+
+    private static class Payload {
+        DBObject dbo;
+        Bson bson;
+        BasicDBObject basic;
+        LazyDBObject lazy;
+        String name;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.bson4jackson;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.CharacterEscapes;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.BasicDBObject;
+import org.bson.BasicBSONEncoder;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MongoBsonGeneratorTest {
+
+    private final ObjectMapper mapper = new ObjectMapper(MongoBsonFactory.createFactory());
+
+    @Test
+    public void canWriteAsciiNamesAndValues() throws Exception {
+
+        Map<String, Object> document = new LinkedHashMap<String, Object>();
+        document.put("name", "John");
+        document.put("empty", "");
+        document.put("nested", new LinkedHashMap<String, Object>(document));
+
+        assertThat(mapper.writeValueAsBytes(document)).isEqualTo(encode(document));
+    }
+
+    @Test
+    public void canWriteNonAsciiNamesAndValues() throws Exception {
+
+        Map<String, Object> document = new LinkedHashMap<String, Object>();
+        document.put("prénom", "Benoît");
+        document.put("城市", "東京");
+        document.put("emoji", "a😀b");
+        document.put("mixed", "ascii then é and € and 𝄞");
+
+        assertThat(mapper.writeValueAsBytes(document)).isEqualTo(encode(document));
+    }
+
+    @Test
+    public void canWriteSameNamesWithSeveralGenerators() throws Exception {
+
+        Map<String, Object> document = new LinkedHashMap<String, Object>();
+        document.put("prénom", "Yves");
+
+        byte[] first = mapper.writeValueAsBytes(document);
+        byte[] second = mapper.writeValueAsBytes(document);
+
+        assertThat(first).isEqualTo(encode(document));
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    public void canWritePojoPropertyNames() throws Exception {
+
+        Friend friend = new Friend();
+        friend.prénom = "Benoît";
+        friend.address = "22 rue des murlins";
+
+        Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        expected.put("prénom", "Benoît");
+        expected.put("address", "22 rue des murlins");
+        ObjectMapper jongoMapper = Mapping.defaultMapping().getObjectMapper();
+        assertThat(jongoMapper.writeValueAsBytes(friend)).isEqualTo(encode(expected));
+        assertThat(jongoMapper.writeValueAsBytes(friend)).isEqualTo(encode(expected));
+    }
+
+    @Test
+    public void canWriteLargeArraysAndLongStrings() throws Exception {
+
+        List<Object> values = new ArrayList<Object>();
+        for (int i = 0; i < 1000; i++) {
+            values.add("value-" + i);
+        }
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            longString.append("é-");
+        }
+        Map<String, Object> document = new LinkedHashMap<String, Object>();
+        document.put("values", values);
+        document.put("long", longString.toString());
+
+        assertThat(mapper.writeValueAsBytes(document)).isEqualTo(encode(document));
+    }
+
+    @Test
+    public void shouldHonorCharacterEscapes() throws Exception {
+
+        MongoBsonFactory factory = (MongoBsonFactory) MongoBsonFactory.createFactory();
+        factory.setCharacterEscapes(new EscapeX());
+        ObjectMapper escapingMapper = new ObjectMapper(factory);
+        Map<String, Object> document = new LinkedHashMap<String, Object>();
+        document.put("xyz", Arrays.asList("box"));
+
+        Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        expected.put("_yz", Arrays.asList("bo_"));
+        assertThat(escapingMapper.writeValueAsBytes(document)).isEqualTo(encode(expected));
+    }
+
+    private static byte[] encode(Map<String, Object> document) {
+        return new BasicBSONEncoder().encode(new BasicDBObject(document));
+    }
+
+    private static class Friend {
+        private String prénom;
+        private String address;
+    }
+
+    private static class EscapeX extends CharacterEscapes {
+        @Override
+        public int[] getEscapeCodesForAscii() {
+            int[] escapes = standardAsciiEscapesForJSON();
+            escapes['x'] = ESCAPE_CUSTOM;
+            return escapes;
+        }
+
+        @Override
+        public SerializableString getEscapeSequence(int ch) {
+            return new SerializedString("_");
+        }
+    }
+}
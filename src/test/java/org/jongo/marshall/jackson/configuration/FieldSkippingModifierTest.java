@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.configuration;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.Code;
+import org.bson.types.Decimal128;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.bson.types.Symbol;
+import org.jongo.bson.Bson;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.MarshallingException;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.model.Coordinate;
+import org.jongo.model.Friend;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class FieldSkippingModifierTest {
+
+    private final List<JacksonEngine> engines = Arrays.asList(
+            new JacksonEngine(Mapping.defaultMapping()),
+            new JacksonEngine(new Mapping.Builder().withNativeBsonFactory().build()));
+
+    @Test
+    public void shouldSkipUnknownFieldsWithoutTokenizingThem() throws Exception {
+
+        BsonDocument document = corrupt(new BasicDBObject("name", "John")
+                .append("unknown", new BasicDBObject("bad", 1).append("list", Arrays.asList(1, 2)))
+                .append("address", "22 Wall Street Avenue"));
+
+        for (JacksonEngine engine : engines) {
+            Friend friend = engine.unmarshall(document, Friend.class);
+
+            assertThat(friend.getName()).isEqualTo("John");
+            assertThat(friend.getAddress()).isEqualTo("22 Wall Street Avenue");
+        }
+    }
+
+    @Test
+    public void shouldSkipUnknownFieldsOfNestedBeans() throws Exception {
+
+        BsonDocument document = corrupt(new BasicDBObject("name", "John")
+                .append("coordinate", new BasicDBObject("lat", 1).append("unknown", Arrays.asList(new BasicDBObject("bad", 1))).append("lng", 2))
+                .append("address", "22 Wall Street Avenue"));
+
+        for (JacksonEngine engine : engines) {
+            Friend friend = engine.unmarshall(document, Friend.class);
+
+            assertThat(friend.getCoordinate()).isEqualTo(new Coordinate(1, 2));
+            assertThat(friend.getAddress()).isEqualTo("22 Wall Street Avenue");
+        }
+    }
+
+    @Test
+    public void shouldSkipUnknownFieldsOfAnyType() throws Exception {
+
+        DBObject dbo = new BasicDBObject("double", 1.5).append("name", "John")
+                .append("string", "text").append("document", new BasicDBObject("a", 1)).append("array", Arrays.asList(1, "a"))
+                .append("binary", new Binary((byte) 0x80, new byte[]{1, 2})).append("bytes", new byte[]{3})
+                .append("objectId", new ObjectId()).append("boolean", true).append("date", new Date())
+                .append("null", null).append("regex", Pattern.compile("a.*", Pattern.CASE_INSENSITIVE))
+                .append("code", new Code("function() {}")).append("symbol", new Symbol("s"))
+                .append("int", 1).append("timestamp", new BSONTimestamp(1, 2)).append("long", 3L)
+                .append("decimal", Decimal128.parse("1.5")).append("minKey", new MinKey()).append("maxKey", new MaxKey())
+                .append("address", "22 Wall Street Avenue");
+
+        for (JacksonEngine engine : engines) {
+            Friend friend = engine.unmarshall(Bson.createDocument(dbo), Friend.class);
+
+            assertThat(friend.getName()).isEqualTo("John");
+            assertThat(friend.getAddress()).isEqualTo("22 Wall Street Avenue");
+        }
+    }
+
+    @Test
+    public void shouldKeepUnknownFieldsForAnySetter() throws Exception {
+
+        BsonDocument document = Bson.createDocument(new BasicDBObject("name", "John").append("age", 18).append("tags", Arrays.asList("a")));
+
+        for (JacksonEngine engine : engines) {
+            Dynamic dynamic = engine.unmarshall(document, Dynamic.class);
+
+            assertThat(dynamic.name).isEqualTo("John");
+            assertThat(dynamic.others).containsEntry("age", 18).containsEntry("tags", Arrays.asList("a"));
+        }
+    }
+
+    @Test
+    public void shouldKeepAllFieldsForDelegatingCreator() throws Exception {
+
+        BsonDocument document = Bson.createDocument(new BasicDBObject("name", "John").append("age", 3));
+
+        for (JacksonEngine engine : engines) {
+            Delegating delegating = engine.unmarshall(document, Delegating.class);
+
+            assertThat(delegating.values).containsEntry("name", "John").containsEntry("age", 3);
+        }
+    }
+
+    @Test
+    public void shouldSkipUnknownFieldsForPropertyBasedCreator() throws Exception {
+
+        BsonDocument document = corrupt(new BasicDBObject("name", "John")
+                .append("unknown", new BasicDBObject("bad", 1))
+                .append("age", 3));
+
+        for (JacksonEngine engine : engines) {
+            Created created = engine.unmarshall(document, Created.class);
+
+            assertThat(created.name).isEqualTo("John");
+            assertThat(created.age).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void shouldReportUnknownFieldsWhenFailingOnUnknownProperties() throws Exception {
+
+        JacksonEngine engine = new JacksonEngine(new Mapping.Builder().enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build());
+        BsonDocument document = Bson.createDocument(new BasicDBObject("name", "John").append("unknown", 1));
+
+        try {
+            engine.unmarshall(document, Friend.class);
+            fail("unknown field should have been reported");
+        } catch (MarshallingException e) {
+            assertThat(e.getCause().getMessage()).contains("unknown");
+        }
+    }
+
+    @Test
+    public void shouldJumpOverIgnoredDocuments() throws Exception {
+
+        JacksonEngine engine = new JacksonEngine(new Mapping.Builder().enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build());
+        BsonDocument document = corrupt(new BasicDBObject("name", "John")
+                .append("ignored", new BasicDBObject("nested", new BasicDBObject("bad", 1)))
+                .append("count", 2));
+
+        Ignoring ignoring = engine.unmarshall(document, Ignoring.class);
+
+        assertThat(ignoring.name).isEqualTo("John");
+        assertThat(ignoring.count).isEqualTo(2);
+        assertThat(ignoring.ignored).isNull();
+    }
+
+    /**
+     * Replaces the type of the <code>bad</code> element with an invalid one, the document can only be
+     * read when this element is never tokenized.
+     */
+    private static BsonDocument corrupt(DBObject dbo) {
+        byte[] bytes = Bson.createDocument(dbo).toByteArray();
+        for (int i = 0; i < bytes.length - 4; i++) {
+            if (bytes[i] == 0x10 && bytes[i + 1] == 'b' && bytes[i + 2] == 'a' && bytes[i + 3] == 'd' && bytes[i + 4] == 0) {
+                bytes[i] = 0x42;
+                return Bson.createDocument(bytes);
+            }
+        }
+        throw new IllegalArgumentException("No bad element in " + dbo);
+    }
+
+    private static class Dynamic {
+        private String name;
+        private Map<String, Object> others = new LinkedHashMap<String, Object>();
+
+        @JsonAnySetter
+        public void set(String key, Object value) {
+            others.put(key, value);
+        }
+    }
+
+    private static class Delegating {
+        private final Map<String, Object> values;
+
+        @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+        Delegating(Map<String, Object> values) {
+            this.values = values;
+        }
+    }
+
+    private static class Created {
+        private final String name;
+        private final int age;
+
+        @JsonCreator
+        Created(@JsonProperty("name") String name, @JsonProperty("age") int age) {
+            this.name = name;
+            this.age = age;
+        }
+    }
+
+    private static class Ignoring {
+        private String name;
+        @JsonIgnore
+        private Map<String, Object> ignored;
+        private int count;
+    }
+}
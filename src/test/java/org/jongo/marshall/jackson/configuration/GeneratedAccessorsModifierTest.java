@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.model.Coordinate;
+import org.jongo.model.Friend;
+import org.jongo.model.PropertyFriend;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class GeneratedAccessorsModifierTest {
+
+    private final JacksonEngine engine = new JacksonEngine(new Mapping.Builder().withGeneratedAccessors().build());
+    private final JacksonEngine reflectiveEngine = new JacksonEngine(new Mapping.Builder().build());
+
+    @Test
+    public void shouldWriteSameDocumentsAsReflection() throws Exception {
+
+        PropertyFriend friend = new PropertyFriend("John", "22 Wall Street Avenue", new Coordinate(1, 2), 35);
+
+        BsonDocument document = engine.marshall(friend);
+
+        assertThat(Arrays.copyOf(document.toByteArray(), document.getSize()))
+                .isEqualTo(Arrays.copyOf(reflectiveEngine.marshall(friend).toByteArray(), document.getSize()));
+        assertThat(engine.unmarshall(document, PropertyFriend.class)).isEqualTo(friend);
+    }
+
+    @Test
+    public void shouldKeepFieldMappedPropertiesUnchanged() throws Exception {
+
+        Friend friend = new Friend("John", "22 Wall Street Avenue");
+
+        Friend result = engine.unmarshall(engine.marshall(friend), Friend.class);
+
+        assertThat(result).isEqualTo(friend);
+    }
+
+    @Test
+    public void canAccessNonPublicMethods() throws Exception {
+
+        Hidden hidden = new Hidden();
+        hidden.setAge(12);
+
+        Hidden result = engine.unmarshall(engine.marshall(hidden), Hidden.class);
+
+        assertThat(result.age).isEqualTo(12);
+        assertThat(PropertyAccessors.setter(mutator(Hidden.class, "age"), true)).isNotNull();
+        assertThat(PropertyAccessors.setter(mutator(Hidden.class, "age"), false)).isNull();
+    }
+
+    @Test
+    public void shouldReportSetterFailures() throws Exception {
+
+        try {
+            engine.unmarshall(reflectiveEngine.marshall(new PropertyFriend("John", null, null, 0)), Failing.class);
+            fail("setter exception should have been reported");
+        } catch (Exception e) {
+            assertThat(e.getCause()).isInstanceOf(JsonMappingException.class);
+            assertThat(e.getCause().getCause()).hasMessage("unable to set name");
+        }
+    }
+
+    @Test
+    public void shouldBindPublicMethodsWithGeneratedClasses() throws Exception {
+
+        Object setter = PropertyAccessors.setter(mutator(PropertyFriend.class, "age"), false);
+
+        assertThat(setter).isNotNull();
+        assertThat(setter.getClass().getEnclosingClass()).isNull();
+        assertThat(PropertyAccessors.setter(mutator(Friend.class, "name"), true)).isNull();
+    }
+
+    private static AnnotatedMember mutator(Class<?> type, String property) {
+        DeserializationConfig config = new Mapping.Builder().build().getObjectMapper().getDeserializationConfig();
+        for (BeanPropertyDefinition definition : config.introspect(config.constructType(type)).findProperties()) {
+            if (definition.getName().equals(property)) {
+                return definition.getMutator();
+            }
+        }
+        throw new IllegalArgumentException(property);
+    }
+
+    private static class Hidden {
+        private int age;
+
+        @JsonProperty
+        private int getAge() {
+            return age;
+        }
+
+        @JsonProperty
+        private void setAge(int age) {
+            this.age = age;
+        }
+    }
+
+    private static class Failing {
+        private String name;
+
+        @JsonProperty
+        public void setName(String name) {
+            throw new IllegalStateException("unable to set name");
+        }
+    }
+}
@@ -17,8 +17,12 @@
 package org.jongo.marshall.jackson.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.bson.types.ObjectId;
+import org.jongo.model.Coordinate;
 import org.jongo.model.Friend;
+import org.jongo.model.Views;
 import org.junit.Test;
 
 import java.io.StringWriter;
@@ -40,4 +44,44 @@ public class MappingTest {
 
         assertThat(writer.toString()).contains("John");
     }
+
+    @Test
+    public void shouldReuseReadersAndWritersPerClass() throws Exception {
+        Mapping mapping = new Mapping.Builder().build();
+
+        assertThat(mapping.getReader(Friend.class)).isSameAs(mapping.getReader(Friend.class));
+        assertThat(mapping.getWriter(new Friend("John"))).isSameAs(mapping.getWriter(new Friend("Peter")));
+        assertThat(mapping.getWriter(new Friend("John"))).isNotSameAs(mapping.getWriter(new Coordinate(1, 2)));
+    }
+
+    @Test
+    public void shouldReuseViewReadersAndWritersPerClass() throws Exception {
+        Mapping mapping = new Mapping.Builder().withView(Views.Public.class).build();
+
+        ObjectWriter writer = mapping.getWriter(new Friend("John"));
+
+        assertThat(writer).isSameAs(mapping.getWriter(new Friend("Peter")));
+        assertThat(writer.getConfig().getActiveView()).isEqualTo(Views.Public.class);
+        assertThat(mapping.getReader(Friend.class).getConfig().getActiveView()).isEqualTo(Views.Public.class);
+    }
+
+    @Test
+    public void shouldNotCacheCustomCallbacks() throws Exception {
+        Mapping mapping = new Mapping.Builder().setReaderCallback(new ReaderCallback() {
+            public ObjectReader getReader(ObjectMapper mapper, Class<?> clazz) {
+                return mapper.readerFor(clazz);
+            }
+        }).build();
+
+        assertThat(mapping.getReader(Friend.class)).isNotSameAs(mapping.getReader(Friend.class));
+    }
+
+    @Test
+    public void canBuildWithPreloadedClasses() throws Exception {
+        Mapping mapping = new Mapping.Builder().preload(Friend.class).build();
+
+        ObjectReader reader = mapping.getReader(Friend.class);
+
+        assertThat(reader).isSameAs(mapping.getReader(Friend.class));
+    }
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.jackson.lazy;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.jongo.bson.Bson;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.MarshallingException;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.model.Coordinate;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class LazyFieldTest {
+
+    private final List<JacksonEngine> engines = Arrays.asList(
+            new JacksonEngine(Mapping.defaultMapping()),
+            new JacksonEngine(new Mapping.Builder().withNativeBsonFactory().build()));
+
+    @Test
+    public void shouldDecodeListElementsOnAccess() throws Exception {
+
+        BsonDocument document = corrupt(new BasicDBObject("name", "John")
+                .append("coordinates", Arrays.asList(
+                        new BasicDBObject("lat", 1).append("lng", 2),
+                        new BasicDBObject("lat", 3).append("bad", 4))));
+
+        for (JacksonEngine engine : engines) {
+            Route route = engine.unmarshall(document, Route.class);
+
+            assertThat(route.name).isEqualTo("John");
+            assertThat(route.coordinates).isInstanceOf(LazyList.class);
+            assertThat(route.coordinates).hasSize(2);
+            assertThat(route.coordinates.get(0)).isEqualTo(new Coordinate(1, 2));
+            try {
+                route.coordinates.get(1);
+                fail("second element should have been decoded on access");
+            } catch (MarshallingException e) {
+                assertThat(e.getMessage()).contains("element 1");
+            }
+        }
+    }
+
+    @Test
+    public void canReadListsOfValues() throws Exception {
+
+        BsonDocument document = Bson.createDocument(new BasicDBObject("tags", Arrays.asList("a", null, "c"))
+                .append("scores", Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3))));
+
+        for (JacksonEngine engine : engines) {
+            Route route = engine.unmarshall(document, Route.class);
+
+            assertThat(route.tags).containsExactly("a", null, "c");
+            assertThat(route.scores).containsExactly(Arrays.asList(1, 2), Arrays.asList(3));
+        }
+    }
+
+    @Test
+    public void shouldDecodeMapValuesOnLookup() throws Exception {
+
+        BsonDocument document = corrupt(new BasicDBObject("stops", new BasicDBObject()
+                .append("home", new BasicDBObject("lat", 1).append("lng", 2))
+                .append("work", new BasicDBObject("bad", 1))));
+
+        for (JacksonEngine engine : engines) {
+            Route route = engine.unmarshall(document, Route.class);
+
+            assertThat(route.stops).isInstanceOf(LazyMap.class);
+            assertThat(route.stops).hasSize(2);
+            assertThat(route.stops.containsKey("work")).isTrue();
+            assertThat(route.stops.get("home")).isEqualTo(new Coordinate(1, 2));
+            assertThat(route.stops.get("unknown")).isNull();
+        }
+    }
+
+    @Test
+    public void canBeReadByConcurrentThreads() throws Exception {
+
+        List<DBObject> coordinates = new ArrayList<DBObject>();
+        BasicDBObject stops = new BasicDBObject();
+        for (int i = 0; i < 50; i++) {
+            coordinates.add(new BasicDBObject("lat", i).append("lng", -i));
+            stops.append("stop" + i, new BasicDBObject("lat", i).append("lng", -i));
+        }
+        BsonDocument document = Bson.createDocument(new BasicDBObject("coordinates", coordinates).append("stops", stops));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int run = 0; run < 100; run++) {
+                final Route route = engines.get(run % 2).unmarshall(document, Route.class);
+                final CountDownLatch start = new CountDownLatch(1);
+                List<Future<List<Coordinate>>> reads = new ArrayList<Future<List<Coordinate>>>();
+                for (int thread = 0; thread < 4; thread++) {
+                    reads.add(executor.submit(new Callable<List<Coordinate>>() {
+                        public List<Coordinate> call() throws Exception {
+                            start.await();
+                            List<Coordinate> read = new ArrayList<Coordinate>();
+                            for (int i = 0; i < route.coordinates.size(); i++) {
+                                read.add(route.coordinates.get(i));
+                                read.add(route.stops.get("stop" + i));
+                            }
+                            return read;
+                        }
+                    }));
+                }
+                start.countDown();
+
+                List<Coordinate> first = reads.get(0).get();
+                assertThat(first).hasSize(100);
+                for (int i = 0; i < 50; i++) {
+                    assertThat(first.get(2 * i)).isEqualTo(new Coordinate(i, -i));
+                    assertThat(first.get(2 * i + 1)).isEqualTo(new Coordinate(i, -i));
+                }
+                for (Future<List<Coordinate>> read : reads) {
+                    List<Coordinate> values = read.get();
+                    for (int i = 0; i < values.size(); i++) {
+                        assertThat(values.get(i)).isSameAs(first.get(i));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldDecodeEverythingOnceModified() throws Exception {
+
+        BsonDocument document = Bson.createDocument(new BasicDBObject("coordinates", Arrays.asList(new BasicDBObject("lat", 1).append("lng", 2)))
+                .append("stops", new BasicDBObject("home", new BasicDBObject("lat", 3).append("lng", 4))));
+
+        for (JacksonEngine engine : engines) {
+            Route route = engine.unmarshall(document, Route.class);
+            route.coordinates.add(new Coordinate(5, 6));
+            route.stops.put("work", new Coordinate(7, 8));
+
+            assertThat(route.coordinates).containsExactly(new Coordinate(1, 2), new Coordinate(5, 6));
+            assertThat(route.stops).containsEntry("home", new Coordinate(3, 4)).containsEntry("work", new Coordinate(7, 8));
+        }
+    }
+
+    @Test
+    public void canMarshallLazyFields() throws Exception {
+
+        BsonDocument document = Bson.createDocument(new BasicDBObject("name", "John")
+                .append("coordinates", Arrays.asList(new BasicDBObject("lat", 1).append("lng", 2)))
+                .append("stops", new BasicDBObject("home", new BasicDBObject("lat", 3).append("lng", 4))));
+
+        for (JacksonEngine engine : engines) {
+            Route route = engine.unmarshall(document, Route.class);
+
+            Route copy = engine.unmarshall(engine.marshall(route), Route.class);
+
+            assertThat(copy.name).isEqualTo("John");
+            assertThat(copy.coordinates).containsExactly(new Coordinate(1, 2));
+            assertThat(copy.stops).containsEntry("home", new Coordinate(3, 4));
+        }
+    }
+
+    @Test
+    public void shouldDecodeEagerlyWhenReadingFromAStream() throws Exception {
+
+        byte[] bytes = Bson.createDocument(new BasicDBObject("coordinates", Arrays.asList(new BasicDBObject("lat", 1).append("lng", 2)))).toByteArray();
+
+        Route route = Mapping.defaultMapping().getObjectMapper().readValue(new ByteArrayInputStream(bytes), Route.class);
+
+        assertThat(route.coordinates).isNotInstanceOf(LazyList.class);
+        assertThat(route.coordinates).containsExactly(new Coordinate(1, 2));
+    }
+
+    @Test
+    public void shouldRejectUnsupportedProperties() throws Exception {
+
+        BsonDocument document = Bson.createDocument(new BasicDBObject("coordinate", new BasicDBObject("lat", 1).append("lng", 2)));
+
+        for (JacksonEngine engine : engines) {
+            try {
+                engine.unmarshall(document, Invalid.class);
+                fail("should have failed");
+            } catch (MarshallingException e) {
+                assertThat(e.getCause().getMessage()).contains("@LazyField");
+            }
+        }
+    }
+
+    private static BsonDocument corrupt(DBObject dbo) {
+        byte[] bytes = Bson.createDocument(dbo).toByteArray();
+        for (int i = 0; i < bytes.length - 4; i++) {
+            if (bytes[i] == 0x10 && bytes[i + 1] == 'b' && bytes[i + 2] == 'a' && bytes[i + 3] == 'd' && bytes[i + 4] == 0) {
+                bytes[i] = 0x42;
+                return Bson.createDocument(bytes);
+            }
+        }
+        throw new IllegalArgumentException("No bad element in " + dbo);
+    }
+
+    private static class Route {
+        private String name;
+        @LazyField
+        private List<Coordinate> coordinates;
+        @LazyField
+        private Collection<String> tags;
+        @LazyField
+        private Iterable<List<Integer>> scores;
+        @LazyField
+        private Map<String, Coordinate> stops;
+    }
+
+    private static class Invalid {
+        @LazyField
+        private Coordinate coordinate;
+    }
+}
@@ -23,14 +23,17 @@ import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
 import org.jongo.bson.Bson;
 import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.jackson.JacksonEngine;
 import org.jongo.marshall.jackson.configuration.Mapping;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 
@@ -81,6 +84,22 @@ public class AnnotationsTest {
         assertThat(testObj.id, equalTo("53a499be60b2a2248d956875"));
     }
 
+    @Test
+    public void shouldReadAndWriteNativeObjectIdWithObjectIdAnnotation() throws IOException {
+
+        ObjectId id = new ObjectId("53a499be60b2a2248d956875");
+        BsonDocument document = Bson.createDocument(new BasicDBObject("id", id));
+
+        for (Mapping mapping : asList(new Mapping.Builder().build(), new Mapping.Builder().withNativeBsonFactory().build())) {
+            JacksonEngine engine = new JacksonEngine(mapping);
+
+            WithMongoObjectId testObj = engine.unmarshall(document, WithMongoObjectId.class);
+
+            assertThat(testObj.id, equalTo("53a499be60b2a2248d956875"));
+            assertThat(engine.marshall(testObj).toDBObject().get("id"), equalTo((Object) id));
+        }
+    }
+
     private static class WithMongoObjectId {
         @MongoObjectId
         @JsonProperty
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.marshall.view;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.jongo.bson.Bson;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.MarshallingException;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.marshall.jackson.oid.MongoId;
+import org.jongo.model.Coordinate;
+import org.jongo.model.Gender;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ViewFactoryTest {
+
+    private final JacksonEngine engine = new JacksonEngine(Mapping.defaultMapping());
+
+    @Test
+    public void canReadFieldsThroughGetters() throws Exception {
+
+        ObjectId id = new ObjectId();
+        Date birthDate = new Date(123456789L);
+        BsonDocument document = Bson.createDocument(new BasicDBObject("_id", id)
+                .append("name", "John")
+                .append("age", 42)
+                .append("score", 12L)
+                .append("ratio", 0.5)
+                .append("active", true)
+                .append("birthDate", birthDate)
+                .append("gender", "FEMALE")
+                .append("picture", new Binary(new byte[]{1, 2, 3})));
+
+        FriendView view = new ViewFactory<FriendView>(FriendView.class, engine).create(document);
+
+        assertThat(view.getId()).isEqualTo(id);
+        assertThat(view.getName()).isEqualTo("John");
+        assertThat(view.getAge()).isEqualTo(42);
+        assertThat(view.score()).isEqualTo(12);
+        assertThat(view.getRatio()).isEqualTo(0.5);
+        assertThat(view.isActive()).isTrue();
+        assertThat(view.getBirthDate()).isEqualTo(birthDate);
+        assertThat(view.getGender()).isEqualTo(Gender.FEMALE);
+        assertThat(view.getPicture()).isEqualTo(new byte[]{1, 2, 3});
+    }
+
+    @Test
+    public void canRenameFields() throws Exception {
+
+        ObjectId id = new ObjectId();
+        BsonDocument document = Bson.createDocument(new BasicDBObject("_id", id).append("full_name", "John"));
+
+        RenamedView view = new ViewFactory<RenamedView>(RenamedView.class, engine).create(document);
+
+        assertThat(view.getKey()).isEqualTo(id.toString());
+        assertThat(view.getFullName()).isEqualTo("John");
+    }
+
+    @Test
+    public void shouldReturnDefaultValuesForMissingFields() throws Exception {
+
+        BsonDocument document = Bson.createDocument(new BasicDBObject("name", null).append("unknown", "value"));
+
+        FriendView view = new ViewFactory<FriendView>(FriendView.class, engine).create(document);
+
+        assertThat(view.getName()).isNull();
+        assertThat(view.getAge()).isEqualTo(0);
+        assertThat(view.isActive()).isFalse();
+        assertThat(view.getBirthDate()).isNull();
+    }
+
+    @Test
+    public void canReadNestedViewsAndLists() throws Exception {
+
+        BsonDocument document = Bson.createDocument(new BasicDBObject("name", "John")
+                .append("friend", new BasicDBObject("name", "Peter").append("age", 21))
+                .append("friends", Arrays.asList(new BasicDBObject("name", "Robert"), null))
+                .append("tags", Arrays.asList("a", "b"))
+                .append("scores", Arrays.asList(1, 2L, 3.0)));
+
+        GroupView view = new ViewFactory<GroupView>(GroupView.class, engine).create(document);
+
+        assertThat(view.getFriend().getName()).isEqualTo("Peter");
+        assertThat(view.getFriend().getAge()).isEqualTo(21);
+        assertThat(view.getFriends()).hasSize(2);
+        assertThat(view.getFriends().get(0).getName()).isEqualTo("Robert");
+        assertThat(view.getFriends().get(1)).isNull();
+        assertThat(view.getTags()).containsExactly("a", "b");
+        assertThat(view.getScores()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void canReadUntypedValues() throws Exception {
+
+        BsonDocument document = Bson.createDocument(new BasicDBObject("value", new BasicDBObject("a", 1))
+                .append("values", Arrays.asList("a", 1)));
+
+        UntypedView view = new ViewFactory<UntypedView>(UntypedView.class, engine).create(document);
+
+        assertThat(((DBObject) view.getValue()).get("a")).isEqualTo(1);
+        assertThat(view.getValues()).containsExactly("a", 1);
+    }
+
+    @Test
+    public void shouldUnmarshallSubdocumentsOfOtherTypes() throws Exception {
+
+        BsonDocument document = Bson.createDocument(new BasicDBObject("coordinate", new BasicDBObject("lat", 1).append("lng", 2))
+                .append("attributes", new BasicDBObject("color", "red")));
+
+        UntypedView view = new ViewFactory<UntypedView>(UntypedView.class, engine).create(document);
+
+        assertThat(view.getCoordinate()).isEqualTo(new Coordinate(1, 2));
+        assertThat(view.getAttributes()).containsEntry("color", "red");
+    }
+
+    @Test
+    public void shouldFailWhenValueCannotBeConverted() throws Exception {
+
+        BsonDocument document = Bson.createDocument(new BasicDBObject("age", "forty"));
+
+        FriendView view = new ViewFactory<FriendView>(FriendView.class, engine).create(document);
+
+        try {
+            view.getAge();
+            fail("should have thrown");
+        } catch (MarshallingException e) {
+            assertThat(e.getMessage()).contains("age");
+        }
+    }
+
+    @Test
+    public void shouldCompareViewsOnDocumentBytes() throws Exception {
+
+        ViewFactory<FriendView> factory = new ViewFactory<FriendView>(FriendView.class, engine);
+        FriendView view = factory.create(Bson.createDocument(new BasicDBObject("name", "John")));
+        FriendView same = factory.create(Bson.createDocument(new BasicDBObject("name", "John")));
+        FriendView other = factory.create(Bson.createDocument(new BasicDBObject("name", "Peter")));
+
+        assertThat(view).isEqualTo(same);
+        assertThat(view.hashCode()).isEqualTo(same.hashCode());
+        assertThat(view).isNotEqualTo(other);
+        assertThat(view.toString()).contains("John");
+    }
+
+    @Test
+    public void shouldRejectInvalidViews() throws Exception {
+
+        try {
+            new ViewFactory<Coordinate>(Coordinate.class, engine);
+            fail("should have thrown");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("Coordinate");
+        }
+        try {
+            new ViewFactory<SetterView>(SetterView.class, engine);
+            fail("should have thrown");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("setName");
+        }
+    }
+
+    public interface FriendView {
+        @MongoId
+        ObjectId getId();
+
+        String getName();
+
+        int getAge();
+
+        long score();
+
+        double getRatio();
+
+        boolean isActive();
+
+        Date getBirthDate();
+
+        Gender getGender();
+
+        byte[] getPicture();
+    }
+
+    public interface RenamedView {
+        @MongoId
+        String getKey();
+
+        @JsonProperty("full_name")
+        String getFullName();
+    }
+
+    public interface GroupView {
+        FriendView getFriend();
+
+        List<FriendView> getFriends();
+
+        List<String> getTags();
+
+        List<Integer> getScores();
+    }
+
+    public interface UntypedView {
+        Object getValue();
+
+        List<Object> getValues();
+
+        Coordinate getCoordinate();
+
+        Map<String, String> getAttributes();
+    }
+
+    public interface SetterView {
+        void setName(String name);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class PropertyFriend {
+
+    private String name;
+    private String address;
+    private Coordinate coordinate;
+    private int age;
+
+    public PropertyFriend() {
+    }
+
+    public PropertyFriend(String name, String address, Coordinate coordinate, int age) {
+        this.name = name;
+        this.address = address;
+        this.coordinate = coordinate;
+        this.age = age;
+    }
+
+    @JsonProperty
+    public String getName() {
+        return name;
+    }
+
+    @JsonProperty
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @JsonProperty
+    public String getAddress() {
+        return address;
+    }
+
+    @JsonProperty
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    @JsonProperty
+    public Coordinate getCoordinate() {
+        return coordinate;
+    }
+
+    @JsonProperty
+    public void setCoordinate(Coordinate coordinate) {
+        this.coordinate = coordinate;
+    }
+
+    @JsonProperty
+    public int getAge() {
+        return age;
+    }
+
+    @JsonProperty
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PropertyFriend)) return false;
+
+        PropertyFriend friend = (PropertyFriend) o;
+
+        if (age != friend.age) return false;
+        if (address != null ? !address.equals(friend.address) : friend.address != null) return false;
+        if (coordinate != null ? !coordinate.equals(friend.coordinate) : friend.coordinate != null) return false;
+        return name != null ? name.equals(friend.name) : friend.name == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = name != null ? name.hashCode() : 0;
+        result = 31 * result + (address != null ? address.hashCode() : 0);
+        result = 31 * result + (coordinate != null ? coordinate.hashCode() : 0);
+        result = 31 * result + age;
+        return result;
+    }
+}
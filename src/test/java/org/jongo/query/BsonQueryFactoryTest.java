@@ -16,17 +16,22 @@
 
 package org.jongo.query;
 
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonTypeName;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 import com.mongodb.QueryBuilder;
+import org.bson.BsonDocument;
 import org.bson.types.ObjectId;
 import org.jongo.marshall.jackson.JacksonEngine;
 import org.jongo.marshall.jackson.configuration.Mapping;
 import org.jongo.model.Coordinate;
 import org.jongo.model.Friend;
+import org.jongo.model.Gender;
 import org.jongo.util.ErrorObject;
 import org.junit.Before;
 import org.junit.Test;
@@ -210,6 +215,68 @@ public class BsonQueryFactoryTest {
         assertThat(query.get("friend")).isEqualTo("Robert");
     }
 
+    @Test
+    public void canHandlePOJOSerializedAsStringManyTimes() throws Exception {
+
+        Mapping mapping = new Mapping.Builder().addSerializer(Friend.class, new JsonSerializer<Friend>() {
+
+            @Override
+            public void serialize(Friend friend, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+                jgen.writeString(friend.getName());
+            }
+        }).build();
+        QueryFactory customFactory = new BsonQueryFactory(new JacksonEngine(mapping));
+
+        DBObject first = customFactory.createQuery("{friend:#}", new Friend("Robert")).toDBObject();
+        DBObject second = customFactory.createQuery("{friend:#}", new Friend("John")).toDBObject();
+
+        assertThat(first.get("friend")).isEqualTo("Robert");
+        assertThat(second.get("friend")).isEqualTo("John");
+    }
+
+    @Test
+    public void canHandlePOJOSerializedAsStringOrDocument() throws Exception {
+
+        Mapping mapping = new Mapping.Builder().addSerializer(Pet.class, new JsonSerializer<Pet>() {
+
+            @Override
+            public void serialize(Pet pet, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+                serializeWithType(pet, jgen, provider, null);
+            }
+
+            @Override
+            public void serializeWithType(Pet pet, JsonGenerator jgen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+                if (pet.nickname != null) {
+                    jgen.writeString(pet.nickname);
+                    return;
+                }
+                jgen.writeStartObject();
+                if (typeSer != null) {
+                    jgen.writeStringField(typeSer.getPropertyName(), typeSer.getTypeIdResolver().idFromValue(pet));
+                }
+                jgen.writeStringField("name", pet.name);
+                jgen.writeEndObject();
+            }
+        }).build();
+        QueryFactory customFactory = new BsonQueryFactory(new JacksonEngine(mapping));
+
+        DBObject first = customFactory.createQuery("{pet:#}", new Pet("Garfield", "Garf")).toDBObject();
+        DBObject second = customFactory.createQuery("{pet:#}", new Pet("Felix", null)).toDBObject();
+
+        assertThat(first.get("pet")).isEqualTo("Garf");
+        assertThat(second.get("pet")).isEqualTo(new BasicDBObject("type", "pet").append("name", "Felix"));
+    }
+
+    @Test
+    public void canHandleEnum() throws Exception {
+
+        DBObject first = factory.createQuery("{gender:#}", Gender.FEMALE).toDBObject();
+        DBObject second = factory.createQuery("{genders:[#, #]}", Gender.FEMALE, Gender.FEMALE).toDBObject();
+
+        assertThat(first.get("gender")).isEqualTo("FEMALE");
+        assertThat(second).isEqualTo(BasicDBObject.parse("{genders: ['FEMALE', 'FEMALE']}"));
+    }
+
     @Test
     public void canHandlePOJOSerializedAsBoolean() throws Exception {
 
@@ -321,6 +388,39 @@ public class BsonQueryFactoryTest {
         assertThat(query.toDBObject()).isEqualTo(QueryBuilder.start("a").is("a").and("id").is("b").get());
     }
 
+    @Test
+    public void shouldBindKeyParameterAfterAnArray() throws Exception {
+
+        Query query = factory.createQuery("{a: [1, 2], #: 'b'}", "id");
+
+        assertThat(query.toDBObject()).isEqualTo(BasicDBObject.parse("{a: [1, 2], id: 'b'}"));
+    }
+
+    @Test
+    public void shouldBindValueParameterAfterADocumentInAnArray() throws Exception {
+
+        Query query = factory.createQuery("{a: [{b: 1}, #]}", "test");
+
+        assertThat(query.toDBObject()).isEqualTo(BasicDBObject.parse("{a: [{b: 1}, 'test']}"));
+    }
+
+    @Test
+    public void shouldBindParameterInStringWithEscapedQuote() throws Exception {
+
+        Query query = factory.createQuery("{a: 'it\\'s #'}", "John");
+
+        assertThat(query.toDBObject()).isEqualTo(new BasicDBObject("a", "it's John"));
+    }
+
+    @Test
+    public void shouldBindObjectIdParameterWithQuotedOperator() throws Exception {
+
+        ObjectId objectId = new ObjectId();
+        Query query = factory.createQuery("{_id:{\"$oid\" : #}}", objectId.toHexString());
+
+        assertThat(query.toDBObject()).isEqualTo(new BasicDBObject("_id", objectId));
+    }
+
     @Test
     public void shouldBindOneValueInAnArray() throws Exception {
 
@@ -383,7 +483,118 @@ public class BsonQueryFactoryTest {
         assertThat(query.toDBObject()).isEqualTo(QueryBuilder.start("_id").is("123\",\"name\": \"toto").get());
     }
 
+    @Test
+    public void shouldReuseCompiledQueryWithOtherParameters() throws Exception {
+
+        BsonQueryFactory cachedFactory = new BsonQueryFactory(new JacksonEngine(Mapping.defaultMapping()));
+
+        DBObject first = cachedFactory.createQuery("{a: #, b: {c: [1, #]}}", 1, "one").toDBObject();
+        DBObject second = cachedFactory.createQuery("{a: #, b: {c: [1, #]}}", 2, "two").toDBObject();
+
+        assertThat(cachedFactory.getTemplateCache().getHitCount()).isEqualTo(1);
+        assertThat(first.toString()).isEqualTo(BasicDBObject.parse("{a: 1, b: {c: [1, 'one']}}").toString());
+        assertThat(second.toString()).isEqualTo(BasicDBObject.parse("{a: 2, b: {c: [1, 'two']}}").toString());
+    }
+
+    @Test
+    public void shouldNotShareCachedQueryBetweenCalls() throws Exception {
+
+        DBObject first = factory.createQuery("{a: {b: 1}}").toDBObject();
+        ((DBObject) first.get("a")).put("b", 2);
+
+        DBObject second = factory.createQuery("{a: {b: 1}}").toDBObject();
+
+        assertThat(((DBObject) second.get("a")).get("b")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotCacheQueryWithInlinedParameters() throws Exception {
+
+        BsonQueryFactory cachedFactory = new BsonQueryFactory(new JacksonEngine(Mapping.defaultMapping()));
+
+        cachedFactory.createQuery("{#: 123}", "id");
+        Query query = cachedFactory.createQuery("{#: 123}", "name");
+
+        assertThat(cachedFactory.getTemplateCache().size()).isEqualTo(0);
+        assertThat(query.toDBObject()).isEqualTo(QueryBuilder.start("name").is(123).get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWhenNotEnoughParametersForCachedQuery() throws Exception {
+
+        factory.createQuery("{id:#,id2:#}", "123", "456");
+        factory.createQuery("{id:#,id2:#}", "123");
+    }
+
+    @Test
+    public void canConvertQueryToBsonDocument() throws Exception {
+
+        Query query = factory.createQuery("{a: #, b: [1, 2]}", "test");
+
+        assertThat(query.toBsonDocument()).isEqualTo(BsonDocument.parse("{a: 'test', b: [1, 2]}"));
+    }
+
+    @Test
+    public void shouldCopyQueryWithoutAlteringIt() throws Exception {
+
+        Query query = factory.createQuery("{friend: #, b: {c: 1}}", new Friend("John"));
+
+        DBObject copy = query.copyDBObject();
+        ((DBObject) copy.get("friend")).removeField("name");
+        ((DBObject) copy.get("b")).put("c", 2);
+
+        assertThat(query.toDBObject()).isEqualTo(BasicDBObject.parse("{friend: {name: 'John'}, b: {c: 1}}"));
+        assertThat(copy).isEqualTo(BasicDBObject.parse("{friend: {}, b: {c: 2}}"));
+    }
+
+    @Test
+    public void shouldBindPreparedQuery() throws Exception {
+
+        PreparedQuery prepared = factory.prepareQuery("{a: #, b: {c: [1, #]}}");
+
+        DBObject first = prepared.bind(1, "one").toDBObject();
+        DBObject second = prepared.bind(2, "two").toDBObject();
+
+        assertThat(prepared.getParameterCount()).isEqualTo(2);
+        assertThat(first).isEqualTo(BasicDBObject.parse("{a: 1, b: {c: [1, 'one']}}"));
+        assertThat(second).isEqualTo(BasicDBObject.parse("{a: 2, b: {c: [1, 'two']}}"));
+    }
+
+    @Test
+    public void shouldBindPreparedQueryWithKeyParameter() throws Exception {
+
+        PreparedQuery prepared = factory.prepareQuery("{#: #}");
+
+        assertThat(prepared.getParameterCount()).isEqualTo(2);
+        assertThat(prepared.bind("a", 1).toDBObject()).isEqualTo(new BasicDBObject("a", 1));
+        assertThat(prepared.bind("b", 2).toDBObject()).isEqualTo(new BasicDBObject("b", 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToBindPreparedQueryWithTooManyParameters() throws Exception {
+
+        factory.prepareQuery("{a: #}").bind(1, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToPrepareInvalidQuery() throws Exception {
+
+        factory.prepareQuery("{a: #");
+    }
+
     private String sanitize(String value) {
         return value.replaceAll(" ", "");
     }
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
+    @JsonTypeName("pet")
+    private static class Pet {
+        private final String name;
+        private final String nickname;
+
+        private Pet(String name, String nickname) {
+            this.name = name;
+            this.nickname = nickname;
+        }
+    }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.BasicDBObject;
+import org.bson.BsonDocument;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.model.Coordinate;
+import org.jongo.model.Friend;
+import org.jongo.model.Gender;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FiltersTest {
+
+    private Filters filters;
+    private Updates updates;
+    private QueryFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        JacksonEngine engine = new JacksonEngine(Mapping.defaultMapping());
+        filters = new Filters(engine);
+        updates = new Updates(engine);
+        factory = new BsonQueryFactory(engine);
+    }
+
+    @Test
+    public void shouldCreateEqualityFilter() throws Exception {
+
+        Filter filter = filters.eq("name", "John");
+
+        assertThat(filter.toDBObject().get("name")).isEqualTo("John");
+        assertThat(filter.toBsonDocument()).isEqualTo(BsonDocument.parse("{name:'John'}"));
+    }
+
+    @Test
+    public void shouldCreateOperatorFilters() throws Exception {
+
+        Filter filter = filters.and(
+                filters.gt("age", 18),
+                filters.lte("age", 65),
+                filters.ne("name", null),
+                filters.in("tags", "a", "b"),
+                filters.exists("address", false));
+
+        assertThat(filter.copyDBObject()).isEqualTo(factory.createQuery(
+                "{$and:[{age:{$gt:18}},{age:{$lte:65}},{name:{$ne:null}},{tags:{$in:['a','b']}},{address:{$exists:false}}]}").toDBObject());
+    }
+
+    @Test
+    public void shouldCreateCompositeFilters() throws Exception {
+
+        Filter filter = filters.or(filters.eq("name", "John"), filters.nor(filters.regex("name", "^P")));
+
+        assertThat(filter.toBsonDocument()).isEqualTo(BsonDocument.parse(
+                "{$or:[{name:'John'},{$nor:[{name:{$regularExpression:{pattern:'^P',options:''}}}]}]}"));
+    }
+
+    @Test
+    public void shouldCreateElemMatchFilter() throws Exception {
+
+        Filter filter = filters.elemMatch("friends", filters.eq("name", "Peter"));
+
+        assertThat(filter.copyDBObject()).isEqualTo(BasicDBObject.parse("{friends:{$elemMatch:{name:'Peter'}}}"));
+    }
+
+    @Test
+    public void shouldMarshallValuesLikeQueryParameters() throws Exception {
+
+        Friend friend = new Friend("Peter", new Coordinate(1, 2));
+        friend.setGender(Gender.FEMALE);
+
+        Filter filter = filters.and(filters.eq("friend", friend), filters.eq("gender", Gender.FEMALE));
+
+        assertThat(filter.toBsonDocument()).isEqualTo(
+                factory.createQuery("{$and:[{friend:#},{gender:#}]}", friend, Gender.FEMALE).toBsonDocument());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithEmptyCompositeFilter() throws Exception {
+
+        filters.and();
+    }
+
+    @Test
+    public void shouldCombineModifiersByOperator() throws Exception {
+
+        Modifier modifier = updates.combine(
+                updates.set("name", "John"),
+                updates.inc("age", 1),
+                updates.set("address", "Paris"),
+                updates.unset("gender"));
+
+        assertThat(modifier.copyDBObject()).isEqualTo(
+                BasicDBObject.parse("{$set:{name:'John',address:'Paris'},$inc:{age:1},$unset:{gender:''}}"));
+        assertThat(modifier.toBsonDocument()).isEqualTo(
+                BsonDocument.parse("{$set:{name:'John',address:'Paris'},$inc:{age:1},$unset:{gender:''}}"));
+    }
+
+    @Test
+    public void shouldMarshallModifierValues() throws Exception {
+
+        Coordinate coordinate = new Coordinate(1, 2);
+
+        Modifier modifier = updates.combine(updates.push("coordinates", coordinate), updates.setOnInsert("gender", Gender.FEMALE));
+
+        assertThat(modifier.toBsonDocument()).isEqualTo(
+                factory.createQuery("{$push:{coordinates:#},$setOnInsert:{gender:#}}", coordinate, Gender.FEMALE).toBsonDocument());
+    }
+
+    @Test
+    public void canCopyEncodedQuery() throws Exception {
+
+        Filter filter = filters.eq("name", "John");
+
+        assertThat(filter.copyDBObject()).isEqualTo(new BasicDBObject("name", "John"));
+        assertThat(filter.copyDBObject()).isNotSameAs(filter.copyDBObject());
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+import org.jongo.Mapper;
+import org.jongo.marshall.jackson.JacksonMapper;
+import org.jongo.model.Friend;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Mapper mapper;
+    private File output;
+    private List<String> errors;
+
+    @Before
+    public void setUp() throws Exception {
+        mapper = new JacksonMapper.Builder().build();
+        output = folder.newFolder();
+        errors = new ArrayList<String>();
+    }
+
+    @Test
+    public void shouldGenerateQueryBuiltWithoutParsing() throws Exception {
+
+        Object queries = compileAndCreate("FriendQueries",
+                "public interface FriendQueries {",
+                "    @org.jongo.query.annotation.Query(\"{name: #, age: {$gt: #}, tags: {$in: ['a\\\"b', #, 1.5, 2, {$numberLong: '3'}]}}\")",
+                "    Query search(String name, int age, Object tag);",
+                "}");
+
+        DBObject query = invoke(queries, "search", "John", 18, new Friend("Peter")).toDBObject();
+
+        assertThat(query).isEqualTo(new BsonQueryFactory(mapper.getMarshaller())
+                .createQuery("{name: #, age: {$gt: #}, tags: {$in: ['a\"b', #, 1.5, 2, {$numberLong: '3'}]}}", "John", 18, new Friend("Peter"))
+                .toDBObject());
+    }
+
+    @Test
+    public void shouldGenerateQueryWithExtendedJsonLiterals() throws Exception {
+
+        Object queries = compileAndCreate("LiteralQueries",
+                "public interface LiteralQueries {",
+                "    @org.jongo.query.annotation.Query(\"{_id: {$oid: '47cc67093475061e3d95369d'}, d: {$date: 1000}, r: {$regex: 'a.*', $options: 'i'}, n: null}\")",
+                "    Query literals();",
+                "}");
+
+        DBObject query = invoke(queries, "literals").toDBObject();
+
+        assertThat(query).isEqualTo(BasicDBObject.parse("{_id: {$oid: '47cc67093475061e3d95369d'}, d: {$date: 1000}, r: {$regex: 'a.*', $options: 'i'}, n: null}"));
+    }
+
+    @Test
+    public void shouldFallbackToRuntimeParsingForInlinedParameters() throws Exception {
+
+        ObjectId id = new ObjectId();
+        Object queries = compileAndCreate("InlinedQueries",
+                "public interface InlinedQueries {",
+                "    @org.jongo.query.annotation.Query(\"{#: 1, _id: {$oid: #}}\")",
+                "    Query byKey(String key, String id);",
+                "}");
+
+        DBObject query = invoke(queries, "byKey", "a", id.toHexString()).toDBObject();
+
+        assertThat(query).isEqualTo(new BasicDBObject("a", 1).append("_id", id));
+    }
+
+    @Test
+    public void shouldFallbackToQueryFactoryOfTheMapper() throws Exception {
+
+        final QueryFactory delegate = new BsonQueryFactory(mapper.getMarshaller());
+        final AtomicInteger created = new AtomicInteger();
+        mapper = new JacksonMapper.Builder().withQueryFactory(new QueryFactory() {
+            public Query createQuery(String query, Object... parameters) {
+                created.incrementAndGet();
+                return delegate.createQuery(query, parameters);
+            }
+        }).build();
+        Object queries = compileAndCreate("FactoryQueries",
+                "public interface FactoryQueries {",
+                "    @org.jongo.query.annotation.Query(\"{#: 1}\")",
+                "    Query byKey(String key);",
+                "}");
+
+        DBObject query = invoke(queries, "byKey", "a").toDBObject();
+
+        assertThat(query).isEqualTo(new BasicDBObject("a", 1));
+        assertThat(created.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReturnNewDocumentForEachCall() throws Exception {
+
+        Object queries = compileAndCreate("NameQueries",
+                "public interface NameQueries {",
+                "    @org.jongo.query.annotation.Query(\"{name: {$in: ['John']}}\")",
+                "    Query johns();",
+                "}");
+
+        DBObject first = invoke(queries, "johns").toDBObject();
+        first.put("name", "Robert");
+
+        assertThat(invoke(queries, "johns").toDBObject()).isEqualTo(BasicDBObject.parse("{name: {$in: ['John']}}"));
+    }
+
+    @Test
+    public void shouldFailToCompileInvalidQuery() throws Exception {
+
+        compile("InvalidQueries",
+                "public interface InvalidQueries {",
+                "    @org.jongo.query.annotation.Query(\"{name: #\")",
+                "    Query invalid(String name);",
+                "}");
+
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0)).contains("Invalid query {name: #");
+    }
+
+    @Test
+    public void shouldFailToCompileWhenParameterCountDoesNotMatch() throws Exception {
+
+        compile("CountQueries",
+                "public interface CountQueries {",
+                "    @org.jongo.query.annotation.Query(\"{name: #, age: #}\")",
+                "    Query search(String name);",
+                "}");
+
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0)).contains("template has 2 parameters but method declares 1");
+    }
+
+    @Test
+    public void shouldFailToCompileWhenMethodDoesNotReturnQuery() throws Exception {
+
+        compile("ReturnQueries",
+                "public interface ReturnQueries {",
+                "    @org.jongo.query.annotation.Query(\"{name: #}\")",
+                "    String search(String name);",
+                "}");
+
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0)).contains("must return org.jongo.query.Query");
+    }
+
+    @Test
+    public void shouldFailToCompileQueriesOutsideAnInterface() throws Exception {
+
+        compile("ClassQueries",
+                "public abstract class ClassQueries {",
+                "    @org.jongo.query.annotation.Query(\"{name: #}\")",
+                "    public abstract Query search(String name);",
+                "}");
+
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0)).contains("must be declared in an interface");
+    }
+
+    private Object compileAndCreate(String name, String... lines) throws Exception {
+        compile(name, lines);
+        assertThat(errors).isEmpty();
+
+        ClassLoader classLoader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+        Class<?> generated = classLoader.loadClass("org.jongo.generated." + name + QueryProcessor.SUFFIX);
+        return generated.getConstructor(Mapper.class).newInstance(mapper);
+    }
+
+    private void compile(String name, String... lines) {
+        StringBuilder source = new StringBuilder("package org.jongo.generated;\nimport org.jongo.query.Query;\n");
+        for (String line : lines) {
+            source.append(line).append('\n');
+        }
+        final String content = source.toString();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///org/jongo/generated/" + name + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return content;
+            }
+        };
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        List<String> options = Arrays.asList("-d", output.getAbsolutePath(), "-s", output.getAbsolutePath(),
+                "-classpath", System.getProperty("java.class.path"));
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, Arrays.asList(file));
+        task.setProcessors(Arrays.asList(new QueryProcessor()));
+        task.call();
+
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.getMessage(null));
+            }
+        }
+    }
+
+    private Query invoke(Object queries, String method, Object... parameters) throws Exception {
+        for (java.lang.reflect.Method candidate : queries.getClass().getMethods()) {
+            if (candidate.getName().equals(method)) {
+                return (Query) candidate.invoke(queries, parameters);
+            }
+        }
+        throw new NoSuchMethodException(method);
+    }
+}
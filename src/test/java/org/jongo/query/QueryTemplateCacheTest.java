@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.BasicDBObject;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryTemplateCacheTest {
+
+    @Test
+    public void shouldCountHitsAndMisses() throws Exception {
+
+        QueryTemplateCache cache = new QueryTemplateCache(10);
+
+        cache.get(QueryTemplate.class, "#", "{a:1}");
+        cache.put(QueryTemplate.class, "#", "{a:1}", template("{a:1}"));
+        cache.get(QueryTemplate.class, "#", "{a:1}");
+
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeyTemplatesByToken() throws Exception {
+
+        QueryTemplateCache cache = new QueryTemplateCache(10);
+
+        cache.put(QueryTemplate.class, "#", "{a:1}", template("{a:1}"));
+
+        assertThat(cache.get(QueryTemplate.class, "@", "{a:1}")).isNull();
+        assertThat(cache.get(QueryTemplate.class, "#", "{a:1}")).isNotNull();
+    }
+
+    @Test
+    public void shouldEvictOldestTemplatesWhenFull() throws Exception {
+
+        QueryTemplateCache cache = new QueryTemplateCache(2);
+
+        cache.put(QueryTemplate.class, "#", "{a:1}", template("{a:1}"));
+        cache.put(QueryTemplate.class, "#", "{b:1}", template("{b:1}"));
+        cache.put(QueryTemplate.class, "#", "{c:1}", template("{c:1}"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(cache.get(QueryTemplate.class, "#", "{a:1}")).isNull();
+        assertThat(cache.get(QueryTemplate.class, "#", "{c:1}")).isNotNull();
+    }
+
+    @Test
+    public void canBeDisabled() throws Exception {
+
+        QueryTemplateCache cache = new QueryTemplateCache(0);
+
+        cache.put(QueryTemplate.class, "#", "{a:1}", template("{a:1}"));
+
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    private static QueryTemplate template(String query) {
+        return QueryTemplate.compile(BasicDBObject.parse(query), "marshall");
+    }
+}
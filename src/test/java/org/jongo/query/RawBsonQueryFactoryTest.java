@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2011 Benoît GUÉROUT <bguerout at gmail dot com> and Yves AMSELLEM <amsellem dot yves at gmail dot com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jongo.query;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.jongo.marshall.jackson.JacksonEngine;
+import org.jongo.marshall.jackson.configuration.Mapping;
+import org.jongo.model.Coordinate;
+import org.jongo.model.Friend;
+import org.jongo.util.ErrorObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RawBsonQueryFactoryTest {
+
+    private RawBsonQueryFactory factory;
+    private BsonQueryFactory bsonQueryFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        JacksonEngine engine = new JacksonEngine(Mapping.defaultMapping());
+        factory = new RawBsonQueryFactory(engine);
+        bsonQueryFactory = new BsonQueryFactory(engine);
+    }
+
+    @Test
+    public void shouldCreateRawBsonDocument() throws Exception {
+
+        Query query = factory.createQuery("{id:'\"[12,.:[]{}3]'}");
+
+        assertThat(query.toBsonDocument()).isInstanceOf(RawBsonDocument.class);
+        assertThat(query.toDBObject()).isEqualTo(new BasicDBObject("id", "\"[12,.:[]{}3]"));
+    }
+
+    @Test
+    public void shouldCreateSameDocumentsThanBsonQueryFactory() throws Exception {
+
+        assertSameDocument("{}");
+        assertSameDocument("{a: 1, b: 'two', c: 3.5, d: true, e: null}");
+        assertSameDocument("{a: {$in: [1, 2, {b: []}]}, c: {}}");
+        assertSameDocument("{id:#}", 123);
+        assertSameDocument("{id:#, test:#}", 123, "456");
+        assertSameDocument("{id:#}", (Object) null);
+        assertSameDocument("{ a: #, b: { c: #, d: #}, e: #}", 1, 2L, new Coordinate(1, 2), "hello");
+        assertSameDocument("{a: [#, 'test2', #]}", "test1", "test3");
+        assertSameDocument("{a: {$in: #}}", Arrays.asList(1, 2, 3));
+        assertSameDocument("{a: [[#], {b: [#, {c: #}]}]}", "x", new Friend("John"), new Date(0));
+        assertSameDocument("{_id:#}", new ObjectId());
+        assertSameDocument("{_id:{$oid:#}}", new ObjectId().toHexString());
+        assertSameDocument("{#: 123, 'name.#': '#'}", "id", "first", "value");
+        assertSameDocument("{date: {$date: 0}, long: {$numberLong: '12'}}");
+        assertSameDocument("#", new Friend("John"));
+        assertSameDocument("{'a':1}, {'b':1}");
+    }
+
+    @Test
+    public void shouldReuseCompiledQueryWithOtherParameters() throws Exception {
+
+        BsonDocument first = factory.createQuery("{a: #, b: {c: [1, #]}}", 1, new Friend("John")).toBsonDocument();
+        BsonDocument second = factory.createQuery("{a: #, b: {c: [1, #]}}", 2, "two").toBsonDocument();
+
+        assertThat(factory.getTemplateCache().getHitCount()).isEqualTo(1);
+        assertThat(first).isEqualTo(BsonDocument.parse("{a: 1, b: {c: [1, {name: 'John'}]}}"));
+        assertThat(second).isEqualTo(BsonDocument.parse("{a: 2, b: {c: [1, 'two']}}"));
+    }
+
+    @Test
+    public void canMaterializeQueryManyTimes() throws Exception {
+
+        Query query = factory.createQuery("{a: #}", "test");
+
+        assertThat(query.toBsonDocument()).isEqualTo(query.toBsonDocument());
+        assertThat(query.toDBObject().get("a")).isEqualTo("test");
+        assertThat(query.toDBObject().get("a")).isEqualTo("test");
+    }
+
+    @Test
+    public void shouldCopyQueryIntoModifiableDocument() throws Exception {
+
+        Query query = factory.createQuery("{friend: #}", new Friend("John"));
+
+        DBObject copy = query.copyDBObject();
+        ((DBObject) copy.get("friend")).removeField("name");
+
+        assertThat(copy).isEqualTo(BasicDBObject.parse("{friend: {}}"));
+        assertThat(query.toBsonDocument()).isEqualTo(BsonDocument.parse("{friend: {name: 'John'}}"));
+    }
+
+    @Test
+    public void shouldBindPreparedQuery() throws Exception {
+
+        PreparedQuery prepared = factory.prepareQuery("{a: #, b: {c: [1, #]}}");
+
+        assertThat(prepared.getParameterCount()).isEqualTo(2);
+        assertThat(prepared.bind(1, "one").toBsonDocument()).isEqualTo(bsonQueryFactory.createQuery("{a: 1, b: {c: [1, 'one']}}").toBsonDocument());
+        assertThat(prepared.bind(2, "two").toBsonDocument()).isEqualTo(bsonQueryFactory.createQuery("{a: 2, b: {c: [1, 'two']}}").toBsonDocument());
+    }
+
+    @Test
+    public void shouldBindPreparedFirstClassArray() throws Exception {
+
+        PreparedQuery prepared = factory.prepareQuery("[{a: #}, {b: 2}]");
+
+        assertThat(prepared.bind(1).toDBObject()).isInstanceOf(BasicDBList.class);
+    }
+
+    @Test
+    public void shouldDelegateFirstClassArrays() throws Exception {
+
+        DBObject dbo = factory.createQuery("[{a:#}, {b:2}]", 1).toDBObject();
+
+        assertThat(dbo).isInstanceOf(BasicDBList.class);
+        assertThat(((DBObject) dbo.get("0")).get("a")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAllowToCreateNullQuery() throws Exception {
+
+        Query query = factory.createQuery(null);
+
+        assertThat(query.toDBObject()).isNull();
+        assertThat(query.toBsonDocument()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithInvalidParameter() throws Exception {
+
+        factory.createQuery("{id:#}", new ErrorObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWhenNotEnoughParameters() throws Exception {
+
+        factory.createQuery("{id:#,id2:#}", "123", "456");
+        factory.createQuery("{id:#,id2:#}", "123");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWhenTooManyParameters() throws Exception {
+
+        factory.createQuery("{id:#}", 123);
+        factory.createQuery("{id:#}", 123, 456);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithInvalidQuery() throws Exception {
+
+        factory.createQuery("{id:");
+    }
+
+    private void assertSameDocument(String query, Object... parameters) {
+        BsonDocument expected = bsonQueryFactory.createQuery(query, parameters).toBsonDocument();
+
+        BsonDocument compiled = factory.createQuery(query, parameters).toBsonDocument();
+        BsonDocument cached = factory.createQuery(query, parameters).toBsonDocument();
+
+        assertThat(compiled).isEqualTo(expected);
+        assertThat(cached).isEqualTo(expected);
+    }
+}